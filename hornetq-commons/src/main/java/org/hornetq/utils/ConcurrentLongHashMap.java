@@ -0,0 +1,446 @@
+/*
+ * Copyright 2009 Red Hat, Inc.
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package org.hornetq.utils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A concurrent map keyed by primitive longs.
+ * <p>
+ * Keys are never boxed and no entry object is allocated per mapping: each segment keeps its keys and
+ * values on two parallel arrays using open addressing with linear probing, and removals shift the
+ * following entries back instead of leaving tombstones. Every operation, reads included, locks the
+ * segment of its key, so threads only contend when they use keys of the same segment. Unlike a
+ * {@link java.util.concurrent.ConcurrentHashMap}, reads are not lock free.
+ * <p>
+ * Null values are not supported.
+ */
+public class ConcurrentLongHashMap<V>
+{
+   private static final int DEFAULT_EXPECTED_ITEMS = 256;
+
+   private static final int DEFAULT_CONCURRENCY_LEVEL = 16;
+
+   private static final float FILL_FACTOR = 0.66f;
+
+   private final Segment<V>[] segments;
+
+   private final int segmentMask;
+
+   public ConcurrentLongHashMap()
+   {
+      this(DEFAULT_EXPECTED_ITEMS, DEFAULT_CONCURRENCY_LEVEL);
+   }
+
+   public ConcurrentLongHashMap(final int expectedItems)
+   {
+      this(expectedItems, DEFAULT_CONCURRENCY_LEVEL);
+   }
+
+   @SuppressWarnings("unchecked")
+   public ConcurrentLongHashMap(final int expectedItems, final int concurrencyLevel)
+   {
+      if (expectedItems < 0)
+      {
+         throw new IllegalArgumentException("expectedItems=" + expectedItems);
+      }
+
+      if (concurrencyLevel <= 0)
+      {
+         throw new IllegalArgumentException("concurrencyLevel=" + concurrencyLevel);
+      }
+
+      int numberOfSegments = powerOfTwo(concurrencyLevel);
+
+      segments = (Segment<V>[])new Segment<?>[numberOfSegments];
+
+      segmentMask = numberOfSegments - 1;
+
+      int perSegment = (int)Math.ceil((double)expectedItems / numberOfSegments / FILL_FACTOR);
+
+      for (int i = 0; i < numberOfSegments; i++)
+      {
+         segments[i] = new Segment<V>(powerOfTwo(Math.max(perSegment, 2)));
+      }
+   }
+
+   public int size()
+   {
+      int size = 0;
+      for (Segment<V> segment : segments)
+      {
+         size += segment.size();
+      }
+      return size;
+   }
+
+   public boolean isEmpty()
+   {
+      for (Segment<V> segment : segments)
+      {
+         if (segment.size() != 0)
+         {
+            return false;
+         }
+      }
+      return true;
+   }
+
+   public V get(final long key)
+   {
+      long hash = hash(key);
+      return segmentFor(hash).get(key, (int)hash);
+   }
+
+   public boolean containsKey(final long key)
+   {
+      return get(key) != null;
+   }
+
+   /**
+    * @return the previous value associated with the key, or {@code null} if there was none
+    */
+   public V put(final long key, final V value)
+   {
+      checkValue(value);
+      long hash = hash(key);
+      return segmentFor(hash).put(key, value, (int)hash, false);
+   }
+
+   /**
+    * @return the current value associated with the key, or {@code null} if the value was added
+    */
+   public V putIfAbsent(final long key, final V value)
+   {
+      checkValue(value);
+      long hash = hash(key);
+      return segmentFor(hash).put(key, value, (int)hash, true);
+   }
+
+   public V remove(final long key)
+   {
+      long hash = hash(key);
+      return segmentFor(hash).remove(key, (int)hash);
+   }
+
+   public void clear()
+   {
+      for (Segment<V> segment : segments)
+      {
+         segment.clear();
+      }
+   }
+
+   public void putAll(final ConcurrentLongHashMap<V> other)
+   {
+      for (Segment<V> segment : other.segments)
+      {
+         synchronized (segment)
+         {
+            for (int i = 0; i < segment.values.length; i++)
+            {
+               @SuppressWarnings("unchecked")
+               V value = (V)segment.values[i];
+               if (value != null)
+               {
+                  put(segment.keys[i], value);
+               }
+            }
+         }
+      }
+   }
+
+   /**
+    * Returns a snapshot of the keys. Each segment is copied atomically, but not the map as a whole.
+    */
+   public long[] keys()
+   {
+      long[] keys = new long[size()];
+      int count = 0;
+
+      for (Segment<V> segment : segments)
+      {
+         synchronized (segment)
+         {
+            if (count + segment.size > keys.length)
+            {
+               long[] newKeys = new long[count + segment.size];
+               System.arraycopy(keys, 0, newKeys, 0, count);
+               keys = newKeys;
+            }
+            for (int i = 0; i < segment.values.length; i++)
+            {
+               if (segment.values[i] != null)
+               {
+                  keys[count++] = segment.keys[i];
+               }
+            }
+         }
+      }
+
+      if (count < keys.length)
+      {
+         long[] newKeys = new long[count];
+         System.arraycopy(keys, 0, newKeys, 0, count);
+         keys = newKeys;
+      }
+
+      return keys;
+   }
+
+   /**
+    * Returns a snapshot of the values. Each segment is copied atomically, but not the map as a whole.
+    */
+   public List<V> values()
+   {
+      List<V> values = new ArrayList<V>(size());
+
+      for (Segment<V> segment : segments)
+      {
+         synchronized (segment)
+         {
+            for (Object value : segment.values)
+            {
+               if (value != null)
+               {
+                  @SuppressWarnings("unchecked")
+                  V v = (V)value;
+                  values.add(v);
+               }
+            }
+         }
+      }
+
+      return values;
+   }
+
+   @Override
+   public String toString()
+   {
+      return "ConcurrentLongHashMap [size=" + size() + "]";
+   }
+
+   private Segment<V> segmentFor(final long hash)
+   {
+      return segments[(int)(hash >>> 32) & segmentMask];
+   }
+
+   private static void checkValue(final Object value)
+   {
+      if (value == null)
+      {
+         throw new NullPointerException("null values are not supported");
+      }
+   }
+
+   /** the 64 bits finalizer from MurmurHash3, spreading sequential ids over the whole table */
+   private static long hash(final long key)
+   {
+      long h = key;
+      h ^= h >>> 33;
+      h *= 0xff51afd7ed558ccdL;
+      h ^= h >>> 33;
+      h *= 0xc4ceb9fe1a85ec53L;
+      h ^= h >>> 33;
+      return h;
+   }
+
+   private static int powerOfTwo(final int value)
+   {
+      int result = 1;
+      while (result < value)
+      {
+         result <<= 1;
+      }
+      return result;
+   }
+
+   private static final class Segment<V>
+   {
+      private final int initialCapacity;
+
+      private long[] keys;
+
+      private Object[] values;
+
+      private int size;
+
+      private int resizeThreshold;
+
+      Segment(final int capacity)
+      {
+         initialCapacity = capacity;
+         allocate(capacity);
+      }
+
+      synchronized int size()
+      {
+         return size;
+      }
+
+      @SuppressWarnings("unchecked")
+      synchronized V get(final long key, final int hash)
+      {
+         int mask = values.length - 1;
+         int index = hash & mask;
+
+         while (true)
+         {
+            Object value = values[index];
+
+            if (value == null)
+            {
+               return null;
+            }
+
+            if (keys[index] == key)
+            {
+               return (V)value;
+            }
+
+            index = index + 1 & mask;
+         }
+      }
+
+      @SuppressWarnings("unchecked")
+      synchronized V put(final long key, final V value, final int hash, final boolean onlyIfAbsent)
+      {
+         int mask = values.length - 1;
+         int index = hash & mask;
+
+         while (true)
+         {
+            Object current = values[index];
+
+            if (current == null)
+            {
+               keys[index] = key;
+               values[index] = value;
+
+               if (++size > resizeThreshold)
+               {
+                  rehash(values.length << 1);
+               }
+
+               return null;
+            }
+
+            if (keys[index] == key)
+            {
+               if (!onlyIfAbsent)
+               {
+                  values[index] = value;
+               }
+               return (V)current;
+            }
+
+            index = index + 1 & mask;
+         }
+      }
+
+      @SuppressWarnings("unchecked")
+      synchronized V remove(final long key, final int hash)
+      {
+         int mask = values.length - 1;
+         int index = hash & mask;
+
+         while (true)
+         {
+            Object current = values[index];
+
+            if (current == null)
+            {
+               return null;
+            }
+
+            if (keys[index] == key)
+            {
+               shiftBack(index, mask);
+               size--;
+               return (V)current;
+            }
+
+            index = index + 1 & mask;
+         }
+      }
+
+      synchronized void clear()
+      {
+         size = 0;
+         allocate(initialCapacity);
+      }
+
+      /**
+       * Removes the entry at {@code hole}, moving back any following entry of the same probe sequence so
+       * lookups never stop early on an empty slot.
+       */
+      private void shiftBack(int hole, final int mask)
+      {
+         int index = hole;
+
+         while (true)
+         {
+            index = index + 1 & mask;
+
+            if (values[index] == null)
+            {
+               break;
+            }
+
+            int ideal = (int)hash(keys[index]) & mask;
+
+            // move the entry if its ideal slot is not cyclically within (hole, index]
+            if ((index - ideal & mask) >= (index - hole & mask))
+            {
+               keys[hole] = keys[index];
+               values[hole] = values[index];
+               hole = index;
+            }
+         }
+
+         values[hole] = null;
+      }
+
+      private void rehash(final int newCapacity)
+      {
+         long[] oldKeys = keys;
+         Object[] oldValues = values;
+
+         allocate(newCapacity);
+
+         int mask = newCapacity - 1;
+
+         for (int i = 0; i < oldValues.length; i++)
+         {
+            if (oldValues[i] != null)
+            {
+               int index = (int)hash(oldKeys[i]) & mask;
+               while (values[index] != null)
+               {
+                  index = index + 1 & mask;
+               }
+               keys[index] = oldKeys[i];
+               values[index] = oldValues[i];
+            }
+         }
+      }
+
+      private void allocate(final int capacity)
+      {
+         keys = new long[capacity];
+         values = new Object[capacity];
+         resizeThreshold = Math.min(capacity - 1, (int)(capacity * FILL_FACTOR));
+      }
+   }
+}
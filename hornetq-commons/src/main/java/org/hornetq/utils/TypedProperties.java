@@ -32,6 +32,7 @@ import java.util.Map.Entry;
 import java.util.Set;
 
 import org.hornetq.api.core.HornetQBuffer;
+import org.hornetq.api.core.HornetQBuffers;
 import org.hornetq.api.core.HornetQPropertyConversionException;
 import org.hornetq.api.core.SimpleString;
 
@@ -57,6 +58,19 @@ public final class TypedProperties
 
    private boolean internalProperties;
 
+   private boolean lazyDecode;
+
+   // The properties as they were decoded, from the number of properties on, until they are changed.
+   // The properties map is null meanwhile
+   private byte[] encoded;
+
+   // The positions of the properties in the encoded bytes, and their values once read, built on the first lookup
+   private int[] encodedPositions;
+
+   private PropertyValue[] encodedValues;
+
+   private HornetQBuffer encodedBuffer;
+
    public TypedProperties()
    {
    }
@@ -67,13 +81,40 @@ public final class TypedProperties
       // Note we don't include the attributes or anything else since they already included in the memory estimate
       // of the ServerMessage
 
+      if (encoded != null)
+      {
+         return encoded.length;
+      }
+
       return properties == null ? 0 : size + 2 * DataConstants.SIZE_INT * properties.size();
    }
 
    public TypedProperties(final TypedProperties other)
    {
-      properties = other.properties == null ? null : new HashMap<SimpleString, PropertyValue>(other.properties);
-      size = other.size;
+      synchronized (other)
+      {
+         properties = other.properties == null ? null : new HashMap<SimpleString, PropertyValue>(other.properties);
+         size = other.size;
+         lazyDecode = other.lazyDecode;
+         // the encoded bytes are never changed, they can be shared
+         encoded = other.encoded;
+      }
+   }
+
+   /**
+    * Sets whether {@link #decode(HornetQBuffer)} keeps the properties in their encoded form.
+    * <p>
+    * A property is then only read when it's looked up, and the properties are encoded again by copying the bytes
+    * they were decoded from. They're all read the first time they're changed or listed.
+    */
+   public void setLazyDecode(final boolean lazyDecode)
+   {
+      this.lazyDecode = lazyDecode;
+   }
+
+   public boolean isLazyDecode()
+   {
+      return lazyDecode;
    }
 
    public boolean hasInternalProperties()
@@ -149,7 +190,14 @@ public final class TypedProperties
 
    public void putTypedProperties(final TypedProperties otherProps)
    {
-      if (otherProps == null || otherProps.properties == null)
+      if (otherProps == null)
+      {
+         return;
+      }
+
+      otherProps.decodeEncoded();
+
+      if (otherProps.properties == null)
       {
          return;
       }
@@ -434,7 +482,7 @@ public final class TypedProperties
       }
       else
       {
-         return properties.containsKey(key);
+         return doContainsProperty(key);
       }
    }
 
@@ -446,6 +494,8 @@ public final class TypedProperties
       }
       else
       {
+         decodeEncoded();
+
          return properties.keySet();
       }
    }
@@ -454,108 +504,53 @@ public final class TypedProperties
    {
       byte b = buffer.readByte();
 
+      clearEncoded();
+
       if (b == DataConstants.NULL)
       {
          properties = null;
       }
-      else
+      else if (lazyDecode)
       {
-         int numHeaders = buffer.readInt();
+         int start = buffer.readerIndex();
 
-         properties = new HashMap<SimpleString, PropertyValue>(numHeaders);
-         size = 0;
+         int numHeaders = buffer.readInt();
 
          for (int i = 0; i < numHeaders; i++)
          {
             int len = buffer.readInt();
-            byte[] data = new byte[len];
-            buffer.readBytes(data);
-            SimpleString key = new SimpleString(data);
 
-            byte type = buffer.readByte();
-
-            PropertyValue val;
-
-            switch (type)
+            if (!internalProperties && isInternal(buffer, buffer.readerIndex(), len))
             {
-               case NULL:
-               {
-                  val = new NullValue();
-                  doPutValue(key, val);
-                  break;
-               }
-               case CHAR:
-               {
-                  val = new CharValue(buffer);
-                  doPutValue(key, val);
-                  break;
-               }
-               case BOOLEAN:
-               {
-                  val = new BooleanValue(buffer);
-                  doPutValue(key, val);
-                  break;
-               }
-               case BYTE:
-               {
-                  val = new ByteValue(buffer);
-                  doPutValue(key, val);
-                  break;
-               }
-               case BYTES:
-               {
-                  val = new BytesValue(buffer);
-                  doPutValue(key, val);
-                  break;
-               }
-               case SHORT:
-               {
-                  val = new ShortValue(buffer);
-                  doPutValue(key, val);
-                  break;
-               }
-               case INT:
-               {
-                  val = new IntValue(buffer);
-                  doPutValue(key, val);
-                  break;
-               }
-               case LONG:
-               {
-                  val = new LongValue(buffer);
-                  doPutValue(key, val);
-                  break;
-               }
-               case FLOAT:
-               {
-                  val = new FloatValue(buffer);
-                  doPutValue(key, val);
-                  break;
-               }
-               case DOUBLE:
-               {
-                  val = new DoubleValue(buffer);
-                  doPutValue(key, val);
-                  break;
-               }
-               case STRING:
-               {
-                  val = new StringValue(buffer);
-                  doPutValue(key, val);
-                  break;
-               }
-               default:
-               {
-                  throw HornetQUtilBundle.BUNDLE.invalidType(type);
-               }
+               internalProperties = true;
             }
+
+            buffer.skipBytes(len);
+
+            skipValue(buffer);
          }
+
+         encoded = new byte[buffer.readerIndex() - start];
+         buffer.getBytes(start, encoded);
+
+         properties = null;
+         size = encoded.length - DataConstants.SIZE_INT;
+      }
+      else
+      {
+         doDecode(buffer);
       }
    }
 
    public synchronized void encode(final HornetQBuffer buffer)
    {
-      if (properties == null)
+      if (encoded != null)
+      {
+         buffer.writeByte(DataConstants.NOT_NULL);
+
+         buffer.writeBytes(encoded);
+      }
+      else if (properties == null)
       {
          buffer.writeByte(DataConstants.NULL);
       }
@@ -579,7 +574,7 @@ public final class TypedProperties
 
    public int getEncodeSize()
    {
-      if (properties == null)
+      if (properties == null && encoded == null)
       {
          return DataConstants.SIZE_BYTE;
       }
@@ -591,6 +586,8 @@ public final class TypedProperties
 
    public void clear()
    {
+      decodeEncoded();
+
       if (properties != null)
       {
          properties.clear();
@@ -600,6 +597,8 @@ public final class TypedProperties
    @Override
    public String toString()
    {
+      decodeEncoded();
+
       return "TypedProperties[" + properties + "]";
    }
 
@@ -607,6 +606,8 @@ public final class TypedProperties
 
    private void checkCreateProperties()
    {
+      decodeEncoded();
+
       if (properties == null)
       {
          properties = new HashMap<SimpleString, PropertyValue>();
@@ -633,6 +634,8 @@ public final class TypedProperties
 
    private synchronized Object doRemoveProperty(final SimpleString key)
    {
+      decodeEncoded();
+
       if (properties == null)
       {
          return null;
@@ -652,14 +655,14 @@ public final class TypedProperties
       }
    }
 
-   private synchronized Object doGetProperty(final Object key)
+   private synchronized Object doGetProperty(final SimpleString key)
    {
       if (size == 0)
       {
          return null;
       }
 
-      PropertyValue val = properties.get(key);
+      PropertyValue val = encoded != null ? getEncodedValue(key) : properties.get(key);
 
       if (val == null)
       {
@@ -671,6 +674,259 @@ public final class TypedProperties
       }
    }
 
+   private synchronized boolean doContainsProperty(final SimpleString key)
+   {
+      return encoded != null ? findEncoded(key) >= 0 : properties.containsKey(key);
+   }
+
+   private void doDecode(final HornetQBuffer buffer)
+   {
+      int numHeaders = buffer.readInt();
+
+      properties = new HashMap<SimpleString, PropertyValue>(numHeaders);
+      size = 0;
+
+      for (int i = 0; i < numHeaders; i++)
+      {
+         int len = buffer.readInt();
+         byte[] data = new byte[len];
+         buffer.readBytes(data);
+         SimpleString key = new SimpleString(data);
+
+         doPutValue(key, readValue(buffer));
+      }
+   }
+
+   /**
+    * Reads all the properties kept encoded by a lazy decode into the map, before they're changed or listed.
+    */
+   private synchronized void decodeEncoded()
+   {
+      if (encoded != null)
+      {
+         doDecode(HornetQBuffers.wrappedBuffer(encoded));
+
+         clearEncoded();
+      }
+   }
+
+   private void clearEncoded()
+   {
+      encoded = null;
+      encodedPositions = null;
+      encodedValues = null;
+      encodedBuffer = null;
+   }
+
+   private PropertyValue getEncodedValue(final SimpleString key)
+   {
+      int i = findEncoded(key);
+
+      if (i < 0)
+      {
+         return null;
+      }
+
+      if (encodedValues[i] == null)
+      {
+         encodedBuffer.readerIndex(encodedPositions[i] + DataConstants.SIZE_INT + key.getData().length);
+
+         encodedValues[i] = readValue(encodedBuffer);
+      }
+
+      return encodedValues[i];
+   }
+
+   private int findEncoded(final SimpleString key)
+   {
+      if (encodedPositions == null)
+      {
+         encodedBuffer = HornetQBuffers.wrappedBuffer(encoded);
+
+         int numHeaders = encodedBuffer.readInt();
+
+         encodedPositions = new int[numHeaders];
+         encodedValues = new PropertyValue[numHeaders];
+
+         for (int i = 0; i < numHeaders; i++)
+         {
+            encodedPositions[i] = encodedBuffer.readerIndex();
+
+            encodedBuffer.skipBytes(encodedBuffer.readInt());
+
+            skipValue(encodedBuffer);
+         }
+      }
+
+      byte[] data = key.getData();
+
+      for (int i = 0; i < encodedPositions.length; i++)
+      {
+         int position = encodedPositions[i];
+
+         if (encodedBuffer.getInt(position) == data.length &&
+             equalBytes(encoded, position + DataConstants.SIZE_INT, data))
+         {
+            return i;
+         }
+      }
+
+      return -1;
+   }
+
+   private static boolean equalBytes(final byte[] bytes, final int offset, final byte[] other)
+   {
+      for (int i = 0; i < other.length; i++)
+      {
+         if (bytes[offset + i] != other[i])
+         {
+            return false;
+         }
+      }
+
+      return true;
+   }
+
+   private static boolean isInternal(final HornetQBuffer buffer, final int index, final int length)
+   {
+      byte[] prefix = HQ_PROPNAME.getData();
+
+      if (length < prefix.length)
+      {
+         return false;
+      }
+
+      for (int i = 0; i < prefix.length; i++)
+      {
+         if (buffer.getByte(index + i) != prefix[i])
+         {
+            return false;
+         }
+      }
+
+      return true;
+   }
+
+   private static PropertyValue readValue(final HornetQBuffer buffer)
+   {
+      byte type = buffer.readByte();
+
+      switch (type)
+      {
+         case NULL:
+         {
+            return new NullValue();
+         }
+         case CHAR:
+         {
+            return new CharValue(buffer);
+         }
+         case BOOLEAN:
+         {
+            return new BooleanValue(buffer);
+         }
+         case BYTE:
+         {
+            return new ByteValue(buffer);
+         }
+         case BYTES:
+         {
+            return new BytesValue(buffer);
+         }
+         case SHORT:
+         {
+            return new ShortValue(buffer);
+         }
+         case INT:
+         {
+            return new IntValue(buffer);
+         }
+         case LONG:
+         {
+            return new LongValue(buffer);
+         }
+         case FLOAT:
+         {
+            return new FloatValue(buffer);
+         }
+         case DOUBLE:
+         {
+            return new DoubleValue(buffer);
+         }
+         case STRING:
+         {
+            return new StringValue(buffer);
+         }
+         default:
+         {
+            throw HornetQUtilBundle.BUNDLE.invalidType(type);
+         }
+      }
+   }
+
+   private static void skipValue(final HornetQBuffer buffer)
+   {
+      byte type = buffer.readByte();
+
+      switch (type)
+      {
+         case NULL:
+         {
+            break;
+         }
+         case CHAR:
+         {
+            buffer.skipBytes(DataConstants.SIZE_CHAR);
+            break;
+         }
+         case BOOLEAN:
+         {
+            buffer.skipBytes(DataConstants.SIZE_BOOLEAN);
+            break;
+         }
+         case BYTE:
+         {
+            buffer.skipBytes(DataConstants.SIZE_BYTE);
+            break;
+         }
+         case SHORT:
+         {
+            buffer.skipBytes(DataConstants.SIZE_SHORT);
+            break;
+         }
+         case INT:
+         {
+            buffer.skipBytes(DataConstants.SIZE_INT);
+            break;
+         }
+         case LONG:
+         {
+            buffer.skipBytes(DataConstants.SIZE_LONG);
+            break;
+         }
+         case FLOAT:
+         {
+            buffer.skipBytes(DataConstants.SIZE_FLOAT);
+            break;
+         }
+         case DOUBLE:
+         {
+            buffer.skipBytes(DataConstants.SIZE_DOUBLE);
+            break;
+         }
+         case BYTES:
+         case STRING:
+         {
+            buffer.skipBytes(buffer.readInt());
+            break;
+         }
+         default:
+         {
+            throw HornetQUtilBundle.BUNDLE.invalidType(type);
+         }
+      }
+   }
+
    // Inner classes ------------------------------------------------------------------------------
 
    private static abstract class PropertyValue
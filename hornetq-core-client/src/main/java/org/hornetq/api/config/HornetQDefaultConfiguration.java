@@ -50,12 +50,15 @@ public final class HornetQDefaultConfiguration
    public static final String DEFAULT_PAGING_DIR = "data/paging";
    public static final String DEFAULT_LARGE_MESSAGES_DIR = "data/largemessages";
    public static final int DEFAULT_MAX_CONCURRENT_PAGE_IO = 5;
+   public static final long DEFAULT_GLOBAL_PAGE_CACHE_MAX_SIZE = -1;
    public static final boolean DEFAULT_CREATE_JOURNAL_DIR = true;
    public static final boolean DEFAULT_JOURNAL_SYNC_TRANSACTIONAL = true;
    public static final boolean DEFAULT_JOURNAL_SYNC_NON_TRANSACTIONAL = true;
    public static final int DEFAULT_JOURNAL_FILE_SIZE = 10485760;
    public static final int DEFAULT_JOURNAL_COMPACT_MIN_FILES = 10;
    public static final int DEFAULT_JOURNAL_COMPACT_PERCENTAGE = 30;
+   public static final int DEFAULT_JOURNAL_LOAD_THREADS = 1;
+   public static final long DEFAULT_JOURNAL_COMPACT_MAX_RATE = -1;
    public static final int DEFAULT_JOURNAL_MIN_FILES = 2;
    public static final int DEFAULT_JOURNAL_MAX_IO_AIO = 500;
    public static final int DEFAULT_JOURNAL_BUFFER_TIMEOUT_AIO = JournalConstants.DEFAULT_JOURNAL_BUFFER_TIMEOUT_AIO;
@@ -63,6 +66,7 @@ public final class HornetQDefaultConfiguration
    public static final int DEFAULT_JOURNAL_MAX_IO_NIO = 1;
    public static final int DEFAULT_JOURNAL_BUFFER_TIMEOUT_NIO = JournalConstants.DEFAULT_JOURNAL_BUFFER_TIMEOUT_NIO;
    public static final int DEFAULT_JOURNAL_BUFFER_SIZE_NIO = JournalConstants.DEFAULT_JOURNAL_BUFFER_SIZE_NIO;
+   public static final boolean DEFAULT_JOURNAL_BUFFER_TIMEOUT_ADAPTIVE = false;
    public static final boolean DEFAULT_JOURNAL_LOG_WRITE_RATE = false;
    public static final int DEFAULT_JOURNAL_PERF_BLAST_PAGES = -1;
    public static final boolean DEFAULT_RUN_SYNC_SPEED_TEST = false;
@@ -86,6 +90,8 @@ public final class HornetQDefaultConfiguration
    public static final int DEFAULT_MESSAGE_EXPIRY_THREAD_PRIORITY = 3;
    public static final int DEFAULT_ID_CACHE_SIZE = 20000;
    public static final boolean DEFAULT_PERSIST_ID_CACHE = true;
+   public static final boolean DEFAULT_ID_CACHE_OFF_HEAP = false;
+   public static final int DEFAULT_ID_CACHE_FILTER_RATIO = 8;
    public static final boolean DEFAULT_CLUSTER_DUPLICATE_DETECTION = true;
    public static final boolean DEFAULT_CLUSTER_FORWARD_WHEN_NO_CONSUMERS = false;
    public static final int DEFAULT_CLUSTER_MAX_HOPS = 1;
@@ -98,8 +104,12 @@ public final class HornetQDefaultConfiguration
    public static final boolean DEFAULT_DIVERT_EXCLUSIVE = false;
    public static final boolean DEFAULT_BRIDGE_DUPLICATE_DETECTION = true;
    public static final int DEFAULT_BRIDGE_RECONNECT_ATTEMPTS = -1;
+   public static final int DEFAULT_BRIDGE_BATCH_SIZE = -1;
+   public static final int DEFAULT_BRIDGE_MAX_PENDING_ACKS = -1;
    public static final long DEFAULT_SERVER_DUMP_INTERVAL = -1;
    public static final boolean DEFAULT_FAILOVER_ON_SERVER_SHUTDOWN = false;
+   public static final boolean DEFAULT_REPLICATION_BATCHING = false;
+   public static final boolean DEFAULT_REPLICATION_COMPRESSED = false;
    public static final int DEFAULT_MEMORY_WARNING_THRESHOLD = 25;
    public static final long DEFAULT_MEMORY_MEASURE_INTERVAL = -1; // in milliseconds
    public static final long DEFAULT_FAILBACK_DELAY = 5000; // in milliseconds
@@ -60,6 +60,10 @@ public interface ClientMessage extends Message
     * If the session responsible to acknowledge this message has  {@code autoCommitAcks}
     * set to {@code true}, the transaction will automatically commit the current transaction.
     * Otherwise, this acknwoledgement will not be committed until the client commits the session transaction.
+    * <p>
+    * Unless the session blocks on acknowledge, the acknowledgement is sent along with the next ones once
+    * {@link ServerLocator#getAckBatchSize() ackBatchSize} bytes of messages are acknowledged, or when the
+    * session is committed or the consumer is closed, whichever comes first.
     *
     * @throws HornetQException if an error occured while acknowledging the message.
     *
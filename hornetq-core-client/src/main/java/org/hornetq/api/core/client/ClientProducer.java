@@ -88,6 +88,35 @@ public interface ClientProducer
     */
    void send(String address, Message message) throws HornetQException;
 
+   /**
+    * Sends a message to an address specified in {@link ClientSession#createProducer(String)} or
+    * similar methods, without blocking whatever its type. <br>
+    * <br>
+    * The handler is called once the server has received the message and, if it is durable, persisted
+    * it, so many durable sends can be in flight at the same time. The number of sends of a session waiting
+    * for their handler is bounded by {@link ServerLocator#setProducerMaxPendingSends(int)}, beyond
+    * which this blocks until the server has confirmed earlier sends. <br>
+    * <br>
+    * This requires {@link ServerLocator#setConfirmationWindowSize(int)} to be set to a value
+    * greater than or equal to 0.
+    * @param message the message to send
+    * @param handler the handler called when the server has confirmed the send
+    * @throws HornetQException if an exception occurs while sending the message
+    */
+   void send(Message message, SendAcknowledgementHandler handler) throws HornetQException;
+
+   /**
+    * Sends a message to the specified address instead of the ClientProducer's address, without
+    * blocking whatever its type. <br>
+    * <br>
+    * The handler is called as for {@link #send(Message, SendAcknowledgementHandler)}.
+    * @param address the address where the message will be sent
+    * @param message the message to send
+    * @param handler the handler called when the server has confirmed the send
+    * @throws HornetQException if an exception occurs while sending the message
+    */
+   void send(SimpleString address, Message message, SendAcknowledgementHandler handler) throws HornetQException;
+
    /**
     * Closes the ClientProducer. If already closed nothing is done.
     *
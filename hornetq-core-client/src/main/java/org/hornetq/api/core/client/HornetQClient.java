@@ -52,6 +52,12 @@ public final class HornetQClient
 
    public static final int DEFAULT_PRODUCER_MAX_RATE = -1;
 
+   public static final int DEFAULT_PRODUCER_BATCH_SIZE = -1;
+
+   public static final long DEFAULT_PRODUCER_BATCH_DELAY = 1;
+
+   public static final int DEFAULT_PRODUCER_MAX_PENDING_SENDS = 1000;
+
    public static final boolean DEFAULT_BLOCK_ON_ACKNOWLEDGE = false;
 
    public static final boolean DEFAULT_BLOCK_ON_DURABLE_SEND = true;
@@ -304,6 +304,73 @@ public interface ServerLocator
     */
    void setProducerMaxRate(int producerMaxRate);
 
+   /**
+    * Returns the size of the batches of messages sent by the producers created through this factory.
+    *
+    * The non blocking sends of a session are sent in batches of about this many bytes, or when the first message of
+    * a batch has waited for {@link #getProducerBatchDelay()}. The sends are confirmed and acknowledged to the
+    * {@link SendAcknowledgementHandler} message by message as usual.
+    *
+    * Value is -1 (to send each message on its own) or a positive number of bytes.
+    * Default value is {@link HornetQClient#DEFAULT_PRODUCER_BATCH_SIZE}.
+    *
+    * @return the size (in bytes) of the batches of messages sent by the producers
+    */
+   int getProducerBatchSize();
+
+   /**
+    * Sets the size of the batches of messages sent by the producers created through this factory.
+    *
+    * Value must be -1 (to send each message on its own) or a positive number of bytes.
+    *
+    * @param producerBatchSize size (in bytes) of the batches of messages sent by the producers
+    */
+   void setProducerBatchSize(int producerBatchSize);
+
+   /**
+    * Returns the maximum time a message waits in a batch before the batch is sent, when the producers batch their
+    * messages.
+    *
+    * Default value is {@link HornetQClient#DEFAULT_PRODUCER_BATCH_DELAY}.
+    *
+    * @return the maximum time (in milliseconds) a message waits in a batch
+    */
+   long getProducerBatchDelay();
+
+   /**
+    * Sets the maximum time a message waits in a batch before the batch is sent, when the producers batch their
+    * messages.
+    *
+    * Value must be greater than or equal to 0.
+    *
+    * @param producerBatchDelay maximum time (in milliseconds) a message waits in a batch
+    */
+   void setProducerBatchDelay(long producerBatchDelay);
+
+   /**
+    * Returns the maximum number of sends with a {@link SendAcknowledgementHandler} of a session which can wait for
+    * their confirmation by the server.
+    * <p>
+    * A send through {@link ClientProducer#send(org.hornetq.api.core.Message, SendAcknowledgementHandler)} blocks
+    * while there are this many of them.
+    *
+    * Value is -1 (to disable the limit) or a positive number of sends.
+    * Default value is {@link HornetQClient#DEFAULT_PRODUCER_MAX_PENDING_SENDS}.
+    *
+    * @return the maximum number of sends waiting for their confirmation
+    */
+   int getProducerMaxPendingSends();
+
+   /**
+    * Sets the maximum number of sends with a {@link SendAcknowledgementHandler} of a session which can wait for
+    * their confirmation by the server.
+    *
+    * Value must be -1 (to disable the limit) or a positive number of sends.
+    *
+    * @param producerMaxPendingSends maximum number of sends waiting for their confirmation
+    */
+   void setProducerMaxPendingSends(int producerMaxPendingSends);
+
    /**
     * Returns whether consumers created through this factory will block while
     * sending message acknowledgments or do it asynchronously.
@@ -430,6 +497,10 @@ public interface ServerLocator
    /**
     * Sets the acknowledgments batch size.
     *
+    * The acknowledgments of a consumer, cumulative or individual, are sent once this many bytes of messages
+    * are acknowledged, or when the session is committed or the consumer is closed. With 0 they're sent right
+    * away. The individual acknowledgments of the sessions blocking on acknowledge are always sent right away.
+    *
     * Value must be equal or greater than 0.
     *
     * @param ackBatchSize
@@ -62,6 +62,26 @@ public interface AddressControl
     */
    long getNumberOfBytesPerPage() throws Exception;
 
+   /**
+    * Returns the number of bytes estimated for the pages cached in memory for this address.
+    */
+   long getPageCacheSize() throws Exception;
+
+   /**
+    * Returns the number of times a page was found on the page cache of this address.
+    */
+   long getPageCacheHits() throws Exception;
+
+   /**
+    * Returns the number of times a page had to be read as it was not on the page cache of this address.
+    */
+   long getPageCacheMisses() throws Exception;
+
+   /**
+    * Returns the number of pages evicted from the page cache of this address to keep it under its limits.
+    */
+   long getPageCacheEvictions() throws Exception;
+
    /**
     * Returns the names of all bindings (both queues and diverts) bound to this address
     */
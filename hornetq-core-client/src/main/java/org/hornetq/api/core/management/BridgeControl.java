@@ -81,4 +81,29 @@ public interface BridgeControl extends HornetQComponentControl
     * Returns whether this bridge is using high availability
     */
    boolean isHA();
+
+   /**
+    * Returns the batch size in bytes this bridge uses to forward messages, -1 if it forwards them one by one.
+    */
+   int getBatchSize();
+
+   /**
+    * Returns the maximum number of forwarded messages not yet confirmed by the target, -1 if there is no limit.
+    */
+   int getMaxPendingAcks();
+
+   /**
+    * Returns the number of messages forwarded by this bridge and not yet confirmed by the target.
+    */
+   long getMessagesInFlight();
+
+   /**
+    * Returns the number of messages forwarded by this bridge and confirmed by the target.
+    */
+   long getMessagesConfirmed();
+
+   /**
+    * Returns the average time in milliseconds between forwarding a message and its confirmation by the target.
+    */
+   double getAverageConfirmationLatency();
 }
@@ -140,6 +140,62 @@ public interface HornetQServerControl
     */
    int getJournalBufferTimeout();
 
+   /**
+    * Returns whether the timeout used to flush the journal buffer follows the observed sync latency.
+    */
+   boolean isJournalBufferTimeoutAdaptive();
+
+   /**
+    * Returns the timeout (in nanoseconds) currently used to flush the journal buffer.
+    * <br>
+    * It's lower than the configured timeout when the timeout is adaptive.
+    */
+   long getJournalBufferEffectiveTimeout();
+
+   /**
+    * Returns the average time (in nanoseconds) taken by the flushes of the journal buffer requiring a sync,
+    * or -1 if none was done yet.
+    */
+   long getJournalSyncLatency();
+
+   /**
+    * Returns the average number of records written by a flush of the journal buffer.
+    */
+   double getJournalBufferAverageBatchSize();
+
+   /**
+    * Returns the number of flushes of the journal buffer done because a record required a sync and the timeout expired.
+    */
+   long getJournalBufferFlushesOnTimeout();
+
+   /**
+    * Returns the number of flushes of the journal buffer done because the buffer, or the journal file, was full.
+    */
+   long getJournalBufferFlushesOnFullBuffer();
+
+   /**
+    * Returns the number of flushes of the journal buffer requested by the journal, e.g. when moving to the next file.
+    */
+   long getJournalBufferFlushesOnRequest();
+
+   /**
+    * Returns the average time (in nanoseconds) between sending a packet to the backup and receiving its response,
+    * or -1 if this server isn't replicating to a backup or no response was received yet.
+    */
+   long getReplicationRoundTripTime();
+
+   /**
+    * Returns the average number of replicated operations sent to the backup per packet, it's 1 when the replication
+    * isn't batched.
+    */
+   double getReplicationAverageBatchSize();
+
+   /**
+    * Returns the size of the batches sent to the backup after compression relative to their size before, or 1 if
+    * none was compressed.
+    */
+   double getReplicationCompressionRatio();
+
    /**
     * do any clients failover on a server shutdown
     */
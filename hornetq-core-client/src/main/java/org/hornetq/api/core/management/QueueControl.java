@@ -67,6 +67,11 @@ public interface QueueControl
     */
    long getScheduledCount();
 
+   /**
+    * Returns the number of occupied slots of the timing wheel holding the scheduled messages of this queue.
+    */
+   int getScheduledWheelOccupancy();
+
    /**
     * Returns the number of consumers consuming messages from this queue.
     */
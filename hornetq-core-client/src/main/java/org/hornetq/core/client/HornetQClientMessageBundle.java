@@ -335,7 +335,7 @@ public interface HornetQClientMessageBundle
    @Message(id = 119091, value = "No queue found for {0}", format = Message.Format.MESSAGE_FORMAT)
    IllegalArgumentException noQueueFound(String otherQueueName);
 
-   @Message(id = 119092, value = "Only NIO and AsyncIO are supported journals", format = Message.Format.MESSAGE_FORMAT)
+   @Message(id = 119092, value = "Only NIO, AsyncIO and Mapped are supported journals", format = Message.Format.MESSAGE_FORMAT)
    IllegalArgumentException invalidJournal();
 
    @Message(id = 119094, value = "Directory {0} does not exist and cannot be created", format = Message.Format.MESSAGE_FORMAT)
@@ -480,4 +480,8 @@ public interface HornetQClientMessageBundle
          , format = Message.Format.MESSAGE_FORMAT)
    HornetQInterceptorRejectedPacketException interceptorRejectedPacket(String interceptionResult);
 
+   @Message(id = 119145, value = "Cannot send with a SendAcknowledgementHandler, the confirmation-window-size of the session factory must be set to a positive value"
+         , format = Message.Format.MESSAGE_FORMAT)
+   HornetQIllegalStateException sendAcknowledgementWithoutConfirmationWindow();
+
 }
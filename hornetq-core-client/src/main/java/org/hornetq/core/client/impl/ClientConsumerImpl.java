@@ -16,10 +16,12 @@ package org.hornetq.core.client.impl;
 import java.io.File;
 import java.security.AccessController;
 import java.security.PrivilegedAction;
+import java.util.Arrays;
 import java.util.Iterator;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.Executor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.hornetq.api.core.HornetQException;
 import org.hornetq.api.core.SimpleString;
@@ -111,7 +113,7 @@ public final class ClientConsumerImpl implements ClientConsumerInternal
 
    private volatile boolean closed;
 
-   private volatile int creditsToSend;
+   private final AtomicInteger creditsToSend = new AtomicInteger();
 
    private volatile boolean failedOver;
 
@@ -121,6 +123,11 @@ public final class ClientConsumerImpl implements ClientConsumerInternal
 
    private volatile ClientMessageInternal lastAckedMessage;
 
+   // the first and the last ID of each range of consecutive IDs of the messages acknowledged individually, not sent yet
+   private long[] individualAcks = new long[16];
+
+   private int individualAcksLength;
+
    private boolean stopped = false;
 
    private long forceDeliveryCount;
@@ -514,7 +521,9 @@ public final class ClientConsumerImpl implements ClientConsumerInternal
 
       lastAckedMessage = null;
 
-      creditsToSend = 0;
+      individualAcksLength = 0;
+
+      creditsToSend.set(0);
 
       failedOver = true;
 
@@ -745,13 +754,11 @@ public final class ClientConsumerImpl implements ClientConsumerInternal
       {
          ackBytes += message.getEncodeSize();
 
+         lastAckedMessage = cmi;
+
          if (ackBytes >= ackBatchSize)
          {
-            doAck(cmi);
-         }
-         else
-         {
-            lastAckedMessage = cmi;
+            flushAcks();
          }
       }
    }
@@ -763,11 +770,25 @@ public final class ClientConsumerImpl implements ClientConsumerInternal
          flushAcks();
       }
 
-      session.individualAcknowledge(id, message.getMessageID());
+      addIndividualAck(message.getMessageID());
+
+      ackBytes += message.getEncodeSize();
+
+      // a blocking acknowledgement has to be done when it returns
+      if (ackBytes >= ackBatchSize || session.isBlockOnAcknowledge())
+      {
+         flushAcks();
+      }
    }
 
    public void flushAcks() throws HornetQException
    {
+      // the individual acks go first, as acknowledging up to a message would acknowledge them as well
+      if (individualAcksLength > 0)
+      {
+         doIndividualAck();
+      }
+
       if (lastAckedMessage != null)
       {
          doAck(lastAckedMessage);
@@ -785,9 +806,7 @@ public final class ClientConsumerImpl implements ClientConsumerInternal
    {
       if (clientWindowSize >= 0)
       {
-         creditsToSend += messageBytes;
-
-         if (creditsToSend >= clientWindowSize)
+         if (creditsToSend.addAndGet(messageBytes) >= clientWindowSize)
          {
             if (clientWindowSize == 0 && discountSlowConsumer)
             {
@@ -798,9 +817,7 @@ public final class ClientConsumerImpl implements ClientConsumerInternal
 
                // sending the credits - 1 initially send to fire the slow consumer, or the slow consumer would be
                // always buffering one after received the first message
-               final int credits = creditsToSend - 1;
-
-               creditsToSend = 0;
+               final int credits = creditsToSend.getAndSet(0) - 1;
 
                if (credits > 0)
                {
@@ -814,9 +831,7 @@ public final class ClientConsumerImpl implements ClientConsumerInternal
                   HornetQClientLogger.LOGGER.debug("Sending " + messageBytes + " from flow-control");
                }
 
-               final int credits = creditsToSend;
-
-               creditsToSend = 0;
+               final int credits = creditsToSend.getAndSet(0);
 
                if (credits > 0)
                {
@@ -1144,7 +1159,52 @@ public final class ClientConsumerImpl implements ClientConsumerInternal
 
       lastAckedMessage = null;
 
-      session.acknowledge(id, message.getMessageID());
+      session.acknowledge(id, message.getMessageID(), takeCredits());
+   }
+
+   private void addIndividualAck(final long messageID)
+   {
+      if (individualAcksLength > 0 && individualAcks[individualAcksLength - 1] == messageID - 1)
+      {
+         individualAcks[individualAcksLength - 1] = messageID;
+      }
+      else
+      {
+         if (individualAcksLength == individualAcks.length)
+         {
+            individualAcks = Arrays.copyOf(individualAcks, individualAcksLength * 2);
+         }
+
+         individualAcks[individualAcksLength++] = messageID;
+
+         individualAcks[individualAcksLength++] = messageID;
+      }
+   }
+
+   private void doIndividualAck() throws HornetQException
+   {
+      long[] messageIDRanges = Arrays.copyOf(individualAcks, individualAcksLength);
+
+      ackBytes = 0;
+
+      individualAcksLength = 0;
+
+      // the credits go with the last acknowledgement sent
+      session.individualAcknowledge(id, messageIDRanges, lastAckedMessage == null ? takeCredits() : 0);
+   }
+
+   /**
+    * Takes the credits not sent yet, so they are sent with the acknowledgements instead of on their own later.
+    */
+   private int takeCredits()
+   {
+      // the credits of a slow consumer are given back message by message, no need to take them
+      if (clientWindowSize <= 0)
+      {
+         return 0;
+      }
+
+      return creditsToSend.getAndSet(0);
    }
 
    // Inner classes
@@ -22,6 +22,7 @@ import org.hornetq.api.core.HornetQBuffers;
 import org.hornetq.api.core.HornetQException;
 import org.hornetq.api.core.Message;
 import org.hornetq.api.core.SimpleString;
+import org.hornetq.api.core.client.SendAcknowledgementHandler;
 import org.hornetq.core.message.BodyEncoder;
 import org.hornetq.core.message.impl.MessageInternal;
 import org.hornetq.core.protocol.core.Channel;
@@ -70,6 +71,8 @@ public class ClientProducerImpl implements ClientProducerInternal
 
    private final ClientProducerCredits credits;
 
+   private final ClientSendBatcher sendBatcher;
+
    // Static ---------------------------------------------------------------------------------------
 
    // Constructors ---------------------------------------------------------------------------------
@@ -82,7 +85,8 @@ public class ClientProducerImpl implements ClientProducerInternal
                              final boolean autoGroup,
                              final SimpleString groupID,
                              final int minLargeMessageSize,
-                             final Channel channel)
+                             final Channel channel,
+                             final ClientSendBatcher sendBatcher)
    {
       this.channel = channel;
 
@@ -107,6 +111,8 @@ public class ClientProducerImpl implements ClientProducerInternal
 
       this.minLargeMessageSize = minLargeMessageSize;
 
+      this.sendBatcher = sendBatcher;
+
       if (address != null)
       {
          credits = session.getCredits(address, false);
@@ -128,14 +134,14 @@ public class ClientProducerImpl implements ClientProducerInternal
    {
       checkClosed();
 
-      doSend(null, msg);
+      doSend(null, msg, null);
    }
 
    public void send(final SimpleString address, final Message msg) throws HornetQException
    {
       checkClosed();
 
-      doSend(address, msg);
+      doSend(address, msg, null);
    }
 
    public void send(final String address, final Message message) throws HornetQException
@@ -143,6 +149,20 @@ public class ClientProducerImpl implements ClientProducerInternal
       send(SimpleString.toSimpleString(address), message);
    }
 
+   public void send(final Message msg, final SendAcknowledgementHandler handler) throws HornetQException
+   {
+      checkClosed();
+
+      doSend(null, msg, handler);
+   }
+
+   public void send(final SimpleString address, final Message msg, final SendAcknowledgementHandler handler) throws HornetQException
+   {
+      checkClosed();
+
+      doSend(address, msg, handler);
+   }
+
    public synchronized void close() throws HornetQException
    {
       if (closed)
@@ -208,7 +228,10 @@ public class ClientProducerImpl implements ClientProducerInternal
       closed = true;
    }
 
-   private void doSend(final SimpleString address, final Message msg) throws HornetQException
+   /**
+    * @param handler the handler of this send, which never blocks then, or <code>null</code>
+    */
+   private void doSend(final SimpleString address, final Message msg, final SendAcknowledgementHandler handler) throws HornetQException
    {
       session.startCall();
 
@@ -270,42 +293,72 @@ public class ClientProducerImpl implements ClientProducerInternal
             msgI.putStringProperty(Message.HDR_GROUP_ID, groupID);
          }
 
-         boolean sendBlocking = msgI.isDurable() ? blockOnDurableSend : blockOnNonDurableSend;
+         boolean sendBlocking = handler == null && (msgI.isDurable() ? blockOnDurableSend : blockOnNonDurableSend);
+
+         if (handler != null)
+         {
+            // This will block if too many sends are waiting for their confirmation
+
+            session.acquirePendingSend();
+         }
 
-         session.workDone();
+         // whether the handler will be called, returning the pending send
+         boolean sent = false;
 
          try
          {
-            // This will block if credits are not available
+            session.workDone();
 
-            // Note, that for a large message, the encode size only includes the properties + headers
-            // Not the continuations, but this is ok since we are only interested in limiting the amount of
-            // data in *memory* and continuations go straight to the disk
+            try
+            {
+               // This will block if credits are not available
 
-            if (!isLarge)
+               // Note, that for a large message, the encode size only includes the properties + headers
+               // Not the continuations, but this is ok since we are only interested in limiting the amount of
+               // data in *memory* and continuations go straight to the disk
+
+               if (!isLarge)
+               {
+                  theCredits.acquireCredits(msgI.getEncodeSize());
+               }
+            }
+            catch (InterruptedException e)
             {
-               theCredits.acquireCredits(msgI.getEncodeSize());
             }
-         }
-         catch (InterruptedException e)
-         {
-         }
 
-         if (isLarge)
-         {
-            largeMessageSend(sendBlocking, msgI, theCredits);
-         }
-         else
-         {
-            SessionSendMessage packet = new SessionSendMessage(msgI, sendBlocking);
+            if (isLarge)
+            {
+               flushBatch();
 
-            if (sendBlocking)
+               largeMessageSend(sendBlocking, msgI, theCredits, handler);
+            }
+            else if (sendBatcher != null && !sendBlocking)
             {
-               channel.sendBlocking(packet);
+               sendBatcher.send(msgI, handler);
             }
             else
             {
-               channel.sendBatched(packet);
+               flushBatch();
+
+               SessionSendMessage packet = new SessionSendMessage(msgI, sendBlocking, handler);
+
+               if (sendBlocking)
+               {
+                  channel.sendBlocking(packet);
+               }
+               else
+               {
+                  channel.sendBatched(packet);
+               }
+            }
+
+            sent = true;
+         }
+         finally
+         {
+            if (handler != null && !sent)
+            {
+               session.releasePendingSend();
             }
          }
       }
@@ -315,6 +368,17 @@ public class ClientProducerImpl implements ClientProducerInternal
       }
    }
 
+   /**
+    * The messages batched by the session must reach the server before a message which isn't batched.
+    */
+   private void flushBatch()
+   {
+      if (sendBatcher != null)
+      {
+         sendBatcher.flush();
+      }
+   }
+
    private void checkClosed() throws HornetQException
    {
       if (closed)
@@ -331,7 +395,8 @@ public class ClientProducerImpl implements ClientProducerInternal
     */
    private void largeMessageSend(final boolean sendBlocking,
                                  final MessageInternal msgI,
-                                 final ClientProducerCredits credits) throws HornetQException
+                                 final ClientProducerCredits credits,
+                                 final SendAcknowledgementHandler handler) throws HornetQException
    {
 
       if (session.isCompressLargeMessages())
@@ -368,15 +433,15 @@ public class ClientProducerImpl implements ClientProducerInternal
 
       if (msgI.isServerMessage())
       {
-         largeMessageSendServer(sendBlocking, msgI, credits);
+         largeMessageSendServer(sendBlocking, msgI, credits, handler);
       }
       else if (input != null)
       {
-         largeMessageSendStreamed(sendBlocking, msgI, input, credits);
+         largeMessageSendStreamed(sendBlocking, msgI, input, credits, handler);
       }
       else
       {
-         largeMessageSendBuffered(sendBlocking, msgI, credits);
+         largeMessageSendBuffered(sendBlocking, msgI, credits, handler);
       }
    }
 
@@ -389,7 +454,8 @@ public class ClientProducerImpl implements ClientProducerInternal
     */
    private void largeMessageSendServer(final boolean sendBlocking,
                                        final MessageInternal msgI,
-                                       final ClientProducerCredits credits) throws HornetQException
+                                       final ClientProducerCredits credits,
+                                       final SendAcknowledgementHandler handler) throws HornetQException
    {
       BodyEncoder context = msgI.getBodyEncoder();
 
@@ -417,7 +483,9 @@ public class ClientProducerImpl implements ClientProducerInternal
                                                                                             bodyBuffer.toByteBuffer()
                                                                                                       .array(),
                                                                                             !lastChunk,
-                                                                                            lastChunk && sendBlocking);
+                                                                                            lastChunk && sendBlocking,
+                                                                                            -1,
+                                                                                            lastChunk ? handler : null);
 
             if (sendBlocking && lastChunk)
             {
@@ -451,10 +519,15 @@ public class ClientProducerImpl implements ClientProducerInternal
     */
    private void largeMessageSendBuffered(final boolean sendBlocking,
                                          final MessageInternal msgI,
-                                         final ClientProducerCredits credits) throws HornetQException
+                                         final ClientProducerCredits credits,
+                                         final SendAcknowledgementHandler handler) throws HornetQException
    {
       msgI.getBodyBuffer().readerIndex(0);
-      largeMessageSendStreamed(sendBlocking, msgI, new HornetQBufferInputStream(msgI.getBodyBuffer()), credits);
+      largeMessageSendStreamed(sendBlocking,
+                               msgI,
+                               new HornetQBufferInputStream(msgI.getBodyBuffer()),
+                               credits,
+                               handler);
    }
 
    /**
@@ -465,7 +538,8 @@ public class ClientProducerImpl implements ClientProducerInternal
    private void largeMessageSendStreamed(final boolean sendBlocking,
                                          final MessageInternal msgI,
                                          final InputStream inputStreamParameter,
-                                         final ClientProducerCredits credits) throws HornetQException
+                                         final ClientProducerCredits credits,
+                                         final SendAcknowledgementHandler handler) throws HornetQException
    {
       boolean lastPacket = false;
 
@@ -532,7 +606,7 @@ public class ClientProducerImpl implements ClientProducerInternal
 
             buff = buff2;
 
-            chunk = new SessionSendContinuationMessage(msgI, buff, false, sendBlocking, messageSize.get());
+            chunk = new SessionSendContinuationMessage(msgI, buff, false, sendBlocking, messageSize.get(), handler);
          }
          else
          {
@@ -0,0 +1,165 @@
+/*
+ * Copyright 2009 Red Hat, Inc.
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package org.hornetq.core.client.impl;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.hornetq.api.core.HornetQBuffer;
+import org.hornetq.api.core.HornetQBuffers;
+import org.hornetq.api.core.client.SendAcknowledgementHandler;
+import org.hornetq.core.message.impl.MessageImpl;
+import org.hornetq.core.message.impl.MessageInternal;
+import org.hornetq.core.protocol.core.Channel;
+import org.hornetq.core.protocol.core.impl.wireformat.SessionSendBatchMessage;
+
+/**
+ * Coalesces the non blocking sends of the producers of a session into {@link SessionSendBatchMessage}s, sent when the
+ * encoded messages reach the batch size or when the first one has waited for the batch delay.
+ * <p>
+ * All the non blocking sends of the session go through it so they keep their order, and it must be flushed before
+ * anything which depends on them reaching the server, e.g. a blocking send or a commit.
+ */
+final class ClientSendBatcher
+{
+   // Attributes ----------------------------------------------------
+
+   private final Channel channel;
+
+   private final int batchSize;
+
+   private final long batchDelay;
+
+   private final ScheduledExecutorService scheduledThreadPool;
+
+   private List<MessageInternal> messages;
+
+   private List<SendAcknowledgementHandler> handlers;
+
+   private HornetQBuffer encodedMessages;
+
+   // the number of batches sent, so a delayed flush doesn't send a batch started after it was scheduled
+   private long batches;
+
+   // Constructors --------------------------------------------------
+
+   ClientSendBatcher(final Channel channel,
+                     final int batchSize,
+                     final long batchDelay,
+                     final ScheduledExecutorService scheduledThreadPool)
+   {
+      this.channel = channel;
+
+      this.batchSize = batchSize;
+
+      this.batchDelay = batchDelay;
+
+      this.scheduledThreadPool = scheduledThreadPool;
+   }
+
+   // Package protected ---------------------------------------------
+
+   /**
+    * @param handler the handler of this send, or <code>null</code>
+    */
+   synchronized void send(final MessageInternal message, final SendAcknowledgementHandler handler)
+   {
+      if (messages == null)
+      {
+         messages = new ArrayList<MessageInternal>();
+
+         handlers = new ArrayList<SendAcknowledgementHandler>();
+
+         encodedMessages = HornetQBuffers.dynamicBuffer(batchSize);
+
+         scheduledThreadPool.schedule(new DelayedFlush(batches), batchDelay, TimeUnit.MILLISECONDS);
+      }
+
+      // encoded now, as a message can be changed and sent again once send returns
+      HornetQBuffer buffer = message.getEncodedBuffer();
+
+      encodedMessages.writeBytes(buffer,
+                                 MessageImpl.BUFFER_HEADER_SPACE,
+                                 message.getEndOfMessagePosition() - MessageImpl.BUFFER_HEADER_SPACE);
+
+      messages.add(message);
+
+      handlers.add(handler);
+
+      if (encodedMessages.writerIndex() >= batchSize)
+      {
+         flush();
+      }
+   }
+
+   synchronized void flush()
+   {
+      if (messages == null)
+      {
+         return;
+      }
+
+      SessionSendBatchMessage packet = new SessionSendBatchMessage(messages, handlers, encodedMessages);
+
+      messages = null;
+
+      handlers = null;
+
+      encodedMessages = null;
+
+      batches++;
+
+      // sent holding the lock, so whatever flushed the batch is sent after it
+      channel.sendBatched(packet);
+   }
+
+   /**
+    * Discards the messages not sent yet, when the session is closed after a failure.
+    */
+   synchronized void clear()
+   {
+      messages = null;
+
+      handlers = null;
+
+      encodedMessages = null;
+
+      batches++;
+   }
+
+   // Inner classes -------------------------------------------------
+
+   private final class DelayedFlush implements Runnable
+   {
+      private final long batch;
+
+      DelayedFlush(final long batch)
+      {
+         this.batch = batch;
+      }
+
+      public void run()
+      {
+         synchronized (ClientSendBatcher.this)
+         {
+            if (batches == batch)
+            {
+               flush();
+            }
+         }
+      }
+   }
+}
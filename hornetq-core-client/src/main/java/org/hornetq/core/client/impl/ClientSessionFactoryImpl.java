@@ -878,6 +878,9 @@ public class ClientSessionFactoryImpl implements ClientSessionFactoryInternal, C
                                                                      serverLocator.getConfirmationWindowSize(),
                                                                      serverLocator.getProducerWindowSize(),
                                                                      serverLocator.getProducerMaxRate(),
+                                                                     serverLocator.getProducerBatchSize(),
+                                                                     serverLocator.getProducerBatchDelay(),
+                                                                     serverLocator.getProducerMaxPendingSends(),
                                                                      serverLocator.isBlockOnNonDurableSend(),
                                                                      serverLocator.isBlockOnDurableSend(),
                                                                      serverLocator.isCacheLargeMessagesClient(),
@@ -889,7 +892,8 @@ public class ClientSessionFactoryImpl implements ClientSessionFactoryInternal, C
                                                                      response.getServerVersion(),
                                                                      sessionChannel,
                                                                      orderedExecutorFactory.getExecutor(),
-                                                                     orderedExecutorFactory.getExecutor());
+                                                                     orderedExecutorFactory.getExecutor(),
+                                                                     scheduledThreadPool);
 
                synchronized (sessions)
                {
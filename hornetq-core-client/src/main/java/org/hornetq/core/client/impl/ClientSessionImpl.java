@@ -22,6 +22,8 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.transaction.xa.XAException;
@@ -40,6 +42,7 @@ import org.hornetq.api.core.client.ClientProducer;
 import org.hornetq.api.core.client.FailoverEventListener;
 import org.hornetq.api.core.client.SendAcknowledgementHandler;
 import org.hornetq.api.core.client.SessionFailureListener;
+import org.hornetq.core.message.impl.MessageInternal;
 import org.hornetq.core.protocol.core.Channel;
 import org.hornetq.core.protocol.core.CommandConfirmationHandler;
 import org.hornetq.core.protocol.core.CoreRemotingConnection;
@@ -50,6 +53,7 @@ import org.hornetq.core.protocol.core.impl.wireformat.CreateSessionMessage;
 import org.hornetq.core.protocol.core.impl.wireformat.ReattachSessionMessage;
 import org.hornetq.core.protocol.core.impl.wireformat.ReattachSessionResponseMessage;
 import org.hornetq.core.protocol.core.impl.wireformat.RollbackMessage;
+import org.hornetq.core.protocol.core.impl.wireformat.SessionAcknowledgeCreditMessage;
 import org.hornetq.core.protocol.core.impl.wireformat.SessionAcknowledgeMessage;
 import org.hornetq.core.protocol.core.impl.wireformat.SessionAddMetaDataMessageV2;
 import org.hornetq.core.protocol.core.impl.wireformat.SessionBindingQueryMessage;
@@ -60,6 +64,7 @@ import org.hornetq.core.protocol.core.impl.wireformat.SessionCreateConsumerMessa
 import org.hornetq.core.protocol.core.impl.wireformat.SessionDeleteQueueMessage;
 import org.hornetq.core.protocol.core.impl.wireformat.SessionExpireMessage;
 import org.hornetq.core.protocol.core.impl.wireformat.SessionForceConsumerDelivery;
+import org.hornetq.core.protocol.core.impl.wireformat.SessionIndividualAcknowledgeBatchMessage;
 import org.hornetq.core.protocol.core.impl.wireformat.SessionIndividualAcknowledgeMessage;
 import org.hornetq.core.protocol.core.impl.wireformat.SessionQueueQueryMessage;
 import org.hornetq.core.protocol.core.impl.wireformat.SessionQueueQueryResponseMessage;
@@ -67,6 +72,7 @@ import org.hornetq.core.protocol.core.impl.wireformat.SessionReceiveContinuation
 import org.hornetq.core.protocol.core.impl.wireformat.SessionReceiveLargeMessage;
 import org.hornetq.core.protocol.core.impl.wireformat.SessionReceiveMessage;
 import org.hornetq.core.protocol.core.impl.wireformat.SessionRequestProducerCreditsMessage;
+import org.hornetq.core.protocol.core.impl.wireformat.SessionSendBatchMessage;
 import org.hornetq.core.protocol.core.impl.wireformat.SessionSendContinuationMessage;
 import org.hornetq.core.protocol.core.impl.wireformat.SessionSendMessage;
 import org.hornetq.core.protocol.core.impl.wireformat.SessionUniqueAddMetaDataMessage;
@@ -111,6 +117,9 @@ import org.hornetq.utils.XidCodecSupport;
  */
 final class ClientSessionImpl implements ClientSessionInternal, FailureListener, CommandConfirmationHandler
 {
+   // the first server version taking batches of sends, the consumer credits with the acknowledgements and batches
+   // of individual ones
+   private static final int BATCH_VERSION = 123;
 
    private final Map<String, String> metadata = new HashMap<String, String>();
 
@@ -182,6 +191,12 @@ final class ClientSessionImpl implements ClientSessionInternal, FailureListener,
 
    private final ClientProducerCreditManager producerCreditManager;
 
+   /** <code>null</code> if the sends aren't batched */
+   private final ClientSendBatcher sendBatcher;
+
+   /** the sends with a handler which can wait for their confirmation, <code>null</code> if they aren't bounded */
+   private final Semaphore pendingSends;
+
    private volatile boolean started;
 
    private SendAcknowledgementHandler sendAckHandler;
@@ -218,6 +233,9 @@ final class ClientSessionImpl implements ClientSessionInternal, FailureListener,
                             final int confirmationWindowSize,
                             final int producerWindowSize,
                             final int producerMaxRate,
+                            final int producerBatchSize,
+                            final long producerBatchDelay,
+                            final int producerMaxPendingSends,
                             final boolean blockOnNonDurableSend,
                             final boolean blockOnDurableSend,
                             final boolean cacheLargeMessageClient,
@@ -229,7 +247,8 @@ final class ClientSessionImpl implements ClientSessionInternal, FailureListener,
                             final int version,
                             final Channel channel,
                             final Executor executor,
-                            final Executor flowControlExecutor) throws HornetQException
+                            final Executor flowControlExecutor,
+                            final ScheduledExecutorService scheduledThreadPool) throws HornetQException
    {
       this.sessionFactory = sessionFactory;
 
@@ -286,6 +305,31 @@ final class ClientSessionImpl implements ClientSessionInternal, FailureListener,
       this.groupID = groupID;
 
       producerCreditManager = new ClientProducerCreditManagerImpl(this, producerWindowSize);
+
+      // older servers don't know the batch packet, the messages are sent one by one
+      if (producerBatchSize > 0 && version >= BATCH_VERSION)
+      {
+         sendBatcher = new ClientSendBatcher(channel, producerBatchSize, producerBatchDelay, scheduledThreadPool);
+      }
+      else
+      {
+         sendBatcher = null;
+      }
+
+      if (producerMaxPendingSends > 0)
+      {
+         pendingSends = new Semaphore(producerMaxPendingSends);
+      }
+      else
+      {
+         pendingSends = null;
+      }
+
+      if (confirmationWindowSize >= 0)
+      {
+         // the handler of a send is called on the confirmation of its packet
+         channel.setCommandConfirmationHandler(this);
+      }
    }
 
    // ClientSession implementation
@@ -566,6 +610,8 @@ final class ClientSessionImpl implements ClientSessionInternal, FailureListener,
 
       flushAcks();
 
+      flushSends();
+
       try
       {
          channel.sendBlocking(new PacketImpl(PacketImpl.SESS_COMMIT));
@@ -628,6 +674,8 @@ final class ClientSessionImpl implements ClientSessionInternal, FailureListener,
       // Acks must be flushed here *after connection is stopped and all onmessages finished executing
       flushAcks();
 
+      flushSends();
+
       channel.sendBlocking(new RollbackMessage(isLastMessageAsDelivered));
 
       if (wasStarted)
@@ -781,12 +829,24 @@ final class ClientSessionImpl implements ClientSessionInternal, FailureListener,
       return name;
    }
 
-   /** Acknowledges all messages received by the consumer so far. */
    public void acknowledge(final long consumerID, final long messageID) throws HornetQException
+   {
+      acknowledge(consumerID, messageID, 0);
+   }
+
+   public void individualAcknowledge(final long consumerID, final long messageID) throws HornetQException
+   {
+      individualAcknowledge(consumerID, new long[] { messageID, messageID }, 0);
+   }
+
+   /** Acknowledges all messages received by the consumer so far. */
+   public void acknowledge(final long consumerID, final long messageID, final int credits) throws HornetQException
    {
       // if we're pre-acknowledging then we don't need to do anything
       if (preAcknowledge)
       {
+         sendConsumerCredits(consumerID, credits);
+
          return;
       }
 
@@ -795,55 +855,50 @@ final class ClientSessionImpl implements ClientSessionInternal, FailureListener,
       {
          HornetQClientLogger.LOGGER.debug("client ack messageID = " + messageID);
       }
-      SessionAcknowledgeMessage message = new SessionAcknowledgeMessage(consumerID, messageID, blockOnAcknowledge);
-
-      startCall();
-      try
+      if (credits > 0 && version >= BATCH_VERSION)
       {
-         if (blockOnAcknowledge)
-         {
-            channel.sendBlocking(message);
-         }
-         else
-         {
-            channel.sendBatched(message);
-         }
+         sendAcknowledgement(new SessionAcknowledgeCreditMessage(consumerID, messageID, credits, blockOnAcknowledge));
       }
-      finally
+      else
       {
-         endCall();
+         sendConsumerCredits(consumerID, credits);
+
+         sendAcknowledgement(new SessionAcknowledgeMessage(consumerID, messageID, blockOnAcknowledge));
       }
    }
 
-   public void individualAcknowledge(final long consumerID, final long messageID) throws HornetQException
+   public void individualAcknowledge(final long consumerID, final long[] messageIDRanges, final int credits) throws HornetQException
    {
       // if we're pre-acknowledging then we don't need to do anything
       if (preAcknowledge)
       {
+         sendConsumerCredits(consumerID, credits);
+
          return;
       }
 
       checkClosed();
 
-      SessionIndividualAcknowledgeMessage message = new SessionIndividualAcknowledgeMessage(consumerID,
-                                                                                            messageID,
-                                                                                            blockOnAcknowledge);
-
-      startCall();
-      try
+      if (version >= BATCH_VERSION &&
+          (messageIDRanges.length > 2 || messageIDRanges[0] != messageIDRanges[1] || credits > 0))
       {
-         if (blockOnAcknowledge)
-         {
-            channel.sendBlocking(message);
-         }
-         else
-         {
-            channel.sendBatched(message);
-         }
+         sendAcknowledgement(new SessionIndividualAcknowledgeBatchMessage(consumerID,
+                                                                          messageIDRanges,
+                                                                          credits,
+                                                                          blockOnAcknowledge));
       }
-      finally
+      else
       {
-         endCall();
+         // one acknowledgement per message, as an older server doesn't know the batches
+         sendConsumerCredits(consumerID, credits);
+
+         for (int i = 0; i < messageIDRanges.length; i += 2)
+         {
+            for (long messageID = messageIDRanges[i]; messageID <= messageIDRanges[i + 1]; messageID++)
+            {
+               sendAcknowledgement(new SessionIndividualAcknowledgeMessage(consumerID, messageID, blockOnAcknowledge));
+            }
+         }
       }
    }
 
@@ -943,6 +998,8 @@ final class ClientSessionImpl implements ClientSessionInternal, FailureListener,
 
       try
       {
+         flushSends();
+
          closeChildren();
 
          synchronized (this)
@@ -974,6 +1031,11 @@ final class ClientSessionImpl implements ClientSessionInternal, FailureListener,
 
       producerCreditManager.close();
 
+      if (sendBatcher != null)
+      {
+         sendBatcher.clear();
+      }
+
       cleanUpChildren();
 
       doCleanup(failingOver);
@@ -1274,6 +1336,27 @@ final class ClientSessionImpl implements ClientSessionInternal, FailureListener,
       workDone = true;
    }
 
+   public void acquirePendingSend() throws HornetQException
+   {
+      if (confirmationWindowSize < 0)
+      {
+         throw HornetQClientMessageBundle.BUNDLE.sendAcknowledgementWithoutConfirmationWindow();
+      }
+
+      if (pendingSends != null)
+      {
+         pendingSends.acquireUninterruptibly();
+      }
+   }
+
+   public void releasePendingSend()
+   {
+      if (pendingSends != null)
+      {
+         pendingSends.release();
+      }
+   }
+
    public void returnBlocking()
    {
       channel.returnBlocking();
@@ -1330,14 +1413,27 @@ final class ClientSessionImpl implements ClientSessionInternal, FailureListener,
       {
          SessionSendMessage ssm = (SessionSendMessage)packet;
 
-         sendAckHandler.sendAcknowledged(ssm.getMessage());
+         sendAcknowledged(ssm.getMessage(), ssm.getHandler());
+      }
+      else if (packet.getType() == PacketImpl.SESS_SEND_BATCH)
+      {
+         SessionSendBatchMessage ssbm = (SessionSendBatchMessage)packet;
+
+         List<MessageInternal> messages = ssbm.getMessages();
+
+         List<SendAcknowledgementHandler> handlers = ssbm.getHandlers();
+
+         for (int i = 0; i < messages.size(); i++)
+         {
+            sendAcknowledged(messages.get(i), handlers.get(i));
+         }
       }
       else if (packet.getType() == PacketImpl.SESS_SEND_CONTINUATION)
       {
          SessionSendContinuationMessage scm = (SessionSendContinuationMessage) packet;
          if (!scm.isContinues())
          {
-            sendAckHandler.sendAcknowledged(scm.getMessage());
+            sendAcknowledged(scm.getMessage(), scm.getHandler());
          }
       }
 
@@ -1435,6 +1531,8 @@ final class ClientSessionImpl implements ClientSessionInternal, FailureListener,
 
          flushAcks();
 
+         flushSends();
+
          SessionXAResponseMessage response;
          startCall();
          try
@@ -1654,6 +1752,8 @@ final class ClientSessionImpl implements ClientSessionInternal, FailureListener,
 
          flushAcks();
 
+         flushSends();
+
          SessionXARollbackMessage packet = new SessionXARollbackMessage(xid);
 
          SessionXAResponseMessage response = (SessionXAResponseMessage)channel.sendBlocking(packet);
@@ -1935,7 +2035,8 @@ final class ClientSessionImpl implements ClientSessionInternal, FailureListener,
                                                                autoGroup,
                                                                groupID == null ? null : new SimpleString(groupID),
                                                                minLargeMessageSize,
-                                                               channel);
+                                                               channel,
+                                                               sendBatcher);
 
       addProducer(producer);
 
@@ -2010,6 +2111,57 @@ final class ClientSessionImpl implements ClientSessionInternal, FailureListener,
       }
    }
 
+   private void sendAcknowledgement(final Packet message) throws HornetQException
+   {
+      startCall();
+      try
+      {
+         if (blockOnAcknowledge)
+         {
+            channel.sendBlocking(message);
+         }
+         else
+         {
+            channel.sendBatched(message);
+         }
+      }
+      finally
+      {
+         endCall();
+      }
+   }
+
+   private void sendConsumerCredits(final long consumerID, final int credits)
+   {
+      if (credits > 0)
+      {
+         channel.send(new SessionConsumerFlowCreditMessage(consumerID, credits));
+      }
+   }
+
+   private void sendAcknowledged(final Message message, final SendAcknowledgementHandler handler)
+   {
+      if (handler != null)
+      {
+         try
+         {
+            handler.sendAcknowledged(message);
+         }
+         finally
+         {
+            if (pendingSends != null)
+            {
+               pendingSends.release();
+            }
+         }
+      }
+
+      if (sendAckHandler != null)
+      {
+         sendAckHandler.sendAcknowledged(message);
+      }
+   }
+
    private void doCleanup(boolean failingOver)
    {
       if (remotingConnection != null)
@@ -2022,8 +2174,13 @@ final class ClientSessionImpl implements ClientSessionInternal, FailureListener,
          HornetQClientLogger.LOGGER.debug("calling cleanup on " + this);
       }
 
+      // the session may be cleaned up more than once, e.g. closed after a failure
+      final boolean wasClosed;
+
       synchronized (this)
       {
+         wasClosed = closed;
+
          closed = true;
 
          channel.close();
@@ -2033,6 +2190,12 @@ final class ClientSessionImpl implements ClientSessionInternal, FailureListener,
          channel.returnBlocking();
       }
 
+      if (pendingSends != null && !wasClosed)
+      {
+         // the pending sends won't be confirmed any more, don't leave a producer blocked on them
+         pendingSends.release(Integer.MAX_VALUE / 2);
+      }
+
       sessionFactory.removeSession(this, failingOver);
    }
 
@@ -2103,6 +2266,14 @@ final class ClientSessionImpl implements ClientSessionInternal, FailureListener,
       }
    }
 
+   private void flushSends()
+   {
+      if (sendBatcher != null)
+      {
+         sendBatcher.flush();
+      }
+   }
+
    private static class BindingQueryImpl implements BindingQuery
    {
 
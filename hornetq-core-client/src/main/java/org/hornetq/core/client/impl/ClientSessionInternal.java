@@ -37,6 +37,19 @@ public interface ClientSessionInternal extends ClientSession
 
    void individualAcknowledge(long consumerID, long messageID) throws HornetQException;
 
+   /**
+    * Acknowledges all the messages received by the consumer up to and including one.
+    * @param credits the credits of the consumer sent with the acknowledgement, 0 if none
+    */
+   void acknowledge(long consumerID, long messageID, int credits) throws HornetQException;
+
+   /**
+    * Acknowledges messages received by the consumer.
+    * @param messageIDRanges the first and the last ID of each range of consecutive IDs of the messages
+    * @param credits the credits of the consumer sent with the acknowledgements, 0 if none
+    */
+   void individualAcknowledge(long consumerID, long[] messageIDRanges, int credits) throws HornetQException;
+
    boolean isCacheLargeMessageClient();
 
    int getMinLargeMessageSize();
@@ -77,6 +90,18 @@ public interface ClientSessionInternal extends ClientSession
 
    void workDone();
 
+   /**
+    * Called before a send with a handler, blocks while the session has too many sends waiting for their
+    * confirmation.
+    * @throws HornetQException if the session has no confirmation window, so the sends are never confirmed
+    */
+   void acquirePendingSend() throws HornetQException;
+
+   /**
+    * Called when a send with a handler failed, so its handler will never be called.
+    */
+   void releasePendingSend();
+
    void forceDelivery(long consumerID, long sequence) throws HornetQException;
 
    void sendProducerCreditsMessage(int credits, SimpleString address);
@@ -106,6 +106,16 @@ public class DelegatingSession implements ClientSessionInternal
       session.individualAcknowledge(consumerID, messageID);
    }
 
+   public void acknowledge(final long consumerID, final long messageID, final int credits) throws HornetQException
+   {
+      session.acknowledge(consumerID, messageID, credits);
+   }
+
+   public void individualAcknowledge(final long consumerID, final long[] messageIDRanges, final int credits) throws HornetQException
+   {
+      session.individualAcknowledge(consumerID, messageIDRanges, credits);
+   }
+
    public void addConsumer(final ClientConsumerInternal consumer)
    {
       session.addConsumer(consumer);
@@ -539,6 +549,16 @@ public class DelegatingSession implements ClientSessionInternal
       session.workDone();
    }
 
+   public void acquirePendingSend() throws HornetQException
+   {
+      session.acquirePendingSend();
+   }
+
+   public void releasePendingSend()
+   {
+      session.releasePendingSend();
+   }
+
    public void sendProducerCreditsMessage(final int credits, final SimpleString address)
    {
       session.sendProducerCreditsMessage(credits, address);
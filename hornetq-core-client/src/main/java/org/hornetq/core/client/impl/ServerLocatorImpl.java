@@ -142,6 +142,12 @@ public final class ServerLocatorImpl implements ServerLocatorInternal, Discovery
 
    private int producerMaxRate;
 
+   private int producerBatchSize;
+
+   private long producerBatchDelay;
+
+   private int producerMaxPendingSends;
+
    private boolean blockOnAcknowledge;
 
    private boolean blockOnDurableSend;
@@ -427,6 +433,12 @@ public final class ServerLocatorImpl implements ServerLocatorInternal, Discovery
 
       producerMaxRate = HornetQClient.DEFAULT_PRODUCER_MAX_RATE;
 
+      producerBatchSize = HornetQClient.DEFAULT_PRODUCER_BATCH_SIZE;
+
+      producerBatchDelay = HornetQClient.DEFAULT_PRODUCER_BATCH_DELAY;
+
+      producerMaxPendingSends = HornetQClient.DEFAULT_PRODUCER_MAX_PENDING_SENDS;
+
       blockOnAcknowledge = HornetQClient.DEFAULT_BLOCK_ON_ACKNOWLEDGE;
 
       blockOnDurableSend = HornetQClient.DEFAULT_BLOCK_ON_DURABLE_SEND;
@@ -1003,6 +1015,39 @@ public final class ServerLocatorImpl implements ServerLocatorInternal, Discovery
       this.producerMaxRate = producerMaxRate;
    }
 
+   public int getProducerBatchSize()
+   {
+      return producerBatchSize;
+   }
+
+   public void setProducerBatchSize(final int producerBatchSize)
+   {
+      checkWrite();
+      this.producerBatchSize = producerBatchSize;
+   }
+
+   public long getProducerBatchDelay()
+   {
+      return producerBatchDelay;
+   }
+
+   public void setProducerBatchDelay(final long producerBatchDelay)
+   {
+      checkWrite();
+      this.producerBatchDelay = producerBatchDelay;
+   }
+
+   public int getProducerMaxPendingSends()
+   {
+      return producerMaxPendingSends;
+   }
+
+   public void setProducerMaxPendingSends(final int producerMaxPendingSends)
+   {
+      checkWrite();
+      this.producerMaxPendingSends = producerMaxPendingSends;
+   }
+
    public boolean isBlockOnAcknowledge()
    {
       return blockOnAcknowledge;
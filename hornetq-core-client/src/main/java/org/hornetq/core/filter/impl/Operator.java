@@ -82,7 +82,7 @@ public final class Operator
 
    public final static int DIFFERENT = 8;
 
-   final static int ADD = 9;
+   public final static int ADD = 9;
 
    public final static int SUB = 10;
 
@@ -146,6 +146,26 @@ public final class Operator
       oper3 = null;
    }
 
+   public int getOperation()
+   {
+      return operation;
+   }
+
+   public Object getOper1()
+   {
+      return oper1;
+   }
+
+   public Object getOper2()
+   {
+      return oper2;
+   }
+
+   public Object getOper3()
+   {
+      return oper3;
+   }
+
    // --- Print functions ---
 
    @Override
@@ -1318,7 +1338,7 @@ public final class Operator
                           toString());
    }
 
-   static String getClassName(final int class1)
+   public static String getClassName(final int class1)
    {
       switch (class1)
       {
@@ -1335,7 +1355,7 @@ public final class Operator
       }
    }
 
-   static String operationString(final int operation)
+   public static String operationString(final int operation)
    {
       switch (operation)
       {
@@ -86,6 +86,8 @@ public abstract class MessageImpl implements MessageInternal
 
    private boolean bufferUsed;
 
+   private boolean shared;
+
    private UUID userID;
 
    // Constructors --------------------------------------------------
@@ -165,7 +167,7 @@ public abstract class MessageImpl implements MessageInternal
 
             // We need to copy the underlying buffer too, since the different messsages thereafter might have different
             // properties set on them, making their encoding different
-            buffer = other.buffer.copy(0, other.buffer.capacity());
+            buffer = other.shared ? other.copyShared() : other.buffer.copy(0, other.buffer.capacity());
 
             buffer.setIndex(other.buffer.readerIndex(), other.buffer.writerIndex());
          }
@@ -440,6 +442,8 @@ public abstract class MessageImpl implements MessageInternal
 
    public synchronized void checkCopy()
    {
+      unshare();
+
       if (!copied)
       {
          forceCopy();
@@ -495,8 +499,43 @@ public abstract class MessageImpl implements MessageInternal
       buff.readerIndex(start + length);
    }
 
+   /**
+    * Decodes the message from a buffer holding more data, such as a batch of sent messages, without copying it
+    * as {@link #decode(HornetQBuffer)} does.
+    * <p>
+    * The message keeps a slice of the buffer, starting {@link #BUFFER_HEADER_SPACE} bytes before its encoding, and
+    * only reads from it. It's copied into a buffer of its own the first time it's changed or delivered.
+    */
+   public void decodeShared(final HornetQBuffer buff)
+   {
+      int start = buff.readerIndex();
+
+      if (start < BUFFER_HEADER_SPACE)
+      {
+         // no room for the header space in front of it
+         createBody(buff.readableBytes());
+
+         decode(buff);
+
+         return;
+      }
+
+      int length = buff.getInt(buff.getInt(start) - BUFFER_HEADER_SPACE + start) - BUFFER_HEADER_SPACE;
+
+      buffer = buff.slice(start - BUFFER_HEADER_SPACE, BUFFER_HEADER_SPACE + length);
+
+      decode();
+
+      shared = true;
+
+      buff.readerIndex(start + length);
+   }
+
    public synchronized HornetQBuffer getEncodedBuffer()
    {
+      // the buffer is written to when sent, it can't be a slice of someone else's
+      unshare();
+
       HornetQBuffer buff = encodeToBuffer();
 
       if (bufferUsed)
@@ -899,6 +938,8 @@ public abstract class MessageImpl implements MessageInternal
    {
       if (!bufferValid)
       {
+         unshare();
+
          if (bufferUsed)
          {
             // Cannot use same buffer - must copy
@@ -978,6 +1019,36 @@ public abstract class MessageImpl implements MessageInternal
       bufferUsed = false;
    }
 
+   /**
+    * Swaps a buffer shared through {@link #decodeShared(HornetQBuffer)} for a copy of its own, which is dynamic so
+    * the encoding can grow.
+    */
+   private void unshare()
+   {
+      if (shared)
+      {
+         buffer = copyShared();
+
+         if (bodyBuffer != null)
+         {
+            bodyBuffer.setBuffer(buffer);
+         }
+
+         shared = false;
+      }
+   }
+
+   private HornetQBuffer copyShared()
+   {
+      HornetQBuffer copy = HornetQBuffers.dynamicBuffer(buffer.capacity());
+
+      copy.writeBytes(buffer, 0, buffer.capacity());
+
+      copy.setIndex(buffer.readerIndex(), buffer.writerIndex());
+
+      return copy;
+   }
+
    // Inner classes -------------------------------------------------
 
    private final class DecodingContext implements BodyEncoder
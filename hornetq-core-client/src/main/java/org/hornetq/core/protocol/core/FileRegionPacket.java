@@ -0,0 +1,64 @@
+/*
+ * Copyright 2009 Red Hat, Inc.
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package org.hornetq.core.protocol.core;
+
+import java.nio.channels.FileChannel;
+
+import org.hornetq.api.core.HornetQBuffer;
+import org.hornetq.spi.core.protocol.RemotingConnection;
+
+/**
+ * A {@link Packet} whose encoding contains a region of a file.
+ * <p>
+ * When the transport supports it, the packet is written as its encoded header, followed by the region transferred
+ * straight from the file to the socket, followed by its encoded trailer. Otherwise the region is read from the file
+ * and the packet is encoded as any other packet.
+ * <p>
+ * The file must stay open until {@link #releaseFile()} is called.
+ */
+public interface FileRegionPacket extends Packet
+{
+   /**
+    * Returns the file the region is read from, or {@code null} if the content of this packet is not read from a
+    * file, or was already read.
+    */
+   FileChannel getFile();
+
+   /**
+    * Returns the position of the region in the file.
+    */
+   long getFilePosition();
+
+   /**
+    * Returns the number of bytes of the region.
+    */
+   int getFileCount();
+
+   /**
+    * Encodes the part of the packet before the file region. The length of the packet in the header includes the
+    * region and the trailer.
+    */
+   HornetQBuffer encodeHeader(RemotingConnection connection);
+
+   /**
+    * Encodes the part of the packet after the file region.
+    */
+   HornetQBuffer encodeTrailer(RemotingConnection connection);
+
+   /**
+    * Tells the packet its file is not needed anymore: the region was read, its transfer was written or failed, or
+    * the packet was not sent. Only the first call has an effect.
+    */
+   void releaseFile();
+}
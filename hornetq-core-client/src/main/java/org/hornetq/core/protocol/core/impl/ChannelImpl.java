@@ -29,12 +29,15 @@ import org.hornetq.core.protocol.core.Channel;
 import org.hornetq.core.protocol.core.ChannelHandler;
 import org.hornetq.core.protocol.core.CommandConfirmationHandler;
 import org.hornetq.core.protocol.core.CoreRemotingConnection;
+import org.hornetq.core.protocol.core.FileRegionPacket;
 import org.hornetq.core.protocol.core.Packet;
 import org.hornetq.core.protocol.core.impl.wireformat.HornetQExceptionMessage;
 import org.hornetq.core.protocol.core.impl.wireformat.PacketsConfirmedMessage;
 import org.hornetq.core.client.HornetQClientLogger;
 import org.hornetq.core.client.HornetQClientMessageBundle;
 import org.hornetq.spi.core.protocol.RemotingConnection;
+import org.hornetq.spi.core.remoting.Connection;
+import org.hornetq.spi.core.remoting.FileTransferConnection;
 
 /**
  * A ChannelImpl
@@ -209,6 +212,8 @@ public final class ChannelImpl implements Channel
    {
       if (invokeInterceptors(packet, interceptors, connection) != null)
       {
+         releaseFile(packet);
+
          return false;
       }
 
@@ -221,7 +226,24 @@ public final class ChannelImpl implements Channel
             HornetQClientLogger.LOGGER.trace("Sending packet nonblocking " + packet + " on channeID=" + id);
          }
 
-         HornetQBuffer buffer = packet.encode(connection);
+         Connection transport = connection.getTransportConnection();
+
+         final FileRegionPacket filePacket = isFileTransfer(packet, transport) ? (FileRegionPacket)packet : null;
+
+         HornetQBuffer buffer;
+
+         try
+         {
+            buffer = filePacket != null ? filePacket.encodeHeader(connection) : packet.encode(connection);
+         }
+         finally
+         {
+            // unless transferred, the region was read into the buffer
+            if (filePacket == null)
+            {
+               releaseFile(packet);
+            }
+         }
 
          lock.lock();
 
@@ -242,6 +264,8 @@ public final class ChannelImpl implements Channel
             // Sanity check
             if (transferring)
             {
+               releaseFile(packet);
+
                throw new IllegalStateException("Cannot send a packet while channel is doing failover");
             }
 
@@ -263,7 +287,25 @@ public final class ChannelImpl implements Channel
 
          // The actual send must be outside the lock, or with OIO transport, the write can block if the tcp
          // buffer is full, preventing any incoming buffers being handled and blocking failover
-         connection.getTransportConnection().write(buffer, flush, batch);
+         if (filePacket != null)
+         {
+            ((FileTransferConnection)transport).transferFile(buffer,
+                                                             filePacket.getFile(),
+                                                             filePacket.getFilePosition(),
+                                                             filePacket.getFileCount(),
+                                                             filePacket.encodeTrailer(connection),
+                                                             new Runnable()
+                                                             {
+                                                                public void run()
+                                                                {
+                                                                   filePacket.releaseFile();
+                                                                }
+                                                             });
+         }
+         else
+         {
+            transport.write(buffer, flush, batch);
+         }
 
          return true;
       }
@@ -275,6 +317,8 @@ public final class ChannelImpl implements Channel
 
       if (interceptionResult != null)
       {
+         releaseFile(packet);
+
          // if we don't throw an exception here the client might not unblock
          throw HornetQClientMessageBundle.BUNDLE.interceptorRejectedPacket(interceptionResult);
       }
@@ -611,6 +655,26 @@ public final class ChannelImpl implements Channel
       }
    }
 
+   /**
+    * The region of a file can only be transferred straight from the file if the packet doesn't have to be kept for
+    * resending, as the file could be gone by then.
+    */
+   private boolean isFileTransfer(final Packet packet, final Connection transport)
+   {
+      return packet instanceof FileRegionPacket && ((FileRegionPacket)packet).getFile() != null &&
+             (resendCache == null || !packet.isRequiresConfirmations()) &&
+             transport instanceof FileTransferConnection &&
+             ((FileTransferConnection)transport).isFileTransferSupported();
+   }
+
+   private static void releaseFile(final Packet packet)
+   {
+      if (packet instanceof FileRegionPacket)
+      {
+         ((FileRegionPacket)packet).releaseFile();
+      }
+   }
+
    private void doWrite(final Packet packet)
    {
       final HornetQBuffer buffer = packet.encode(connection);
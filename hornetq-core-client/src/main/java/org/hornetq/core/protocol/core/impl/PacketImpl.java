@@ -149,6 +149,12 @@ public class PacketImpl implements Packet
 
    public static final byte SESS_PRODUCER_FAIL_CREDITS = 82;
 
+   public static final byte SESS_SEND_BATCH = 83;
+
+   public static final byte SESS_INDIVIDUAL_ACKNOWLEDGE_BATCH = 84;
+
+   public static final byte SESS_ACKNOWLEDGE_CREDIT = 85;
+
    // Replication
 
    public static final byte REPLICATION_RESPONSE = 90;
@@ -206,6 +212,7 @@ public class PacketImpl implements Packet
 
    public static final byte REPLICATION_START_FINISH_SYNC = 120;
    public static final byte REPLICATION_SCHEDULED_FAILOVER = 121;
+   public static final byte REPLICATION_BATCH = 122;
 
    // Static --------------------------------------------------------
 
@@ -0,0 +1,145 @@
+/*
+ * Copyright 2009 Red Hat, Inc.
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package org.hornetq.core.protocol.core.impl.wireformat;
+
+import org.hornetq.api.core.HornetQBuffer;
+import org.hornetq.core.protocol.core.impl.PacketImpl;
+
+/**
+ * The acknowledgement of all the messages of a consumer up to and including one, as a
+ * {@link SessionAcknowledgeMessage}, with the credits the consumer gives back as a
+ * {@link SessionConsumerFlowCreditMessage}.
+ */
+public class SessionAcknowledgeCreditMessage extends PacketImpl
+{
+   private long consumerID;
+
+   private long messageID;
+
+   private int credits;
+
+   private boolean requiresResponse;
+
+   public SessionAcknowledgeCreditMessage(final long consumerID,
+                                          final long messageID,
+                                          final int credits,
+                                          final boolean requiresResponse)
+   {
+      super(SESS_ACKNOWLEDGE_CREDIT);
+
+      this.consumerID = consumerID;
+
+      this.messageID = messageID;
+
+      this.credits = credits;
+
+      this.requiresResponse = requiresResponse;
+   }
+
+   public SessionAcknowledgeCreditMessage()
+   {
+      super(SESS_ACKNOWLEDGE_CREDIT);
+   }
+
+   // Public --------------------------------------------------------
+
+   public long getConsumerID()
+   {
+      return consumerID;
+   }
+
+   public long getMessageID()
+   {
+      return messageID;
+   }
+
+   public int getCredits()
+   {
+      return credits;
+   }
+
+   public boolean isRequiresResponse()
+   {
+      return requiresResponse;
+   }
+
+   @Override
+   public void encodeRest(final HornetQBuffer buffer)
+   {
+      buffer.writeLong(consumerID);
+
+      buffer.writeLong(messageID);
+
+      buffer.writeInt(credits);
+
+      buffer.writeBoolean(requiresResponse);
+   }
+
+   @Override
+   public void decodeRest(final HornetQBuffer buffer)
+   {
+      consumerID = buffer.readLong();
+
+      messageID = buffer.readLong();
+
+      credits = buffer.readInt();
+
+      requiresResponse = buffer.readBoolean();
+   }
+
+   @Override
+   public String toString()
+   {
+      return getParentString() + ", consumerID=" +
+             consumerID +
+             ", messageID=" +
+             messageID +
+             ", credits=" +
+             credits +
+             "]";
+   }
+
+   @Override
+   public int hashCode()
+   {
+      final int prime = 31;
+      int result = super.hashCode();
+      result = prime * result + (int)(consumerID ^ (consumerID >>> 32));
+      result = prime * result + (int)(messageID ^ (messageID >>> 32));
+      result = prime * result + credits;
+      result = prime * result + (requiresResponse ? 1231 : 1237);
+      return result;
+   }
+
+   @Override
+   public boolean equals(Object obj)
+   {
+      if (this == obj)
+         return true;
+      if (!super.equals(obj))
+         return false;
+      if (!(obj instanceof SessionAcknowledgeCreditMessage))
+         return false;
+      SessionAcknowledgeCreditMessage other = (SessionAcknowledgeCreditMessage)obj;
+      if (consumerID != other.consumerID)
+         return false;
+      if (messageID != other.messageID)
+         return false;
+      if (credits != other.credits)
+         return false;
+      if (requiresResponse != other.requiresResponse)
+         return false;
+      return true;
+   }
+}
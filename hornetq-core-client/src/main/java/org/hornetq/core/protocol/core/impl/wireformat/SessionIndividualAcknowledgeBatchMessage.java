@@ -0,0 +1,163 @@
+/*
+ * Copyright 2009 Red Hat, Inc.
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package org.hornetq.core.protocol.core.impl.wireformat;
+
+import java.util.Arrays;
+
+import org.hornetq.api.core.HornetQBuffer;
+import org.hornetq.core.protocol.core.impl.PacketImpl;
+
+/**
+ * Several individual acknowledgements of a consumer in one packet, with the credits the consumer gives back.
+ * <p>
+ * The IDs of the acknowledged messages are sent as ranges of consecutive IDs, each one as its first and last ID.
+ */
+public class SessionIndividualAcknowledgeBatchMessage extends PacketImpl
+{
+   private long consumerID;
+
+   private long[] messageIDRanges;
+
+   private int credits;
+
+   private boolean requiresResponse;
+
+   public SessionIndividualAcknowledgeBatchMessage(final long consumerID,
+                                                   final long[] messageIDRanges,
+                                                   final int credits,
+                                                   final boolean requiresResponse)
+   {
+      super(SESS_INDIVIDUAL_ACKNOWLEDGE_BATCH);
+
+      this.consumerID = consumerID;
+
+      this.messageIDRanges = messageIDRanges;
+
+      this.credits = credits;
+
+      this.requiresResponse = requiresResponse;
+   }
+
+   public SessionIndividualAcknowledgeBatchMessage()
+   {
+      super(SESS_INDIVIDUAL_ACKNOWLEDGE_BATCH);
+   }
+
+   // Public --------------------------------------------------------
+
+   public long getConsumerID()
+   {
+      return consumerID;
+   }
+
+   /**
+    * @return the first and the last ID of each range of acknowledged messages
+    */
+   public long[] getMessageIDRanges()
+   {
+      return messageIDRanges;
+   }
+
+   /**
+    * @return the credits given back with the acknowledgements, 0 if none
+    */
+   public int getCredits()
+   {
+      return credits;
+   }
+
+   public boolean isRequiresResponse()
+   {
+      return requiresResponse;
+   }
+
+   @Override
+   public void encodeRest(final HornetQBuffer buffer)
+   {
+      buffer.writeLong(consumerID);
+
+      buffer.writeInt(messageIDRanges.length);
+
+      for (long messageID : messageIDRanges)
+      {
+         buffer.writeLong(messageID);
+      }
+
+      buffer.writeInt(credits);
+
+      buffer.writeBoolean(requiresResponse);
+   }
+
+   @Override
+   public void decodeRest(final HornetQBuffer buffer)
+   {
+      consumerID = buffer.readLong();
+
+      messageIDRanges = new long[buffer.readInt()];
+
+      for (int i = 0; i < messageIDRanges.length; i++)
+      {
+         messageIDRanges[i] = buffer.readLong();
+      }
+
+      credits = buffer.readInt();
+
+      requiresResponse = buffer.readBoolean();
+   }
+
+   @Override
+   public String toString()
+   {
+      return getParentString() + ", consumerID=" +
+             consumerID +
+             ", messageIDRanges=" +
+             Arrays.toString(messageIDRanges) +
+             ", credits=" +
+             credits +
+             "]";
+   }
+
+   @Override
+   public int hashCode()
+   {
+      final int prime = 31;
+      int result = super.hashCode();
+      result = prime * result + (int)(consumerID ^ (consumerID >>> 32));
+      result = prime * result + Arrays.hashCode(messageIDRanges);
+      result = prime * result + credits;
+      result = prime * result + (requiresResponse ? 1231 : 1237);
+      return result;
+   }
+
+   @Override
+   public boolean equals(Object obj)
+   {
+      if (this == obj)
+         return true;
+      if (!super.equals(obj))
+         return false;
+      if (!(obj instanceof SessionIndividualAcknowledgeBatchMessage))
+         return false;
+      SessionIndividualAcknowledgeBatchMessage other = (SessionIndividualAcknowledgeBatchMessage)obj;
+      if (consumerID != other.consumerID)
+         return false;
+      if (!Arrays.equals(messageIDRanges, other.messageIDRanges))
+         return false;
+      if (credits != other.credits)
+         return false;
+      if (requiresResponse != other.requiresResponse)
+         return false;
+      return true;
+   }
+}
@@ -13,7 +13,14 @@
 
 package org.hornetq.core.protocol.core.impl.wireformat;
 
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
 import org.hornetq.api.core.HornetQBuffer;
+import org.hornetq.core.protocol.core.FileRegionPacket;
+import org.hornetq.spi.core.protocol.RemotingConnection;
 import org.hornetq.utils.DataConstants;
 
 /**
@@ -25,7 +32,7 @@ import org.hornetq.utils.DataConstants;
  *
  *
  */
-public class SessionReceiveContinuationMessage extends SessionContinuationMessage
+public class SessionReceiveContinuationMessage extends SessionContinuationMessage implements FileRegionPacket
 {
 
    // Constants -----------------------------------------------------
@@ -36,6 +43,14 @@ public class SessionReceiveContinuationMessage extends SessionContinuationMessag
 
    private long consumerID;
 
+   private FileChannel file;
+
+   private long filePosition;
+
+   private int fileCount;
+
+   private Runnable fileRelease;
+
    // Static --------------------------------------------------------
 
    // Constructors --------------------------------------------------
@@ -60,6 +75,26 @@ public class SessionReceiveContinuationMessage extends SessionContinuationMessag
       this.consumerID = consumerID;
    }
 
+   /**
+    * Creates a continuation whose body is the region of {@code file} starting at {@code filePosition}, read only if
+    * the region can't be transferred straight from the file. {@code fileRelease} is run once the file is not needed
+    * by this packet anymore.
+    */
+   public SessionReceiveContinuationMessage(final long consumerID,
+                                            final FileChannel file,
+                                            final long filePosition,
+                                            final int fileCount,
+                                            final boolean continues,
+                                            final Runnable fileRelease)
+   {
+      super(SESS_RECEIVE_CONTINUATION, null, continues);
+      this.consumerID = consumerID;
+      this.file = file;
+      this.filePosition = filePosition;
+      this.fileCount = fileCount;
+      this.fileRelease = fileRelease;
+   }
+
    /**
     * @return the consumerID
     */
@@ -70,12 +105,75 @@ public class SessionReceiveContinuationMessage extends SessionContinuationMessag
 
    // Public --------------------------------------------------------
 
+   @Override
+   public byte[] getBody()
+   {
+      readFileRegion();
+
+      return super.getBody();
+   }
+
    @Override
    public void encodeRest(final HornetQBuffer buffer)
    {
+      readFileRegion();
+
       super.encodeRest(buffer);
       buffer.writeLong(consumerID);
    }
+
+   public FileChannel getFile()
+   {
+      return file;
+   }
+
+   public long getFilePosition()
+   {
+      return filePosition;
+   }
+
+   public int getFileCount()
+   {
+      return fileCount;
+   }
+
+   public HornetQBuffer encodeHeader(final RemotingConnection connection)
+   {
+      HornetQBuffer buffer = connection.createBuffer(PACKET_HEADERS_SIZE + DataConstants.SIZE_INT);
+
+      size = SESSION_RECEIVE_CONTINUATION_BASE_SIZE + fileCount;
+
+      // The length doesn't include the actual length byte
+      buffer.writeInt(size - DataConstants.SIZE_INT);
+      buffer.writeByte(getType());
+      buffer.writeLong(getChannelID());
+      buffer.writeInt(fileCount);
+
+      return buffer;
+   }
+
+   public HornetQBuffer encodeTrailer(final RemotingConnection connection)
+   {
+      HornetQBuffer buffer = connection.createBuffer(DataConstants.SIZE_BOOLEAN + DataConstants.SIZE_LONG);
+
+      buffer.writeBoolean(continues);
+      buffer.writeLong(consumerID);
+
+      return buffer;
+   }
+
+   public void releaseFile()
+   {
+      Runnable release = fileRelease;
+
+      fileRelease = null;
+
+      if (release != null)
+      {
+         release.run();
+      }
+   }
+
    @Override
    public int getPacketSize()
    {
@@ -123,4 +221,41 @@ public class SessionReceiveContinuationMessage extends SessionContinuationMessag
       return true;
    }
 
+   // Private -------------------------------------------------------
+
+   private void readFileRegion()
+   {
+      if (body != null || file == null)
+      {
+         return;
+      }
+
+      byte[] region = new byte[fileCount];
+
+      ByteBuffer buffer = ByteBuffer.wrap(region);
+
+      try
+      {
+         while (buffer.hasRemaining())
+         {
+            if (file.read(buffer, filePosition + buffer.position()) < 0)
+            {
+               throw new EOFException("Expected " + fileCount + " bytes at position " + filePosition);
+            }
+         }
+      }
+      catch (IOException e)
+      {
+         throw new IllegalStateException(e.getMessage(), e);
+      }
+      finally
+      {
+         // the packet is encoded from the body from now on
+         file = null;
+
+         releaseFile();
+      }
+
+      body = region;
+   }
 }
@@ -0,0 +1,186 @@
+/*
+ * Copyright 2009 Red Hat, Inc.
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package org.hornetq.core.protocol.core.impl.wireformat;
+
+import java.util.Collections;
+import java.util.List;
+
+import org.hornetq.api.core.HornetQBuffer;
+import org.hornetq.api.core.client.SendAcknowledgementHandler;
+import org.hornetq.core.message.impl.MessageInternal;
+import org.hornetq.core.protocol.core.impl.PacketImpl;
+import org.hornetq.spi.core.protocol.RemotingConnection;
+import org.hornetq.utils.DataConstants;
+
+/**
+ * Several non blocking sends of a session in one packet.
+ * <p>
+ * The messages are encoded one after the other as they are in the journal, starting with the end of body position,
+ * so they can be decoded with {@link org.hornetq.core.message.impl.MessageImpl#decodeShared(HornetQBuffer)}. They
+ * are encoded when they are added to the batch, so changing them afterwards doesn't change what is sent.
+ */
+public class SessionSendBatchMessage extends PacketImpl
+{
+   // Attributes ----------------------------------------------------
+
+   private List<MessageInternal> messages;
+
+   private List<SendAcknowledgementHandler> handlers;
+
+   private int messageCount;
+
+   private HornetQBuffer encodedMessages;
+
+   private int messagesStart;
+
+   private int messagesLength;
+
+   // Constructors --------------------------------------------------
+
+   public SessionSendBatchMessage(final List<MessageInternal> messages,
+                                  final List<SendAcknowledgementHandler> handlers,
+                                  final HornetQBuffer encodedMessages)
+   {
+      super(SESS_SEND_BATCH);
+
+      this.messages = messages;
+
+      this.handlers = handlers;
+
+      messageCount = messages.size();
+
+      this.encodedMessages = encodedMessages;
+
+      messagesLength = encodedMessages.writerIndex();
+   }
+
+   public SessionSendBatchMessage()
+   {
+      super(SESS_SEND_BATCH);
+
+      messages = Collections.emptyList();
+
+      handlers = Collections.emptyList();
+   }
+
+   // Public --------------------------------------------------------
+
+   /**
+    * @return the messages of the batch, only on the side sending it
+    */
+   public List<MessageInternal> getMessages()
+   {
+      return messages;
+   }
+
+   /**
+    * @return the handlers of the sends of the messages, <code>null</code> for a send without one, only on the side
+    *         sending the batch
+    */
+   public List<SendAcknowledgementHandler> getHandlers()
+   {
+      return handlers;
+   }
+
+   public int getMessageCount()
+   {
+      return messageCount;
+   }
+
+   /**
+    * @return a buffer whose readable bytes are the encoded messages
+    */
+   public HornetQBuffer getEncodedMessages()
+   {
+      HornetQBuffer buffer = encodedMessages.duplicate();
+
+      buffer.setIndex(messagesStart, messagesStart + messagesLength);
+
+      return buffer;
+   }
+
+   @Override
+   public HornetQBuffer encode(final RemotingConnection connection)
+   {
+      // the batch is usually bigger than the default initial size, don't make the buffer grow
+      HornetQBuffer buffer = connection.createBuffer(PacketImpl.PACKET_HEADERS_SIZE + 2 * DataConstants.SIZE_INT +
+                                                     messagesLength);
+
+      buffer.writeInt(0);
+      buffer.writeByte(getType());
+      buffer.writeLong(channelID);
+
+      encodeRest(buffer);
+
+      size = buffer.writerIndex();
+
+      buffer.setInt(0, size - DataConstants.SIZE_INT);
+
+      return buffer;
+   }
+
+   @Override
+   public void encodeRest(final HornetQBuffer buffer)
+   {
+      buffer.writeInt(messageCount);
+      buffer.writeInt(messagesLength);
+      buffer.writeBytes(encodedMessages, messagesStart, messagesLength);
+   }
+
+   @Override
+   public void decodeRest(final HornetQBuffer buffer)
+   {
+      messageCount = buffer.readInt();
+      messagesLength = buffer.readInt();
+
+      // the messages are decoded from the packet buffer, without copying them
+      encodedMessages = buffer;
+      messagesStart = buffer.readerIndex();
+
+      buffer.readerIndex(messagesStart + messagesLength);
+   }
+
+   @Override
+   public String toString()
+   {
+      return getParentString() + ", messageCount=" + messageCount + ", messagesLength=" + messagesLength + "]";
+   }
+
+   @Override
+   public int hashCode()
+   {
+      final int prime = 31;
+      int result = super.hashCode();
+      result = prime * result + messageCount;
+      result = prime * result + messagesLength;
+      return result;
+   }
+
+   @Override
+   public boolean equals(Object obj)
+   {
+      if (this == obj)
+         return true;
+      if (!super.equals(obj))
+         return false;
+      if (!(obj instanceof SessionSendBatchMessage))
+         return false;
+      SessionSendBatchMessage other = (SessionSendBatchMessage)obj;
+      if (messageCount != other.messageCount)
+         return false;
+      if (messagesLength != other.messagesLength)
+         return false;
+      return true;
+   }
+}
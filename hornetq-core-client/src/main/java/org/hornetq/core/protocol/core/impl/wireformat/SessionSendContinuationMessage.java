@@ -14,6 +14,7 @@
 package org.hornetq.core.protocol.core.impl.wireformat;
 
 import org.hornetq.api.core.HornetQBuffer;
+import org.hornetq.api.core.client.SendAcknowledgementHandler;
 import org.hornetq.core.message.impl.MessageInternal;
 
 /**
@@ -34,6 +35,9 @@ public class SessionSendContinuationMessage extends SessionContinuationMessage
    // Used on confirmation handling
    private MessageInternal message;
 
+   // Used on confirmation handling of the last package
+   private SendAcknowledgementHandler handler;
+
    /**
     * to be sent on the last package
     */
@@ -71,6 +75,18 @@ public class SessionSendContinuationMessage extends SessionContinuationMessage
       this.messageBodySize = messageBodySize;
    }
 
+   /**
+    * @param body
+    * @param continues
+    * @param requiresResponse
+    * @param handler the handler of the send, on the last package
+    */
+   public SessionSendContinuationMessage(final MessageInternal message, final byte[] body, final boolean continues, final boolean requiresResponse, final long messageBodySize, final SendAcknowledgementHandler handler)
+   {
+      this(message, body, continues, requiresResponse, messageBodySize);
+      this.handler = handler;
+   }
+
    // Public --------------------------------------------------------
 
    /**
@@ -95,6 +111,14 @@ public class SessionSendContinuationMessage extends SessionContinuationMessage
       return message;
    }
 
+   /**
+    * @return the handler of the send, or <code>null</code> if it has none
+    */
+   public SendAcknowledgementHandler getHandler()
+   {
+      return handler;
+   }
+
    @Override
    public void encodeRest(final HornetQBuffer buffer)
    {
@@ -14,6 +14,7 @@
 package org.hornetq.core.protocol.core.impl.wireformat;
 
 import org.hornetq.api.core.HornetQBuffer;
+import org.hornetq.api.core.client.SendAcknowledgementHandler;
 import org.hornetq.core.message.impl.MessageInternal;
 import org.hornetq.spi.core.protocol.RemotingConnection;
 import org.hornetq.utils.DataConstants;
@@ -27,16 +28,30 @@ public class SessionSendMessage extends MessagePacket
 
    private boolean requiresResponse;
 
-   public SessionSendMessage(final MessageInternal message, final boolean requiresResponse)
+   // Used on confirmation handling, not sent
+   private final SendAcknowledgementHandler handler;
+
+   public SessionSendMessage(final MessageInternal message,
+                             final boolean requiresResponse,
+                             final SendAcknowledgementHandler handler)
    {
       super(SESS_SEND, message);
 
       this.requiresResponse = requiresResponse;
+
+      this.handler = handler;
+   }
+
+   public SessionSendMessage(final MessageInternal message, final boolean requiresResponse)
+   {
+      this(message, requiresResponse, null);
    }
 
    public SessionSendMessage(final MessageInternal message)
    {
       super(SESS_SEND, message);
+
+      handler = null;
    }
 
    // Public --------------------------------------------------------
@@ -46,6 +61,14 @@ public class SessionSendMessage extends MessagePacket
       return requiresResponse;
    }
 
+   /**
+    * @return the handler of this send, or <code>null</code> if it has none
+    */
+   public SendAcknowledgementHandler getHandler()
+   {
+      return handler;
+   }
+
    // Package protected ---------------------------------------------
 
    // Protected -----------------------------------------------------
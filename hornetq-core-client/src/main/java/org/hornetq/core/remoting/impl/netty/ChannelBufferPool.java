@@ -0,0 +1,210 @@
+/*
+ * Copyright 2009 Red Hat, Inc.
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package org.hornetq.core.remoting.impl.netty;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.jboss.netty.buffer.ChannelBuffer;
+import org.jboss.netty.buffer.ChannelBuffers;
+
+/**
+ * A pool of direct {@link ChannelBuffer}s shared by all the Netty connections of the VM.
+ * <p>
+ * The buffers are kept in size classes, each a power of two from {@value #MIN_POOLED_SIZE} bytes up to
+ * {@value #MAX_POOLED_SIZE} bytes. Each class keeps at most {@value #MAX_BYTES_PER_CLASS} bytes of free buffers,
+ * the buffers released above that are left to the garbage collector. A request larger than the biggest class is
+ * served with a heap buffer which is never pooled.
+ * <p>
+ * The counters let the send path be checked for allocations: once the pool is warm, the number of
+ * {@link #getAllocations() allocations} stays flat while the number of {@link #getAcquisitions() acquisitions}
+ * grows.
+ */
+public final class ChannelBufferPool
+{
+   // Constants -----------------------------------------------------
+
+   public static final int MIN_POOLED_SIZE = 512;
+
+   public static final int MAX_POOLED_SIZE = 64 * 1024;
+
+   public static final int MAX_BYTES_PER_CLASS = 1024 * 1024;
+
+   private static final ChannelBufferPool instance = new ChannelBufferPool();
+
+   // Attributes ----------------------------------------------------
+
+   private final ArrayBlockingQueue<ChannelBuffer>[] classes;
+
+   private final AtomicLong acquisitions = new AtomicLong();
+
+   private final AtomicLong allocations = new AtomicLong();
+
+   private final AtomicLong allocatedBytes = new AtomicLong();
+
+   private final AtomicLong unpooledAllocations = new AtomicLong();
+
+   // Static --------------------------------------------------------
+
+   public static ChannelBufferPool getInstance()
+   {
+      return instance;
+   }
+
+   // Constructors --------------------------------------------------
+
+   @SuppressWarnings("unchecked")
+   private ChannelBufferPool()
+   {
+      classes = (ArrayBlockingQueue<ChannelBuffer>[])new ArrayBlockingQueue<?>[sizeClass(MAX_POOLED_SIZE) + 1];
+
+      for (int i = 0; i < classes.length; i++)
+      {
+         classes[i] = new ArrayBlockingQueue<ChannelBuffer>(MAX_BYTES_PER_CLASS / (MIN_POOLED_SIZE << i));
+      }
+   }
+
+   // Public --------------------------------------------------------
+
+   /**
+    * Returns a buffer with a capacity of at least {@code capacity} bytes, taken from the pool when possible.
+    * <p>
+    * The content and the indexes of the returned buffer are undefined. It should be given back with
+    * {@link #release(ChannelBuffer)} once it is not used anymore.
+    */
+   public ChannelBuffer acquire(final int capacity)
+   {
+      acquisitions.incrementAndGet();
+
+      if (capacity > MAX_POOLED_SIZE)
+      {
+         unpooledAllocations.incrementAndGet();
+
+         return ChannelBuffers.buffer(capacity);
+      }
+
+      int sizeClass = sizeClass(capacity);
+
+      ChannelBuffer buffer = classes[sizeClass].poll();
+
+      if (buffer == null)
+      {
+         int size = MIN_POOLED_SIZE << sizeClass;
+
+         allocations.incrementAndGet();
+
+         allocatedBytes.addAndGet(size);
+
+         buffer = ChannelBuffers.directBuffer(size);
+      }
+
+      return buffer;
+   }
+
+   /**
+    * Gives back a buffer obtained from {@link #acquire(int)}. Buffers which were not pooled are ignored.
+    */
+   public void release(final ChannelBuffer buffer)
+   {
+      int capacity = buffer.capacity();
+
+      if (!buffer.isDirect() || capacity > MAX_POOLED_SIZE)
+      {
+         return;
+      }
+
+      int sizeClass = sizeClass(capacity);
+
+      if (MIN_POOLED_SIZE << sizeClass == capacity)
+      {
+         classes[sizeClass].offer(buffer);
+      }
+   }
+
+   /**
+    * Returns the number of buffers requested from the pool.
+    */
+   public long getAcquisitions()
+   {
+      return acquisitions.get();
+   }
+
+   /**
+    * Returns the number of direct buffers allocated because the pool had no free buffer of the requested size.
+    */
+   public long getAllocations()
+   {
+      return allocations.get();
+   }
+
+   /**
+    * Returns the number of bytes of the direct buffers allocated by the pool.
+    */
+   public long getAllocatedBytes()
+   {
+      return allocatedBytes.get();
+   }
+
+   /**
+    * Returns the number of heap buffers allocated for requests larger than {@link #MAX_POOLED_SIZE}.
+    */
+   public long getUnpooledAllocations()
+   {
+      return unpooledAllocations.get();
+   }
+
+   /**
+    * Returns the number of free buffers held by the pool.
+    */
+   public int getPooledBuffers()
+   {
+      int pooled = 0;
+
+      for (ArrayBlockingQueue<ChannelBuffer> sizeClass : classes)
+      {
+         pooled += sizeClass.size();
+      }
+
+      return pooled;
+   }
+
+   @Override
+   public String toString()
+   {
+      return "ChannelBufferPool [acquisitions=" + getAcquisitions() +
+             ", allocations=" +
+             getAllocations() +
+             ", allocatedBytes=" +
+             getAllocatedBytes() +
+             ", unpooledAllocations=" +
+             getUnpooledAllocations() +
+             ", pooledBuffers=" +
+             getPooledBuffers() +
+             "]";
+   }
+
+   // Private -------------------------------------------------------
+
+   private static int sizeClass(final int capacity)
+   {
+      int sizeClass = 0;
+
+      while (MIN_POOLED_SIZE << sizeClass < capacity)
+      {
+         sizeClass++;
+      }
+
+      return sizeClass;
+   }
+}
@@ -13,23 +13,26 @@
 
 package org.hornetq.core.remoting.impl.netty;
 
+import java.nio.channels.FileChannel;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.Semaphore;
 
 import org.hornetq.api.core.HornetQBuffer;
-import org.hornetq.api.core.HornetQBuffers;
 import org.hornetq.api.core.TransportConfiguration;
 import org.hornetq.core.buffers.impl.ChannelBufferWrapper;
 import org.hornetq.core.security.HornetQPrincipal;
 import org.hornetq.core.client.HornetQClientLogger;
-import org.hornetq.spi.core.remoting.Connection;
 import org.hornetq.spi.core.remoting.ConnectionLifeCycleListener;
+import org.hornetq.spi.core.remoting.FileTransferConnection;
 import org.hornetq.spi.core.remoting.ReadyListener;
 import org.hornetq.utils.ConcurrentHashSet;
-import org.jboss.netty.buffer.ChannelBuffers;
 import org.jboss.netty.channel.Channel;
 import org.jboss.netty.channel.ChannelFuture;
+import org.jboss.netty.channel.ChannelFutureListener;
+import org.jboss.netty.channel.ChannelPipeline;
+import org.jboss.netty.channel.DefaultFileRegion;
+import org.jboss.netty.handler.codec.http.HttpMessageEncoder;
 import org.jboss.netty.handler.ssl.SslHandler;
 
 /**
@@ -38,7 +41,7 @@ import org.jboss.netty.handler.ssl.SslHandler;
  * @author <a href="mailto:tim.fox@jboss.com">Tim Fox</a>
  *
  */
-public class NettyConnection implements Connection
+public class NettyConnection implements FileTransferConnection
 {
    // Constants -----------------------------------------------------
    private static final int BATCHING_BUFFER_SIZE = 8192;
@@ -127,7 +130,7 @@ public class NettyConnection implements Connection
 
    public HornetQBuffer createBuffer(final int size)
    {
-      return new ChannelBufferWrapper(ChannelBuffers.dynamicBuffer(size));
+      return new ChannelBufferWrapper(new PooledChannelBuffer(size));
    }
 
    public Object getID()
@@ -149,9 +152,9 @@ public class NettyConnection implements Connection
          {
             if (batchBuffer != null && batchBuffer.readable())
             {
-               channel.write(batchBuffer.channelBuffer());
+               writeAndRelease(batchBuffer);
 
-               batchBuffer = HornetQBuffers.dynamicBuffer(BATCHING_BUFFER_SIZE);
+               batchBuffer = createBuffer(BATCHING_BUFFER_SIZE);
             }
          }
          finally
@@ -179,13 +182,19 @@ public class NettyConnection implements Connection
             {
                // Lazily create batch buffer
 
-               batchBuffer = HornetQBuffers.dynamicBuffer(BATCHING_BUFFER_SIZE);
+               batchBuffer = createBuffer(BATCHING_BUFFER_SIZE);
             }
 
             if (batchBuffer != null)
             {
                batchBuffer.writeBytes(buffer, 0, buffer.writerIndex());
 
+               // The buffer has been copied, it can go back to the pool straight away
+               if (buffer.channelBuffer() instanceof PooledChannelBuffer)
+               {
+                  ((PooledChannelBuffer)buffer.channelBuffer()).release();
+               }
+
                if (batchBuffer.writerIndex() >= BATCHING_BUFFER_SIZE || !batched || flush)
                {
                   // If the batch buffer is full or it's flush param or not batched then flush the buffer
@@ -205,32 +214,88 @@ public class NettyConnection implements Connection
                {
                   // Create a new buffer
 
-                  batchBuffer = HornetQBuffers.dynamicBuffer(BATCHING_BUFFER_SIZE);
+                  batchBuffer = createBuffer(BATCHING_BUFFER_SIZE);
                }
             }
 
-            ChannelFuture future = channel.write(buffer.channelBuffer());
+            ChannelFuture future = writeAndRelease(buffer);
 
             if (flush)
             {
-               while (true)
+               awaitFlush(future);
+            }
+         }
+         finally
+         {
+            writeLock.release();
+         }
+      }
+      catch (InterruptedException e)
+      {
+         Thread.currentThread().interrupt();
+      }
+   }
+
+   /**
+    * The region of the file can be written with a {@link DefaultFileRegion} unless a handler of the pipeline has to
+    * transform the bytes written, as SSL and HTTP do.
+    */
+   public boolean isFileTransferSupported()
+   {
+      ChannelPipeline pipeline = channel.getPipeline();
+
+      return pipeline != null && pipeline.get(SslHandler.class) == null &&
+             pipeline.get(HttpMessageEncoder.class) == null;
+   }
+
+   public void transferFile(HornetQBuffer header,
+                            final FileChannel file,
+                            final long position,
+                            final int count,
+                            final HornetQBuffer trailer,
+                            final Runnable written)
+   {
+      if (!isFileTransferSupported())
+      {
+         throw new IllegalStateException("A file can only be transferred to a Netty channel without SSL or HTTP: " +
+                                         channel);
+      }
+
+      try
+      {
+         writeLock.acquire();
+
+         try
+         {
+            // Anything batched so far must go before the header
+            if (batchBuffer != null)
+            {
+               batchBuffer.writeBytes(header, 0, header.writerIndex());
+
+               if (header.channelBuffer() instanceof PooledChannelBuffer)
                {
-                  try
-                  {
-                     boolean ok = future.await(10000);
-
-                     if (!ok)
-                     {
-                        HornetQClientLogger.LOGGER.timeoutFlushingPacket();
-                     }
-
-                     break;
-                  }
-                  catch (InterruptedException ignore)
-                  {
-                  }
+                  ((PooledChannelBuffer)header.channelBuffer()).release();
                }
+
+               header = batchBuffer;
+
+               batchBuffer = null;
             }
+
+            writeAndRelease(header);
+
+            // The file belongs to the caller, it must not be closed once transferred
+            channel.write(new DefaultFileRegion(file, position, count, false));
+
+            // The writes complete in order, the file isn't needed anymore once the trailer is written. The lock
+            // only keeps the three writes together, they're not waited for
+            writeAndRelease(trailer).addListener(new ChannelFutureListener()
+            {
+               public void operationComplete(final ChannelFuture future)
+               {
+                  written.run();
+               }
+            });
          }
          finally
          {
@@ -240,6 +305,9 @@ public class NettyConnection implements Connection
       catch (InterruptedException e)
       {
          Thread.currentThread().interrupt();
+
+         // nothing was queued
+         written.run();
       }
    }
 
@@ -306,6 +374,43 @@ public class NettyConnection implements Connection
 
    // Private -------------------------------------------------------
 
+   /**
+    * Writes the buffer to the channel. A pooled buffer goes back to the pool once Netty is done with it, that is
+    * when the write completes, successfully or not.
+    */
+   private ChannelFuture writeAndRelease(final HornetQBuffer buffer)
+   {
+      ChannelFuture future = channel.write(buffer.channelBuffer());
+
+      if (buffer.channelBuffer() instanceof PooledChannelBuffer)
+      {
+         future.addListener((PooledChannelBuffer)buffer.channelBuffer());
+      }
+
+      return future;
+   }
+
+   private void awaitFlush(final ChannelFuture future)
+   {
+      while (true)
+      {
+         try
+         {
+            boolean ok = future.await(10000);
+
+            if (!ok)
+            {
+               HornetQClientLogger.LOGGER.timeoutFlushingPacket();
+            }
+
+            break;
+         }
+         catch (InterruptedException ignore)
+         {
+         }
+      }
+   }
+
    // Inner classes -------------------------------------------------
 
 }
@@ -0,0 +1,377 @@
+/*
+ * Copyright 2009 Red Hat, Inc.
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package org.hornetq.core.remoting.impl.netty;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.GatheringByteChannel;
+import java.nio.channels.ScatteringByteChannel;
+
+import org.jboss.netty.buffer.AbstractChannelBuffer;
+import org.jboss.netty.buffer.ChannelBuffer;
+import org.jboss.netty.buffer.ChannelBufferFactory;
+import org.jboss.netty.buffer.ChannelBuffers;
+import org.jboss.netty.buffer.DuplicatedChannelBuffer;
+import org.jboss.netty.buffer.SlicedChannelBuffer;
+import org.jboss.netty.buffer.TruncatedChannelBuffer;
+import org.jboss.netty.channel.ChannelFuture;
+import org.jboss.netty.channel.ChannelFutureListener;
+
+/**
+ * A dynamic {@link ChannelBuffer} whose content is stored in a buffer of the {@link ChannelBufferPool}.
+ * <p>
+ * It grows as a {@link org.jboss.netty.buffer.DynamicChannelBuffer} does, but when its content does not fit in its
+ * pooled buffer anymore, it is copied into a larger one and the smaller one is given back to the pool.
+ * <p>
+ * The pooled buffer is given back to the pool by {@link #release()}, which can be registered as the listener of
+ * the future of the write of this buffer. The buffer must not be used after it is released.
+ */
+public final class PooledChannelBuffer extends AbstractChannelBuffer implements ChannelFutureListener
+{
+   // Attributes ----------------------------------------------------
+
+   private final ChannelBufferPool pool;
+
+   private ChannelBuffer buffer;
+
+   private int capacity;
+
+   // Constructors --------------------------------------------------
+
+   public PooledChannelBuffer(final int estimatedLength)
+   {
+      this(ChannelBufferPool.getInstance(), estimatedLength);
+   }
+
+   public PooledChannelBuffer(final ChannelBufferPool pool, final int estimatedLength)
+   {
+      if (estimatedLength < 0)
+      {
+         throw new IllegalArgumentException("estimatedLength: " + estimatedLength);
+      }
+
+      this.pool = pool;
+
+      capacity = estimatedLength;
+
+      buffer = pool.acquire(estimatedLength);
+   }
+
+   // Public --------------------------------------------------------
+
+   /**
+    * Gives back the pooled buffer to the pool. Calling it again has no effect.
+    */
+   public void release()
+   {
+      if (buffer != null)
+      {
+         pool.release(buffer);
+
+         buffer = null;
+      }
+   }
+
+   // ChannelFutureListener implementation --------------------------
+
+   public void operationComplete(final ChannelFuture future)
+   {
+      release();
+   }
+
+   // ChannelBuffer implementation ----------------------------------
+
+   @Override
+   public void ensureWritableBytes(final int minWritableBytes)
+   {
+      if (minWritableBytes <= writableBytes())
+      {
+         return;
+      }
+
+      int newCapacity = capacity == 0 ? 1 : capacity;
+
+      int minNewCapacity = writerIndex() + minWritableBytes;
+
+      while (newCapacity < minNewCapacity)
+      {
+         newCapacity <<= 1;
+      }
+
+      if (newCapacity > buffer.capacity())
+      {
+         ChannelBuffer newBuffer = pool.acquire(newCapacity);
+
+         newBuffer.setBytes(0, buffer, 0, writerIndex());
+
+         pool.release(buffer);
+
+         buffer = newBuffer;
+      }
+
+      capacity = newCapacity;
+   }
+
+   public ChannelBufferFactory factory()
+   {
+      return buffer.factory();
+   }
+
+   public ByteOrder order()
+   {
+      return buffer.order();
+   }
+
+   public boolean isDirect()
+   {
+      return buffer.isDirect();
+   }
+
+   public int capacity()
+   {
+      return capacity;
+   }
+
+   public boolean hasArray()
+   {
+      return buffer.hasArray();
+   }
+
+   public byte[] array()
+   {
+      return buffer.array();
+   }
+
+   public int arrayOffset()
+   {
+      return buffer.arrayOffset();
+   }
+
+   public byte getByte(final int index)
+   {
+      return buffer.getByte(index);
+   }
+
+   public short getShort(final int index)
+   {
+      return buffer.getShort(index);
+   }
+
+   public int getUnsignedMedium(final int index)
+   {
+      return buffer.getUnsignedMedium(index);
+   }
+
+   public int getInt(final int index)
+   {
+      return buffer.getInt(index);
+   }
+
+   public long getLong(final int index)
+   {
+      return buffer.getLong(index);
+   }
+
+   public void getBytes(final int index, final byte[] dst, final int dstIndex, final int length)
+   {
+      buffer.getBytes(index, dst, dstIndex, length);
+   }
+
+   public void getBytes(final int index, final ChannelBuffer dst, final int dstIndex, final int length)
+   {
+      buffer.getBytes(index, dst, dstIndex, length);
+   }
+
+   public void getBytes(final int index, final ByteBuffer dst)
+   {
+      buffer.getBytes(index, dst);
+   }
+
+   public int getBytes(final int index, final GatheringByteChannel out, final int length) throws IOException
+   {
+      return buffer.getBytes(index, out, length);
+   }
+
+   public void getBytes(final int index, final OutputStream out, final int length) throws IOException
+   {
+      buffer.getBytes(index, out, length);
+   }
+
+   public void setByte(final int index, final int value)
+   {
+      buffer.setByte(index, value);
+   }
+
+   public void setShort(final int index, final int value)
+   {
+      buffer.setShort(index, value);
+   }
+
+   public void setMedium(final int index, final int value)
+   {
+      buffer.setMedium(index, value);
+   }
+
+   public void setInt(final int index, final int value)
+   {
+      buffer.setInt(index, value);
+   }
+
+   public void setLong(final int index, final long value)
+   {
+      buffer.setLong(index, value);
+   }
+
+   public void setBytes(final int index, final byte[] src, final int srcIndex, final int length)
+   {
+      buffer.setBytes(index, src, srcIndex, length);
+   }
+
+   public void setBytes(final int index, final ChannelBuffer src, final int srcIndex, final int length)
+   {
+      buffer.setBytes(index, src, srcIndex, length);
+   }
+
+   public void setBytes(final int index, final ByteBuffer src)
+   {
+      buffer.setBytes(index, src);
+   }
+
+   public int setBytes(final int index, final InputStream in, final int length) throws IOException
+   {
+      return buffer.setBytes(index, in, length);
+   }
+
+   public int setBytes(final int index, final ScatteringByteChannel in, final int length) throws IOException
+   {
+      return buffer.setBytes(index, in, length);
+   }
+
+   @Override
+   public void writeByte(final int value)
+   {
+      ensureWritableBytes(1);
+      super.writeByte(value);
+   }
+
+   @Override
+   public void writeShort(final int value)
+   {
+      ensureWritableBytes(2);
+      super.writeShort(value);
+   }
+
+   @Override
+   public void writeMedium(final int value)
+   {
+      ensureWritableBytes(3);
+      super.writeMedium(value);
+   }
+
+   @Override
+   public void writeInt(final int value)
+   {
+      ensureWritableBytes(4);
+      super.writeInt(value);
+   }
+
+   @Override
+   public void writeLong(final long value)
+   {
+      ensureWritableBytes(8);
+      super.writeLong(value);
+   }
+
+   @Override
+   public void writeBytes(final byte[] src, final int srcIndex, final int length)
+   {
+      ensureWritableBytes(length);
+      super.writeBytes(src, srcIndex, length);
+   }
+
+   @Override
+   public void writeBytes(final ChannelBuffer src, final int srcIndex, final int length)
+   {
+      ensureWritableBytes(length);
+      super.writeBytes(src, srcIndex, length);
+   }
+
+   @Override
+   public void writeBytes(final ByteBuffer src)
+   {
+      ensureWritableBytes(src.remaining());
+      super.writeBytes(src);
+   }
+
+   @Override
+   public int writeBytes(final InputStream in, final int length) throws IOException
+   {
+      ensureWritableBytes(length);
+      return super.writeBytes(in, length);
+   }
+
+   @Override
+   public int writeBytes(final ScatteringByteChannel in, final int length) throws IOException
+   {
+      ensureWritableBytes(length);
+      return super.writeBytes(in, length);
+   }
+
+   @Override
+   public void writeZero(final int length)
+   {
+      ensureWritableBytes(length);
+      super.writeZero(length);
+   }
+
+   public ChannelBuffer duplicate()
+   {
+      return new DuplicatedChannelBuffer(this);
+   }
+
+   public ChannelBuffer copy(final int index, final int length)
+   {
+      ChannelBuffer copy = ChannelBuffers.buffer(order(), length);
+      copy.writeBytes(this, index, length);
+      return copy;
+   }
+
+   public ChannelBuffer slice(final int index, final int length)
+   {
+      if (index == 0)
+      {
+         if (length == 0)
+         {
+            return ChannelBuffers.EMPTY_BUFFER;
+         }
+         return new TruncatedChannelBuffer(this, length);
+      }
+      else
+      {
+         if (length == 0)
+         {
+            return ChannelBuffers.EMPTY_BUFFER;
+         }
+         return new SlicedChannelBuffer(this, index, length);
+      }
+   }
+
+   public ByteBuffer toByteBuffer(final int index, final int length)
+   {
+      return buffer.toByteBuffer(index, length);
+   }
+}
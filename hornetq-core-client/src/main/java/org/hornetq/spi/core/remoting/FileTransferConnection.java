@@ -0,0 +1,54 @@
+/*
+ * Copyright 2009 Red Hat, Inc.
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package org.hornetq.spi.core.remoting;
+
+import java.nio.channels.FileChannel;
+
+import org.hornetq.api.core.HornetQBuffer;
+
+/**
+ * A {@link Connection} which can write a region of a file straight from the file, without reading it first.
+ * <p>
+ * The connections which can't just don't implement this interface.
+ */
+public interface FileTransferConnection extends Connection
+{
+   /**
+    * Returns whether the region of a file can currently be written straight from the file, e.g. it can't when the
+    * bytes written have to be transformed.
+    */
+   boolean isFileTransferSupported();
+
+   /**
+    * Queues the header, the region of the file and the trailer to be written to the connection, with nothing
+    * written in between, and returns without waiting for them to be written.
+    * <p>
+    * The file must stay open until {@code written} is run. It is run once, when the trailer has been written or
+    * the writes have failed. The file is not closed by the connection.
+    *
+    * @param header the buffer to write before the region
+    * @param file the file to read the region from
+    * @param position the position of the region in the file
+    * @param count the number of bytes of the region
+    * @param trailer the buffer to write after the region
+    * @param written run once the file is not needed anymore
+    * @throws IllegalStateException if {@link #isFileTransferSupported()} returns false
+    */
+   void transferFile(HornetQBuffer header,
+                     FileChannel file,
+                     long position,
+                     int count,
+                     HornetQBuffer trailer,
+                     Runnable written);
+}
@@ -213,6 +213,75 @@ public class TypedPropertiesTest extends TestCase
       Assert.assertEquals(props.getEncodeSize(), buffer.writerIndex());
    }
 
+   public void testLazyDecode() throws Exception
+   {
+      SimpleString bytesKey = RandomUtil.randomSimpleString();
+      byte[] bytes = RandomUtil.randomBytes();
+      SimpleString longKey = RandomUtil.randomSimpleString();
+      long longValue = RandomUtil.randomLong();
+      SimpleString stringKey = RandomUtil.randomSimpleString();
+      SimpleString stringValue = RandomUtil.randomSimpleString();
+      SimpleString nullKey = RandomUtil.randomSimpleString();
+      SimpleString internalKey = new SimpleString("_HQ_" + RandomUtil.randomString());
+
+      props.putBooleanProperty(RandomUtil.randomSimpleString(), RandomUtil.randomBoolean());
+      props.putBytesProperty(bytesKey, bytes);
+      props.putCharProperty(RandomUtil.randomSimpleString(), RandomUtil.randomChar());
+      props.putDoubleProperty(RandomUtil.randomSimpleString(), RandomUtil.randomDouble());
+      props.putFloatProperty(RandomUtil.randomSimpleString(), RandomUtil.randomFloat());
+      props.putLongProperty(longKey, longValue);
+      props.putNullValue(nullKey);
+      props.putSimpleStringProperty(stringKey, stringValue);
+      props.putIntProperty(internalKey, RandomUtil.randomInt());
+
+      HornetQBuffer buffer = HornetQBuffers.dynamicBuffer(1024);
+      props.encode(buffer);
+
+      TypedProperties decodedProps = new TypedProperties();
+      decodedProps.setLazyDecode(true);
+      decodedProps.decode(buffer);
+
+      Assert.assertEquals(buffer.writerIndex(), buffer.readerIndex());
+      Assert.assertEquals(props.getEncodeSize(), decodedProps.getEncodeSize());
+      Assert.assertTrue(decodedProps.hasInternalProperties());
+
+      Assert.assertEquals(longValue, decodedProps.getLongProperty(longKey).longValue());
+      Assert.assertEquals(stringValue, decodedProps.getSimpleStringProperty(stringKey));
+      CoreUnitTestCase.assertEqualsByteArrays(bytes, decodedProps.getBytesProperty(bytesKey));
+      Assert.assertTrue(decodedProps.containsProperty(nullKey));
+      Assert.assertNull(decodedProps.getProperty(nullKey));
+      Assert.assertFalse(decodedProps.containsProperty(key));
+      Assert.assertNull(decodedProps.getProperty(key));
+
+      // encoded again untouched, the properties are copied as they were decoded
+      HornetQBuffer reencoded = HornetQBuffers.dynamicBuffer(1024);
+      new TypedProperties(decodedProps).encode(reencoded);
+
+      Assert.assertEquals(buffer.writerIndex(), reencoded.writerIndex());
+      for (int i = 0; i < buffer.writerIndex(); i++)
+      {
+         Assert.assertEquals(buffer.getByte(i), reencoded.getByte(i));
+      }
+
+      TypedPropertiesTest.assertEqualsTypeProperties(props, decodedProps);
+
+      // a change decodes all the properties
+      decodedProps.removeProperty(longKey);
+      decodedProps.putIntProperty(key, RandomUtil.randomInt());
+
+      buffer.clear();
+      decodedProps.encode(buffer);
+
+      Assert.assertEquals(decodedProps.getEncodeSize(), buffer.writerIndex());
+
+      TypedProperties redecodedProps = new TypedProperties();
+      redecodedProps.setLazyDecode(true);
+      redecodedProps.decode(buffer);
+
+      Assert.assertFalse(redecodedProps.containsProperty(longKey));
+      TypedPropertiesTest.assertEqualsTypeProperties(decodedProps, redecodedProps);
+   }
+
    public void testEncodeDecodeEmpty() throws Exception
    {
       TypedProperties emptyProps = new TypedProperties();
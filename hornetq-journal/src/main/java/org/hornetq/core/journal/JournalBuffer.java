@@ -0,0 +1,70 @@
+/*
+ * Copyright 2009 Red Hat, Inc.
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package org.hornetq.core.journal;
+
+/**
+ * The buffer the files of a {@link SequentialFileFactory} are written through, as seen from outside of the journal:
+ * its timeout settings, its statistics and a hook run on each flush.
+ */
+public interface JournalBuffer
+{
+   /**
+    * Sets whether the timeout follows the observed sync latency and rate of the records requiring a sync, the
+    * configured timeout being the upper bound.
+    */
+   void setAdaptive(boolean adaptive);
+
+   boolean isAdaptive();
+
+   /**
+    * @return the timeout (in nanoseconds) currently used to flush the buffer
+    */
+   long getEffectiveTimeout();
+
+   /**
+    * @return the average time (in nanoseconds) taken by the flushes requiring a sync to complete, or -1 if none
+    *         was done yet
+    */
+   long getSyncLatency();
+
+   long getFlushes();
+
+   long getRecordsFlushed();
+
+   long getBytesFlushed();
+
+   /**
+    * @return the number of flushes done because a record required a sync and the timeout expired
+    */
+   long getFlushesOnTimeout();
+
+   /**
+    * @return the number of flushes done because the buffer, or the file it's written to, was full
+    */
+   long getFlushesOnFullBuffer();
+
+   /**
+    * @return the number of flushes requested by the journal, e.g. when moving to the next file or stopping
+    */
+   long getFlushesOnRequest();
+
+   /**
+    * Sets a task run on each flush, right before the flushed records are written, e.g. to send elsewhere whatever
+    * goes along with these records. It's run by the thread doing the flush, so it must neither block nor add
+    * records to the buffer.
+    */
+   void setFlushListener(Runnable listener);
+
+   Runnable getFlushListener();
+}
@@ -78,4 +78,9 @@ public interface SequentialFileFactory
    void createDirs() throws Exception;
 
    void flush();
+
+   /**
+    * @return the buffer the files are written through, or {@code null} if they are not buffered
+    */
+   JournalBuffer getJournalBuffer();
 }
@@ -16,7 +16,6 @@ package org.hornetq.core.journal.impl;
 import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Set;
 
 import org.hornetq.api.core.HornetQBuffer;
 import org.hornetq.api.core.HornetQBuffers;
@@ -25,7 +24,8 @@ import org.hornetq.core.journal.SequentialFileFactory;
 import org.hornetq.core.journal.impl.dataformat.ByteArrayEncoding;
 import org.hornetq.core.journal.impl.dataformat.JournalAddRecord;
 import org.hornetq.core.journal.impl.dataformat.JournalInternalRecord;
-import org.hornetq.utils.ConcurrentHashSet;
+import org.hornetq.utils.ConcurrentLongHashMap;
+import org.hornetq.utils.ConcurrentLongHashSet;
 import org.hornetq.utils.Pair;
 
 /**
@@ -58,7 +58,11 @@ public abstract class AbstractJournalUpdateTask implements JournalReaderCallback
 
    private HornetQBuffer writingChannel;
 
-   private final Set<Long> recordsSnapshot = new ConcurrentHashSet<Long>();
+   /** the records that were live when the task started, not modified by the journal while the task runs */
+   private final ConcurrentLongHashMap<?> recordsSnapshot;
+
+   /** records that became part of the snapshot after the task started */
+   private final ConcurrentLongHashSet recordsAdded = new ConcurrentLongHashSet();
 
    protected final List<JournalFile> newDataFiles = new ArrayList<JournalFile>();
 
@@ -69,7 +73,7 @@ public abstract class AbstractJournalUpdateTask implements JournalReaderCallback
    protected AbstractJournalUpdateTask(final SequentialFileFactory fileFactory,
                                        final JournalImpl journal,
                                        final JournalFilesRepository filesRepository,
-                                       final Set<Long> recordsSnapshot,
+                                       final ConcurrentLongHashMap<?> recordsSnapshot,
                                        final long nextOrderingID)
    {
       super();
@@ -77,7 +81,7 @@ public abstract class AbstractJournalUpdateTask implements JournalReaderCallback
       this.filesRepository = filesRepository;
       this.fileFactory = fileFactory;
       this.nextOrderingID = nextOrderingID;
-      this.recordsSnapshot.addAll(recordsSnapshot);
+      this.recordsSnapshot = recordsSnapshot;
    }
 
    // Public --------------------------------------------------------
@@ -193,7 +197,7 @@ public abstract class AbstractJournalUpdateTask implements JournalReaderCallback
 
    public boolean lookupRecord(final long id)
    {
-      return recordsSnapshot.contains(id);
+      return recordsSnapshot.containsKey(id) || recordsAdded.contains(id);
    }
 
    // Package protected ---------------------------------------------
@@ -224,7 +228,7 @@ public abstract class AbstractJournalUpdateTask implements JournalReaderCallback
 
    protected void addToRecordsSnaptshot(final long id)
    {
-      recordsSnapshot.add(id);
+      recordsAdded.add(id);
    }
 
    /**
@@ -26,6 +26,7 @@ import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 
 import org.hornetq.core.journal.IOCriticalErrorListener;
+import org.hornetq.core.journal.JournalBuffer;
 import org.hornetq.core.journal.SequentialFile;
 import org.hornetq.core.journal.SequentialFileFactory;
 import org.hornetq.journal.HornetQJournalLogger;
@@ -159,6 +160,11 @@ abstract class AbstractSequentialFileFactory implements SequentialFileFactory
       }
    }
 
+   public JournalBuffer getJournalBuffer()
+   {
+      return timedBuffer;
+   }
+
    public void deactivateBuffer()
    {
       if (timedBuffer != null)
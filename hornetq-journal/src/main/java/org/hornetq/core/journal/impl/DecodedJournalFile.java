@@ -0,0 +1,220 @@
+/*
+ * Copyright 2009 Red Hat, Inc.
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package org.hornetq.core.journal.impl;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+import org.hornetq.core.journal.RecordInfo;
+import org.hornetq.core.journal.SequentialFileFactory;
+
+/**
+ * The records of a journal file, decoded ahead of time so that several files can be read and parsed
+ * concurrently during load.
+ * <p>
+ * The records are kept in the order they were found on the file and are handed to the real
+ * {@link JournalReaderCallback} by {@link #replay(JournalReaderCallback)}, which the journal calls one
+ * file at a time, in file order, so the outcome is the same as reading the files sequentially.
+ */
+final class DecodedJournalFile implements JournalReaderCallback, Callable<DecodedJournalFile>
+{
+   private static final byte ADD = 0;
+
+   private static final byte UPDATE = 1;
+
+   private static final byte DELETE = 2;
+
+   private static final byte ADD_TX = 3;
+
+   private static final byte UPDATE_TX = 4;
+
+   private static final byte DELETE_TX = 5;
+
+   private static final byte PREPARE = 6;
+
+   private static final byte COMMIT = 7;
+
+   private static final byte ROLLBACK = 8;
+
+   private final SequentialFileFactory fileFactory;
+
+   private final JournalFile file;
+
+   private final List<Event> events = new ArrayList<Event>();
+
+   private boolean markedAsDataFile;
+
+   private int lastDataPos;
+
+   private long decodeTime;
+
+   DecodedJournalFile(final SequentialFileFactory fileFactory, final JournalFile file)
+   {
+      this.fileFactory = fileFactory;
+      this.file = file;
+   }
+
+   public DecodedJournalFile call() throws Exception
+   {
+      long start = System.currentTimeMillis();
+      lastDataPos = JournalImpl.readJournalFile(fileFactory, file, this);
+      decodeTime = System.currentTimeMillis() - start;
+      return this;
+   }
+
+   public JournalFile getFile()
+   {
+      return file;
+   }
+
+   /**
+    * @return the time spent reading and decoding the file, in milliseconds
+    */
+   public long getDecodeTime()
+   {
+      return decodeTime;
+   }
+
+   /**
+    * Sends the decoded records to the reader, as {@link JournalImpl#readJournalFile} would have.
+    *
+    * @return the position after the last valid record on the file
+    */
+   public int replay(final JournalReaderCallback reader) throws Exception
+   {
+      if (markedAsDataFile)
+      {
+         reader.markAsDataFile(file);
+      }
+
+      for (Event event : events)
+      {
+         switch (event.type)
+         {
+            case ADD:
+               reader.onReadAddRecord(event.info);
+               break;
+            case UPDATE:
+               reader.onReadUpdateRecord(event.info);
+               break;
+            case DELETE:
+               reader.onReadDeleteRecord(event.id);
+               break;
+            case ADD_TX:
+               reader.onReadAddRecordTX(event.id, event.info);
+               break;
+            case UPDATE_TX:
+               reader.onReadUpdateRecordTX(event.id, event.info);
+               break;
+            case DELETE_TX:
+               reader.onReadDeleteRecordTX(event.id, event.info);
+               break;
+            case PREPARE:
+               reader.onReadPrepareRecord(event.id, event.extraData, event.numberOfRecords);
+               break;
+            case COMMIT:
+               reader.onReadCommitRecord(event.id, event.numberOfRecords);
+               break;
+            case ROLLBACK:
+               reader.onReadRollbackRecord(event.id);
+               break;
+            default:
+               throw new IllegalStateException("Invalid event type " + event.type);
+         }
+      }
+
+      // the records are not needed any longer
+      events.clear();
+
+      return lastDataPos;
+   }
+
+   // JournalReaderCallback implementation --------------------------
+
+   public void onReadAddRecord(final RecordInfo info) throws Exception
+   {
+      events.add(new Event(ADD, 0, info));
+   }
+
+   public void onReadUpdateRecord(final RecordInfo info) throws Exception
+   {
+      events.add(new Event(UPDATE, 0, info));
+   }
+
+   public void onReadDeleteRecord(final long recordID) throws Exception
+   {
+      events.add(new Event(DELETE, recordID, null));
+   }
+
+   public void onReadAddRecordTX(final long transactionID, final RecordInfo info) throws Exception
+   {
+      events.add(new Event(ADD_TX, transactionID, info));
+   }
+
+   public void onReadUpdateRecordTX(final long transactionID, final RecordInfo info) throws Exception
+   {
+      events.add(new Event(UPDATE_TX, transactionID, info));
+   }
+
+   public void onReadDeleteRecordTX(final long transactionID, final RecordInfo info) throws Exception
+   {
+      events.add(new Event(DELETE_TX, transactionID, info));
+   }
+
+   public void onReadPrepareRecord(final long transactionID, final byte[] extraData, final int numberOfRecords) throws Exception
+   {
+      Event event = new Event(PREPARE, transactionID, null);
+      event.extraData = extraData;
+      event.numberOfRecords = numberOfRecords;
+      events.add(event);
+   }
+
+   public void onReadCommitRecord(final long transactionID, final int numberOfRecords) throws Exception
+   {
+      Event event = new Event(COMMIT, transactionID, null);
+      event.numberOfRecords = numberOfRecords;
+      events.add(event);
+   }
+
+   public void onReadRollbackRecord(final long transactionID) throws Exception
+   {
+      events.add(new Event(ROLLBACK, transactionID, null));
+   }
+
+   public void markAsDataFile(final JournalFile file)
+   {
+      markedAsDataFile = true;
+   }
+
+   private static final class Event
+   {
+      final byte type;
+
+      /** the record id for deletes, the transaction id for everything else */
+      final long id;
+
+      final RecordInfo info;
+
+      byte[] extraData;
+
+      int numberOfRecords;
+
+      Event(final byte type, final long id, final RecordInfo info)
+      {
+         this.type = type;
+         this.id = id;
+         this.info = info;
+      }
+   }
+}
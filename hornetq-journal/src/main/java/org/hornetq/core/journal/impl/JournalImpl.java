@@ -19,18 +19,16 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -64,6 +62,8 @@ import org.hornetq.core.journal.impl.dataformat.JournalInternalRecord;
 import org.hornetq.core.journal.impl.dataformat.JournalRollbackRecordTX;
 import org.hornetq.journal.HornetQJournalBundle;
 import org.hornetq.journal.HornetQJournalLogger;
+import org.hornetq.utils.ConcurrentLongHashMap;
+import org.hornetq.utils.ConcurrentLongHashSet;
 import org.hornetq.utils.DataConstants;
 import org.hornetq.utils.Pair;
 
@@ -179,10 +179,10 @@ public class JournalImpl extends JournalBase implements TestableJournal, Journal
    private final JournalFilesRepository filesRepository;
 
    // Compacting may replace this structure
-   private final ConcurrentMap<Long, JournalRecord> records = new ConcurrentHashMap<Long, JournalRecord>();
+   private volatile ConcurrentLongHashMap<JournalRecord> records = new ConcurrentLongHashMap<JournalRecord>();
 
    // Compacting may replace this structure
-   private final ConcurrentMap<Long, JournalTransaction> transactions = new ConcurrentHashMap<Long, JournalTransaction>();
+   private final ConcurrentLongHashMap<JournalTransaction> transactions = new ConcurrentLongHashMap<JournalTransaction>();
 
    // This will be set only while the JournalCompactor is being executed
    private volatile JournalCompactor compactor;
@@ -206,7 +206,7 @@ public class JournalImpl extends JournalBase implements TestableJournal, Journal
     * However we need to lock it while taking and updating snapshots
     */
    private final ReadWriteLock journalLock = new ReentrantReadWriteLock();
-   private final ReadWriteLock compactorLock = new ReentrantReadWriteLock();
+   private final ReentrantReadWriteLock compactorLock = new ReentrantReadWriteLock();
 
    private volatile JournalFile currentFile;
 
@@ -214,6 +214,12 @@ public class JournalImpl extends JournalBase implements TestableJournal, Journal
 
    private final Reclaimer reclaimer = new Reclaimer();
 
+   /** number of threads reading and decoding journal files during load, 1 reads the files sequentially */
+   private volatile int loadThreads = 1;
+
+   /** maximum number of bytes per second the compactor reads from the data files, -1 means no limit */
+   private volatile long compactMaxRate = -1;
+
    // Constructors --------------------------------------------------
 
    public JournalImpl(final int fileSize,
@@ -346,7 +352,7 @@ public class JournalImpl extends JournalBase implements TestableJournal, Journal
       latch.await();
    }
 
-   public Map<Long, JournalRecord> getRecords()
+   public ConcurrentLongHashMap<JournalRecord> getRecords()
    {
       return records;
    }
@@ -892,19 +898,20 @@ public class JournalImpl extends JournalBase implements TestableJournal, Journal
 
          JournalRecord record = null;
 
-         if (compactor == null)
+         JournalCompactor localCompactor = compactor;
+
+         // Records added while compacting and unknown to the compactor are deleted right away, the others are
+         // deleted when the compactor's pending commands are replayed
+         if (localCompactor == null || !localCompactor.lookupRecord(id))
          {
             record = records.remove(id);
 
             if (record == null)
             {
-               throw new IllegalStateException("Cannot find add info " + id);
-            }
-         }
-         else
-         {
-            if (!records.containsKey(id) && !compactor.lookupRecord(id))
-            {
+               if (localCompactor == null)
+               {
+                  throw new IllegalStateException("Cannot find add info " + id);
+               }
                throw new IllegalStateException("Cannot find add info " + id + " on compactor or current records");
             }
          }
@@ -930,7 +937,7 @@ public class JournalImpl extends JournalBase implements TestableJournal, Journal
             // compacting is done
             if (record == null)
             {
-               compactor.addCommandDelete(id, usedFile);
+               localCompactor.addCommandDelete(id, usedFile);
             }
             else
             {
@@ -1262,6 +1269,88 @@ public class JournalImpl extends JournalBase implements TestableJournal, Journal
       return fileFactory.getAlignment();
    }
 
+   /**
+    * Waits until {@code bytes} read since {@code start} are within the compactMaxRate budget.
+    * <p>
+    * The compactor lock is held meanwhile, so the wait is given up as soon as a backup synchronization is waiting
+    * for that lock: the rest of the compacting then runs unthrottled.
+    * @return {@code false} if the throttling was given up
+    */
+   private boolean throttleCompact(final long start, final long bytes) throws Exception
+   {
+      while (true)
+      {
+         long maxRate = compactMaxRate;
+
+         if (maxRate <= 0)
+         {
+            return true;
+         }
+
+         if (compactorLock.hasQueuedThreads())
+         {
+            return false;
+         }
+
+         long wait = start + bytes * 1000 / maxRate - System.currentTimeMillis();
+
+         if (wait <= 0)
+         {
+            return true;
+         }
+
+         if (state == JournalState.STOPPED)
+         {
+            throw new IllegalStateException("Journal stopped while compacting");
+         }
+
+         // short naps, so a stop or a new rate is noticed quickly
+         Thread.sleep(Math.min(wait, 100));
+      }
+   }
+
+   /**
+    * @return an executor decoding the journal files during load, or {@code null} if they should be read
+    *         sequentially
+    */
+   private ExecutorService createLoadExecutor(final int numberOfFiles)
+   {
+      final int threads = Math.min(loadThreads, numberOfFiles);
+
+      if (threads <= 1)
+      {
+         return null;
+      }
+
+      return Executors.newFixedThreadPool(threads, new ThreadFactory()
+      {
+         private final AtomicInteger threadCount = new AtomicInteger(0);
+
+         public Thread newThread(final Runnable r)
+         {
+            Thread thread = new Thread(r, "JournalImpl::LoadExecutor-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+         }
+      });
+   }
+
+   private static DecodedJournalFile waitDecoded(final Future<DecodedJournalFile> future) throws Exception
+   {
+      try
+      {
+         return future.get();
+      }
+      catch (ExecutionException e)
+      {
+         if (e.getCause() instanceof Exception)
+         {
+            throw (Exception)e.getCause();
+         }
+         throw new Exception(e.getCause().getMessage(), e.getCause());
+      }
+   }
+
    private static class DummyLoader implements LoaderCallback
    {
       static final LoaderCallback INSTANCE = new DummyLoader();
@@ -1312,7 +1401,7 @@ public class JournalImpl extends JournalBase implements TestableJournal, Journal
                                                    final TransactionFailureCallback failureCallback,
                                                    final boolean fixBadTX) throws Exception
    {
-      final Set<Long> recordsToDelete = new HashSet<Long>();
+      final ConcurrentLongHashSet recordsToDelete = new ConcurrentLongHashSet();
       // ArrayList was taking too long to delete elements on checkDeleteSize
       final List<RecordInfo> records = new LinkedList<RecordInfo>();
 
@@ -1471,6 +1560,8 @@ public class JournalImpl extends JournalBase implements TestableJournal, Journal
       {
          HornetQJournalLogger.LOGGER.debug("Starting compacting operation on journal");
 
+         long compactStart = System.currentTimeMillis();
+
          onCompactStart();
 
          // We need to guarantee that the journal is frozen for this short time
@@ -1502,34 +1593,42 @@ public class JournalImpl extends JournalBase implements TestableJournal, Journal
                return;
             }
 
+            // The current records become the compactor's snapshot, and the journal starts over with an empty map.
+            // Nothing is copied while the journal is locked.
             compactor = new JournalCompactor(fileFactory,
                                              this,
                                              filesRepository,
-                                             records.keySet(),
+                                             records,
                                              dataFilesToProcess.get(0).getFileID());
 
-            for (Map.Entry<Long, JournalTransaction> entry : transactions.entrySet())
+            for (JournalTransaction transaction : transactions.values())
             {
-               compactor.addPendingTransaction(entry.getKey(), entry.getValue().getPositiveArray());
-               entry.getValue().setCompacting();
+               compactor.addPendingTransaction(transaction.getId(), transaction.getPositiveArray());
+               transaction.setCompacting();
             }
 
             // We will calculate the new records during compacting, what will take the position the records will take
             // after compacting
-            records.clear();
+            records = new ConcurrentLongHashMap<JournalRecord>();
          }
          finally
          {
             journalLock.writeLock().unlock();
          }
 
+         long lockedTime = System.currentTimeMillis() - compactStart;
+
          Collections.sort(dataFilesToProcess, new JournalFileComparator());
 
          // This is where most of the work is done, taking most of the time of the compacting routine.
          // Notice there are no locks while this is being done.
 
          // Read the files, and use the JournalCompactor class to create the new outputFiles, and the new collections as
-         // well
+         // well. The files are processed one at a time, respecting the compactMaxRate budget between them
+         long readStart = System.currentTimeMillis();
+         long bytesRead = 0;
+         boolean throttled = true;
+
          for (final JournalFile file : dataFilesToProcess)
          {
             try
@@ -1541,6 +1640,13 @@ public class JournalImpl extends JournalBase implements TestableJournal, Journal
                HornetQJournalLogger.LOGGER.compactReadError(file);
                throw new Exception("Error on reading compacting for " + file, e);
             }
+
+            bytesRead += fileSize;
+
+            if (throttled)
+            {
+               throttled = throttleCompact(readStart, bytesRead);
+            }
          }
 
          compactor.flush();
@@ -1556,6 +1662,10 @@ public class JournalImpl extends JournalBase implements TestableJournal, Journal
 
          SequentialFile controlFile = createControlFile(dataFilesToProcess, compactor.getNewDataFiles(), null);
 
+         long copyTime = System.currentTimeMillis() - readStart;
+
+         long mergeStart = System.currentTimeMillis();
+
          journalLock.writeLock().lock();
          try
          {
@@ -1566,10 +1676,20 @@ public class JournalImpl extends JournalBase implements TestableJournal, Journal
 
             newDatafiles = localCompactor.getNewDataFiles();
 
-            // Restore newRecords created during compacting
-            for (Map.Entry<Long, JournalRecord> newRecordEntry : localCompactor.getNewRecords().entrySet())
+            // Restore newRecords created during compacting, copying the smaller map into the larger one
+            ConcurrentLongHashMap<JournalRecord> newRecords = localCompactor.getNewRecords();
+            ConcurrentLongHashMap<JournalRecord> liveRecords = records;
+            if (liveRecords.size() <= newRecords.size())
             {
-               records.put(newRecordEntry.getKey(), newRecordEntry.getValue());
+               for (long id : liveRecords.keys())
+               {
+                  newRecords.putIfAbsent(id, liveRecords.get(id));
+               }
+               records = newRecords;
+            }
+            else
+            {
+               liveRecords.putAll(newRecords);
             }
 
             // Restore compacted dataFiles
@@ -1623,11 +1743,19 @@ public class JournalImpl extends JournalBase implements TestableJournal, Journal
             journalLock.writeLock().unlock();
          }
 
+         lockedTime += System.currentTimeMillis() - mergeStart;
+
          // At this point the journal is unlocked. We keep renaming files while the journal is already operational
          renameFiles(dataFilesToProcess, newDatafiles);
          deleteControlFile(controlFile);
 
-         HornetQJournalLogger.LOGGER.debug("Finished compacting on journal");
+         if (HornetQJournalLogger.LOGGER.isDebugEnabled())
+         {
+            HornetQJournalLogger.LOGGER.debug("Finished compacting on journal: " + dataFilesToProcess.size() +
+                                              " files compacted into " + newDatafiles.size() + " in " +
+                                              (System.currentTimeMillis() - compactStart) + " ms, copying = " +
+                                              copyTime + " ms, journal locked = " + lockedTime + " ms");
+         }
 
       }
       finally
@@ -1719,6 +1847,8 @@ public class JournalImpl extends JournalBase implements TestableJournal, Journal
 
       checkControlFile();
 
+      long loadStart = System.currentTimeMillis();
+
       records.clear();
 
       filesRepository.clear();
@@ -1732,279 +1862,326 @@ public class JournalImpl extends JournalBase implements TestableJournal, Journal
 
       filesRepository.calculateNextfileID(orderedFiles);
 
+      long scanTime = System.currentTimeMillis() - loadStart;
+
       int lastDataPos = JournalImpl.SIZE_HEADER;
 
       // AtomicLong is used only as a reference, not as an Atomic value
       final AtomicLong maxID = new AtomicLong(-1);
 
-      for (final JournalFile file : orderedFiles)
-      {
-         JournalImpl.trace("Loading file " + file.getFile().getFileName());
+      // Files are decoded ahead by the load threads, and replayed here one at a time in file order
+      final ExecutorService loadExecutor = createLoadExecutor(orderedFiles.size());
 
-         final AtomicBoolean hasData = new AtomicBoolean(false);
+      final List<Future<DecodedJournalFile>> decodedFiles = new ArrayList<Future<DecodedJournalFile>>(orderedFiles.size());
 
-         int resultLastPost = JournalImpl.readJournalFile(fileFactory, file, new JournalReaderCallback()
-         {
+      long readStart = System.currentTimeMillis();
 
-            private void checkID(final long id)
-            {
-               if (id > maxID.longValue())
-               {
-                  maxID.set(id);
-               }
-            }
+      long decodeTime = 0;
 
-            public void onReadAddRecord(final RecordInfo info) throws Exception
-            {
-               checkID(info.id);
-
-               hasData.set(true);
+      try
+      {
+         for (int fileIndex = 0; fileIndex < orderedFiles.size(); fileIndex++)
+         {
+            final JournalFile file = orderedFiles.get(fileIndex);
 
-               loadManager.addRecord(info);
+            JournalImpl.trace("Loading file " + file.getFile().getFileName());
 
-               records.put(info.id, new JournalRecord(file, info.data.length + JournalImpl.SIZE_ADD_RECORD + 1));
-            }
+            final AtomicBoolean hasData = new AtomicBoolean(false);
 
-            public void onReadUpdateRecord(final RecordInfo info) throws Exception
+            JournalReaderCallback loadCallback = new JournalReaderCallback()
             {
-               checkID(info.id);
-
-               hasData.set(true);
 
-               loadManager.updateRecord(info);
-
-               JournalRecord posFiles = records.get(info.id);
-
-               if (posFiles != null)
+               private void checkID(final long id)
                {
-                  // It's legal for this to be null. The file(s) with the may
-                  // have been deleted
-                  // just leaving some updates in this file
-
-                  posFiles.addUpdateFile(file, info.data.length + JournalImpl.SIZE_ADD_RECORD + 1); // +1 = compact
-                  // count
+                  if (id > maxID.longValue())
+                  {
+                     maxID.set(id);
+                  }
                }
-            }
 
-            public void onReadDeleteRecord(final long recordID) throws Exception
-            {
-               hasData.set(true);
+               public void onReadAddRecord(final RecordInfo info) throws Exception
+               {
+                  checkID(info.id);
 
-               loadManager.deleteRecord(recordID);
+                  hasData.set(true);
 
-               JournalRecord posFiles = records.remove(recordID);
+                  loadManager.addRecord(info);
 
-               if (posFiles != null)
-               {
-                  posFiles.delete(file);
+                  records.put(info.id, new JournalRecord(file, info.data.length + JournalImpl.SIZE_ADD_RECORD + 1));
                }
-            }
 
-            public void onReadUpdateRecordTX(final long transactionID, final RecordInfo info) throws Exception
-            {
-               onReadAddRecordTX(transactionID, info);
-            }
+               public void onReadUpdateRecord(final RecordInfo info) throws Exception
+               {
+                  checkID(info.id);
 
-            public void onReadAddRecordTX(final long transactionID, final RecordInfo info) throws Exception
-            {
+                  hasData.set(true);
 
-               checkID(info.id);
+                  loadManager.updateRecord(info);
 
-               hasData.set(true);
+                  JournalRecord posFiles = records.get(info.id);
+
+                  if (posFiles != null)
+                  {
+                     // It's legal for this to be null. The file(s) with the may
+                     // have been deleted
+                     // just leaving some updates in this file
 
-               TransactionHolder tx = loadTransactions.get(transactionID);
+                     posFiles.addUpdateFile(file, info.data.length + JournalImpl.SIZE_ADD_RECORD + 1); // +1 = compact
+                     // count
+                  }
+               }
 
-               if (tx == null)
+               public void onReadDeleteRecord(final long recordID) throws Exception
                {
-                  tx = new TransactionHolder(transactionID);
+                  hasData.set(true);
 
-                  loadTransactions.put(transactionID, tx);
-               }
+                  loadManager.deleteRecord(recordID);
 
-               tx.recordInfos.add(info);
+                  JournalRecord posFiles = records.remove(recordID);
 
-               JournalTransaction tnp = transactions.get(transactionID);
+                  if (posFiles != null)
+                  {
+                     posFiles.delete(file);
+                  }
+               }
 
-               if (tnp == null)
+               public void onReadUpdateRecordTX(final long transactionID, final RecordInfo info) throws Exception
                {
-                  tnp = new JournalTransaction(transactionID, JournalImpl.this);
-
-                  transactions.put(transactionID, tnp);
+                  onReadAddRecordTX(transactionID, info);
                }
 
-               tnp.addPositive(file, info.id, info.data.length + JournalImpl.SIZE_ADD_RECORD_TX + 1); // +1 = compact
-               // count
-            }
+               public void onReadAddRecordTX(final long transactionID, final RecordInfo info) throws Exception
+               {
 
-            public void onReadDeleteRecordTX(final long transactionID, final RecordInfo info) throws Exception
-            {
-               hasData.set(true);
+                  checkID(info.id);
 
-               TransactionHolder tx = loadTransactions.get(transactionID);
+                  hasData.set(true);
 
-               if (tx == null)
-               {
-                  tx = new TransactionHolder(transactionID);
+                  TransactionHolder tx = loadTransactions.get(transactionID);
 
-                  loadTransactions.put(transactionID, tx);
-               }
+                  if (tx == null)
+                  {
+                     tx = new TransactionHolder(transactionID);
 
-               tx.recordsToDelete.add(info);
+                     loadTransactions.put(transactionID, tx);
+                  }
 
-               JournalTransaction tnp = transactions.get(transactionID);
+                  tx.recordInfos.add(info);
 
-               if (tnp == null)
-               {
-                  tnp = new JournalTransaction(transactionID, JournalImpl.this);
+                  JournalTransaction tnp = transactions.get(transactionID);
+
+                  if (tnp == null)
+                  {
+                     tnp = new JournalTransaction(transactionID, JournalImpl.this);
+
+                     transactions.put(transactionID, tnp);
+                  }
 
-                  transactions.put(transactionID, tnp);
+                  tnp.addPositive(file, info.id, info.data.length + JournalImpl.SIZE_ADD_RECORD_TX + 1); // +1 = compact
+                  // count
                }
 
-               tnp.addNegative(file, info.id);
+               public void onReadDeleteRecordTX(final long transactionID, final RecordInfo info) throws Exception
+               {
+                  hasData.set(true);
 
-            }
+                  TransactionHolder tx = loadTransactions.get(transactionID);
 
-            public void onReadPrepareRecord(final long transactionID, final byte[] extraData, final int numberOfRecords) throws Exception
-            {
-               hasData.set(true);
+                  if (tx == null)
+                  {
+                     tx = new TransactionHolder(transactionID);
 
-               TransactionHolder tx = loadTransactions.get(transactionID);
+                     loadTransactions.put(transactionID, tx);
+                  }
 
-               if (tx == null)
-               {
-                  // The user could choose to prepare empty transactions
-                  tx = new TransactionHolder(transactionID);
+                  tx.recordsToDelete.add(info);
 
-                  loadTransactions.put(transactionID, tx);
-               }
+                  JournalTransaction tnp = transactions.get(transactionID);
 
-               tx.prepared = true;
+                  if (tnp == null)
+                  {
+                     tnp = new JournalTransaction(transactionID, JournalImpl.this);
 
-               tx.extraData = extraData;
+                     transactions.put(transactionID, tnp);
+                  }
 
-               JournalTransaction journalTransaction = transactions.get(transactionID);
+                  tnp.addNegative(file, info.id);
 
-               if (journalTransaction == null)
+               }
+
+               public void onReadPrepareRecord(final long transactionID, final byte[] extraData, final int numberOfRecords) throws Exception
                {
-                  journalTransaction = new JournalTransaction(transactionID, JournalImpl.this);
+                  hasData.set(true);
 
-                  transactions.put(transactionID, journalTransaction);
-               }
+                  TransactionHolder tx = loadTransactions.get(transactionID);
 
-               boolean healthy = checkTransactionHealth(file, journalTransaction, orderedFiles, numberOfRecords);
+                  if (tx == null)
+                  {
+                     // The user could choose to prepare empty transactions
+                     tx = new TransactionHolder(transactionID);
 
-               if (healthy)
-               {
-                  journalTransaction.prepare(file);
-               }
-               else
-               {
-                  HornetQJournalLogger.LOGGER.preparedTXIncomplete(transactionID);
-                  tx.invalid = true;
-               }
-            }
+                     loadTransactions.put(transactionID, tx);
+                  }
 
-            public void onReadCommitRecord(final long transactionID, final int numberOfRecords) throws Exception
-            {
-               TransactionHolder tx = loadTransactions.remove(transactionID);
+                  tx.prepared = true;
 
-               // The commit could be alone on its own journal-file and the
-               // whole transaction body was reclaimed but not the
-               // commit-record
-               // So it is completely legal to not find a transaction at this
-               // point
-               // If we can't find it, we assume the TX was reclaimed and we
-               // ignore this
-               if (tx != null)
-               {
-                  JournalTransaction journalTransaction = transactions.remove(transactionID);
+                  tx.extraData = extraData;
+
+                  JournalTransaction journalTransaction = transactions.get(transactionID);
 
                   if (journalTransaction == null)
                   {
-                     throw new IllegalStateException("Cannot find tx " + transactionID);
+                     journalTransaction = new JournalTransaction(transactionID, JournalImpl.this);
+
+                     transactions.put(transactionID, journalTransaction);
                   }
 
                   boolean healthy = checkTransactionHealth(file, journalTransaction, orderedFiles, numberOfRecords);
 
                   if (healthy)
                   {
-                     for (RecordInfo txRecord : tx.recordInfos)
+                     journalTransaction.prepare(file);
+                  }
+                  else
+                  {
+                     HornetQJournalLogger.LOGGER.preparedTXIncomplete(transactionID);
+                     tx.invalid = true;
+                  }
+               }
+
+               public void onReadCommitRecord(final long transactionID, final int numberOfRecords) throws Exception
+               {
+                  TransactionHolder tx = loadTransactions.remove(transactionID);
+
+                  // The commit could be alone on its own journal-file and the
+                  // whole transaction body was reclaimed but not the
+                  // commit-record
+                  // So it is completely legal to not find a transaction at this
+                  // point
+                  // If we can't find it, we assume the TX was reclaimed and we
+                  // ignore this
+                  if (tx != null)
+                  {
+                     JournalTransaction journalTransaction = transactions.remove(transactionID);
+
+                     if (journalTransaction == null)
+                     {
+                        throw new IllegalStateException("Cannot find tx " + transactionID);
+                     }
+
+                     boolean healthy = checkTransactionHealth(file, journalTransaction, orderedFiles, numberOfRecords);
+
+                     if (healthy)
                      {
-                        if (txRecord.isUpdate)
+                        for (RecordInfo txRecord : tx.recordInfos)
                         {
-                           loadManager.updateRecord(txRecord);
+                           if (txRecord.isUpdate)
+                           {
+                              loadManager.updateRecord(txRecord);
+                           }
+                           else
+                           {
+                              loadManager.addRecord(txRecord);
+                           }
                         }
-                        else
+
+                        for (RecordInfo deleteValue : tx.recordsToDelete)
                         {
-                           loadManager.addRecord(txRecord);
+                           loadManager.deleteRecord(deleteValue.id);
                         }
-                     }
 
-                     for (RecordInfo deleteValue : tx.recordsToDelete)
+                        journalTransaction.commit(file);
+                     }
+                     else
                      {
-                        loadManager.deleteRecord(deleteValue.id);
+                        HornetQJournalLogger.LOGGER.txMissingElements(transactionID);
+
+                        journalTransaction.forget();
                      }
 
-                     journalTransaction.commit(file);
+                     hasData.set(true);
                   }
-                  else
+
+               }
+
+               public void onReadRollbackRecord(final long transactionID) throws Exception
+               {
+                  TransactionHolder tx = loadTransactions.remove(transactionID);
+
+                  // The rollback could be alone on its own journal-file and the
+                  // whole transaction body was reclaimed but the commit-record
+                  // So it is completely legal to not find a transaction at this
+                  // point
+                  if (tx != null)
                   {
-                     HornetQJournalLogger.LOGGER.txMissingElements(transactionID);
+                     JournalTransaction tnp = transactions.remove(transactionID);
 
-                     journalTransaction.forget();
+                     if (tnp == null)
+                     {
+                        throw new IllegalStateException("Cannot find tx " + transactionID);
+                     }
+
+                     // There is no need to validate summaries/holes on
+                     // Rollbacks.. We will ignore the data anyway.
+                     tnp.rollback(file);
+
+                     hasData.set(true);
                   }
+               }
 
+               public void markAsDataFile(final JournalFile file)
+               {
                   hasData.set(true);
                }
 
-            }
+            };
 
-            public void onReadRollbackRecord(final long transactionID) throws Exception
-            {
-               TransactionHolder tx = loadTransactions.remove(transactionID);
+            int resultLastPost;
 
-               // The rollback could be alone on its own journal-file and the
-               // whole transaction body was reclaimed but the commit-record
-               // So it is completely legal to not find a transaction at this
-               // point
-               if (tx != null)
+            if (loadExecutor == null)
+            {
+               resultLastPost = JournalImpl.readJournalFile(fileFactory, file, loadCallback);
+            }
+            else
+            {
+               // keep a bounded number of files decoded ahead, so we don't hold the whole journal in memory
+               while (decodedFiles.size() < orderedFiles.size() && decodedFiles.size() <= fileIndex + loadThreads * 2)
                {
-                  JournalTransaction tnp = transactions.remove(transactionID);
+                  JournalFile nextFile = orderedFiles.get(decodedFiles.size());
+                  decodedFiles.add(loadExecutor.submit(new DecodedJournalFile(fileFactory, nextFile)));
+               }
 
-                  if (tnp == null)
-                  {
-                     throw new IllegalStateException("Cannot find tx " + transactionID);
-                  }
+               DecodedJournalFile decoded = waitDecoded(decodedFiles.set(fileIndex, null));
 
-                  // There is no need to validate summaries/holes on
-                  // Rollbacks.. We will ignore the data anyway.
-                  tnp.rollback(file);
+               decodeTime += decoded.getDecodeTime();
 
-                  hasData.set(true);
-               }
+               resultLastPost = decoded.replay(loadCallback);
             }
 
-            public void markAsDataFile(final JournalFile file)
+            if (hasData.get())
             {
-               hasData.set(true);
+               lastDataPos = resultLastPost;
+               filesRepository.addDataFileOnBottom(file);
             }
-
-         });
-
-         if (hasData.get())
-         {
-            lastDataPos = resultLastPost;
-            filesRepository.addDataFileOnBottom(file);
-         }
-         else
-         {
-            if (changeData)
+            else
             {
-               // Empty dataFiles with no data
-               filesRepository.addFreeFile(file, false, false);
+               if (changeData)
+               {
+                  // Empty dataFiles with no data
+                  filesRepository.addFreeFile(file, false, false);
+               }
             }
          }
       }
+      finally
+      {
+         if (loadExecutor != null)
+         {
+            loadExecutor.shutdownNow();
+         }
+      }
+
+      long readTime = System.currentTimeMillis() - readStart;
 
       if (replicationSync == JournalState.SYNCING)
       {
@@ -2017,6 +2194,8 @@ public class JournalImpl extends JournalBase implements TestableJournal, Journal
 
       setJournalState(JournalState.LOADED);
 
+      long txStart = System.currentTimeMillis();
+
       for (TransactionHolder transaction : loadTransactions.values())
       {
          if ((!transaction.prepared || transaction.invalid) && replicationSync != JournalState.SYNCING_UP_TO_DATE)
@@ -2053,6 +2232,18 @@ public class JournalImpl extends JournalBase implements TestableJournal, Journal
          }
       }
 
+      long txTime = System.currentTimeMillis() - txStart;
+
+      if (HornetQJournalLogger.LOGGER.isDebugEnabled())
+      {
+         HornetQJournalLogger.LOGGER.debug("Journal at " + fileFactory.getDirectory() + " loaded " +
+                                           orderedFiles.size() + " files in " +
+                                           (System.currentTimeMillis() - loadStart) + " ms using " +
+                                           (loadExecutor == null ? 1 : loadThreads) + " thread(s): file scan = " +
+                                           scanTime + " ms, read and replay = " + readTime +
+                                           " ms (decode = " + decodeTime + " ms), tx resolution = " + txTime + " ms");
+      }
+
       checkReclaimStatus();
 
       return new JournalLoadInformation(records.size(), maxID.longValue());
@@ -2190,6 +2381,42 @@ public class JournalImpl extends JournalBase implements TestableJournal, Journal
       return autoReclaim;
    }
 
+   /**
+    * Sets the number of threads used to read and decode the journal files on load. The records are still
+    * processed one file at a time, in file order.
+    */
+   public void setLoadThreads(final int loadThreads)
+   {
+      if (loadThreads < 1)
+      {
+         throw new IllegalArgumentException("loadThreads must be at least 1, was " + loadThreads);
+      }
+      this.loadThreads = loadThreads;
+   }
+
+   public int getLoadThreads()
+   {
+      return loadThreads;
+   }
+
+   /**
+    * Limits the rate, in bytes per second, at which the compactor reads the data files, so compacting
+    * doesn't compete with the appends for the disk. -1 disables the limit.
+    */
+   public void setCompactMaxRate(final long compactMaxRate)
+   {
+      if (compactMaxRate <= 0 && compactMaxRate != -1)
+      {
+         throw new IllegalArgumentException("compactMaxRate must be positive or -1, was " + compactMaxRate);
+      }
+      this.compactMaxRate = compactMaxRate;
+   }
+
+   public long getCompactMaxRate()
+   {
+      return compactMaxRate;
+   }
+
    /* Only meant to be used in tests. */
    @Override
    public String debug() throws Exception
@@ -0,0 +1,541 @@
+/*
+ * Copyright 2009 Red Hat, Inc.
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package org.hornetq.core.journal.impl;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+import org.hornetq.api.core.HornetQBuffer;
+import org.hornetq.api.core.HornetQBuffers;
+import org.hornetq.api.core.HornetQExceptionType;
+import org.hornetq.api.core.HornetQIOErrorException;
+import org.hornetq.core.journal.EncodingSupport;
+import org.hornetq.core.journal.IOAsyncTask;
+import org.hornetq.core.journal.SequentialFile;
+import org.hornetq.core.journal.SequentialFileFactory;
+import org.hornetq.journal.HornetQJournalBundle;
+import org.hornetq.journal.HornetQJournalLogger;
+
+/**
+ * A SequentialFile that reads and writes through a {@link MappedByteBuffer} instead of the
+ * {@link FileChannel}.
+ * <p>
+ * Journal files are filled before they are used, so they are mapped once for their whole size. Files that
+ * grow while written (such as the paging files) are remapped in steps of {@link #MAP_INCREMENT} bytes, and
+ * truncated back to the data actually written when closed.
+ * <p>
+ * When there is no {@link TimedBuffer} the records are encoded straight into the mapped region, with no
+ * intermediate buffer. {@link #sync()} calls {@link MappedByteBuffer#force()}.
+ */
+public class MappedSequentialFile extends AbstractSequentialFile
+{
+   /** How much a growing file is extended each time a write doesn't fit the current mapping */
+   private static final int MAP_INCREMENT = 1024 * 1024;
+
+   /** set once a mapping could not be released, so the warning is logged only once */
+   private static volatile boolean unmapWarned;
+
+   private FileChannel channel;
+
+   private RandomAccessFile rfile;
+
+   private MappedByteBuffer mappedBuffer;
+
+   /** the position of the next read or write, like the position of the channel on NIOSequentialFile */
+   private long filePosition;
+
+   /** the size of the file as seen by its users. The file may be longer on disk while it is mapped */
+   private long logicalSize;
+
+   /** if the file was extended by a mapping and needs to be truncated to {@link #logicalSize} on close */
+   private boolean extended;
+
+   /** if the length of the file changed since the last sync */
+   private boolean metadataChanged;
+
+   public MappedSequentialFile(final SequentialFileFactory factory, final String directory, final String fileName)
+   {
+      super(directory, new File(directory + "/" + fileName), factory, null);
+   }
+
+   public MappedSequentialFile(final SequentialFileFactory factory, final File file)
+   {
+      super(file.getParent(), new File(file.getPath()), factory, null);
+   }
+
+   public int getAlignment()
+   {
+      return 1;
+   }
+
+   public int calculateBlockStart(final int position) throws Exception
+   {
+      return position;
+   }
+
+   public synchronized boolean isOpen()
+   {
+      return channel != null;
+   }
+
+   public synchronized void open() throws Exception
+   {
+      open(1, false);
+   }
+
+   public synchronized void open(final int maxIO, final boolean useExecutor) throws Exception
+   {
+      try
+      {
+         rfile = new RandomAccessFile(getFile(), "rw");
+
+         channel = rfile.getChannel();
+
+         fileSize = channel.size();
+      }
+      catch (IOException e)
+      {
+         factory.onIOError(new HornetQIOErrorException(e.getMessage(), e), e.getMessage(), this);
+         throw e;
+      }
+
+      logicalSize = fileSize;
+      filePosition = 0;
+      extended = false;
+      metadataChanged = false;
+   }
+
+   public synchronized void fill(final int position, final int size, final byte fillCharacter) throws Exception
+   {
+      unmap();
+
+      ByteBuffer bb = ByteBuffer.allocate(size);
+
+      for (int i = 0; i < size; i++)
+      {
+         bb.put(fillCharacter);
+      }
+
+      bb.flip();
+
+      channel.position(position);
+
+      channel.write(bb);
+
+      channel.force(false);
+
+      channel.position(0);
+
+      fileSize = channel.size();
+
+      logicalSize = fileSize;
+
+      extended = false;
+   }
+
+   public synchronized void waitForClose() throws Exception
+   {
+      while (isOpen())
+      {
+         wait();
+      }
+   }
+
+   @Override
+   public synchronized void close() throws Exception
+   {
+      super.close();
+
+      unmap();
+
+      if (channel != null)
+      {
+         if (extended)
+         {
+            channel.truncate(logicalSize);
+         }
+
+         channel.close();
+      }
+
+      if (rfile != null)
+      {
+         rfile.close();
+      }
+
+      channel = null;
+
+      rfile = null;
+
+      notifyAll();
+   }
+
+   public int read(final ByteBuffer bytes) throws Exception
+   {
+      return read(bytes, null);
+   }
+
+   public synchronized int read(final ByteBuffer bytes, final IOAsyncTask callback) throws Exception
+   {
+      try
+      {
+         if (channel == null)
+         {
+            throw new Exception("File " + this.getFileName() + " has a null channel");
+         }
+
+         int bytesRead;
+
+         if (filePosition >= logicalSize)
+         {
+            bytesRead = -1;
+         }
+         else
+         {
+            bytesRead = (int)Math.min(bytes.remaining(), logicalSize - filePosition);
+
+            ByteBuffer source = region(filePosition, bytesRead);
+
+            bytes.put(source);
+
+            filePosition += bytesRead;
+         }
+
+         if (callback != null)
+         {
+            callback.done();
+         }
+
+         bytes.flip();
+
+         return bytesRead;
+      }
+      catch (IOException e)
+      {
+         if (callback != null)
+         {
+            callback.onError(HornetQExceptionType.IO_ERROR.getCode(), e.getLocalizedMessage());
+         }
+
+         factory.onIOError(new HornetQIOErrorException(e.getMessage(), e), e.getMessage(), this);
+
+         throw e;
+      }
+   }
+
+   public synchronized void sync() throws IOException
+   {
+      if (mappedBuffer != null)
+      {
+         mappedBuffer.force();
+      }
+
+      if (metadataChanged && channel != null)
+      {
+         // the file was extended, its new length has to reach the disk as well
+         channel.force(false);
+         metadataChanged = false;
+      }
+   }
+
+   public synchronized long size() throws Exception
+   {
+      if (channel == null)
+      {
+         return getFile().length();
+      }
+      else
+      {
+         return logicalSize;
+      }
+   }
+
+   @Override
+   public synchronized void position(final long pos) throws Exception
+   {
+      super.position(pos);
+      filePosition = pos;
+   }
+
+   @Override
+   public String toString()
+   {
+      return "MappedSequentialFile " + getFile();
+   }
+
+   public SequentialFile cloneFile()
+   {
+      return new MappedSequentialFile(factory, getFile());
+   }
+
+   @Override
+   public void write(final HornetQBuffer bytes, final boolean sync, final IOAsyncTask callback) throws Exception
+   {
+      if (timedBuffer != null)
+      {
+         super.write(bytes, sync, callback);
+         return;
+      }
+
+      try
+      {
+         synchronized (this)
+         {
+            checkOpen();
+            ByteBuffer target = reserve(bytes.capacity());
+            bytes.getBytes(0, target);
+         }
+      }
+      catch (IOException e)
+      {
+         factory.onIOError(new HornetQIOErrorException(e.getMessage(), e), e.getMessage(), this);
+         callback.onError(HornetQExceptionType.IO_ERROR.getCode(), e.getMessage());
+         return;
+      }
+
+      complete(sync, callback);
+   }
+
+   @Override
+   public void write(final EncodingSupport bytes, final boolean sync, final IOAsyncTask callback) throws Exception
+   {
+      if (timedBuffer != null)
+      {
+         super.write(bytes, sync, callback);
+         return;
+      }
+
+      try
+      {
+         synchronized (this)
+         {
+            checkOpen();
+
+            // encoding straight into the mapped region, there is no need for an intermediate buffer
+            HornetQBuffer outBuffer = HornetQBuffers.wrappedBuffer(reserve(bytes.getEncodeSize()));
+            bytes.encode(outBuffer);
+         }
+      }
+      catch (IOException e)
+      {
+         factory.onIOError(new HornetQIOErrorException(e.getMessage(), e), e.getMessage(), this);
+         callback.onError(HornetQExceptionType.IO_ERROR.getCode(), e.getMessage());
+         return;
+      }
+
+      complete(sync, callback);
+   }
+
+   public void writeDirect(final ByteBuffer bytes, final boolean sync, final IOAsyncTask callback)
+   {
+      if (callback == null)
+      {
+         throw new NullPointerException("callback parameter need to be set");
+      }
+
+      try
+      {
+         internalWrite(bytes, sync, callback);
+      }
+      catch (Exception e)
+      {
+         callback.onError(HornetQExceptionType.GENERIC_EXCEPTION.getCode(), e.getMessage());
+      }
+   }
+
+   public void writeDirect(final ByteBuffer bytes, final boolean sync) throws Exception
+   {
+      internalWrite(bytes, sync, null);
+   }
+
+   public void writeInternal(final ByteBuffer bytes) throws Exception
+   {
+      internalWrite(bytes, true, null);
+   }
+
+   @Override
+   protected ByteBuffer newBuffer(int size, final int limit)
+   {
+      // Same as NIO, the buffer doesn't need to be the entire size of the timed buffer
+      size = limit;
+
+      return super.newBuffer(size, limit);
+   }
+
+   // Private -------------------------------------------------------
+
+   private void internalWrite(final ByteBuffer bytes, final boolean sync, final IOAsyncTask callback) throws Exception
+   {
+      try
+      {
+         synchronized (this)
+         {
+            if (!isOpen())
+            {
+               if (callback != null)
+               {
+                  callback.onError(HornetQExceptionType.IO_ERROR.getCode(), "File not opened");
+                  return;
+               }
+               throw HornetQJournalBundle.BUNDLE.fileNotOpened();
+            }
+
+            reserve(bytes.remaining()).put(bytes);
+         }
+      }
+      catch (IOException e)
+      {
+         factory.onIOError(new HornetQIOErrorException(e.getMessage(), e), e.getMessage(), this);
+         if (callback != null)
+         {
+            callback.onError(HornetQExceptionType.IO_ERROR.getCode(), e.getMessage());
+         }
+         return;
+      }
+
+      complete(sync, callback);
+   }
+
+   private void complete(final boolean sync, final IOAsyncTask callback) throws IOException
+   {
+      if (sync)
+      {
+         sync();
+      }
+
+      if (callback != null)
+      {
+         callback.done();
+      }
+   }
+
+   private void checkOpen() throws Exception
+   {
+      if (!isOpen())
+      {
+         throw HornetQJournalBundle.BUNDLE.fileNotOpened();
+      }
+   }
+
+   /**
+    * Moves the file position past the next <code>size</code> bytes, mapping more of the file if needed.
+    *
+    * @return a buffer over the reserved region, positioned at 0
+    */
+   private ByteBuffer reserve(final int size) throws IOException
+   {
+      ByteBuffer target = region(filePosition, size);
+
+      position.addAndGet(size);
+
+      filePosition += size;
+
+      if (filePosition > logicalSize)
+      {
+         logicalSize = filePosition;
+      }
+
+      return target;
+   }
+
+   private ByteBuffer region(final long start, final int size) throws IOException
+   {
+      map(start + size);
+
+      ByteBuffer region = mappedBuffer.duplicate();
+      region.limit((int)start + size);
+      region.position((int)start);
+      return region.slice();
+   }
+
+   private void map(final long end) throws IOException
+   {
+      if (mappedBuffer != null && end <= mappedBuffer.capacity())
+      {
+         return;
+      }
+
+      long mapSize = Math.max(end, channel.size());
+
+      if (mapSize > channel.size())
+      {
+         // growing the file, leaving some room so we don't remap on every write
+         mapSize = Math.max(mapSize, channel.size() + MAP_INCREMENT);
+         extended = true;
+         metadataChanged = true;
+      }
+
+      if (mapSize > Integer.MAX_VALUE)
+      {
+         throw new IOException("File " + getFileName() + " is too large to be mapped: " + mapSize);
+      }
+
+      unmap();
+
+      mappedBuffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, mapSize);
+   }
+
+   private void unmap()
+   {
+      if (mappedBuffer == null)
+      {
+         return;
+      }
+
+      MappedByteBuffer buffer = mappedBuffer;
+
+      mappedBuffer = null;
+
+      // The JDK only releases a mapping when the buffer is collected, which may take a long time for a file
+      // that is closed or remapped. The cleaner is not part of the public API: up to JDK 8 it is reached through
+      // the buffer, later through Unsafe.invokeCleaner. If neither is available it is left to the GC.
+      try
+      {
+         Method cleanerMethod = buffer.getClass().getMethod("cleaner");
+         cleanerMethod.setAccessible(true);
+         Object cleaner = cleanerMethod.invoke(buffer);
+         if (cleaner != null)
+         {
+            Method cleanMethod = cleaner.getClass().getMethod("clean");
+            cleanMethod.setAccessible(true);
+            cleanMethod.invoke(cleaner);
+         }
+      }
+      catch (Throwable e)
+      {
+         try
+         {
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+            theUnsafe.setAccessible(true);
+            Method invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+            invokeCleaner.invoke(theUnsafe.get(null), buffer);
+         }
+         catch (Throwable e2)
+         {
+            if (!unmapWarned)
+            {
+               // once is enough, every file would fail the same way
+               unmapWarned = true;
+               HornetQJournalLogger.LOGGER.errorUnmappingFile(e2, getFileName());
+            }
+         }
+      }
+   }
+}
@@ -246,6 +246,14 @@ public class NIOSequentialFile extends AbstractSequentialFile
       channel.position(pos);
    }
 
+   /**
+    * Returns the channel of the file, or {@code null} if the file is not open.
+    */
+   public FileChannel getChannel()
+   {
+      return channel;
+   }
+
    @Override
    public String toString()
    {
@@ -21,28 +21,42 @@ import java.util.Timer;
 import java.util.TimerTask;
 import java.util.concurrent.Semaphore;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
 
 import org.hornetq.api.core.HornetQBuffer;
 import org.hornetq.api.core.HornetQBuffers;
 import org.hornetq.core.journal.EncodingSupport;
 import org.hornetq.core.journal.IOAsyncTask;
+import org.hornetq.core.journal.JournalBuffer;
 import org.hornetq.core.journal.impl.dataformat.ByteArrayEncoding;
 import org.hornetq.journal.HornetQJournalLogger;
 
 /**
  * A TimedBuffer
- *
+ * <p>
+ * The records are added to a buffer which is flushed when full, or when a timeout has passed since the last flush
+ * and a record is waiting for a sync. While a flush is being written the records are added to a second buffer, so
+ * they don't wait on the write (nor on the sync which may be done by it).
+ * <p>
+ * When adaptive, the timeout follows the observed latency of the flushes requiring a sync, and how often the
+ * records requiring a sync arrive: when they arrive less often than a sync takes there's nothing to batch and the
+ * buffer is flushed right away, otherwise it's flushed about once per sync. The configured timeout is the upper
+ * bound.
  * @author <a href="mailto:clebert.suconic@jboss.org">Clebert Suconic</a>
  * @author <a href="mailto:tim.fox@jboss.com">Tim Fox</a>
  *
  */
-public class TimedBuffer
+public class TimedBuffer implements JournalBuffer
 {
    // Constants -----------------------------------------------------
    // Attributes ----------------------------------------------------
 
    private TimedBufferObserver bufferObserver;
 
+   // run on each flush, before the flushed records are written
+   private volatile Runnable flushListener;
+
    // If the TimedBuffer is idle - i.e. no records are being added, then it's pointless the timer flush thread
    // in spinning and checking the time - and using up CPU in the process - this semaphore is used to
    // prevent that
@@ -52,7 +66,17 @@ public class TimedBuffer
 
    private final int bufferSize;
 
-   private final HornetQBuffer buffer;
+   private HornetQBuffer buffer;
+
+   // the buffer of the flush being written without holding the lock, swapped with buffer on each flush
+   private HornetQBuffer flushingBuffer;
+
+   // Keeps the flushes in order, as a flush writes to the observer after releasing the lock on the TimedBuffer.
+   // It's only acquired while holding the lock on the TimedBuffer
+   private final Lock flushLock = new ReentrantLock();
+
+   // the size of the flush being written, which may not be reflected on the remaining bytes of the observer yet
+   private volatile int flushingBytes;
 
    private int bufferLimit = 0;
 
@@ -60,6 +84,19 @@ public class TimedBuffer
 
    private volatile int timeout;
 
+   private volatile boolean adaptive;
+
+   // the timeout actually used, it differs from timeout when adaptive
+   private volatile long effectiveTimeout;
+
+   // moving averages of the latency of the flushes requiring a sync and of the interval between the records
+   // requiring one, -1 until measured
+   private volatile long syncLatency = -1;
+
+   private volatile long syncInterval = -1;
+
+   private long lastSyncRequest;
+
    // used to measure sync requests. When a sync is requested, it shouldn't take more than timeout to happen
    private volatile boolean pendingSync = false;
 
@@ -80,6 +117,14 @@ public class TimedBuffer
 
    private final AtomicLong flushesDone = new AtomicLong(0);
 
+   private final AtomicLong recordsFlushed = new AtomicLong(0);
+
+   private final AtomicLong flushesOnTimeout = new AtomicLong(0);
+
+   private final AtomicLong flushesOnFullBuffer = new AtomicLong(0);
+
+   private final AtomicLong flushesOnRequest = new AtomicLong(0);
+
    private Timer logRatesTimer;
 
    private TimerTask logRatesTimerTask;
@@ -110,11 +155,87 @@ public class TimedBuffer
 
       buffer.clear();
 
+      flushingBuffer = HornetQBuffers.fixedBuffer(bufferSize);
+
       bufferLimit = 0;
 
       callbacks = new ArrayList<IOAsyncTask>();
 
       this.timeout = timeout;
+
+      effectiveTimeout = timeout;
+   }
+
+   /**
+    * Sets whether the timeout follows the observed sync latency and rate of the records requiring a sync, the
+    * configured timeout being the upper bound.
+    */
+   public void setAdaptive(final boolean adaptive)
+   {
+      this.adaptive = adaptive;
+
+      updateTimeout();
+   }
+
+   public boolean isAdaptive()
+   {
+      return adaptive;
+   }
+
+   /**
+    * @return the timeout (in nanoseconds) currently used to flush the buffer
+    */
+   public long getEffectiveTimeout()
+   {
+      return effectiveTimeout;
+   }
+
+   /**
+    * @return the average time (in nanoseconds) taken by the flushes requiring a sync to complete, or -1 if none
+    *         was done yet
+    */
+   public long getSyncLatency()
+   {
+      return syncLatency;
+   }
+
+   public long getFlushes()
+   {
+      return flushesDone.get();
+   }
+
+   public long getRecordsFlushed()
+   {
+      return recordsFlushed.get();
+   }
+
+   public long getBytesFlushed()
+   {
+      return bytesFlushed.get();
+   }
+
+   /**
+    * @return the number of flushes done because a record required a sync and the timeout expired
+    */
+   public long getFlushesOnTimeout()
+   {
+      return flushesOnTimeout.get();
+   }
+
+   /**
+    * @return the number of flushes done because the buffer, or the file it's written to, was full
+    */
+   public long getFlushesOnFullBuffer()
+   {
+      return flushesOnFullBuffer.get();
+   }
+
+   /**
+    * @return the number of flushes requested by the journal, e.g. when moving to the next file or stopping
+    */
+   public long getFlushesOnRequest()
+   {
+      return flushesOnRequest.get();
    }
 
    public synchronized void start()
@@ -194,53 +315,76 @@ public class TimedBuffer
    }
 
    /**
-    * Verify if the size fits the buffer
+    * Sets a task run on each flush, right before the flushed records are written to the observer, e.g. to send
+    * elsewhere whatever goes along with these records. It's run outside of the lock of the buffer, by the thread
+    * doing the flush, so it must neither block nor add records to the buffer.
+    */
+   public void setFlushListener(final Runnable listener)
+   {
+      flushListener = listener;
+   }
+
+   public Runnable getFlushListener()
+   {
+      return flushListener;
+   }
+
+   /**
+    * Verify if the size fits the buffer. When the buffer is full it is flushed first, outside of its lock, so the
+    * records keep being added to the other buffer while the full one is written.
     * @param sizeChecked
     */
-   public synchronized boolean checkSize(final int sizeChecked)
+   public boolean checkSize(final int sizeChecked)
    {
-      if (!started)
+      while (true)
       {
-         throw new IllegalStateException("TimedBuffer is not started");
-      }
+         synchronized (this)
+         {
+            if (!started)
+            {
+               throw new IllegalStateException("TimedBuffer is not started");
+            }
 
-      if (sizeChecked > bufferSize)
-      {
-         throw new IllegalStateException("Can't write records bigger than the bufferSize(" + bufferSize +
-                                         ") on the journal");
-      }
+            if (sizeChecked > bufferSize)
+            {
+               throw new IllegalStateException("Can't write records bigger than the bufferSize(" + bufferSize +
+                                               ") on the journal");
+            }
 
-      if (bufferLimit == 0 || buffer.writerIndex() + sizeChecked > bufferLimit)
-      {
-         // Either there is not enough space left in the buffer for the sized record
-         // Or a flush has just been performed and we need to re-calcualate bufferLimit
+            delayFlush = true;
 
-         flush();
+            if (bufferLimit != 0 && buffer.writerIndex() + sizeChecked <= bufferLimit)
+            {
+               return true;
+            }
 
-         delayFlush = true;
+            // Either there is not enough space left in the buffer for the sized record
+            // Or a flush has just been performed and we need to re-calcualate bufferLimit
 
-         final int remainingInFile = bufferObserver.getRemainingBytes();
+            // the buffer is empty right after a flush, there is no need to wait for it to be written
+            if (buffer.writerIndex() == 0)
+            {
+               // A flush still being written may be counted twice, it only makes the estimate lower
+               final int remainingInFile = bufferObserver.getRemainingBytes() - flushingBytes;
 
-         if (sizeChecked > remainingInFile)
-         {
-            return false;
-         }
-         else
-         {
-            // There is enough space in the file for this size
+               if (sizeChecked > remainingInFile)
+               {
+                  return false;
+               }
+
+               // There is enough space in the file for this size
 
-            // Need to re-calculate buffer limit
+               // Need to re-calculate buffer limit
 
-            bufferLimit = Math.min(remainingInFile, bufferSize);
+               bufferLimit = Math.min(remainingInFile, bufferSize);
 
-            return true;
+               return true;
+            }
          }
-      }
-      else
-      {
-         delayFlush = true;
 
-         return true;
+         // the records are appended by one thread at a time, only the timer may flush in between, so the buffer is
+         // checked again once the flush is done
+         flush(true, flushesOnFullBuffer);
       }
    }
 
@@ -266,6 +410,20 @@ public class TimedBuffer
       {
          pendingSync = true;
 
+         if (adaptive)
+         {
+            long now = System.nanoTime();
+
+            if (lastSyncRequest != 0)
+            {
+               syncInterval = average(syncInterval, now - lastSyncRequest);
+
+               updateTimeout();
+            }
+
+            lastSyncRequest = now;
+         }
+
          // if (System.nanoTime() - lastFlushTime.get() > timeout)
          // {
          // // This might happen if there is low activity in the buffer - the timer hasn't fired because no sync records
@@ -296,6 +454,25 @@ public class TimedBuffer
     * */
    public void flush(final boolean force)
    {
+      flush(force, flushesOnRequest);
+   }
+
+   // Package protected ---------------------------------------------
+
+   // Protected -----------------------------------------------------
+
+   // Private -------------------------------------------------------
+
+   private void flush(final boolean force, final AtomicLong reason)
+   {
+      final TimedBufferObserver observer;
+
+      final HornetQBuffer bufferToWrite;
+
+      final List<IOAsyncTask> callbacksToWrite;
+
+      final boolean sync;
+
       synchronized (this)
       {
          if (!started)
@@ -303,24 +480,33 @@ public class TimedBuffer
             throw new IllegalStateException("TimedBuffer is not started");
          }
 
+         // Wait for the previous flush to be written, even if there is nothing to flush: the callers expect all
+         // the records added so far to be on the observer when this returns
+         flushLock.lock();
+
          if ((force || !delayFlush) && buffer.writerIndex() > 0)
          {
-            int pos = buffer.writerIndex();
+            observer = bufferObserver;
 
-            if (logRates)
-            {
-               bytesFlushed.addAndGet(pos);
-            }
+            bufferToWrite = buffer;
 
-            ByteBuffer bufferToFlush = bufferObserver.newBuffer(bufferSize, pos);
+            callbacksToWrite = callbacks;
 
-            // Putting a byteArray on a native buffer is much faster, since it will do in a single native call.
-            // Using bufferToFlush.put(buffer) would make several append calls for each byte
-            // We also transfer the content of this buffer to the native file's buffer
+            sync = pendingSync;
 
-            bufferToFlush.put(buffer.toByteBuffer().array(), 0, pos);
+            // swap the buffers so the records keep being added while this one is written
+            buffer = flushingBuffer;
 
-            bufferObserver.flushBuffer(bufferToFlush, pendingSync, callbacks);
+            flushingBuffer = bufferToWrite;
+
+            flushingBytes = bufferToWrite.writerIndex();
+
+            // swap the instance as the previous callback list is being used asynchronously
+            callbacks = new LinkedList<IOAsyncTask>();
+
+            pendingSync = false;
+
+            bufferLimit = 0;
 
             if (spinning)
             {
@@ -339,29 +525,112 @@ public class TimedBuffer
             }
 
             lastFlushTime.set(System.nanoTime());
+         }
+         else
+         {
+            flushLock.unlock();
 
-            pendingSync = false;
+            return;
+         }
+      }
 
-            // swap the instance as the previous callback list is being used asynchronously
-            callbacks = new LinkedList<IOAsyncTask>();
+      try
+      {
+         Runnable listener = flushListener;
+
+         if (listener != null)
+         {
+            listener.run();
+         }
 
-            buffer.clear();
+         int pos = bufferToWrite.writerIndex();
 
-            bufferLimit = 0;
+         bytesFlushed.addAndGet(pos);
+
+         recordsFlushed.addAndGet(callbacksToWrite.size());
+
+         ByteBuffer bufferToFlush = observer.newBuffer(bufferSize, pos);
+
+         // Putting a byteArray on a native buffer is much faster, since it will do in a single native call.
+         // Using bufferToFlush.put(buffer) would make several append calls for each byte
+         // We also transfer the content of this buffer to the native file's buffer
 
-            flushesDone.incrementAndGet();
+         bufferToFlush.put(bufferToWrite.toByteBuffer().array(), 0, pos);
+
+         if (sync)
+         {
+            callbacksToWrite.add(new SyncLatencyCallback(System.nanoTime()));
          }
+
+         observer.flushBuffer(bufferToFlush, sync, callbacksToWrite);
+
+         reason.incrementAndGet();
+
+         flushesDone.incrementAndGet();
+      }
+      finally
+      {
+         bufferToWrite.clear();
+
+         flushingBytes = 0;
+
+         flushLock.unlock();
       }
    }
 
-   // Package protected ---------------------------------------------
+   private void updateTimeout()
+   {
+      long latency = syncLatency;
 
-   // Protected -----------------------------------------------------
+      long interval = syncInterval;
 
-   // Private -------------------------------------------------------
+      if (!adaptive || latency < 0 || interval < 0)
+      {
+         effectiveTimeout = timeout;
+      }
+      else if (interval >= latency)
+      {
+         // the records requiring a sync arrive slower than a sync is done, waiting would only add latency
+         effectiveTimeout = 0;
+      }
+      else
+      {
+         // batch the records arriving during about one sync
+         effectiveTimeout = Math.min(latency, timeout);
+      }
+   }
+
+   private static long average(final long average, final long sample)
+   {
+      return average < 0 ? sample : average + (sample - average) / 8;
+   }
 
    // Inner classes -------------------------------------------------
 
+   /**
+    * Measures the time taken by a flush requiring a sync, it's the last of the callbacks of the flush.
+    */
+   private final class SyncLatencyCallback implements IOAsyncTask
+   {
+      private final long start;
+
+      private SyncLatencyCallback(final long start)
+      {
+         this.start = start;
+      }
+
+      public void done()
+      {
+         syncLatency = average(syncLatency, System.nanoTime() - start);
+
+         updateTimeout();
+      }
+
+      public void onError(final int errorCode, final String errorMessage)
+      {
+      }
+   }
+
    private class LogRatesTimerTask extends TimerTask
    {
       private boolean closed;
@@ -419,9 +688,9 @@ public class TimedBuffer
             // timeout since the time of the last flush.
             // Effectively flushing "resets" the timer
 
-            if (pendingSync && bufferObserver != null && System.nanoTime() > lastFlushTime.get() + timeout)
+            if (pendingSync && bufferObserver != null && System.nanoTime() > lastFlushTime.get() + effectiveTimeout)
             {
-               flush();
+               flush(false, flushesOnTimeout);
             }
 
             try
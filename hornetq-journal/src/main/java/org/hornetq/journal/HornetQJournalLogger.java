@@ -253,6 +253,11 @@ public interface HornetQJournalLogger extends BasicLogger
    @Message(id = 142035, value = "Exception on submitting write", format = Message.Format.MESSAGE_FORMAT)
    void errorSubmittingWrite(@Cause Throwable e);
 
+   @LogMessage(level = Logger.Level.WARN)
+   @Message(id = 142036, value = "Could not unmap the memory mapped file {0}, the mappings will only be released by the garbage collector",
+            format = Message.Format.MESSAGE_FORMAT)
+   void errorUnmappingFile(@Cause Throwable e, String fileName);
+
    @LogMessage(level = Logger.Level.ERROR)
    @Message(id = 144001, value = "Failed to delete file {0}", format = Message.Format.MESSAGE_FORMAT)
    void errorDeletingFile(Object e);
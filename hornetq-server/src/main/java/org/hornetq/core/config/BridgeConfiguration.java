@@ -16,6 +16,7 @@ package org.hornetq.core.config;
 import java.io.Serializable;
 import java.util.List;
 
+import org.hornetq.api.config.HornetQDefaultConfiguration;
 import org.hornetq.api.core.client.HornetQClient;
 
 /**
@@ -69,6 +70,10 @@ public class BridgeConfiguration implements Serializable
 
    private final int minLargeMessageSize;
 
+   private int batchSize = HornetQDefaultConfiguration.DEFAULT_BRIDGE_BATCH_SIZE;
+
+   private int maxPendingAcks = HornetQDefaultConfiguration.DEFAULT_BRIDGE_MAX_PENDING_ACKS;
+
    // At this point this is only changed on testcases
    // The bridge shouldn't be sending blocking anyways
    private long callTimeout = HornetQClient.DEFAULT_CALL_TIMEOUT;
@@ -351,6 +356,39 @@ public class BridgeConfiguration implements Serializable
       this.confirmationWindowSize = confirmationWindowSize;
    }
 
+   /**
+    * @return the size in bytes of the batches of messages forwarded in one packet, -1 to forward each message in its
+    *         own packet
+    */
+   public int getBatchSize()
+   {
+      return batchSize;
+   }
+
+   /**
+    * @param batchSize the batchSize to set
+    */
+   public void setBatchSize(final int batchSize)
+   {
+      this.batchSize = batchSize;
+   }
+
+   /**
+    * @return the maximum number of forwarded messages not yet confirmed by the target, -1 for no limit
+    */
+   public int getMaxPendingAcks()
+   {
+      return maxPendingAcks;
+   }
+
+   /**
+    * @param maxPendingAcks the maxPendingAcks to set
+    */
+   public void setMaxPendingAcks(final int maxPendingAcks)
+   {
+      this.maxPendingAcks = maxPendingAcks;
+   }
+
    public String getUser()
    {
       return user;
@@ -68,6 +68,10 @@ public final class ClusterConnectionConfiguration implements Serializable
 
    private final int minLargeMessageSize;
 
+   private int batchSize = HornetQDefaultConfiguration.DEFAULT_BRIDGE_BATCH_SIZE;
+
+   private int maxPendingAcks = HornetQDefaultConfiguration.DEFAULT_BRIDGE_MAX_PENDING_ACKS;
+
    public ClusterConnectionConfiguration(final String name,
                                          final String address,
                                          final String connectorName,
@@ -412,4 +416,36 @@ public final class ClusterConnectionConfiguration implements Serializable
    {
       this.forwardWhenNoConsumers = forwardWhenNoConsumers;
    }
+
+   /**
+    * @return the size in bytes of the batches of messages the cluster bridges forward in one packet
+    */
+   public int getBatchSize()
+   {
+      return batchSize;
+   }
+
+   /**
+    * @param batchSize the batchSize to set
+    */
+   public void setBatchSize(int batchSize)
+   {
+      this.batchSize = batchSize;
+   }
+
+   /**
+    * @return the maximum number of messages forwarded by a cluster bridge and not yet confirmed by the target
+    */
+   public int getMaxPendingAcks()
+   {
+      return maxPendingAcks;
+   }
+
+   /**
+    * @param maxPendingAcks the maxPendingAcks to set
+    */
+   public void setMaxPendingAcks(int maxPendingAcks)
+   {
+      this.maxPendingAcks = maxPendingAcks;
+   }
 }
@@ -486,6 +486,32 @@ public interface Configuration extends Serializable
     */
    void setPersistIDCache(boolean persist);
 
+   /**
+    * Returns whether the duplicate ID caches keep the IDs off the heap, in compact direct buffers,
+    * instead of one object per ID.
+    * <br>
+    * Default value is {@value org.hornetq.api.config.HornetQDefaultConfiguration#DEFAULT_ID_CACHE_OFF_HEAP}.
+    */
+   boolean isIDCacheOffHeap();
+
+   /**
+    * Sets whether the duplicate ID caches keep the IDs off the heap.
+    */
+   void setIDCacheOffHeap(boolean offHeap);
+
+   /**
+    * Returns the number of filter counters per cached ID used by the off-heap duplicate ID caches to
+    * answer most lookups of new IDs without locking. 0 disables the filter.
+    * <br>
+    * Default value is {@value org.hornetq.api.config.HornetQDefaultConfiguration#DEFAULT_ID_CACHE_FILTER_RATIO}.
+    */
+   int getIDCacheFilterRatio();
+
+   /**
+    * Sets the number of filter counters per cached ID used by the off-heap duplicate ID caches.
+    */
+   void setIDCacheFilterRatio(int ratio);
+
    // Journal related attributes ------------------------------------------------------------
 
    /**
@@ -509,6 +535,19 @@ public interface Configuration extends Serializable
     *  Default = 5 */
    void setPageMaxConcurrentIO(int maxIO);
 
+   /**
+    * Returns the maximum number of bytes used by the page caches of all the addresses together, -1 for no
+    * limit. Once over it, the least recently used pages are evicted from any address.
+    * <br>
+    * Default value is {@value org.hornetq.api.config.HornetQDefaultConfiguration#DEFAULT_GLOBAL_PAGE_CACHE_MAX_SIZE}.
+    */
+   long getGlobalPageCacheMaxSize();
+
+   /**
+    * Sets the maximum number of bytes used by the page caches of all the addresses together.
+    */
+   void setGlobalPageCacheMaxSize(long maxSize);
+
    /**
     * Returns the file system directory used to store journal log.
     * <br>
@@ -581,6 +620,33 @@ public interface Configuration extends Serializable
     */
    void setJournalCompactMinFiles(int minFiles);
 
+   /**
+    * Returns the maximum rate, in bytes per second, at which the compactor reads the journal files.
+    * -1 means there is no limit.
+    * <br>
+    * Default value is {@value org.hornetq.api.config.HornetQDefaultConfiguration#DEFAULT_JOURNAL_COMPACT_MAX_RATE}.
+    */
+   long getJournalCompactMaxRate();
+
+   /**
+    * Sets the maximum rate, in bytes per second, at which the compactor reads the journal files.
+    */
+   void setJournalCompactMaxRate(long rate);
+
+   /**
+    * Returns the number of threads used to decode the journal files and rebuild the queues when the
+    * server starts. A value of 1 loads the journal sequentially.
+    * <br>
+    * Default value is {@value org.hornetq.api.config.HornetQDefaultConfiguration#DEFAULT_JOURNAL_LOAD_THREADS}.
+    */
+   int getJournalLoadThreads();
+
+   /**
+    * Sets the number of threads used to decode the journal files and rebuild the queues when the
+    * server starts.
+    */
+   void setJournalLoadThreads(int threads);
+
    /**
     * Returns the percentage of live data before compacting the journal.
     * <br>
@@ -679,6 +745,19 @@ public interface Configuration extends Serializable
     */
    void setJournalBufferSize_NIO(int journalBufferSize);
 
+   /**
+    * Returns whether the timeout used to flush the journal buffer follows the observed latency of the syncs and
+    * the rate of the records requiring one, the configured timeout being the upper bound.
+    * <br>
+    * Default value is {@value org.hornetq.api.config.HornetQDefaultConfiguration#DEFAULT_JOURNAL_BUFFER_TIMEOUT_ADAPTIVE}.
+    */
+   boolean isJournalBufferTimeoutAdaptive();
+
+   /**
+    * Sets whether the timeout used to flush the journal buffer is adaptive.
+    */
+   void setJournalBufferTimeoutAdaptive(boolean adaptive);
+
    /**
     * Returns whether the bindings directory is created on this server startup.
     * <br>
@@ -953,4 +1032,30 @@ public interface Configuration extends Serializable
     * @return name of the cluster configuration to use
     */
    String getReplicationClustername();
+
+   /**
+    * Returns whether a live server sends the replicated operations to its backup in batches, flushed along with the
+    * journal buffer, instead of one packet per operation.
+    * <br>
+    * Default value is {@value org.hornetq.api.config.HornetQDefaultConfiguration#DEFAULT_REPLICATION_BATCHING}.
+    */
+   boolean isReplicationBatching();
+
+   /**
+    * Sets whether a live server sends the replicated operations to its backup in batches.
+    */
+   void setReplicationBatching(boolean batching);
+
+   /**
+    * Returns whether the batches of replicated operations are compressed. It only applies when the replication is
+    * batched.
+    * <br>
+    * Default value is {@value org.hornetq.api.config.HornetQDefaultConfiguration#DEFAULT_REPLICATION_COMPRESSED}.
+    */
+   boolean isReplicationCompressed();
+
+   /**
+    * Sets whether the batches of replicated operations are compressed.
+    */
+   void setReplicationCompressed(boolean compressed);
 }
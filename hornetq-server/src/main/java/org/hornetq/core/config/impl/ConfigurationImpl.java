@@ -94,6 +94,10 @@ public class ConfigurationImpl implements Configuration
 
    private boolean persistIDCache = HornetQDefaultConfiguration.DEFAULT_PERSIST_ID_CACHE;
 
+   private boolean idCacheOffHeap = HornetQDefaultConfiguration.DEFAULT_ID_CACHE_OFF_HEAP;
+
+   private int idCacheFilterRatio = HornetQDefaultConfiguration.DEFAULT_ID_CACHE_FILTER_RATIO;
+
    private List<String> incomingInterceptorClassNames = new ArrayList<String>();
 
    private List<String> outgoingInterceptorClassNames = new ArrayList<String>();
@@ -122,6 +126,8 @@ public class ConfigurationImpl implements Configuration
 
    private int maxConcurrentPageIO = HornetQDefaultConfiguration.DEFAULT_MAX_CONCURRENT_PAGE_IO;
 
+   private long globalPageCacheMaxSize = HornetQDefaultConfiguration.DEFAULT_GLOBAL_PAGE_CACHE_MAX_SIZE;
+
    protected String largeMessagesDirectory = HornetQDefaultConfiguration.DEFAULT_LARGE_MESSAGES_DIR;
 
    protected String bindingsDirectory = HornetQDefaultConfiguration.DEFAULT_BINDINGS_DIRECTORY;
@@ -142,6 +148,10 @@ public class ConfigurationImpl implements Configuration
 
    protected int journalCompactPercentage = HornetQDefaultConfiguration.DEFAULT_JOURNAL_COMPACT_PERCENTAGE;
 
+   protected int journalLoadThreads = HornetQDefaultConfiguration.DEFAULT_JOURNAL_LOAD_THREADS;
+
+   protected long journalCompactMaxRate = HornetQDefaultConfiguration.DEFAULT_JOURNAL_COMPACT_MAX_RATE;
+
    protected int journalFileSize = HornetQDefaultConfiguration.DEFAULT_JOURNAL_FILE_SIZE;
 
    protected int journalMinFiles = HornetQDefaultConfiguration.DEFAULT_JOURNAL_MIN_FILES;
@@ -160,6 +170,8 @@ public class ConfigurationImpl implements Configuration
 
    protected int journalBufferSize_NIO = HornetQDefaultConfiguration.DEFAULT_JOURNAL_BUFFER_SIZE_NIO;
 
+   protected boolean journalBufferTimeoutAdaptive = HornetQDefaultConfiguration.DEFAULT_JOURNAL_BUFFER_TIMEOUT_ADAPTIVE;
+
    protected boolean logJournalWriteRate = HornetQDefaultConfiguration.DEFAULT_JOURNAL_LOG_WRITE_RATE;
 
    protected int journalPerfBlastPages = HornetQDefaultConfiguration.DEFAULT_JOURNAL_PERF_BLAST_PAGES;
@@ -213,6 +225,10 @@ public class ConfigurationImpl implements Configuration
 
    private String replicationClusterName;
 
+   private boolean replicationBatching = HornetQDefaultConfiguration.DEFAULT_REPLICATION_BATCHING;
+
+   private boolean replicationCompressed = HornetQDefaultConfiguration.DEFAULT_REPLICATION_COMPRESSED;
+
    // Public -------------------------------------------------------------------------
 
    public boolean isClustered()
@@ -487,6 +503,26 @@ public class ConfigurationImpl implements Configuration
       persistIDCache = persist;
    }
 
+   public boolean isIDCacheOffHeap()
+   {
+      return idCacheOffHeap;
+   }
+
+   public void setIDCacheOffHeap(final boolean offHeap)
+   {
+      idCacheOffHeap = offHeap;
+   }
+
+   public int getIDCacheFilterRatio()
+   {
+      return idCacheFilterRatio;
+   }
+
+   public void setIDCacheFilterRatio(final int ratio)
+   {
+      idCacheFilterRatio = ratio;
+   }
+
    public String getBindingsDirectory()
    {
       return bindingsDirectory;
@@ -514,6 +550,16 @@ public class ConfigurationImpl implements Configuration
       this.maxConcurrentPageIO = maxIO;
    }
 
+   public long getGlobalPageCacheMaxSize()
+   {
+      return globalPageCacheMaxSize;
+   }
+
+   public void setGlobalPageCacheMaxSize(final long maxSize)
+   {
+      globalPageCacheMaxSize = maxSize;
+   }
+
 
    public String getJournalDirectory()
    {
@@ -820,6 +866,26 @@ public class ConfigurationImpl implements Configuration
       journalCompactMinFiles = minFiles;
    }
 
+   public long getJournalCompactMaxRate()
+   {
+      return journalCompactMaxRate;
+   }
+
+   public void setJournalCompactMaxRate(final long rate)
+   {
+      journalCompactMaxRate = rate;
+   }
+
+   public int getJournalLoadThreads()
+   {
+      return journalLoadThreads;
+   }
+
+   public void setJournalLoadThreads(final int threads)
+   {
+      journalLoadThreads = threads;
+   }
+
    public void setJournalCompactPercentage(final int percentage)
    {
       journalCompactPercentage = percentage;
@@ -915,6 +981,16 @@ public class ConfigurationImpl implements Configuration
       journalBufferSize_NIO = journalBufferSize;
    }
 
+   public boolean isJournalBufferTimeoutAdaptive()
+   {
+      return journalBufferTimeoutAdaptive;
+   }
+
+   public void setJournalBufferTimeoutAdaptive(final boolean adaptive)
+   {
+      journalBufferTimeoutAdaptive = adaptive;
+   }
+
    @Override
    public boolean equals(final Object obj)
    {
@@ -1003,6 +1079,10 @@ public class ConfigurationImpl implements Configuration
       {
          return false;
       }
+      if (journalBufferTimeoutAdaptive != other.journalBufferTimeoutAdaptive)
+      {
+         return false;
+      }
       if (journalMaxIO_NIO != other.journalMaxIO_NIO)
       {
          return false;
@@ -1015,6 +1095,14 @@ public class ConfigurationImpl implements Configuration
       {
          return false;
       }
+      if (journalLoadThreads != other.journalLoadThreads)
+      {
+         return false;
+      }
+      if (journalCompactMaxRate != other.journalCompactMaxRate)
+      {
+         return false;
+      }
       if (journalDirectory == null)
       {
          if (other.journalDirectory != null)
@@ -1088,6 +1176,14 @@ public class ConfigurationImpl implements Configuration
       {
          return false;
       }
+      if (replicationBatching != other.replicationBatching)
+      {
+         return false;
+      }
+      if (replicationCompressed != other.replicationCompressed)
+      {
+         return false;
+      }
       if (clusterPassword == null)
       {
          if (other.clusterPassword != null)
@@ -1160,6 +1256,18 @@ public class ConfigurationImpl implements Configuration
       {
          return false;
       }
+      if (idCacheOffHeap != other.idCacheOffHeap)
+      {
+         return false;
+      }
+      if (idCacheFilterRatio != other.idCacheFilterRatio)
+      {
+         return false;
+      }
+      if (globalPageCacheMaxSize != other.globalPageCacheMaxSize)
+      {
+         return false;
+      }
       if (persistenceEnabled != other.persistenceEnabled)
       {
          return false;
@@ -1335,4 +1443,24 @@ public class ConfigurationImpl implements Configuration
       return replicationClusterName;
    }
 
+   public boolean isReplicationBatching()
+   {
+      return replicationBatching;
+   }
+
+   public void setReplicationBatching(final boolean batching)
+   {
+      replicationBatching = batching;
+   }
+
+   public boolean isReplicationCompressed()
+   {
+      return replicationCompressed;
+   }
+
+   public void setReplicationCompressed(final boolean compressed)
+   {
+      replicationCompressed = compressed;
+   }
+
 }
@@ -128,6 +128,8 @@ public final class FileConfigurationParser
 
    private static final String PAGE_MAX_CACHE_SIZE_NODE_NAME = "page-max-cache-size";
 
+   private static final String PAGE_MAX_CACHE_SIZE_BYTES_NODE_NAME = "page-max-cache-size-bytes";
+
    private static final String MESSAGE_COUNTER_HISTORY_DAY_LIMIT_NODE_NAME = "message-counter-history-day-limit";
 
    private static final String LVQ_NODE_NAME = "last-value-queue";
@@ -136,6 +138,8 @@ public final class FileConfigurationParser
 
    private static final String SEND_TO_DLA_ON_NO_ROUTE = "send-to-dla-on-no-route";
 
+   private static final String CONCURRENT_DISPATCH_NODE_NAME = "concurrent-dispatch";
+
    // Attributes ----------------------------------------------------
 
    private boolean validateAIO = false;
@@ -205,6 +209,14 @@ public final class FileConfigurationParser
       config.setReplicationClustername(XMLConfigurationUtil.getString(e, "replication-clustername", null,
                                                                       Validators.NO_CHECK));
 
+      config.setReplicationBatching(XMLConfigurationUtil.getBoolean(e,
+                                                                    "replication-batching",
+                                                                    config.isReplicationBatching()));
+
+      config.setReplicationCompressed(XMLConfigurationUtil.getBoolean(e,
+                                                                      "replication-compressed",
+                                                                      config.isReplicationCompressed()));
+
       config.setBackup(XMLConfigurationUtil.getBoolean(e, "backup", config.isBackup()));
 
       config.setSharedStore(XMLConfigurationUtil.getBoolean(e, "shared-store", config.isSharedStore()));
@@ -284,6 +296,13 @@ public final class FileConfigurationParser
 
       config.setPersistIDCache(XMLConfigurationUtil.getBoolean(e, "persist-id-cache", config.isPersistIDCache()));
 
+      config.setIDCacheOffHeap(XMLConfigurationUtil.getBoolean(e, "id-cache-off-heap", config.isIDCacheOffHeap()));
+
+      config.setIDCacheFilterRatio(XMLConfigurationUtil.getInteger(e,
+                                                                   "id-cache-filter-ratio",
+                                                                   config.getIDCacheFilterRatio(),
+                                                                   Validators.GE_ZERO));
+
       config.setManagementAddress(new SimpleString(XMLConfigurationUtil.getString(e,
                                                                                   "management-address",
                                                                                   config.getManagementAddress()
@@ -500,6 +519,11 @@ public final class FileConfigurationParser
                                                                     5,
                                                                     Validators.MINUS_ONE_OR_GT_ZERO));
 
+      config.setGlobalPageCacheMaxSize(XMLConfigurationUtil.getLong(e,
+                                                                    "global-page-cache-max-size",
+                                                                    config.getGlobalPageCacheMaxSize(),
+                                                                    Validators.MINUS_ONE_OR_GT_ZERO));
+
       config.setPagingDirectory(XMLConfigurationUtil.getString(e,
                                                                "paging-directory",
                                                                config.getPagingDirectory(),
@@ -516,6 +540,10 @@ public final class FileConfigurationParser
       {
          config.setJournalType(JournalType.NIO);
       }
+      else if (s.equals(JournalType.MAPPED.toString()))
+      {
+         config.setJournalType(JournalType.MAPPED);
+      }
       else if (s.equals(JournalType.ASYNCIO.toString()))
       {
          // https://jira.jboss.org/jira/browse/HORNETQ-295
@@ -583,6 +611,10 @@ public final class FileConfigurationParser
          config.setJournalMaxIO_NIO(journalMaxIO);
       }
 
+      config.setJournalBufferTimeoutAdaptive(XMLConfigurationUtil.getBoolean(e,
+                                                                             "journal-buffer-timeout-adaptive",
+                                                                             config.isJournalBufferTimeoutAdaptive()));
+
       config.setJournalMinFiles(XMLConfigurationUtil.getInteger(e,
                                                                 "journal-min-files",
                                                                 config.getJournalMinFiles(),
@@ -598,6 +630,16 @@ public final class FileConfigurationParser
                                                                          config.getJournalCompactPercentage(),
                                                                          Validators.PERCENTAGE));
 
+      config.setJournalCompactMaxRate(XMLConfigurationUtil.getLong(e,
+                                                                   "journal-compact-max-rate",
+                                                                   config.getJournalCompactMaxRate(),
+                                                                   Validators.MINUS_ONE_OR_GT_ZERO));
+
+      config.setJournalLoadThreads(XMLConfigurationUtil.getInteger(e,
+                                                                   "journal-load-threads",
+                                                                   config.getJournalLoadThreads(),
+                                                                   Validators.GT_ZERO));
+
       config.setLogJournalWriteRate(XMLConfigurationUtil.getBoolean(e,
                                                                     "log-journal-write-rate",
                                                                     HornetQDefaultConfiguration.DEFAULT_JOURNAL_LOG_WRITE_RATE));
@@ -873,6 +915,10 @@ public final class FileConfigurationParser
          {
             addressSettings.setPageCacheMaxSize(Integer.valueOf(child.getTextContent()));
          }
+         else if (FileConfigurationParser.PAGE_MAX_CACHE_SIZE_BYTES_NODE_NAME.equalsIgnoreCase(child.getNodeName()))
+         {
+            addressSettings.setPageCacheMaxSizeBytes(Long.valueOf(child.getTextContent()));
+         }
          else if (FileConfigurationParser.MESSAGE_COUNTER_HISTORY_DAY_LIMIT_NODE_NAME.equalsIgnoreCase(child.getNodeName()))
          {
             addressSettings.setMessageCounterHistoryDayLimit(Integer.valueOf(child.getTextContent()));
@@ -917,6 +963,10 @@ public final class FileConfigurationParser
          {
             addressSettings.setSendToDLAOnNoRoute(Boolean.valueOf(child.getTextContent().trim()));
          }
+         else if (FileConfigurationParser.CONCURRENT_DISPATCH_NODE_NAME.equalsIgnoreCase(child.getNodeName()))
+         {
+            addressSettings.setConcurrentDispatch(Boolean.valueOf(child.getTextContent().trim()));
+         }
       }
       return setting;
    }
@@ -1213,6 +1263,16 @@ public final class FileConfigurationParser
                                                      discoveryGroupName);
       }
 
+      config.setBatchSize(XMLConfigurationUtil.getInteger(e,
+                                                          "batch-size",
+                                                          HornetQDefaultConfiguration.DEFAULT_BRIDGE_BATCH_SIZE,
+                                                          Validators.MINUS_ONE_OR_GT_ZERO));
+
+      config.setMaxPendingAcks(XMLConfigurationUtil.getInteger(e,
+                                                               "max-pending-acks",
+                                                               HornetQDefaultConfiguration.DEFAULT_BRIDGE_MAX_PENDING_ACKS,
+                                                               Validators.MINUS_ONE_OR_GT_ZERO));
+
       mainConfig.getClusterConfigurations().add(config);
    }
 
@@ -1387,6 +1447,16 @@ public final class FileConfigurationParser
                                           password);
       }
 
+      config.setBatchSize(XMLConfigurationUtil.getInteger(brNode,
+                                                          "batch-size",
+                                                          HornetQDefaultConfiguration.DEFAULT_BRIDGE_BATCH_SIZE,
+                                                          Validators.MINUS_ONE_OR_GT_ZERO));
+
+      config.setMaxPendingAcks(XMLConfigurationUtil.getInteger(brNode,
+                                                               "max-pending-acks",
+                                                               HornetQDefaultConfiguration.DEFAULT_BRIDGE_MAX_PENDING_ACKS,
+                                                               Validators.MINUS_ONE_OR_GT_ZERO));
+
       mainConfig.getBridgeConfigurations().add(config);
    }
 
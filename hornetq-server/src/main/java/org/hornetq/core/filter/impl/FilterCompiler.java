@@ -0,0 +1,779 @@
+/*
+ * Copyright 2009 Red Hat, Inc.
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package org.hornetq.core.filter.impl;
+
+import java.util.Collections;
+import java.util.Set;
+
+import org.hornetq.api.core.FilterConstants;
+import org.hornetq.api.core.SimpleString;
+import org.hornetq.core.server.ServerMessage;
+import org.hornetq.utils.Pair;
+
+/**
+ * Compiles the tree parsed by {@link FilterParser} into a tree of immutable {@link Expression}s.
+ * <p>
+ * The {@link Operator}s keep the values of their operands in fields and the {@link Identifier}s are set before
+ * each evaluation, so they can only be used by one thread at a time. The compiled expressions keep nothing between
+ * evaluations and can be used concurrently. They follow the semantics of the {@link Operator}s, including the
+ * unknown (<code>null</code>) results.
+ * <p>
+ * The values are normalized the same way: integral numbers are {@link Long}s and floating point ones
+ * {@link Double}s.
+ */
+final class FilterCompiler
+{
+   private static final int NULL = 0;
+
+   private FilterCompiler()
+   {
+      // Utility class
+   }
+
+   /**
+    * A compiled filter expression
+    */
+   abstract static class Expression
+   {
+      /**
+       * @return the normalized value of this expression for the message: a {@link Boolean}, {@link Long},
+       *         {@link Double}, {@link SimpleString}, or <code>null</code> when unknown
+       */
+      abstract Object evaluate(ServerMessage message) throws Exception;
+   }
+
+   static Expression compile(final Object parsed) throws Exception
+   {
+      if (parsed instanceof Identifier)
+      {
+         return compileIdentifier((Identifier)parsed);
+      }
+      else if (parsed instanceof Operator)
+      {
+         return compileOperator((Operator)parsed);
+      }
+      else
+      {
+         return new Constant(normalize(parsed));
+      }
+   }
+
+   /**
+    * Finds a string property the message must have, with one of a set of values, for the expression to be true:
+    * an <code>identifier = 'string'</code> or <code>identifier IN (...)</code>, alone or in a conjunction.
+    *
+    * @return the name of the property and its possible values, or <code>null</code> if there is none
+    */
+   static Pair<SimpleString, Set<SimpleString>> equalityTerm(final Expression expression)
+   {
+      if (expression instanceof StringEquals)
+      {
+         StringEquals equals = (StringEquals)expression;
+
+         if (equals.identifier instanceof Property)
+         {
+            return new Pair<SimpleString, Set<SimpleString>>(((Property)equals.identifier).name,
+                                                             Collections.singleton(equals.value));
+         }
+      }
+      else if (expression instanceof In)
+      {
+         In in = (In)expression;
+
+         if (!in.not && in.identifier instanceof Property)
+         {
+            return new Pair<SimpleString, Set<SimpleString>>(((Property)in.identifier).name,
+                                                             Collections.unmodifiableSet(in.values));
+         }
+      }
+      else if (expression instanceof Operation && ((Operation)expression).operation == Operator.AND)
+      {
+         // AND is only true when both sides are
+         Pair<SimpleString, Set<SimpleString>> term = equalityTerm(((Operation)expression).oper1);
+
+         return term != null ? term : equalityTerm(((Operation)expression).oper2);
+      }
+
+      return null;
+   }
+
+   // Private -------------------------------------------------------
+
+   private static Expression compileIdentifier(final Identifier identifier)
+   {
+      SimpleString name = identifier.getName();
+
+      if (name.startsWith(FilterConstants.HORNETQ_PREFIX))
+      {
+         for (int i = 0; i < HeaderField.FIELDS.length; i++)
+         {
+            if (HeaderField.FIELDS[i].equals(name))
+            {
+               return new HeaderField(i);
+            }
+         }
+      }
+
+      return new Property(name);
+   }
+
+   @SuppressWarnings("unchecked")
+   private static Expression compileOperator(final Operator operator) throws Exception
+   {
+      int operation = operator.getOperation();
+
+      if (operation == Operator.IN || operation == Operator.NOT_IN)
+      {
+         return new In(compile(operator.getOper1()), (Set<SimpleString>)operator.getOper2(), operation == Operator.NOT_IN);
+      }
+
+      Expression left = operator.getOper1() == null ? null : compile(operator.getOper1());
+
+      Expression right = operator.getOper2() == null ? null : compile(operator.getOper2());
+
+      Expression third = operator.getOper3() == null ? null : compile(operator.getOper3());
+
+      switch (operation)
+      {
+         case Operator.EQUAL:
+            if (operator.getOper1() instanceof Identifier && operator.getOper2() instanceof SimpleString)
+            {
+               return new StringEquals(left, (SimpleString)operator.getOper2());
+            }
+            return new Operation(operation, left, right, null);
+         case Operator.LIKE:
+         case Operator.LIKE_ESCAPE:
+            // the patterns are always literals, compile them once
+            if (right instanceof Constant && (third == null || third instanceof Constant))
+            {
+               Object pattern = ((Constant)right).value;
+               Object escape = third == null ? null : ((Constant)third).value;
+
+               if (pattern instanceof SimpleString && (third == null || escape instanceof SimpleString))
+               {
+                  try
+                  {
+                     return new Like(left, regExp(operation, pattern, escape));
+                  }
+                  catch (Exception e)
+                  {
+                     // a bad escape, the evaluation fails the same way as with the interpreter
+                  }
+               }
+            }
+            return new Operation(operation, left, right, third);
+         default:
+            return new Operation(operation, left, right, third);
+      }
+   }
+
+   static Object normalize(final Object value) throws Exception
+   {
+      if (value == null)
+      {
+         return null;
+      }
+
+      Class<?> type = value.getClass();
+
+      if (type == SimpleString.class || type == Long.class || type == Double.class || type == Boolean.class)
+      {
+         return value;
+      }
+      else if (type == Integer.class || type == Short.class || type == Byte.class)
+      {
+         return Long.valueOf(((Number)value).longValue());
+      }
+      else if (type == Float.class)
+      {
+         return Double.valueOf(((Float)value).doubleValue());
+      }
+      else
+      {
+         throw new Exception("Bad Object: '" + type.getName() + "'");
+      }
+   }
+
+   private static int classOf(final Object value)
+   {
+      if (value == null)
+      {
+         return NULL;
+      }
+
+      Class<?> type = value.getClass();
+
+      if (type == Long.class)
+      {
+         return Operator.LONG;
+      }
+      else if (type == Double.class)
+      {
+         return Operator.DOUBLE;
+      }
+      else if (type == SimpleString.class)
+      {
+         return Operator.SIMPLE_STRING;
+      }
+      else
+      {
+         return Operator.BOOLEAN;
+      }
+   }
+
+   private static RegExp regExp(final int operation, final Object pattern, final Object escape) throws Exception
+   {
+      Character escapeChar = null;
+
+      if (escape != null)
+      {
+         SimpleString escapeString = (SimpleString)escape;
+
+         if (escapeString.length() != 1)
+         {
+            throw new Exception("LIKE ESCAPE: Bad escape character " + escapeString.toString());
+         }
+
+         escapeChar = Character.valueOf(escapeString.charAt(0));
+      }
+
+      return new RegExp(pattern.toString(), escapeChar);
+   }
+
+   private static Exception badObject(final int operation, final int type)
+   {
+      return new Exception("Bad Object: '" + Operator.getClassName(type) +
+                           "' for operation: " +
+                           Operator.operationString(operation));
+   }
+
+   private static Exception badObject(final int operation, final int expected, final int type)
+   {
+      return new Exception("Bad Object: expected '" + Operator.getClassName(expected) +
+                           "' got '" +
+                           Operator.getClassName(type) +
+                           "' for operation: " +
+                           Operator.operationString(operation));
+   }
+
+   /**
+    * =, and &lt;&gt; when <code>different</code>, on values already evaluated.
+    */
+   private static Boolean equal(final int operation,
+                                final Object arg1,
+                                final Object arg2,
+                                final boolean different) throws Exception
+   {
+      int class1 = classOf(arg1);
+
+      int class2 = classOf(arg2);
+
+      switch (class1)
+      {
+         case NULL:
+            // the interpreter doesn't return unknown here
+            return different ? Boolean.valueOf(arg2 != null) : Boolean.FALSE;
+         case Operator.LONG:
+         case Operator.DOUBLE:
+            if (arg2 == null)
+            {
+               return null;
+            }
+            if (class2 != Operator.LONG && class2 != Operator.DOUBLE)
+            {
+               return Boolean.FALSE;
+            }
+            return Boolean.valueOf(compare(arg1, class1, arg2, class2) == 0 != different);
+         default:
+            if (arg2 == null)
+            {
+               return different ? null : Boolean.FALSE;
+            }
+            if (class2 != class1)
+            {
+               throw badObject(operation, class1, class2);
+            }
+            return Boolean.valueOf(arg1.equals(arg2) != different);
+      }
+   }
+
+   /**
+    * @return the comparison of two numbers, only true or false when compared with 0 for NaNs
+    */
+   private static int compare(final Object arg1, final int class1, final Object arg2, final int class2)
+   {
+      if (class1 == Operator.LONG && class2 == Operator.LONG)
+      {
+         long l1 = ((Long)arg1).longValue();
+         long l2 = ((Long)arg2).longValue();
+         return l1 < l2 ? -1 : l1 == l2 ? 0 : 1;
+      }
+
+      double d1 = ((Number)arg1).doubleValue();
+      double d2 = ((Number)arg2).doubleValue();
+
+      if (d1 < d2)
+      {
+         return -1;
+      }
+      else if (d1 == d2)
+      {
+         return 0;
+      }
+      else if (d1 > d2)
+      {
+         return 1;
+      }
+      else
+      {
+         // NaN, nothing holds
+         return Integer.MIN_VALUE;
+      }
+   }
+
+   /**
+    * &gt;, &gt;=, &lt; and &lt;= on values already evaluated.
+    */
+   private static Boolean compare(final int operation, final Object arg1, final Object arg2)
+   {
+      int class1 = classOf(arg1);
+
+      if (class1 == NULL)
+      {
+         return null;
+      }
+
+      if (class1 != Operator.LONG && class1 != Operator.DOUBLE)
+      {
+         return Boolean.FALSE;
+      }
+
+      int class2 = classOf(arg2);
+
+      if (class2 == NULL)
+      {
+         return null;
+      }
+
+      if (class2 != Operator.LONG && class2 != Operator.DOUBLE)
+      {
+         return Boolean.FALSE;
+      }
+
+      int comparison = compare(arg1, class1, arg2, class2);
+
+      if (comparison == Integer.MIN_VALUE)
+      {
+         return Boolean.FALSE;
+      }
+
+      switch (operation)
+      {
+         case Operator.GT:
+            return Boolean.valueOf(comparison > 0);
+         case Operator.GE:
+            return Boolean.valueOf(comparison >= 0);
+         case Operator.LT:
+            return Boolean.valueOf(comparison < 0);
+         default:
+            return Boolean.valueOf(comparison <= 0);
+      }
+   }
+
+   private static Object arithmetic(final int operation, final Object arg1, final Object arg2) throws Exception
+   {
+      if (arg1 == null || arg2 == null)
+      {
+         return null;
+      }
+
+      int class1 = classOf(arg1);
+
+      int class2 = classOf(arg2);
+
+      if (class1 != Operator.LONG && class1 != Operator.DOUBLE)
+      {
+         throw badObject(operation, class1);
+      }
+
+      if (class2 != Operator.LONG && class2 != Operator.DOUBLE)
+      {
+         throw badObject(operation, class2);
+      }
+
+      if (class1 == Operator.LONG && class2 == Operator.LONG)
+      {
+         long l1 = ((Long)arg1).longValue();
+         long l2 = ((Long)arg2).longValue();
+
+         switch (operation)
+         {
+            case Operator.SUB:
+               return Long.valueOf(l1 - l2);
+            case Operator.MUL:
+               return Long.valueOf(l1 * l2);
+            case Operator.DIV:
+               return Long.valueOf(l1 / l2);
+            default:
+               return Long.valueOf(l1 + l2);
+         }
+      }
+
+      double d1 = ((Number)arg1).doubleValue();
+      double d2 = ((Number)arg2).doubleValue();
+
+      switch (operation)
+      {
+         case Operator.SUB:
+            return Double.valueOf(d1 - d2);
+         case Operator.MUL:
+            return Double.valueOf(d1 * d2);
+         case Operator.DIV:
+            return Double.valueOf(d1 / d2);
+         default:
+            return Double.valueOf(d1 + d2);
+      }
+   }
+
+   private static Boolean checkBoolean(final int operation, final Object value) throws Exception
+   {
+      if (value != null && value.getClass() != Boolean.class)
+      {
+         throw badObject(operation, classOf(value));
+      }
+      return (Boolean)value;
+   }
+
+   private static Boolean like(final Object value, final RegExp re, final boolean not) throws Exception
+   {
+      if (value == null)
+      {
+         return null;
+      }
+
+      if (value.getClass() != SimpleString.class)
+      {
+         throw badObject(Operator.LIKE, classOf(value));
+      }
+
+      return Boolean.valueOf(re.isMatch(value) != not);
+   }
+
+   // Inner classes -------------------------------------------------
+
+   private static final class Constant extends Expression
+   {
+      private final Object value;
+
+      private Constant(final Object value)
+      {
+         this.value = value;
+      }
+
+      @Override
+      Object evaluate(final ServerMessage message)
+      {
+         return value;
+      }
+   }
+
+   private static final class Property extends Expression
+   {
+      private final SimpleString name;
+
+      private Property(final SimpleString name)
+      {
+         this.name = name;
+      }
+
+      @Override
+      Object evaluate(final ServerMessage message) throws Exception
+      {
+         return normalize(message.getObjectProperty(name));
+      }
+   }
+
+   /**
+    * The HQ identifiers looked up on the message headers
+    */
+   private static final class HeaderField extends Expression
+   {
+      private static final SimpleString[] FIELDS = new SimpleString[] { FilterConstants.HORNETQ_USERID,
+                                                                        FilterConstants.HORNETQ_PRIORITY,
+                                                                        FilterConstants.HORNETQ_TIMESTAMP,
+                                                                        FilterConstants.HORNETQ_DURABLE,
+                                                                        FilterConstants.HORNETQ_EXPIRATION,
+                                                                        FilterConstants.HORNETQ_SIZE };
+
+      private final int field;
+
+      private HeaderField(final int field)
+      {
+         this.field = field;
+      }
+
+      @Override
+      Object evaluate(final ServerMessage message)
+      {
+         switch (field)
+         {
+            case 0:
+               // It's the stringified (hex) representation of a user id that can be used in a selector expression
+               return new SimpleString("ID:" + message.getUserID());
+            case 1:
+               return Long.valueOf(message.getPriority());
+            case 2:
+               return Long.valueOf(message.getTimestamp());
+            case 3:
+               return message.isDurable() ? FilterConstants.DURABLE : FilterConstants.NON_DURABLE;
+            case 4:
+               return Long.valueOf(message.getExpiration());
+            default:
+               return Long.valueOf(message.getEncodeSize());
+         }
+      }
+   }
+
+   /**
+    * <code>identifier = 'string'</code>
+    */
+   private static final class StringEquals extends Expression
+   {
+      private final Expression identifier;
+
+      private final SimpleString value;
+
+      private StringEquals(final Expression identifier, final SimpleString value)
+      {
+         this.identifier = identifier;
+         this.value = value;
+      }
+
+      @Override
+      Object evaluate(final ServerMessage message) throws Exception
+      {
+         Object arg = identifier.evaluate(message);
+
+         if (arg != null && arg.getClass() == SimpleString.class)
+         {
+            return Boolean.valueOf(value.equals(arg));
+         }
+
+         return equal(Operator.EQUAL, arg, value, false);
+      }
+   }
+
+   /**
+    * <code>identifier [NOT] IN ('string', ...)</code>
+    */
+   private static final class In extends Expression
+   {
+      private final Expression identifier;
+
+      private final Set<SimpleString> values;
+
+      private final boolean not;
+
+      private In(final Expression identifier, final Set<SimpleString> values, final boolean not)
+      {
+         this.identifier = identifier;
+         this.values = values;
+         this.not = not;
+      }
+
+      @Override
+      Object evaluate(final ServerMessage message) throws Exception
+      {
+         Object arg = identifier.evaluate(message);
+
+         if (arg == null)
+         {
+            return not ? null : Boolean.FALSE;
+         }
+
+         if (arg.getClass() != SimpleString.class)
+         {
+            throw badObject(not ? Operator.NOT_IN : Operator.IN, classOf(arg));
+         }
+
+         return Boolean.valueOf(values.contains(arg) != not);
+      }
+   }
+
+   /**
+    * <code>identifier LIKE 'pattern' [ESCAPE 'c']</code>
+    */
+   private static final class Like extends Expression
+   {
+      private final Expression identifier;
+
+      private final RegExp re;
+
+      private Like(final Expression identifier, final RegExp re)
+      {
+         this.identifier = identifier;
+         this.re = re;
+      }
+
+      @Override
+      Object evaluate(final ServerMessage message) throws Exception
+      {
+         return like(identifier.evaluate(message), re, false);
+      }
+   }
+
+   /**
+    * The other operations, evaluated as the {@link Operator}s do
+    */
+   private static final class Operation extends Expression
+   {
+      private final int operation;
+
+      private final Expression oper1;
+
+      private final Expression oper2;
+
+      private final Expression oper3;
+
+      private Operation(final int operation, final Expression oper1, final Expression oper2, final Expression oper3)
+      {
+         this.operation = operation;
+         this.oper1 = oper1;
+         this.oper2 = oper2;
+         this.oper3 = oper3;
+      }
+
+      @Override
+      Object evaluate(final ServerMessage message) throws Exception
+      {
+         Object arg1 = oper1 == null ? null : oper1.evaluate(message);
+
+         switch (operation)
+         {
+            case Operator.EQUAL:
+               return arg1 == null ? Boolean.FALSE : equal(operation, arg1, oper2.evaluate(message), false);
+            case Operator.DIFFERENT:
+               return equal(operation, arg1, oper2.evaluate(message), true);
+            case Operator.NOT:
+            {
+               Boolean value = checkBoolean(operation, arg1);
+               return value == null ? null : Boolean.valueOf(!value.booleanValue());
+            }
+            case Operator.AND:
+            {
+               Boolean value1 = checkBoolean(operation, arg1);
+               if (value1 != null && !value1.booleanValue())
+               {
+                  return Boolean.FALSE;
+               }
+               Boolean value2 = checkBoolean(operation, oper2.evaluate(message));
+               if (value2 == null)
+               {
+                  return null;
+               }
+               if (!value2.booleanValue())
+               {
+                  return Boolean.FALSE;
+               }
+               return value1 == null ? null : Boolean.TRUE;
+            }
+            case Operator.OR:
+            {
+               Boolean value1 = checkBoolean(operation, arg1);
+               if (value1 != null && value1.booleanValue())
+               {
+                  return Boolean.TRUE;
+               }
+               Boolean value2 = checkBoolean(operation, oper2.evaluate(message));
+               if (value2 == null)
+               {
+                  return null;
+               }
+               if (value2.booleanValue())
+               {
+                  return Boolean.TRUE;
+               }
+               return value1 == null ? null : Boolean.FALSE;
+            }
+            case Operator.GT:
+            case Operator.GE:
+            case Operator.LT:
+            case Operator.LE:
+               return arg1 == null ? null : compare(operation, arg1, oper2.evaluate(message));
+            case Operator.BETWEEN:
+            {
+               Boolean res = arg1 == null ? null : compare(Operator.GE, arg1, oper2.evaluate(message));
+               if (res == null || !res.booleanValue())
+               {
+                  return res;
+               }
+               return compare(Operator.LE, arg1, oper3.evaluate(message));
+            }
+            case Operator.NOT_BETWEEN:
+            {
+               Boolean res = arg1 == null ? null : compare(Operator.LT, arg1, oper2.evaluate(message));
+               if (res == null || res.booleanValue())
+               {
+                  return res;
+               }
+               return compare(Operator.GT, arg1, oper3.evaluate(message));
+            }
+            case Operator.ADD:
+            case Operator.SUB:
+            case Operator.MUL:
+            case Operator.DIV:
+               return arithmetic(operation, arg1, oper2.evaluate(message));
+            case Operator.NEG:
+               if (arg1 == null)
+               {
+                  return null;
+               }
+               switch (classOf(arg1))
+               {
+                  case Operator.LONG:
+                     return Long.valueOf(-((Long)arg1).longValue());
+                  case Operator.DOUBLE:
+                     return Double.valueOf(-((Double)arg1).doubleValue());
+                  default:
+                     throw badObject(operation, classOf(arg1));
+               }
+            case Operator.IS_NULL:
+               return Boolean.valueOf(arg1 == null);
+            case Operator.IS_NOT_NULL:
+               return Boolean.valueOf(arg1 != null);
+            case Operator.LIKE:
+            case Operator.LIKE_ESCAPE:
+            {
+               if (arg1 == null)
+               {
+                  return null;
+               }
+               Object pattern = oper2.evaluate(message);
+               if (pattern == null)
+               {
+                  return Boolean.FALSE;
+               }
+               Object escape = oper3 == null ? null : oper3.evaluate(message);
+               if (oper3 != null && escape == null)
+               {
+                  return null;
+               }
+               return like(arg1, regExp(operation, pattern, escape), false);
+            }
+            default:
+               throw new Exception("No operation mapped for " + Operator.operationString(operation));
+         }
+      }
+   }
+}
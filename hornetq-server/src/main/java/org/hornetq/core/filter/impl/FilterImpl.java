@@ -14,15 +14,15 @@
 package org.hornetq.core.filter.impl;
 
 import java.util.HashMap;
-import java.util.Map;
+import java.util.Set;
 
-import org.hornetq.api.core.FilterConstants;
 import org.hornetq.api.core.HornetQException;
 import org.hornetq.api.core.SimpleString;
 import org.hornetq.core.filter.Filter;
 import org.hornetq.core.server.HornetQServerLogger;
 import org.hornetq.core.server.HornetQMessageBundle;
 import org.hornetq.core.server.ServerMessage;
+import org.hornetq.utils.Pair;
 
 /**
 * This class implements a HornetQ filter
@@ -62,11 +62,9 @@ public class FilterImpl implements Filter
 
    private final SimpleString sfilterString;
 
-   private final Map<SimpleString, Identifier> identifiers = new HashMap<SimpleString, Identifier>();
+   private final FilterCompiler.Expression expression;
 
-   private final Object result;
-
-   private final Class<? extends Object> resultType;
+   private final Pair<SimpleString, Set<SimpleString>> equalityTerm;
 
    // Static ---------------------------------------------------------
 
@@ -103,9 +101,12 @@ public class FilterImpl implements Filter
 
       try
       {
-         result = new FilterParser().parse(sfilterString, identifiers);
+         Object result = new FilterParser().parse(sfilterString, new HashMap<SimpleString, Identifier>());
+
+         // compiled once, it can then be used concurrently
+         expression = FilterCompiler.compile(result);
 
-         resultType = result.getClass();
+         equalityTerm = FilterCompiler.equalityTerm(expression);
       }
       catch (Throwable e)
       {
@@ -122,44 +123,30 @@ public class FilterImpl implements Filter
       return sfilterString;
    }
 
-   public synchronized boolean match(final ServerMessage message)
+   /**
+    * @return the name of a property the messages must have, as a string with one of the
+    *         {@link #getEqualityValues()}, to match this filter, or <code>null</code> if the filter has no such
+    *         term, e.g. <code>region</code> for <code>region = 'EU' AND price &gt; 10</code>
+    */
+   public SimpleString getEqualityProperty()
+   {
+      return equalityTerm == null ? null : equalityTerm.getA();
+   }
+
+   /**
+    * @return the values of the {@link #getEqualityProperty()} matching this filter
+    */
+   public Set<SimpleString> getEqualityValues()
+   {
+      return equalityTerm == null ? null : equalityTerm.getB();
+   }
+
+   public boolean match(final ServerMessage message)
    {
       try
       {
-         // Set the identifiers values
-
-         for (Identifier id : identifiers.values())
-         {
-            Object val = null;
-
-            if (id.getName().startsWith(FilterConstants.HORNETQ_PREFIX))
-            {
-               // Look it up as header fields
-               val = getHeaderFieldValue(message, id.getName());
-            }
-
-            if (val == null)
-            {
-               val = message.getObjectProperty(id.getName());
-            }
-
-            id.setValue(val);
-
-         }
-
-         if (resultType.equals(Identifier.class))
-         {
-            return (Boolean)((Identifier)result).getValue();
-         }
-         else if (resultType.equals(Operator.class))
-         {
-            Operator op = (Operator)result;
-            return (Boolean)op.apply();
-         }
-         else
-         {
-            throw new Exception("Bad object type: " + result);
-         }
+         // An unknown result doesn't match
+         return Boolean.TRUE.equals(expression.evaluate(message));
       }
       catch (Exception e)
       {
@@ -203,39 +190,4 @@ public class FilterImpl implements Filter
    {
       return "FilterImpl [sfilterString=" + sfilterString + "]";
    }
-
-   // Private --------------------------------------------------------------------------
-
-   private Object getHeaderFieldValue(final ServerMessage msg, final SimpleString fieldName)
-   {
-      if (FilterConstants.HORNETQ_USERID.equals(fieldName))
-      {
-         // It's the stringified (hex) representation of a user id that can be used in a selector expression
-         return new SimpleString("ID:" + msg.getUserID());
-      }
-      else if (FilterConstants.HORNETQ_PRIORITY.equals(fieldName))
-      {
-         return Integer.valueOf(msg.getPriority());
-      }
-      else if (FilterConstants.HORNETQ_TIMESTAMP.equals(fieldName))
-      {
-         return msg.getTimestamp();
-      }
-      else if (FilterConstants.HORNETQ_DURABLE.equals(fieldName))
-      {
-         return msg.isDurable() ? FilterConstants.DURABLE : FilterConstants.NON_DURABLE;
-      }
-      else if (FilterConstants.HORNETQ_EXPIRATION.equals(fieldName))
-      {
-         return msg.getExpiration();
-      }
-      else if (FilterConstants.HORNETQ_SIZE.equals(fieldName))
-      {
-         return msg.getEncodeSize();
-      }
-      else
-      {
-         return null;
-      }
-   }
 }
@@ -192,6 +192,58 @@ public class AddressControlImpl extends AbstractControl implements AddressContro
       }
    }
 
+   public long getPageCacheSize() throws Exception
+   {
+      clearIO();
+      try
+      {
+         return pagingManager.getPageStore(address).getCursorProvider().getCacheMemorySize();
+      }
+      finally
+      {
+         blockOnIO();
+      }
+   }
+
+   public long getPageCacheHits() throws Exception
+   {
+      clearIO();
+      try
+      {
+         return pagingManager.getPageStore(address).getCursorProvider().getCacheHits();
+      }
+      finally
+      {
+         blockOnIO();
+      }
+   }
+
+   public long getPageCacheMisses() throws Exception
+   {
+      clearIO();
+      try
+      {
+         return pagingManager.getPageStore(address).getCursorProvider().getCacheMisses();
+      }
+      finally
+      {
+         blockOnIO();
+      }
+   }
+
+   public long getPageCacheEvictions() throws Exception
+   {
+      clearIO();
+      try
+      {
+         return pagingManager.getPageStore(address).getCursorProvider().getCacheEvictions();
+      }
+      finally
+      {
+         blockOnIO();
+      }
+   }
+
    public boolean isPaging() throws Exception
    {
       clearIO();
@@ -222,6 +222,71 @@ public class BridgeControlImpl extends AbstractControl implements BridgeControl
       }
    }
 
+   public int getBatchSize()
+   {
+      clearIO();
+      try
+      {
+         return configuration.getBatchSize();
+      }
+      finally
+      {
+         blockOnIO();
+      }
+   }
+
+   public int getMaxPendingAcks()
+   {
+      clearIO();
+      try
+      {
+         return configuration.getMaxPendingAcks();
+      }
+      finally
+      {
+         blockOnIO();
+      }
+   }
+
+   public long getMessagesInFlight()
+   {
+      clearIO();
+      try
+      {
+         return bridge.getMessagesInFlight();
+      }
+      finally
+      {
+         blockOnIO();
+      }
+   }
+
+   public long getMessagesConfirmed()
+   {
+      clearIO();
+      try
+      {
+         return bridge.getMessagesConfirmed();
+      }
+      finally
+      {
+         blockOnIO();
+      }
+   }
+
+   public double getAverageConfirmationLatency()
+   {
+      clearIO();
+      try
+      {
+         return bridge.getAverageConfirmationLatency();
+      }
+      finally
+      {
+         blockOnIO();
+      }
+   }
+
    public void start() throws Exception
    {
       clearIO();
@@ -47,6 +47,7 @@ import org.hornetq.api.core.management.QueueControl;
 import org.hornetq.core.config.BridgeConfiguration;
 import org.hornetq.core.config.Configuration;
 import org.hornetq.core.config.DivertConfiguration;
+import org.hornetq.core.journal.JournalBuffer;
 import org.hornetq.core.messagecounter.MessageCounterManager;
 import org.hornetq.core.messagecounter.impl.MessageCounterManagerImpl;
 import org.hornetq.core.persistence.StorageManager;
@@ -54,6 +55,7 @@ import org.hornetq.core.persistence.config.PersistedAddressSetting;
 import org.hornetq.core.persistence.config.PersistedRoles;
 import org.hornetq.core.postoffice.PostOffice;
 import org.hornetq.core.remoting.server.RemotingService;
+import org.hornetq.core.replication.ReplicationManager;
 import org.hornetq.core.security.CheckType;
 import org.hornetq.core.security.Role;
 import org.hornetq.core.server.HornetQMessageBundle;
@@ -282,6 +284,179 @@ public class HornetQServerControlImpl extends AbstractControl implements HornetQ
       }
    }
 
+   public boolean isJournalBufferTimeoutAdaptive()
+   {
+      checkStarted();
+
+      clearIO();
+      try
+      {
+         return configuration.isJournalBufferTimeoutAdaptive();
+      }
+      finally
+      {
+         blockOnIO();
+      }
+   }
+
+   public long getJournalBufferEffectiveTimeout()
+   {
+      checkStarted();
+
+      clearIO();
+      try
+      {
+         JournalBuffer buffer = storageManager.getMessageJournalBuffer();
+
+         return buffer == null ? -1 : buffer.getEffectiveTimeout();
+      }
+      finally
+      {
+         blockOnIO();
+      }
+   }
+
+   public long getJournalSyncLatency()
+   {
+      checkStarted();
+
+      clearIO();
+      try
+      {
+         JournalBuffer buffer = storageManager.getMessageJournalBuffer();
+
+         return buffer == null ? -1 : buffer.getSyncLatency();
+      }
+      finally
+      {
+         blockOnIO();
+      }
+   }
+
+   public double getJournalBufferAverageBatchSize()
+   {
+      checkStarted();
+
+      clearIO();
+      try
+      {
+         JournalBuffer buffer = storageManager.getMessageJournalBuffer();
+
+         if (buffer == null || buffer.getFlushes() == 0)
+         {
+            return 0;
+         }
+
+         return (double)buffer.getRecordsFlushed() / buffer.getFlushes();
+      }
+      finally
+      {
+         blockOnIO();
+      }
+   }
+
+   public long getJournalBufferFlushesOnTimeout()
+   {
+      checkStarted();
+
+      clearIO();
+      try
+      {
+         JournalBuffer buffer = storageManager.getMessageJournalBuffer();
+
+         return buffer == null ? 0 : buffer.getFlushesOnTimeout();
+      }
+      finally
+      {
+         blockOnIO();
+      }
+   }
+
+   public long getJournalBufferFlushesOnFullBuffer()
+   {
+      checkStarted();
+
+      clearIO();
+      try
+      {
+         JournalBuffer buffer = storageManager.getMessageJournalBuffer();
+
+         return buffer == null ? 0 : buffer.getFlushesOnFullBuffer();
+      }
+      finally
+      {
+         blockOnIO();
+      }
+   }
+
+   public long getJournalBufferFlushesOnRequest()
+   {
+      checkStarted();
+
+      clearIO();
+      try
+      {
+         JournalBuffer buffer = storageManager.getMessageJournalBuffer();
+
+         return buffer == null ? 0 : buffer.getFlushesOnRequest();
+      }
+      finally
+      {
+         blockOnIO();
+      }
+   }
+
+   public long getReplicationRoundTripTime()
+   {
+      checkStarted();
+
+      clearIO();
+      try
+      {
+         ReplicationManager replicationManager = server.getReplicationManager();
+
+         return replicationManager == null ? -1 : replicationManager.getRoundTripTime();
+      }
+      finally
+      {
+         blockOnIO();
+      }
+   }
+
+   public double getReplicationAverageBatchSize()
+   {
+      checkStarted();
+
+      clearIO();
+      try
+      {
+         ReplicationManager replicationManager = server.getReplicationManager();
+
+         return replicationManager == null ? 0 : replicationManager.getAverageBatchSize();
+      }
+      finally
+      {
+         blockOnIO();
+      }
+   }
+
+   public double getReplicationCompressionRatio()
+   {
+      checkStarted();
+
+      clearIO();
+      try
+      {
+         ReplicationManager replicationManager = server.getReplicationManager();
+
+         return replicationManager == null ? 1 : replicationManager.getCompressionRatio();
+      }
+      finally
+      {
+         blockOnIO();
+      }
+   }
+
    public void setFailoverOnServerShutdown(boolean failoverOnServerShutdown)
    {
       checkStarted();
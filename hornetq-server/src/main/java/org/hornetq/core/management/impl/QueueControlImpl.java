@@ -257,6 +257,21 @@ public class QueueControlImpl extends AbstractControl implements QueueControl
       }
    }
 
+   public int getScheduledWheelOccupancy()
+   {
+      checkStarted();
+
+      clearIO();
+      try
+      {
+         return queue.getScheduledWheelOccupancy();
+      }
+      finally
+      {
+         blockOnIO();
+      }
+   }
+
    public String getDeadLetterAddress()
    {
       checkStarted();
@@ -78,6 +78,17 @@ public interface PagingManager extends HornetQComponent, HierarchicalRepositoryC
 
    void processReload() throws Exception;
 
+   /**
+    * Called by the page caches of the stores as they grow or shrink. Once the page caches of all the stores
+    * are over the global-page-cache-max-size the least recently used pages are evicted, from any store.
+    */
+   void addPageCacheSize(long delta);
+
+   /**
+    * @return the number of bytes used by the page caches of all the stores
+    */
+   long getPageCacheSize();
+
    /**
     * Lock the manager. This method should not be called during normal PagingManager usage.
     */
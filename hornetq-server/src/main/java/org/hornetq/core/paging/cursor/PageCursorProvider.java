@@ -45,6 +45,12 @@ public interface PageCursorProvider
 
    PagedMessage getMessage(PagePosition pos) throws Exception;
 
+   /**
+    * Called by the subscriptions as they move through a page. Once past the read-ahead threshold of the page
+    * the next one is read in the background, so the subscription doesn't wait for it.
+    */
+   void readAhead(PagePosition pos, PageCache cache);
+
    void processReload() throws Exception;
 
    void stop();
@@ -67,6 +73,33 @@ public interface PageCursorProvider
 
    void setCacheMaxSize(int size);
 
+   long getCacheMaxSizeBytes();
+
+   void setCacheMaxSizeBytes(long size);
+
+   /**
+    * @return the number of bytes estimated for the pages on the cache
+    */
+   long getCacheMemorySize();
+
+   long getCacheHits();
+
+   long getCacheMisses();
+
+   long getCacheEvictions();
+
+   /**
+    * @return the last access of the least recently used page that could be evicted, or Long.MAX_VALUE if there
+    *         is none. The most recently used page is never evicted.
+    */
+   long getLeastRecentCacheAccess();
+
+   /**
+    * Evicts the least recently used page, as part of the global-page-cache-max-size.
+    * @return false if there was nothing to evict
+    */
+   boolean evictLeastRecentCache();
+
    /**
     * @param pageCursorImpl
     */
@@ -15,6 +15,7 @@ package org.hornetq.core.paging.cursor.impl;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Iterator;
 import java.util.List;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
@@ -35,14 +36,19 @@ import org.hornetq.core.transaction.Transaction;
 import org.hornetq.core.transaction.impl.TransactionImpl;
 import org.hornetq.core.server.HornetQServerLogger;
 import org.hornetq.utils.FutureLatch;
-import org.hornetq.utils.SoftValueHashMap;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 /**
  * A PageProviderIMpl
  *
  * TODO: this may be moved entirely into PagingStore as there's an one-to-one relationship here
  *       However I want to keep this isolated as much as possible during development
  *
+ * The pages read are cached on a concurrent map, so the subscriptions reading the same pages don't contend on
+ * a single lock. The cache is bound by a number of pages and by an estimate of the bytes of their messages, for
+ * this store and for all the stores together (see {@link PagingManager#addPageCacheSize(long)}), evicting the
+ * least recently used pages. The live page being written is never evicted.
+ *
  * @author <a href="mailto:clebert.suconic@jboss.com">Clebert Suconic</a>
  *
  *
@@ -53,6 +59,9 @@ public class PageCursorProviderImpl implements PageCursorProvider
 
    boolean isTrace = HornetQServerLogger.LOGGER.isTraceEnabled();
 
+   /** The next page is read ahead once a subscription gets past this fraction of the messages on a page */
+   private static final double READ_AHEAD_THRESHOLD = 0.5;
+
    // Attributes ----------------------------------------------------
 
    /**
@@ -67,7 +76,29 @@ public class PageCursorProviderImpl implements PageCursorProvider
    // This is the same executor used at the PageStoreImpl. One Executor per pageStore
    private final Executor executor;
 
-   private final SoftValueHashMap<Long, PageCache> softCache;
+   private final ConcurrentMap<Long, CacheEntry> caches = new ConcurrentHashMap<Long, CacheEntry>();
+
+   /** Guards the accounting and the eviction of the caches, the lookups don't take it */
+   private final Object cacheLock = new Object();
+
+   private volatile int maxCacheSize;
+
+   private volatile long maxCacheSizeBytes;
+
+   /** guarded by cacheLock */
+   private long cacheMemorySize;
+
+   /** The pages whose memory is not counted yet, as they are still being read or written. Guarded by cacheLock */
+   private final List<CacheEntry> unaccounted = new ArrayList<CacheEntry>();
+
+   private final AtomicLong cacheHits = new AtomicLong(0);
+
+   private final AtomicLong cacheMisses = new AtomicLong(0);
+
+   private final AtomicLong cacheEvictions = new AtomicLong(0);
+
+   /** The last page read ahead, so many subscriptions getting to the threshold only read it once */
+   private final AtomicLong readAheadPage = new AtomicLong(-1);
 
    private final ConcurrentMap<Long, PageSubscription> activeCursors = new ConcurrentHashMap<Long, PageSubscription>();
 
@@ -79,11 +110,21 @@ public class PageCursorProviderImpl implements PageCursorProvider
                                  final StorageManager storageManager,
                                  final Executor executor,
                                  final int maxCacheSize)
+   {
+      this(pagingStore, storageManager, executor, maxCacheSize, -1);
+   }
+
+   public PageCursorProviderImpl(final PagingStore pagingStore,
+                                 final StorageManager storageManager,
+                                 final Executor executor,
+                                 final int maxCacheSize,
+                                 final long maxCacheSizeBytes)
    {
       this.pagingStore = pagingStore;
       this.storageManager = storageManager;
       this.executor = executor;
-      this.softCache = new SoftValueHashMap<Long, PageCache>(maxCacheSize);
+      this.maxCacheSize = maxCacheSize;
+      this.maxCacheSizeBytes = maxCacheSizeBytes;
    }
 
    // Public --------------------------------------------------------
@@ -143,68 +184,99 @@ public class PageCursorProviderImpl implements PageCursorProvider
    {
       try
       {
-         boolean needToRead = false;
-         PageCache cache = null;
-         synchronized (softCache)
+         if (pageId > pagingStore.getCurrentWritingPage())
          {
-            if (pageId > pagingStore.getCurrentWritingPage())
+            return null;
+         }
+
+         CacheEntry entry = caches.get(pageId);
+
+         if (entry != null)
+         {
+            entry.used = System.nanoTime();
+            cacheHits.incrementAndGet();
+            return entry.cache;
+         }
+
+         if (!pagingStore.checkPageFileExists((int)pageId))
+         {
+            return null;
+         }
+
+         PageCache cache = createPageCache(pageId);
+
+         // anyone reading from this cache will have to wait reading to finish first
+         // we also want only one thread reading this cache
+         cache.lock();
+
+         entry = new CacheEntry(pageId, cache, true);
+
+         CacheEntry existing;
+
+         synchronized (cacheLock)
+         {
+            existing = caches.putIfAbsent(pageId, entry);
+
+            if (existing == null)
             {
-               return null;
+               unaccounted.add(entry);
             }
+         }
 
-            cache = softCache.get(pageId);
-            if (cache == null)
-            {
-               if (!pagingStore.checkPageFileExists((int)pageId))
-               {
-                  return null;
-               }
+         if (existing != null)
+         {
+            cache.unlock();
+            existing.used = System.nanoTime();
+            cacheHits.incrementAndGet();
+            return existing.cache;
+         }
 
-               cache = createPageCache(pageId);
-               needToRead = true;
-               // anyone reading from this cache will have to wait reading to finish first
-               // we also want only one thread reading this cache
-               cache.lock();
-               if (isTrace)
-               {
-                  HornetQServerLogger.LOGGER.trace("adding " + pageId +  " into cursor = " + this.pagingStore.getAddress());
-               }
-               softCache.put(pageId, cache);
-            }
+         cacheMisses.incrementAndGet();
+
+         if (isTrace)
+         {
+            HornetQServerLogger.LOGGER.trace("adding " + pageId +  " into cursor = " + this.pagingStore.getAddress());
          }
 
-         // Reading is done outside of the synchronized block, however
+         // Reading is done outside of any lock, however
          // the page stays locked until the entire reading is finished
-         if (needToRead)
+         boolean read = false;
+         Page page = null;
+         try
          {
-            Page page = null;
-            try
-            {
-               page = pagingStore.createPage((int)pageId);
+            page = pagingStore.createPage((int)pageId);
 
-               storageManager.beforePageRead();
-               page.open();
+            storageManager.beforePageRead();
+            page.open();
 
-               List<PagedMessage> pgdMessages = page.read(storageManager);
-               cache.setMessages(pgdMessages.toArray(new PagedMessage[pgdMessages.size()]));
-            }
-            finally
+            List<PagedMessage> pgdMessages = page.read(storageManager);
+            cache.setMessages(pgdMessages.toArray(new PagedMessage[pgdMessages.size()]));
+            read = true;
+         }
+         finally
+         {
+            try
             {
-               try
-               {
-                  if (page != null)
-                  {
-                     page.close();
-                  }
-               }
-               catch (Throwable ignored)
+               if (page != null)
                {
+                  page.close();
                }
-               storageManager.afterPageRead();
-               cache.unlock();
             }
+            catch (Throwable ignored)
+            {
+            }
+            storageManager.afterPageRead();
+            if (!read)
+            {
+               // the next one asking for the page will try reading it again
+               removeCache(pageId);
+            }
+            entry.loading = false;
+            cache.unlock();
          }
 
+         checkCacheSize(entry);
+
          return cache;
       }
       catch (Exception e)
@@ -213,30 +285,156 @@ public class PageCursorProviderImpl implements PageCursorProvider
       }
    }
 
+   public void readAhead(final PagePosition pos, final PageCache cache)
+   {
+      if (cache.isLive() || pos.getMessageNr() < (int)(cache.getNumberOfMessages() * READ_AHEAD_THRESHOLD))
+      {
+         return;
+      }
+
+      final long nextPage = pos.getPageNr() + 1;
+
+      // the page being written is always cached
+      if (nextPage >= pagingStore.getCurrentWritingPage() || caches.containsKey(nextPage))
+      {
+         return;
+      }
+
+      // reading ahead is not worth evicting a page that may be in use
+      if (maxCacheSize > 0 && caches.size() >= maxCacheSize)
+      {
+         return;
+      }
+
+      if (maxCacheSizeBytes > 0 && getCacheMemorySize() >= maxCacheSizeBytes)
+      {
+         return;
+      }
+
+      if (readAheadPage.getAndSet(nextPage) == nextPage)
+      {
+         return;
+      }
+
+      executor.execute(new Runnable()
+      {
+         public void run()
+         {
+            try
+            {
+               getPageCache(nextPage);
+            }
+            catch (Exception e)
+            {
+               // the subscription will read it when it gets there
+               HornetQServerLogger.LOGGER.debug("Couldn't read ahead page " + nextPage + " on " + pagingStore.getAddress(), e);
+            }
+         }
+      });
+   }
+
    public void addPageCache(PageCache cache)
    {
-      synchronized (softCache)
+      CacheEntry entry = new CacheEntry(cache.getPageId(), cache, false);
+
+      long released = 0;
+
+      synchronized (cacheLock)
       {
-         softCache.put(cache.getPageId(), cache);
+         CacheEntry previous = caches.put(cache.getPageId(), entry);
+
+         if (previous != null)
+         {
+            released = release(previous);
+         }
+
+         unaccounted.add(entry);
       }
+
+      addToGlobalSize(-released);
+
+      checkCacheSize(entry);
    }
 
    public int getCacheMaxSize()
    {
-      return softCache.getMaxEelements();
+      return maxCacheSize;
    }
 
    public void setCacheMaxSize(final int size)
    {
-      softCache.setMaxElements(size);
+      maxCacheSize = size;
+      checkCacheSize(null);
+   }
+
+   public long getCacheMaxSizeBytes()
+   {
+      return maxCacheSizeBytes;
+   }
+
+   public void setCacheMaxSizeBytes(final long size)
+   {
+      maxCacheSizeBytes = size;
+      checkCacheSize(null);
    }
 
    public int getCacheSize()
    {
-      synchronized (softCache)
+      return caches.size();
+   }
+
+   public long getCacheMemorySize()
+   {
+      synchronized (cacheLock)
+      {
+         return cacheMemorySize;
+      }
+   }
+
+   public long getCacheHits()
+   {
+      return cacheHits.get();
+   }
+
+   public long getCacheMisses()
+   {
+      return cacheMisses.get();
+   }
+
+   public long getCacheEvictions()
+   {
+      return cacheEvictions.get();
+   }
+
+   public long getLeastRecentCacheAccess()
+   {
+      synchronized (cacheLock)
+      {
+         CacheEntry leastRecent = findLeastRecent(null);
+
+         return leastRecent == null ? Long.MAX_VALUE : leastRecent.used;
+      }
+   }
+
+   public boolean evictLeastRecentCache()
+   {
+      long released;
+
+      synchronized (cacheLock)
       {
-         return softCache.size();
+         CacheEntry leastRecent = findLeastRecent(null);
+
+         if (leastRecent == null)
+         {
+            return false;
+         }
+
+         released = evict(leastRecent);
       }
+
+      addToGlobalSize(-released);
+
+      return true;
    }
 
    public void processReload() throws Exception
@@ -279,6 +477,9 @@ public class PageCursorProviderImpl implements PageCursorProvider
       }
 
       waitForFuture();
+
+      // the pages of a stopped or deleted store must not count on the size of all the page caches anymore
+      clearCaches();
    }
 
    private void waitForFuture()
@@ -503,12 +704,9 @@ public class PageCursorProviderImpl implements PageCursorProvider
       {
          for (Page depagedPage : depagedPages)
          {
-            PageCache cache;
+            CacheEntry entry = caches.get((long)depagedPage.getPageId());
+            PageCache cache = entry == null ? null : entry.cache;
             PagedMessage[] pgdMessages;
-            synchronized (softCache)
-            {
-               cache = softCache.get((long)depagedPage.getPageId());
-            }
 
             if (isTrace)
             {
@@ -551,10 +749,7 @@ public class PageCursorProviderImpl implements PageCursorProvider
             depagedPage.delete(pgdMessages);
             onDeletePage(depagedPage);
 
-            synchronized (softCache)
-            {
-               softCache.remove((long)depagedPage.getPageId());
-            }
+            removeCache(depagedPage.getPageId());
          }
       }
       catch (Exception ex)
@@ -616,9 +811,9 @@ public class PageCursorProviderImpl implements PageCursorProvider
    public void printDebug()
    {
       System.out.println("Debug information for PageCursorProviderImpl:");
-      for (PageCache cache : softCache.values())
+      for (CacheEntry entry : caches.values())
       {
-         System.out.println("Cache " + cache);
+         System.out.println("Cache " + entry.cache);
       }
    }
 
@@ -634,6 +829,191 @@ public class PageCursorProviderImpl implements PageCursorProvider
 
    // Private -------------------------------------------------------
 
+   private void removeCache(final long pageId)
+   {
+      long released = 0;
+
+      synchronized (cacheLock)
+      {
+         CacheEntry entry = caches.remove(pageId);
+
+         if (entry != null)
+         {
+            released = release(entry);
+         }
+      }
+
+      addToGlobalSize(-released);
+   }
+
+   private void clearCaches()
+   {
+      long released = 0;
+
+      synchronized (cacheLock)
+      {
+         for (CacheEntry entry : caches.values())
+         {
+            if (caches.remove(entry.pageId, entry))
+            {
+               released += release(entry);
+            }
+         }
+
+         unaccounted.clear();
+      }
+
+      addToGlobalSize(-released);
+   }
+
+   /**
+    * Accounts the pages read since the last check, then evicts the least recently used pages while over the
+    * limits of this store, and finally lets the PagingManager check the limit of all the stores.
+    *
+    * @param keep the page just added, it's not evicted even if it's over the limits on its own
+    */
+   private void checkCacheSize(final CacheEntry keep)
+   {
+      long delta = 0;
+
+      synchronized (cacheLock)
+      {
+         for (Iterator<CacheEntry> iter = unaccounted.iterator(); iter.hasNext();)
+         {
+            CacheEntry entry = iter.next();
+
+            delta += account(entry);
+
+            // done once accounted or gone from the cache
+            if (entry.size >= 0 || caches.get(entry.pageId) != entry)
+            {
+               iter.remove();
+            }
+         }
+
+         while ((maxCacheSize > 0 && caches.size() > maxCacheSize) ||
+                (maxCacheSizeBytes > 0 && cacheMemorySize > maxCacheSizeBytes))
+         {
+            CacheEntry leastRecent = findLeastRecent(keep);
+
+            if (leastRecent == null)
+            {
+               break;
+            }
+
+            delta -= evict(leastRecent);
+         }
+      }
+
+      // out of the lock, as the PagingManager may call back any store to evict from it
+      addToGlobalSize(delta);
+   }
+
+   /**
+    * Starts counting the memory of a page once read, or once it is no longer being written.
+    * @return the bytes added to the cache
+    */
+   private long account(final CacheEntry entry)
+   {
+      if (entry.size >= 0 || entry.loading || entry.cache.isLive() || caches.get(entry.pageId) != entry)
+      {
+         return 0;
+      }
+
+      long size = 0;
+
+      PagedMessage[] messages = entry.cache.getMessages();
+
+      if (messages != null)
+      {
+         for (PagedMessage message : messages)
+         {
+            size += message.getMessage().getMemoryEstimate();
+         }
+      }
+
+      entry.size = size;
+
+      cacheMemorySize += size;
+
+      return size;
+   }
+
+   /**
+    * @return the least recently used page accounted, which is not the most recently used one nor keep
+    */
+   private CacheEntry findLeastRecent(final CacheEntry keep)
+   {
+      CacheEntry leastRecent = null;
+
+      CacheEntry mostRecent = null;
+
+      for (CacheEntry entry : caches.values())
+      {
+         if (entry.size < 0)
+         {
+            continue;
+         }
+
+         if (mostRecent == null || entry.used > mostRecent.used)
+         {
+            mostRecent = entry;
+         }
+
+         if (entry != keep && (leastRecent == null || entry.used < leastRecent.used))
+         {
+            leastRecent = entry;
+         }
+      }
+
+      return leastRecent == mostRecent && keep == null ? null : leastRecent;
+   }
+
+   private long evict(final CacheEntry entry)
+   {
+      if (!caches.remove(entry.pageId, entry))
+      {
+         return 0;
+      }
+
+      if (isTrace)
+      {
+         HornetQServerLogger.LOGGER.trace("Evicting page " + entry.pageId + " from page-cache on " + pagingStore.getAddress());
+      }
+
+      cacheEvictions.incrementAndGet();
+
+      return release(entry);
+   }
+
+   /**
+    * @return the bytes released from the cache
+    */
+   private long release(final CacheEntry entry)
+   {
+      long size = entry.size;
+
+      if (size <= 0)
+      {
+         return 0;
+      }
+
+      // it won't be counted twice if it's released again
+      entry.size = 0;
+
+      cacheMemorySize -= size;
+
+      return size;
+   }
+
+   private void addToGlobalSize(final long delta)
+   {
+      if (delta != 0)
+      {
+         pagingStore.getPagingManager().addPageCacheSize(delta);
+      }
+   }
+
    /**
     * This method is synchronized because we want it to be atomic with the cursors being used
     */
@@ -667,4 +1047,26 @@ public class PageCursorProviderImpl implements PageCursorProvider
 
    // Inner classes -------------------------------------------------
 
+   private static final class CacheEntry
+   {
+      final long pageId;
+
+      final PageCache cache;
+
+      /** the time of the last access, used to evict the least recently used pages */
+      volatile long used = System.nanoTime();
+
+      /** whether the page is still being read, the cache is locked until it is */
+      volatile boolean loading;
+
+      /** the bytes accounted for this page, -1 until accounted */
+      long size = -1;
+
+      CacheEntry(final long pageId, final PageCache cache, final boolean loading)
+      {
+         this.pageId = pageId;
+         this.cache = cache;
+         this.loading = loading;
+      }
+   }
 }
@@ -415,6 +415,8 @@ class PageSubscriptionImpl implements PageSubscription
 
          if (serverMessage != null)
          {
+            cursorProvider.readAhead(retPos, cache);
+
             return cursorProvider.newReference(retPos, serverMessage, this);
          }
          else
@@ -21,6 +21,7 @@ import java.util.concurrent.atomic.AtomicInteger;
 import org.hornetq.api.core.HornetQBuffer;
 import org.hornetq.api.core.HornetQBuffers;
 import org.hornetq.api.core.SimpleString;
+import org.hornetq.core.journal.EncodingSupport;
 import org.hornetq.core.journal.SequentialFile;
 import org.hornetq.core.journal.SequentialFileFactory;
 import org.hornetq.core.paging.PagedMessage;
@@ -135,46 +136,20 @@ public class Page implements Comparable<Page>
          {
             final int position = fileBuffer.readerIndex();
 
-            byte byteRead = fileBuffer.readByte();
-
-            if (byteRead == Page.START_BYTE)
-            {
-               if (fileBuffer.readerIndex() + DataConstants.SIZE_INT < fileBuffer.capacity())
-               {
-                  int messageSize = fileBuffer.readInt();
-                  int oldPos = fileBuffer.readerIndex();
-                  if (fileBuffer.readerIndex() + messageSize < fileBuffer.capacity() &&
-                           fileBuffer.getByte(oldPos + messageSize) == Page.END_BYTE)
-                  {
-                     PagedMessage msg = new PagedMessageImpl();
-                     msg.decode(fileBuffer);
-                     byte b = fileBuffer.readByte();
-                     if (b != Page.END_BYTE)
-                     {
-                        // Sanity Check: This would only happen if there is a bug on decode or any internal code, as
-                        // this
-                        // constraint was already checked
-                        throw new IllegalStateException("Internal error, it wasn't possible to locate END_BYTE " + b);
-                     }
-                     msg.initMessage(storage);
-                     if (isTrace)
-                     {
-                        HornetQServerLogger.LOGGER.trace("Reading message " + msg + " on pageId=" + this.pageId + " for address=" + storeName);
-                     }
-                     messages.add(msg);
-                  }
-                  else
-                  {
-                     markFileAsSuspect(position, messages.size());
-                     break;
-                  }
-               }
-            }
-            else
+            if (!PageRecord.isComplete(fileBuffer))
             {
                markFileAsSuspect(position, messages.size());
                break;
             }
+
+            PagedMessage msg = new PagedMessageImpl();
+            new PageRecord(msg).decode(fileBuffer);
+            msg.initMessage(storage);
+            if (isTrace)
+            {
+               HornetQServerLogger.LOGGER.trace("Reading message " + msg + " on pageId=" + this.pageId + " for address=" + storeName);
+            }
+            messages.add(msg);
          }
       }
       finally
@@ -195,22 +170,10 @@ public class Page implements Comparable<Page>
          return;
       }
 
-      ByteBuffer buffer = fileFactory.newBuffer(message.getEncodeSize() + Page.SIZE_RECORD);
-
-      HornetQBuffer wrap = HornetQBuffers.wrappedBuffer(buffer);
-      wrap.clear();
-
-      wrap.writeByte(Page.START_BYTE);
-      wrap.writeInt(0);
-      int startIndex = wrap.writerIndex();
-      message.encode(wrap);
-      int endIndex = wrap.writerIndex();
-      wrap.setInt(1, endIndex - startIndex); // The encoded length
-      wrap.writeByte(Page.END_BYTE);
+      PageRecord record = new PageRecord(message);
 
-      buffer.rewind();
-
-      file.writeDirect(buffer, false);
+      // the file encodes the record where it suits it best, straight into the file when memory mapped
+      file.write(record, false);
 
       if (pageCache != null)
       {
@@ -218,7 +181,7 @@ public class Page implements Comparable<Page>
       }
 
       numberOfMessages.incrementAndGet();
-      size.addAndGet(buffer.limit());
+      size.addAndGet(record.getEncodeSize());
 
       storageManager.pageWrite(message, pageId);
    }
@@ -383,4 +346,78 @@ public class Page implements Comparable<Page>
    {
       return file;
    }
+
+   // Inner classes -------------------------------------------------
+
+   /**
+    * A paged message framed by {@link Page#START_BYTE}, its encoded length and {@link Page#END_BYTE}.
+    */
+   private static final class PageRecord implements EncodingSupport
+   {
+      private final PagedMessage message;
+
+      PageRecord(final PagedMessage message)
+      {
+         this.message = message;
+      }
+
+      public int getEncodeSize()
+      {
+         return message.getEncodeSize() + Page.SIZE_RECORD;
+      }
+
+      public void encode(final HornetQBuffer buffer)
+      {
+         buffer.writeByte(Page.START_BYTE);
+         int lengthIndex = buffer.writerIndex();
+         buffer.writeInt(0);
+         int startIndex = buffer.writerIndex();
+         message.encode(buffer);
+         int endIndex = buffer.writerIndex();
+         buffer.setInt(lengthIndex, endIndex - startIndex); // The encoded length
+         buffer.writeByte(Page.END_BYTE);
+      }
+
+      /**
+       * Whether a whole record starts at the reader index of the buffer, a partially written record is left at the end
+       * of a page that wasn't closed properly.
+       */
+      static boolean isComplete(final HornetQBuffer buffer)
+      {
+         int position = buffer.readerIndex();
+         if (buffer.getByte(position) != Page.START_BYTE ||
+             position + 1 + DataConstants.SIZE_INT >= buffer.capacity())
+         {
+            return false;
+         }
+         int length = buffer.getInt(position + 1);
+         int endPosition = position + 1 + DataConstants.SIZE_INT + length;
+         return length >= 0 && endPosition < buffer.capacity() && buffer.getByte(endPosition) == Page.END_BYTE;
+      }
+
+      /**
+       * Decodes a record written by {@link #encode(HornetQBuffer)} into the message given to the constructor.
+       */
+      public void decode(final HornetQBuffer buffer)
+      {
+         byte startByte = buffer.readByte();
+         if (startByte != Page.START_BYTE)
+         {
+            throw new IllegalStateException("Invalid page record, START_BYTE expected but was " + startByte);
+         }
+         int length = buffer.readInt();
+         int startIndex = buffer.readerIndex();
+         message.decode(buffer);
+         if (buffer.readerIndex() - startIndex != length)
+         {
+            throw new IllegalStateException("Invalid page record, " + length + " bytes expected but " +
+                                            (buffer.readerIndex() - startIndex) + " were decoded");
+         }
+         byte endByte = buffer.readByte();
+         if (endByte != Page.END_BYTE)
+         {
+            throw new IllegalStateException("Invalid page record, END_BYTE expected but was " + endByte);
+         }
+      }
+   }
 }
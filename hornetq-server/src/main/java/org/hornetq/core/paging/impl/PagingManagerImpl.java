@@ -18,6 +18,7 @@ import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 import org.hornetq.api.core.SimpleString;
@@ -25,6 +26,7 @@ import org.hornetq.core.paging.PageTransactionInfo;
 import org.hornetq.core.paging.PagingManager;
 import org.hornetq.core.paging.PagingStore;
 import org.hornetq.core.paging.PagingStoreFactory;
+import org.hornetq.core.paging.cursor.PageCursorProvider;
 import org.hornetq.core.persistence.StorageManager;
 import org.hornetq.core.postoffice.PostOffice;
 import org.hornetq.core.server.HornetQServerLogger;
@@ -66,6 +68,13 @@ public class PagingManagerImpl implements PagingManager
    private final ConcurrentMap</*TransactionID*/Long, PageTransactionInfo> transactions =
             new ConcurrentHashMap<Long, PageTransactionInfo>();
 
+   private final long globalPageCacheMaxSize;
+
+   private final AtomicLong pageCacheSize = new AtomicLong(0);
+
+   /** only one thread evicts from the page caches of the stores at a time */
+   private final Object pageCacheEvictionLock = new Object();
+
    // Static
    // --------------------------------------------------------------------------------------------------------------------------
 
@@ -77,11 +86,20 @@ public class PagingManagerImpl implements PagingManager
    public PagingManagerImpl(final PagingStoreFactory pagingSPI,
                             final StorageManager storageManager,
                             final HierarchicalRepository<AddressSettings> addressSettingsRepository)
+   {
+      this(pagingSPI, storageManager, addressSettingsRepository, -1);
+   }
+
+   public PagingManagerImpl(final PagingStoreFactory pagingSPI,
+                            final StorageManager storageManager,
+                            final HierarchicalRepository<AddressSettings> addressSettingsRepository,
+                            final long globalPageCacheMaxSize)
    {
       pagingStoreFactory = pagingSPI;
       this.addressSettingsRepository = addressSettingsRepository;
       addressSettingsRepository.registerListener(this);
       this.storageManager = storageManager;
+      this.globalPageCacheMaxSize = globalPageCacheMaxSize;
    }
 
    @Override
@@ -280,6 +298,21 @@ public class PagingManagerImpl implements PagingManager
       }
    }
 
+   public void addPageCacheSize(final long delta)
+   {
+      long size = pageCacheSize.addAndGet(delta);
+
+      if (delta > 0 && globalPageCacheMaxSize > 0 && size > globalPageCacheMaxSize)
+      {
+         evictPageCaches();
+      }
+   }
+
+   public long getPageCacheSize()
+   {
+      return pageCacheSize.get();
+   }
+
    public void unlock()
    {
       syncLock.writeLock().unlock();
@@ -290,4 +323,42 @@ public class PagingManagerImpl implements PagingManager
       syncLock.writeLock().lock();
    }
 
+   // Private -------------------------------------------------------
+
+   /**
+    * Evicts the least recently used page of all the stores until the page caches are back under the
+    * global-page-cache-max-size. The stores shrinking call back {@link #addPageCacheSize(long)}.
+    */
+   private void evictPageCaches()
+   {
+      synchronized (pageCacheEvictionLock)
+      {
+         while (pageCacheSize.get() > globalPageCacheMaxSize)
+         {
+            PageCursorProvider leastRecent = null;
+
+            long leastRecentAccess = Long.MAX_VALUE;
+
+            for (PagingStore store : stores.values())
+            {
+               PageCursorProvider provider = store.getCursorProvider();
+
+               long access = provider.getLeastRecentCacheAccess();
+
+               if (access < leastRecentAccess)
+               {
+                  leastRecent = provider;
+                  leastRecentAccess = access;
+               }
+            }
+
+            if (leastRecent == null || !leastRecent.evictLeastRecentCache())
+            {
+               // nothing else can be evicted, every store keeps the page it's reading
+               break;
+            }
+         }
+      }
+   }
+
 }
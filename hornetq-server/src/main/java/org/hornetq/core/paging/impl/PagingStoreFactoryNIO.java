@@ -28,6 +28,7 @@ import java.util.concurrent.ScheduledExecutorService;
 import org.hornetq.api.core.SimpleString;
 import org.hornetq.core.journal.IOCriticalErrorListener;
 import org.hornetq.core.journal.SequentialFileFactory;
+import org.hornetq.core.journal.impl.MappedSequentialFileFactory;
 import org.hornetq.core.journal.impl.NIOSequentialFileFactory;
 import org.hornetq.core.paging.PagingManager;
 import org.hornetq.core.paging.PagingStore;
@@ -73,6 +74,9 @@ public class PagingStoreFactoryNIO implements PagingStoreFactory
 
    private final IOCriticalErrorListener critialErrorListener;
 
+   /** if the page files should be written through memory mapped files instead of a FileChannel */
+   private final boolean mappedFiles;
+
    // Static --------------------------------------------------------
 
    // Constructors --------------------------------------------------
@@ -92,6 +96,17 @@ public class PagingStoreFactoryNIO implements PagingStoreFactory
                                 final ExecutorFactory executorFactory,
                                 final boolean syncNonTransactional,
                                 final IOCriticalErrorListener critialErrorListener)
+   {
+      this(directory, syncTimeout, scheduledExecutor, executorFactory, syncNonTransactional, critialErrorListener, false);
+   }
+
+   public PagingStoreFactoryNIO(final String directory,
+                                final long syncTimeout,
+                                final ScheduledExecutorService scheduledExecutor,
+                                final ExecutorFactory executorFactory,
+                                final boolean syncNonTransactional,
+                                final IOCriticalErrorListener critialErrorListener,
+                                final boolean mappedFiles)
    {
       this.directory = directory;
 
@@ -104,6 +119,8 @@ public class PagingStoreFactoryNIO implements PagingStoreFactory
       this.syncTimeout = syncTimeout;
 
       this.critialErrorListener = critialErrorListener;
+
+      this.mappedFiles = mappedFiles;
    }
 
    // Public --------------------------------------------------------
@@ -243,6 +260,10 @@ public class PagingStoreFactoryNIO implements PagingStoreFactory
 
    protected SequentialFileFactory newFileFactory(final String directoryName)
    {
+      if (mappedFiles)
+      {
+         return new MappedSequentialFileFactory(directory + File.separatorChar + directoryName, false, critialErrorListener);
+      }
       return new NIOSequentialFileFactory(directory + File.separatorChar + directoryName, false, critialErrorListener);
    }
 
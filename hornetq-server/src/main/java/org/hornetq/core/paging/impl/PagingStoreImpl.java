@@ -182,7 +182,8 @@ public class PagingStoreImpl implements PagingStore
       this.cursorProvider = new PageCursorProviderImpl(this,
          this.storageManager,
          executor,
-         addressSettings.getPageCacheMaxSize());
+         addressSettings.getPageCacheMaxSize(),
+         addressSettings.getPageCacheMaxSizeBytes());
 
    }
 
@@ -200,6 +201,7 @@ public class PagingStoreImpl implements PagingStore
       if (cursorProvider != null)
       {
          cursorProvider.setCacheMaxSize(addressSettings.getPageCacheMaxSize());
+         cursorProvider.setCacheMaxSizeBytes(addressSettings.getPageCacheMaxSizeBytes());
       }
    }
 
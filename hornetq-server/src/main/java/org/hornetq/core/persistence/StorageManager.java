@@ -24,6 +24,7 @@ import javax.transaction.xa.Xid;
 import org.hornetq.api.core.SimpleString;
 import org.hornetq.core.journal.IOAsyncTask;
 import org.hornetq.core.journal.Journal;
+import org.hornetq.core.journal.JournalBuffer;
 import org.hornetq.core.journal.JournalLoadInformation;
 import org.hornetq.core.journal.SequentialFile;
 import org.hornetq.core.message.impl.MessageInternal;
@@ -286,6 +287,11 @@ public interface StorageManager extends HornetQComponent
     */
    Journal getMessageJournal();
 
+   /**
+    * @return the buffer the message journal is written through, or {@code null} if it's not buffered
+    */
+   JournalBuffer getMessageJournalBuffer();
+
    /**
     * @see JournalStorageManager#startReplication(ReplicationManager, PagingManager, String,
     *      boolean)
@@ -29,10 +29,13 @@ import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.Semaphore;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 
@@ -51,6 +54,7 @@ import org.hornetq.core.journal.EncodingSupport;
 import org.hornetq.core.journal.IOAsyncTask;
 import org.hornetq.core.journal.IOCriticalErrorListener;
 import org.hornetq.core.journal.Journal;
+import org.hornetq.core.journal.JournalBuffer;
 import org.hornetq.core.journal.JournalLoadInformation;
 import org.hornetq.core.journal.PreparedTransactionInfo;
 import org.hornetq.core.journal.RecordInfo;
@@ -61,6 +65,7 @@ import org.hornetq.core.journal.impl.AIOSequentialFileFactory;
 import org.hornetq.core.journal.impl.JournalFile;
 import org.hornetq.core.journal.impl.JournalImpl;
 import org.hornetq.core.journal.impl.JournalReaderCallback;
+import org.hornetq.core.journal.impl.MappedSequentialFileFactory;
 import org.hornetq.core.journal.impl.NIOSequentialFileFactory;
 import org.hornetq.core.message.impl.MessageInternal;
 import org.hornetq.core.paging.PageTransactionInfo;
@@ -217,6 +222,8 @@ public class JournalStorageManager implements StorageManager
 
    private final SequentialFileFactory largeMessagesFactory;
 
+   private final LargeMessageContentStore largeMessageContents = new LargeMessageContentStore();
+
    private volatile boolean started;
 
    /** Used to create Operation Contexts */
@@ -242,6 +249,9 @@ public class JournalStorageManager implements StorageManager
 
    private final String largeMessagesDirectory;
 
+   /** threads used to decode the message journal and to reload the queues on startup */
+   private final int loadThreads;
+
    private boolean journalLoaded = false;
 
    // Persisted core configuration
@@ -263,7 +273,8 @@ public class JournalStorageManager implements StorageManager
 
       executor = executorFactory.getExecutor();
 
-      if (config.getJournalType() != JournalType.NIO && config.getJournalType() != JournalType.ASYNCIO)
+      if (config.getJournalType() != JournalType.NIO && config.getJournalType() != JournalType.ASYNCIO &&
+          config.getJournalType() != JournalType.MAPPED)
       {
          throw HornetQMessageBundle.BUNDLE.invalidJournal();
       }
@@ -323,14 +334,29 @@ public class JournalStorageManager implements StorageManager
             config.isLogJournalWriteRate(),
             criticalErrorListener);
       }
+      else if (config.getJournalType() == JournalType.MAPPED)
+      {
+         HornetQServerLogger.LOGGER.journalUseMapped();
+         journalFF = new MappedSequentialFileFactory(journalDir,
+            true,
+            config.getJournalBufferSize_NIO(),
+            config.getJournalBufferTimeout_NIO(),
+            config.isLogJournalWriteRate(),
+            criticalErrorListener);
+      }
       else
       {
          throw HornetQMessageBundle.BUNDLE.invalidJournalType2(config.getJournalType());
       }
 
+      if (journalFF.getJournalBuffer() != null)
+      {
+         journalFF.getJournalBuffer().setAdaptive(config.isJournalBufferTimeoutAdaptive());
+      }
+
       idGenerator = new BatchingIDGenerator(0, JournalStorageManager.CHECKPOINT_BATCH_SIZE, this);
 
-      Journal localMessage = new JournalImpl(config.getJournalFileSize(),
+      JournalImpl localMessage = new JournalImpl(config.getJournalFileSize(),
          config.getJournalMinFiles(),
          config.getJournalCompactMinFiles(),
          config.getJournalCompactPercentage(),
@@ -340,6 +366,12 @@ public class JournalStorageManager implements StorageManager
          config.getJournalType() == JournalType.ASYNCIO ? config.getJournalMaxIO_AIO()
             : config.getJournalMaxIO_NIO());
 
+      loadThreads = config.getJournalLoadThreads();
+
+      localMessage.setLoadThreads(loadThreads);
+
+      localMessage.setCompactMaxRate(config.getJournalCompactMaxRate());
+
       messageJournal = localMessage;
       originalMessageJournal = localMessage;
 
@@ -761,6 +793,9 @@ public class JournalStorageManager implements StorageManager
 
          largeMessage.copyHeadersAndProperties(message);
 
+         // A message received back from a consumer has a file of its own
+         largeMessage.removeProperty(LargeServerMessageImpl.HDR_LARGE_CONTENT_ID);
+
          largeMessage.setMessageID(id);
 
          if (largeMessage.isDurable())
@@ -1467,11 +1502,17 @@ public class JournalStorageManager implements StorageManager
       readLock();
       try
       {
+         // The shared large message files are counted again from the messages loaded
+         largeMessageContents.clear();
+
+         long loadStart = System.currentTimeMillis();
 
          JournalLoadInformation info = messageJournal.load(records,
             preparedTransactions,
             new LargeMessageTXFailureCallback(messages));
 
+         long journalTime = System.currentTimeMillis() - loadStart;
+
          ArrayList<LargeServerMessage> largeMessages = new ArrayList<LargeServerMessage>();
 
          Map<Long, Map<Long, AddMessageRecord>> queueMap = new HashMap<Long, Map<Long, AddMessageRecord>>();
@@ -1516,6 +1557,8 @@ public class JournalStorageManager implements StorageManager
                {
                   LargeServerMessage largeMessage = parseLargeMessage(messages, buff);
 
+                  addLargeMessageReference(largeMessage);
+
                   messages.put(record.id, largeMessage);
 
                   largeMessages.add(largeMessage);
@@ -1802,6 +1845,12 @@ public class JournalStorageManager implements StorageManager
          records.clear();
          records = null;
 
+         long recordsTime = System.currentTimeMillis() - loadStart - journalTime;
+
+         long rebuildStart = System.currentTimeMillis();
+
+         List<Callable<Void>> queueReloads = new ArrayList<Callable<Void>>(queueMap.size());
+
          for (Map.Entry<Long, Map<Long, AddMessageRecord>> entry : queueMap.entrySet())
          {
             long queueID = entry.getKey();
@@ -1820,39 +1869,18 @@ public class JournalStorageManager implements StorageManager
                continue;
             }
 
-            // Redistribution could install a Redistributor while we are still loading records, what will be an issue with
-            // prepared ACKs
-            // We make sure te Queue is paused before we reroute values.
-            queue.pause();
-
-            Collection<AddMessageRecord> valueRecords = queueRecords.values();
-
-            long currentTime = System.currentTimeMillis();
-
-            for (AddMessageRecord record : valueRecords)
-            {
-               long scheduledDeliveryTime = record.scheduledDeliveryTime;
-
-               if (scheduledDeliveryTime != 0 && scheduledDeliveryTime <= currentTime)
-               {
-                  scheduledDeliveryTime = 0;
-                  record.message.removeProperty(Message.HDR_SCHEDULED_DELIVERY_TIME);
-               }
-
-               if (scheduledDeliveryTime != 0)
-               {
-                  record.message.putLongProperty(Message.HDR_SCHEDULED_DELIVERY_TIME, scheduledDeliveryTime);
-               }
+            queueReloads.add(new QueueReload(postOffice, queue, queueRecords.values()));
+         }
 
-               MessageReference ref = postOffice.reroute(record.message, queue, null);
+         reloadQueues(queueReloads);
 
-               ref.setDeliveryCount(record.deliveryCount);
+         long rebuildTime = System.currentTimeMillis() - rebuildStart;
 
-               if (scheduledDeliveryTime != 0)
-               {
-                  record.message.removeProperty(Message.HDR_SCHEDULED_DELIVERY_TIME);
-               }
-            }
+         if (HornetQServerLogger.LOGGER.isDebugEnabled())
+         {
+            HornetQServerLogger.LOGGER.debug("Message journal loaded with " + loadThreads + " thread(s): journal = " +
+                                             journalTime + " ms, records = " + recordsTime + " ms, " +
+                                             queueReloads.size() + " queues rebuilt in " + rebuildTime + " ms");
          }
 
          loadPreparedTransactions(postOffice,
@@ -2332,6 +2360,11 @@ public class JournalStorageManager implements StorageManager
       return messageJournal;
    }
 
+   public JournalBuffer getMessageJournalBuffer()
+   {
+      return journalFF.getJournalBuffer();
+   }
+
    public Journal getBindingsJournal()
    {
       return bindingsJournal;
@@ -2340,13 +2373,8 @@ public class JournalStorageManager implements StorageManager
    // Package protected ---------------------------------------------
 
    // This should be accessed from this package only
-   void deleteLargeMessageFile(final LargeServerMessage largeServerMessageImpl) throws HornetQException
+   void deleteLargeMessageFile(final SequentialFile file, final long contentID)
    {
-      final SequentialFile file = largeServerMessageImpl.getFile();
-      if (file == null)
-      {
-         return;
-      }
       Runnable deleteAction = new Runnable()
       {
          public void run()
@@ -2358,7 +2386,7 @@ public class JournalStorageManager implements StorageManager
                {
                   if (replicator != null)
                   {
-                     replicator.largeMessageDelete(largeServerMessageImpl.getMessageID());
+                     replicator.largeMessageDelete(contentID);
                   }
                   file.delete();
                }
@@ -2369,7 +2397,7 @@ public class JournalStorageManager implements StorageManager
             }
             catch (Exception e)
             {
-               HornetQServerLogger.LOGGER.journalErrorDeletingMessage(e, largeServerMessageImpl.getMessageID());
+               HornetQServerLogger.LOGGER.journalErrorDeletingMessage(e, contentID);
             }
          }
 
@@ -2385,6 +2413,33 @@ public class JournalStorageManager implements StorageManager
       }
    }
 
+   /**
+    * Records that a copy of a large message reads the file of the message it was copied from.
+    */
+   void shareLargeMessageContent(final long contentID, final long messageID, final long copyID)
+   {
+      largeMessageContents.addReference(contentID, messageID);
+      largeMessageContents.addReference(contentID, copyID);
+   }
+
+   /**
+    * @return whether a large message reads the file of the content along with other messages
+    */
+   boolean isLargeMessageContentShared(final long contentID, final long messageID)
+   {
+      return largeMessageContents.isShared(contentID, messageID);
+   }
+
+   /**
+    * Releases the reference of a large message to the file it reads its body from.
+    *
+    * @return whether the file is not read by any other message and can be deleted
+    */
+   boolean releaseLargeMessageContent(final long contentID, final long messageID)
+   {
+      return largeMessageContents.removeReference(contentID, messageID);
+   }
+
    SequentialFile createFileForLargeMessage(final long messageID, final boolean durable)
    {
       if (durable)
@@ -2445,7 +2500,9 @@ public class JournalStorageManager implements StorageManager
          // for compatibility: couple with old behaviour, copying the old file to avoid message loss
          long originalMessageID = largeMessage.getLongProperty(Message.HDR_ORIG_MESSAGE_ID);
 
-         SequentialFile currentFile = createFileForLargeMessage(largeMessage.getMessageID(), true);
+         // a copy sharing the file of another message doesn't have a file of its own
+         SequentialFile currentFile =
+                  createFileForLargeMessage(((LargeServerMessageImpl)largeMessage).getContentID(), true);
 
          if (!currentFile.exists())
          {
@@ -2463,6 +2520,55 @@ public class JournalStorageManager implements StorageManager
       return largeMessage;
    }
 
+   private void addLargeMessageReference(final LargeServerMessage largeMessage)
+   {
+      largeMessageContents.addReference(((LargeServerMessageImpl)largeMessage).getContentID(),
+                                        largeMessage.getMessageID());
+   }
+
+   /**
+    * Reloads the messages of each queue. Queues are independent from each other so they are rebuilt in
+    * parallel when more than one load thread is configured.
+    */
+   private void reloadQueues(final List<Callable<Void>> queueReloads) throws Exception
+   {
+      if (loadThreads <= 1 || queueReloads.size() <= 1)
+      {
+         for (Callable<Void> reload : queueReloads)
+         {
+            reload.call();
+         }
+         return;
+      }
+
+      ExecutorService loadExecutor = Executors.newFixedThreadPool(Math.min(loadThreads, queueReloads.size()),
+                                                                  new HornetQThreadFactory("HornetQ-Journal-Load",
+                                                                                           true,
+                                                                                           getThisClassLoader()));
+      try
+      {
+         for (Future<Void> future : loadExecutor.invokeAll(queueReloads))
+         {
+            try
+            {
+               future.get();
+            }
+            catch (ExecutionException e)
+            {
+               if (e.getCause() instanceof Exception)
+               {
+                  throw (Exception)e.getCause();
+               }
+               throw new HornetQIllegalStateException(e.getCause().getMessage());
+            }
+         }
+      }
+      finally
+      {
+         loadExecutor.shutdownNow();
+      }
+   }
+
    private void loadPreparedTransactions(final PostOffice postOffice,
                                          final PagingManager pagingManager,
                                          final ResourceManager resourceManager,
@@ -2502,7 +2608,11 @@ public class JournalStorageManager implements StorageManager
             {
                case ADD_LARGE_MESSAGE:
                {
-                  messages.put(record.id, parseLargeMessage(messages, buff));
+                  LargeServerMessage largeMessage = parseLargeMessage(messages, buff);
+
+                  addLargeMessageReference(largeMessage);
+
+                  messages.put(record.id, largeMessage);
 
                   break;
                }
@@ -3553,6 +3663,63 @@ public class JournalStorageManager implements StorageManager
       int deliveryCount;
    }
 
+   private static final class QueueReload implements Callable<Void>
+   {
+      private final PostOffice postOffice;
+
+      private final Queue queue;
+
+      private final Collection<AddMessageRecord> records;
+
+      QueueReload(final PostOffice postOffice, final Queue queue, final Collection<AddMessageRecord> records)
+      {
+         this.postOffice = postOffice;
+         this.queue = queue;
+         this.records = records;
+      }
+
+      public Void call() throws Exception
+      {
+         // Redistribution could install a Redistributor while we are still loading records, what will be an issue with
+         // prepared ACKs
+         // We make sure te Queue is paused before we reroute values.
+         queue.pause();
+
+         long currentTime = System.currentTimeMillis();
+
+         for (AddMessageRecord record : records)
+         {
+            // the same message may be routed to several queues being reloaded at the same time
+            synchronized (record.message)
+            {
+               long scheduledDeliveryTime = record.scheduledDeliveryTime;
+
+               if (scheduledDeliveryTime != 0 && scheduledDeliveryTime <= currentTime)
+               {
+                  scheduledDeliveryTime = 0;
+                  record.message.removeProperty(Message.HDR_SCHEDULED_DELIVERY_TIME);
+               }
+
+               if (scheduledDeliveryTime != 0)
+               {
+                  record.message.putLongProperty(Message.HDR_SCHEDULED_DELIVERY_TIME, scheduledDeliveryTime);
+               }
+
+               MessageReference ref = postOffice.reroute(record.message, queue, null);
+
+               ref.setDeliveryCount(record.deliveryCount);
+
+               if (scheduledDeliveryTime != 0)
+               {
+                  record.message.removeProperty(Message.HDR_SCHEDULED_DELIVERY_TIME);
+               }
+            }
+         }
+
+         return null;
+      }
+   }
+
    public static class CursorAckRecordEncoding implements EncodingSupport
    {
       public CursorAckRecordEncoding(final long queueID, final PagePosition position)
@@ -0,0 +1,97 @@
+/*
+ * Copyright 2009 Red Hat, Inc.
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package org.hornetq.core.persistence.impl.journal;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Keeps track of the large messages reading their body from the same file.
+ * <p>
+ * A copy of a large message doesn't get a copy of the file, it reads the file of the message it was copied from. The
+ * ID of that message is the content ID of the copy. The file is deleted once none of the messages sharing it is
+ * referenced anymore.
+ * <p>
+ * Only the contents which are shared are tracked: a message whose content is not tracked owns its file. The messages
+ * of the page files are never tracked, as they aren't loaded when the server starts.
+ */
+final class LargeMessageContentStore
+{
+   // Attributes ----------------------------------------------------
+
+   private final Map<Long, Set<Long>> references = new HashMap<Long, Set<Long>>();
+
+   // Package protected ---------------------------------------------
+
+   /**
+    * Records that the message reads its body from the file of the content.
+    */
+   synchronized void addReference(final long contentID, final long messageID)
+   {
+      Set<Long> messages = references.get(contentID);
+
+      if (messages == null)
+      {
+         messages = new HashSet<Long>();
+
+         references.put(contentID, messages);
+      }
+
+      messages.add(messageID);
+   }
+
+   /**
+    * Removes the reference of the message to the content. Removing it more than once has no effect.
+    *
+    * @return whether the file of the content can be deleted, i.e. no other message reads it
+    */
+   synchronized boolean removeReference(final long contentID, final long messageID)
+   {
+      Set<Long> messages = references.get(contentID);
+
+      if (messages == null)
+      {
+         // A message whose content isn't tracked is the only one reading its file, e.g. a paged message
+         return true;
+      }
+
+      messages.remove(messageID);
+
+      if (messages.isEmpty())
+      {
+         references.remove(contentID);
+
+         return true;
+      }
+
+      return false;
+   }
+
+   /**
+    * @return whether the message reads the file of the content along with other messages
+    */
+   synchronized boolean isShared(final long contentID, final long messageID)
+   {
+      Set<Long> messages = references.get(contentID);
+
+      return messages != null && messages.size() > 1 && messages.contains(messageID);
+   }
+
+   synchronized void clear()
+   {
+      references.clear();
+   }
+}
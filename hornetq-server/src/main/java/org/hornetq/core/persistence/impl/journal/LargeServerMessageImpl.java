@@ -14,6 +14,7 @@
 package org.hornetq.core.persistence.impl.journal;
 
 import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import org.hornetq.api.core.HornetQBuffer;
@@ -21,9 +22,12 @@ import org.hornetq.api.core.HornetQException;
 import org.hornetq.api.core.HornetQExceptionType;
 import org.hornetq.api.core.HornetQInternalErrorException;
 import org.hornetq.api.core.Message;
+import org.hornetq.api.core.SimpleString;
 import org.hornetq.core.journal.SequentialFile;
+import org.hornetq.core.journal.impl.NIOSequentialFile;
 import org.hornetq.core.message.BodyEncoder;
 import org.hornetq.core.server.HornetQServerLogger;
+import org.hornetq.core.server.LargeBodyEncoder;
 import org.hornetq.core.server.LargeServerMessage;
 import org.hornetq.core.server.ServerMessage;
 import org.hornetq.core.server.impl.ServerMessageImpl;
@@ -39,6 +43,12 @@ public final class LargeServerMessageImpl extends ServerMessageImpl implements L
    // Constants -----------------------------------------------------
    private static boolean isTrace = HornetQServerLogger.LOGGER.isTraceEnabled();
 
+   /**
+    * Set on a message which doesn't read its body from the file named after its own ID, the ID of that file: the ID
+    * of the message a copy shares the file of, or a new ID for a paged message which had its file copied.
+    */
+   static final SimpleString HDR_LARGE_CONTENT_ID = new SimpleString("_HQ_LARGE_CONTENT_ID");
+
    // Attributes ----------------------------------------------------
 
    private final JournalStorageManager storageManager;
@@ -97,9 +107,67 @@ public final class LargeServerMessageImpl extends ServerMessageImpl implements L
       return this.pendingRecordID;
    }
 
-   public void setPaged()
+   /**
+    * A message sharing its file with other messages gets a copy of the file when it is paged, as the shared files are
+    * only counted from the messages of the journal. The file named after the original message is left to the other
+    * messages, so the original takes a new content ID.
+    */
+   public synchronized void setPaged()
    {
       paged = true;
+
+      long contentID = getContentID();
+
+      if (storageManager.isLargeMessageContentShared(contentID, messageID))
+      {
+         try
+         {
+            SequentialFile sharedFile = createFile();
+
+            if (contentID == messageID)
+            {
+               putLongProperty(HDR_LARGE_CONTENT_ID, storageManager.generateUniqueID());
+
+               if (pendingRecordID >= 0)
+               {
+                  // The shared file is kept by the copies, which were stored with it
+                  storageManager.confirmPendingLargeMessage(pendingRecordID);
+                  pendingRecordID = -1;
+               }
+            }
+            else
+            {
+               removeProperty(HDR_LARGE_CONTENT_ID);
+            }
+
+            copyFrom(sharedFile);
+
+            finishCopy();
+
+            if (storageManager.releaseLargeMessageContent(contentID, messageID))
+            {
+               storageManager.deleteLargeMessageFile(sharedFile, contentID);
+            }
+         }
+         catch (Exception e)
+         {
+            throw new RuntimeException(e.getMessage(), e);
+         }
+      }
+   }
+
+   /**
+    * Returns the ID of the file which holds the body of this message, which is the ID of this message unless it is a
+    * copy sharing the file of another message or an original which was given a copy of its file when it was paged.
+    */
+   public long getContentID()
+   {
+      if (containsProperty(HDR_LARGE_CONTENT_ID))
+      {
+         return getLongProperty(HDR_LARGE_CONTENT_ID);
+      }
+
+      return messageID;
    }
 
    @Override
@@ -237,9 +305,18 @@ public final class LargeServerMessageImpl extends ServerMessageImpl implements L
    @Override
    public synchronized void deleteFile() throws Exception
    {
-      validateFile();
-      releaseResources();
-      storageManager.deleteLargeMessageFile(this);
+      long contentID = getContentID();
+      if (storageManager.releaseLargeMessageContent(contentID, messageID))
+      {
+         validateFile();
+         releaseResources();
+         storageManager.deleteLargeMessageFile(file, contentID);
+      }
+      else
+      {
+         // Other messages still read the file
+         releaseResources();
+      }
       if (pendingRecordID >= 0)
       {
          storageManager.confirmPendingLargeMessage(pendingRecordID);
@@ -249,7 +326,7 @@ public final class LargeServerMessageImpl extends ServerMessageImpl implements L
 
    public boolean isFileExists() throws Exception
    {
-      SequentialFile localfile = storageManager.createFileForLargeMessage(getMessageID(), durable);
+      SequentialFile localfile = createFile();
       return localfile.exists();
    }
 
@@ -304,7 +381,7 @@ public final class LargeServerMessageImpl extends ServerMessageImpl implements L
    @Override
    public synchronized ServerMessage copy()
    {
-      SequentialFile newfile = storageManager.createFileForLargeMessage(messageID, durable);
+      SequentialFile newfile = createFile();
 
       ServerMessage newMessage = new LargeServerMessageImpl(this,
                                                             properties,
@@ -328,7 +405,7 @@ public final class LargeServerMessageImpl extends ServerMessageImpl implements L
          SequentialFile copyTo = createFile();
          try
          {
-            this.pendingRecordID = storageManager.storePendingLargeMessage(this.messageID);
+            this.pendingRecordID = storageManager.storePendingLargeMessage(getContentID());
             copyTo.open();
             pendingCopy.open();
             pendingCopy.copyTo(copyTo);
@@ -347,13 +424,27 @@ public final class LargeServerMessageImpl extends ServerMessageImpl implements L
    }
 
    /**
-    * The copy of the file itself will be done later by {@link LargeServerMessageImpl#finishCopy()}
+    * The copy shares the file of this message. A paged message is only known by the page files, so the copy of its
+    * file will be done later by {@link LargeServerMessageImpl#finishCopy()}
     * */
    @Override
    public synchronized ServerMessage copy(final long newID)
    {
       try
       {
+         if (!paged)
+         {
+            long contentID = getContentID();
+
+            LargeServerMessageImpl newMessage = new LargeServerMessageImpl(this, properties, createFile(), newID);
+
+            newMessage.putLongProperty(HDR_LARGE_CONTENT_ID, contentID);
+
+            storageManager.shareLargeMessageContent(contentID, messageID, newID);
+
+            return newMessage;
+         }
+
          SequentialFile newfile = storageManager.createFileForLargeMessage(newID, durable);
 
          LargeServerMessageImpl newMessage = new LargeServerMessageImpl(this,
@@ -428,7 +519,7 @@ public final class LargeServerMessageImpl extends ServerMessageImpl implements L
     */
    protected SequentialFile createFile()
    {
-      return storageManager.createFileForLargeMessage(getMessageID(), durable);
+      return storageManager.createFileForLargeMessage(getContentID(), durable);
    }
 
    protected void openFile() throws Exception
@@ -454,7 +545,7 @@ public final class LargeServerMessageImpl extends ServerMessageImpl implements L
 
    // Inner classes -------------------------------------------------
 
-   class DecodingContext implements BodyEncoder
+   class DecodingContext implements LargeBodyEncoder
    {
       private SequentialFile cFile;
 
@@ -516,6 +607,16 @@ public final class LargeServerMessageImpl extends ServerMessageImpl implements L
          return bytesRead;
       }
 
+      public FileChannel getFileChannel()
+      {
+         if (cFile instanceof NIOSequentialFile)
+         {
+            return ((NIOSequentialFile)cFile).getChannel();
+         }
+
+         return null;
+      }
+
       /* (non-Javadoc)
        * @see org.hornetq.core.message.BodyEncoder#getLargeBodySize()
        */
@@ -27,6 +27,7 @@ import org.hornetq.utils.Pair;
 import org.hornetq.api.core.SimpleString;
 import org.hornetq.core.journal.IOAsyncTask;
 import org.hornetq.core.journal.Journal;
+import org.hornetq.core.journal.JournalBuffer;
 import org.hornetq.core.journal.JournalLoadInformation;
 import org.hornetq.core.journal.SequentialFile;
 import org.hornetq.core.message.impl.MessageInternal;
@@ -544,6 +545,11 @@ public class NullStorageManager implements StorageManager
       return null;
    }
 
+   public JournalBuffer getMessageJournalBuffer()
+   {
+      return null;
+   }
+
    @Override
    public void startReplication(final ReplicationManager replicationManager, final PagingManager pagingManager,
                                 final String nodeID, final boolean autoFailBack) throws Exception
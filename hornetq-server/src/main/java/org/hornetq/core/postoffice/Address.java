@@ -12,7 +12,7 @@
  */
 package org.hornetq.core.postoffice;
 
-import java.util.List;
+import java.util.Collection;
 
 import org.hornetq.api.core.SimpleString;
 
@@ -29,7 +29,7 @@ public interface Address
 
    boolean containsWildCard();
 
-   List<Address> getLinkedAddresses();
+   Collection<Address> getLinkedAddresses();
 
    void addLinkedAddress(Address address);
 
@@ -12,8 +12,9 @@
  */
 package org.hornetq.core.postoffice.impl;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.Set;
 
 import org.hornetq.api.core.SimpleString;
 import org.hornetq.core.postoffice.Address;
@@ -31,7 +32,7 @@ public class AddressImpl implements Address
 
    private boolean containsWildCard;
 
-   private final List<Address> linkedAddresses = new ArrayList<Address>();
+   private final Set<Address> linkedAddresses = new LinkedHashSet<Address>();
 
    public AddressImpl(final SimpleString address)
    {
@@ -55,17 +56,14 @@ public class AddressImpl implements Address
       return containsWildCard;
    }
 
-   public List<Address> getLinkedAddresses()
+   public Collection<Address> getLinkedAddresses()
    {
       return linkedAddresses;
    }
 
    public void addLinkedAddress(final Address address)
    {
-      if(!linkedAddresses.contains(address))
-      {
-         linkedAddresses.add(address);
-      }
+      linkedAddresses.add(address);
    }
 
    public void removeLinkedAddress(final Address actualAddress)
@@ -101,71 +99,43 @@ public class AddressImpl implements Address
       {
          return address.equals(add.getAddress());
       }
-      int pos = 0;
-      int matchPos = 0;
+      return matches(addressParts, 0, add.getAddressParts(), 0);
+   }
 
-      SimpleString nextToMatch;
-      for (; matchPos < add.getAddressParts().length;)
+   /**
+    * a single word wildcard matches one word and an any words wildcard matches zero or more words
+    */
+   private static boolean matches(final SimpleString[] parts,
+                                  final int position,
+                                  final SimpleString[] matchParts,
+                                  final int matchPosition)
+   {
+      int pos = position;
+      for (int matchPos = matchPosition; matchPos < matchParts.length; matchPos++)
       {
-         if (pos >= addressParts.length)
-         {
-            // test for # as last address part
-            return pos + 1 == add.getAddressParts().length && add.getAddressParts()[pos].equals(WildcardAddressManager.ANY_WORDS_SIMPLESTRING);
-         }
-         SimpleString curr = addressParts[pos];
-         SimpleString next = addressParts.length > pos + 1 ? addressParts[pos + 1] : null;
-         SimpleString currMatch = add.getAddressParts()[matchPos];
-         if (currMatch.equals(WildcardAddressManager.SINGLE_WORD_SIMPLESTRING))
-         {
-            pos++;
-            matchPos++;
-         }
-         else if (currMatch.equals(WildcardAddressManager.ANY_WORDS_SIMPLESTRING))
+         SimpleString currMatch = matchParts[matchPos];
+         if (currMatch.equals(WildcardAddressManager.ANY_WORDS_SIMPLESTRING))
          {
-            if (matchPos == addressParts.length - 1)
-            {
-               pos++;
-               matchPos++;
-            }
-            else if (next == null)
+            for (int i = pos; i <= parts.length; i++)
             {
-               return false;
-            }
-            else if (matchPos == add.getAddressParts().length - 1)
-            {
-               return true;
-            }
-            else
-            {
-               nextToMatch = add.getAddressParts()[matchPos + 1];
-               while (curr != null)
-               {
-                  if (curr.equals(nextToMatch))
-                  {
-                     break;
-                  }
-                  pos++;
-                  curr = next;
-                  next = addressParts.length > pos + 1 ? addressParts[pos + 1] : null;
-               }
-               if (curr == null)
+               if (matches(parts, i, matchParts, matchPos + 1))
                {
-                  return false;
+                  return true;
                }
-               matchPos++;
             }
+            return false;
          }
-         else
+         if (pos >= parts.length)
          {
-            if (!curr.equals(currMatch))
-            {
-               return false;
-            }
-            pos++;
-            matchPos++;
+            return false;
+         }
+         if (!currMatch.equals(WildcardAddressManager.SINGLE_WORD_SIMPLESTRING) && !currMatch.equals(parts[pos]))
+         {
+            return false;
          }
+         pos++;
       }
-      return pos == addressParts.length;
+      return pos == parts.length;
    }
 
    @Override
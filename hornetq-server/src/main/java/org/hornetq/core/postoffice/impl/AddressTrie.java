@@ -0,0 +1,204 @@
+/*
+ * Copyright 2009 Red Hat, Inc.
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package org.hornetq.core.postoffice.impl;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+import org.hornetq.api.core.SimpleString;
+import org.hornetq.core.postoffice.Address;
+
+/**
+ * A trie of addresses by their words, used by the {@link WildcardAddressManager} to link the addresses and the
+ * wildcard addresses without comparing them all.
+ * <p>
+ * The trie of the addresses finds the addresses matching a wildcard address and the trie of the wildcard addresses
+ * finds the wildcard addresses matching an address, with the semantics of {@link Address#matches(Address)}: a
+ * {@link WildcardAddressManager#SINGLE_WORD} word matches one word and a {@link WildcardAddressManager#ANY_WORDS}
+ * word matches any number of words.
+ * <p>
+ * It isn't thread safe.
+ */
+final class AddressTrie
+{
+   private final Node root = new Node();
+
+   void put(final Address address)
+   {
+      Node node = root;
+
+      for (SimpleString word : address.getAddressParts())
+      {
+         Node child = node.children.get(word);
+
+         if (child == null)
+         {
+            child = new Node();
+
+            node.children.put(word, child);
+         }
+
+         node = child;
+      }
+
+      node.address = address;
+   }
+
+   void remove(final Address address)
+   {
+      remove(root, address.getAddressParts(), 0);
+   }
+
+   void clear()
+   {
+      root.children.clear();
+
+      root.address = null;
+   }
+
+   /**
+    * Adds the addresses of this trie matching a wildcard address to the set.
+    */
+   void getMatchingAddresses(final Address wildCardAddress, final Set<Address> matching)
+   {
+      collectAddresses(root, wildCardAddress.getAddressParts(), 0, matching);
+   }
+
+   /**
+    * Adds the wildcard addresses of this trie matching an address to the set.
+    */
+   void getMatchingWildCardAddresses(final Address address, final Set<Address> matching)
+   {
+      collectWildCardAddresses(root, address.getAddressParts(), 0, matching);
+   }
+
+   // Private -------------------------------------------------------
+
+   private static void collectAddresses(final Node node,
+                                        final SimpleString[] wildCardParts,
+                                        final int position,
+                                        final Set<Address> matching)
+   {
+      if (position == wildCardParts.length)
+      {
+         if (node.address != null)
+         {
+            matching.add(node.address);
+         }
+
+         return;
+      }
+
+      SimpleString part = wildCardParts[position];
+
+      if (part.equals(WildcardAddressManager.ANY_WORDS_SIMPLESTRING))
+      {
+         // no more words, or one more and still any words
+         collectAddresses(node, wildCardParts, position + 1, matching);
+
+         for (Node child : node.children.values())
+         {
+            collectAddresses(child, wildCardParts, position, matching);
+         }
+      }
+      else if (part.equals(WildcardAddressManager.SINGLE_WORD_SIMPLESTRING))
+      {
+         for (Node child : node.children.values())
+         {
+            collectAddresses(child, wildCardParts, position + 1, matching);
+         }
+      }
+      else
+      {
+         Node child = node.children.get(part);
+
+         if (child != null)
+         {
+            collectAddresses(child, wildCardParts, position + 1, matching);
+         }
+      }
+   }
+
+   private static void collectWildCardAddresses(final Node node,
+                                                final SimpleString[] parts,
+                                                final int position,
+                                                final Set<Address> matching)
+   {
+      Node anyWords = node.children.get(WildcardAddressManager.ANY_WORDS_SIMPLESTRING);
+
+      if (anyWords != null)
+      {
+         for (int i = position; i <= parts.length; i++)
+         {
+            collectWildCardAddresses(anyWords, parts, i, matching);
+         }
+      }
+
+      if (position == parts.length)
+      {
+         if (node.address != null)
+         {
+            matching.add(node.address);
+         }
+
+         return;
+      }
+
+      Node child = node.children.get(WildcardAddressManager.SINGLE_WORD_SIMPLESTRING);
+
+      if (child != null)
+      {
+         collectWildCardAddresses(child, parts, position + 1, matching);
+      }
+
+      child = node.children.get(parts[position]);
+
+      if (child != null)
+      {
+         collectWildCardAddresses(child, parts, position + 1, matching);
+      }
+   }
+
+   /**
+    * @return <code>true</code> if the node is empty and was removed from its parent
+    */
+   private static boolean remove(final Node node, final SimpleString[] parts, final int position)
+   {
+      if (position == parts.length)
+      {
+         node.address = null;
+      }
+      else
+      {
+         Node child = node.children.get(parts[position]);
+
+         if (child != null && remove(child, parts, position + 1))
+         {
+            node.children.remove(parts[position]);
+         }
+      }
+
+      return node.address == null && node.children.isEmpty();
+   }
+
+   // Inner classes -------------------------------------------------
+
+   private static final class Node
+   {
+      private final Map<SimpleString, Node> children = new HashMap<SimpleString, Node>();
+
+      private Address address;
+   }
+}
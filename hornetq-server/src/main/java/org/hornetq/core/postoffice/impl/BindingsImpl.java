@@ -22,6 +22,7 @@ import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.hornetq.api.core.Message;
 import org.hornetq.api.core.SimpleString;
@@ -60,6 +61,11 @@ public class BindingsImpl implements Bindings
 
    private final List<Binding> exclusiveBindings = new CopyOnWriteArrayList<Binding>();
 
+   // rebuilt on the next route after the bindings changed
+   private volatile FilterIndex filterIndex;
+
+   private final AtomicInteger bindingsVersion = new AtomicInteger(0);
+
    private volatile boolean routeWhenNoConsumers;
 
    private final GroupingHandler groupingHandler;
@@ -114,6 +120,8 @@ public class BindingsImpl implements Bindings
          }
 
          bindings.add(binding);
+
+         bindingsVersion.incrementAndGet();
       }
 
       bindingsMap.put(binding.getID(), binding);
@@ -145,6 +153,8 @@ public class BindingsImpl implements Bindings
             {
                routingNameBindingMap.remove(routingName);
             }
+
+            bindingsVersion.incrementAndGet();
          }
       }
 
@@ -288,24 +298,21 @@ public class BindingsImpl implements Bindings
             {
                HornetQServerLogger.LOGGER.trace("Routing message " + message + " on binding=" + this);
             }
-            for (Map.Entry<SimpleString, List<Binding>> entry : routingNameBindingMap.entrySet())
-            {
-               SimpleString routingName = entry.getKey();
-
-               List<Binding> bindings = entry.getValue();
+            FilterIndex index = getFilterIndex();
 
-               if (bindings == null)
-               {
-                  // The value can become null if it's concurrently removed while we're iterating - this is expected
-                  // ConcurrentHashMap behaviour!
-                  continue;
-               }
+            for (SimpleString routingName : index.getUnindexedRoutingNames())
+            {
+               route(message, context, routingName);
+            }
 
-               Binding theBinding = getNextBinding(message, routingName, bindings);
+            SimpleString[] properties = index.getProperties();
 
-               if (theBinding != null)
+            for (int i = 0; i < properties.length; i++)
+            {
+               // only the routing names whose filters may match the value of the property
+               for (SimpleString routingName : index.getRoutingNames(i, message.getObjectProperty(properties[i])))
                {
-                  theBinding.route(message, context);
+                  route(message, context, routingName);
                }
             }
          }
@@ -318,6 +325,52 @@ public class BindingsImpl implements Bindings
       return "BindingsImpl [name=" + name + "]";
    }
 
+   private void route(final ServerMessage message, final RoutingContext context, final SimpleString routingName) throws Exception
+   {
+      List<Binding> bindings = routingNameBindingMap.get(routingName);
+
+      if (bindings == null)
+      {
+         // The routing name can have been removed since the index was built
+         return;
+      }
+
+      Binding theBinding = getNextBinding(message, routingName, bindings);
+
+      if (theBinding != null)
+      {
+         theBinding.route(message, context);
+      }
+   }
+
+   /**
+    * A binding added while routing may not get the message, as when iterating the routingNameBindingMap.
+    */
+   private FilterIndex getFilterIndex()
+   {
+      FilterIndex index = filterIndex;
+
+      if (index == null || index.getVersion() != bindingsVersion.get())
+      {
+         synchronized (this)
+         {
+            index = filterIndex;
+
+            // read before building so the changes done while building are picked on the next route
+            int version = bindingsVersion.get();
+
+            if (index == null || index.getVersion() != version)
+            {
+               index = FilterIndex.build(routingNameBindingMap, version);
+
+               filterIndex = index;
+            }
+         }
+      }
+
+      return index;
+   }
+
    /**
     * This code has a race on the assigned value to routing names.
     * <p>
@@ -0,0 +1,192 @@
+/*
+ * Copyright 2009 Red Hat, Inc.
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package org.hornetq.core.postoffice.impl;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.hornetq.api.core.SimpleString;
+import org.hornetq.core.filter.Filter;
+import org.hornetq.core.filter.impl.FilterImpl;
+import org.hornetq.core.postoffice.Binding;
+
+/**
+ * An immutable index of the routing names of a {@link BindingsImpl} by the values of the message property their
+ * filters require.
+ * <p>
+ * A routing name is indexed when the filters of all its bindings have an equality term
+ * ({@link FilterImpl#getEqualityProperty()}) on the same property. It is then only a candidate for the messages with
+ * one of the values of its filters, the filters still have to be evaluated for the candidates. The other routing
+ * names are candidates for every message.
+ * <p>
+ * A routing name is either unindexed or indexed on one property, so it is returned at most once for a message.
+ */
+final class FilterIndex
+{
+   private static final SimpleString[] NO_ROUTING_NAMES = new SimpleString[0];
+
+   private final int version;
+
+   private final SimpleString[] unindexed;
+
+   private final SimpleString[] properties;
+
+   private final List<Map<SimpleString, SimpleString[]>> routingNamesByValue;
+
+   private FilterIndex(final int version,
+                       final SimpleString[] unindexed,
+                       final SimpleString[] properties,
+                       final List<Map<SimpleString, SimpleString[]>> routingNamesByValue)
+   {
+      this.version = version;
+      this.unindexed = unindexed;
+      this.properties = properties;
+      this.routingNamesByValue = routingNamesByValue;
+   }
+
+   /**
+    * @param version the version of the bindings being indexed, to tell when the index needs rebuilding
+    */
+   static FilterIndex build(final Map<SimpleString, List<Binding>> routingNameBindingMap, final int version)
+   {
+      List<SimpleString> unindexed = new ArrayList<SimpleString>();
+
+      Map<SimpleString, Map<SimpleString, List<SimpleString>>> index = new HashMap<SimpleString, Map<SimpleString, List<SimpleString>>>();
+
+      for (Map.Entry<SimpleString, List<Binding>> entry : routingNameBindingMap.entrySet())
+      {
+         SimpleString routingName = entry.getKey();
+
+         SimpleString property = null;
+
+         Set<SimpleString> values = new HashSet<SimpleString>();
+
+         for (Binding binding : entry.getValue())
+         {
+            Filter filter = binding.getFilter();
+
+            SimpleString bindingProperty = filter instanceof FilterImpl ? ((FilterImpl)filter).getEqualityProperty()
+                                                                       : null;
+
+            if (bindingProperty == null || property != null && !property.equals(bindingProperty))
+            {
+               property = null;
+
+               break;
+            }
+
+            property = bindingProperty;
+
+            values.addAll(((FilterImpl)filter).getEqualityValues());
+         }
+
+         if (property == null)
+         {
+            unindexed.add(routingName);
+
+            continue;
+         }
+
+         Map<SimpleString, List<SimpleString>> routingNames = index.get(property);
+
+         if (routingNames == null)
+         {
+            routingNames = new HashMap<SimpleString, List<SimpleString>>();
+
+            index.put(property, routingNames);
+         }
+
+         for (SimpleString value : values)
+         {
+            List<SimpleString> names = routingNames.get(value);
+
+            if (names == null)
+            {
+               names = new ArrayList<SimpleString>();
+
+               routingNames.put(value, names);
+            }
+
+            names.add(routingName);
+         }
+      }
+
+      SimpleString[] properties = new SimpleString[index.size()];
+
+      List<Map<SimpleString, SimpleString[]>> routingNamesByValue = new ArrayList<Map<SimpleString, SimpleString[]>>(index.size());
+
+      int i = 0;
+
+      for (Map.Entry<SimpleString, Map<SimpleString, List<SimpleString>>> entry : index.entrySet())
+      {
+         properties[i++] = entry.getKey();
+
+         Map<SimpleString, SimpleString[]> routingNames = new HashMap<SimpleString, SimpleString[]>();
+
+         for (Map.Entry<SimpleString, List<SimpleString>> names : entry.getValue().entrySet())
+         {
+            routingNames.put(names.getKey(), names.getValue().toArray(new SimpleString[names.getValue().size()]));
+         }
+
+         routingNamesByValue.add(routingNames);
+      }
+
+      return new FilterIndex(version,
+                             unindexed.toArray(new SimpleString[unindexed.size()]),
+                             properties,
+                             routingNamesByValue);
+   }
+
+   int getVersion()
+   {
+      return version;
+   }
+
+   /**
+    * @return the routing names to consider for every message
+    */
+   SimpleString[] getUnindexedRoutingNames()
+   {
+      return unindexed;
+   }
+
+   /**
+    * @return the properties of the messages to look up the other routing names with
+    */
+   SimpleString[] getProperties()
+   {
+      return properties;
+   }
+
+   /**
+    * @return the routing names to consider for a message with this value for the property at this position of
+    *         {@link #getProperties()}
+    */
+   SimpleString[] getRoutingNames(final int property, final Object value)
+   {
+      if (!(value instanceof SimpleString))
+      {
+         // the equality terms only match strings
+         return NO_ROUTING_NAMES;
+      }
+
+      SimpleString[] routingNames = routingNamesByValue.get(property).get(value);
+
+      return routingNames == null ? NO_ROUTING_NAMES : routingNames;
+   }
+}
@@ -0,0 +1,820 @@
+/*
+ * Copyright 2009 Red Hat, Inc.
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package org.hornetq.core.postoffice.impl;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+
+import org.hornetq.api.core.SimpleString;
+import org.hornetq.core.persistence.StorageManager;
+import org.hornetq.core.postoffice.DuplicateIDCache;
+import org.hornetq.core.server.HornetQServerLogger;
+import org.hornetq.core.server.MessageReference;
+import org.hornetq.core.transaction.Transaction;
+import org.hornetq.core.transaction.TransactionOperation;
+import org.hornetq.utils.Pair;
+
+/**
+ * A DuplicateIDCache keeping the IDs off the heap.
+ * <p>
+ * Like {@link DuplicateIDCacheImpl} this is a fixed size rotating cache of the last IDs, but instead of a few
+ * objects per ID everything is kept in direct buffers: a ring of fixed size slots, a log with the bytes of the
+ * IDs, an open addressing index, and a counting bloom filter used to answer most lookups of new IDs without
+ * taking any lock. The IDs are always matched on their whole bytes, the filter only saves work.
+ * <p>
+ * Caches large enough are split in stripes, selected by the hash of the ID, each one with its own lock and
+ * ring. The rotation is then done per stripe, so an ID may leave the cache a little before or after the
+ * <code>size</code>th ID that follows it. Small caches have a single stripe and rotate exactly as
+ * {@link DuplicateIDCacheImpl}.
+ */
+public class OffHeapDuplicateIDCache implements DuplicateIDCache
+{
+   /** caches are only split if every stripe gets at least this many IDs */
+   private static final int MIN_IDS_PER_STRIPE = 4096;
+
+   private static final int MAX_STRIPES = Math.min(64, nextPowerOfTwo(Runtime.getRuntime().availableProcessors() * 2));
+
+   private final SimpleString address;
+
+   private final int cacheSize;
+
+   private final StorageManager storageManager;
+
+   private final boolean persist;
+
+   private final Stripe[] stripes;
+
+   private final int stripeMask;
+
+   public OffHeapDuplicateIDCache(final SimpleString address,
+                                  final int size,
+                                  final StorageManager storageManager,
+                                  final boolean persist,
+                                  final int filterRatio)
+   {
+      this.address = address;
+
+      cacheSize = size;
+
+      this.storageManager = storageManager;
+
+      this.persist = persist;
+
+      int numberOfStripes = 1;
+
+      while (numberOfStripes < MAX_STRIPES && size / (numberOfStripes * 2) >= MIN_IDS_PER_STRIPE)
+      {
+         numberOfStripes *= 2;
+      }
+
+      stripes = new Stripe[numberOfStripes];
+
+      stripeMask = numberOfStripes - 1;
+
+      int stripeSize = (size + numberOfStripes - 1) / numberOfStripes;
+
+      for (int i = 0; i < numberOfStripes; i++)
+      {
+         stripes[i] = new Stripe(stripeSize, filterRatio);
+      }
+   }
+
+   public void load(final List<Pair<byte[], Long>> theIds) throws Exception
+   {
+      int count = 0;
+
+      long txID = -1;
+
+      for (Pair<byte[], Long> id : theIds)
+      {
+         long toDelete;
+
+         if (count < cacheSize)
+         {
+            // a stripe may be full before the cache is, the ID rotated out is deleted like the extra ones
+            toDelete = addToCacheInMemory(id.getA(), id.getB());
+         }
+         else
+         {
+            // cache size has been reduced in config - delete the extra records
+            toDelete = id.getB();
+         }
+
+         if (toDelete >= 0)
+         {
+            if (txID == -1)
+            {
+               txID = storageManager.generateUniqueID();
+            }
+
+            storageManager.deleteDuplicateIDTransactional(txID, toDelete);
+         }
+
+         count++;
+      }
+
+      if (txID != -1)
+      {
+         storageManager.commit(txID);
+      }
+   }
+
+   public void deleteFromCache(final byte[] duplicateID) throws Exception
+   {
+      long hash = hash(duplicateID);
+
+      long recordID = stripe(hash).remove(duplicateID, hash);
+
+      if (recordID >= 0)
+      {
+         storageManager.deleteDuplicateID(recordID);
+      }
+   }
+
+   public boolean contains(final byte[] duplID)
+   {
+      long hash = hash(duplID);
+
+      Stripe stripe = stripe(hash);
+
+      return stripe.mightContain(hash) && stripe.contains(duplID, hash);
+   }
+
+   public void addToCache(final byte[] duplID, final Transaction tx) throws Exception
+   {
+      long recordID = -1;
+
+      if (tx == null)
+      {
+         if (persist)
+         {
+            recordID = storageManager.generateUniqueID();
+            storageManager.storeDuplicateID(address, duplID, recordID);
+         }
+
+         deleteRotated(addToCacheInMemory(duplID, recordID));
+      }
+      else
+      {
+         if (persist)
+         {
+            recordID = storageManager.generateUniqueID();
+            storageManager.storeDuplicateIDTransactional(tx.getID(), address, duplID, recordID);
+
+            tx.setContainsPersistent();
+         }
+
+         // For a tx, it's important that the entry is not added to the cache until commit
+         // since if the client fails then resends them tx we don't want it to get rejected
+         tx.addOperation(new AddDuplicateIDOperation(duplID, recordID));
+      }
+   }
+
+   public void load(final Transaction tx, final byte[] duplID)
+   {
+      tx.addOperation(new AddDuplicateIDOperation(duplID, tx.getID()));
+   }
+
+   // Private -------------------------------------------------------
+
+   /**
+    * @return the record of the ID rotated out of the cache to make room, or -1
+    */
+   private long addToCacheInMemory(final byte[] duplID, final long recordID)
+   {
+      long hash = hash(duplID);
+
+      return stripe(hash).add(duplID, hash, recordID);
+   }
+
+   private void deleteRotated(final long recordID)
+   {
+      if (recordID >= 0)
+      {
+         // Record already exists - we delete the old one and add the new one
+         // Note we can't use update since journal update doesn't let older records get
+         // reclaimed
+         try
+         {
+            storageManager.deleteDuplicateID(recordID);
+         }
+         catch (Exception e)
+         {
+            HornetQServerLogger.LOGGER.errorDeletingDuplicateCache(e);
+         }
+      }
+   }
+
+   private Stripe stripe(final long hash)
+   {
+      return stripes[(int)(hash >>> 58) & stripeMask];
+   }
+
+   /**
+    * FNV-1a over the bytes, mixed with the finalizer of MurmurHash3 as the low and the high bits are used
+    * independently.
+    */
+   private static long hash(final byte[] bytes)
+   {
+      long h = 0xcbf29ce484222325L;
+
+      for (byte b : bytes)
+      {
+         h ^= b & 0xff;
+         h *= 0x100000001b3L;
+      }
+
+      h ^= h >>> 33;
+      h *= 0xff51afd7ed558ccdL;
+      h ^= h >>> 33;
+      h *= 0xc4ceb9fe1a85ec53L;
+      h ^= h >>> 33;
+
+      return h;
+   }
+
+   private static int nextPowerOfTwo(final int value)
+   {
+      int result = 1;
+      while (result < value)
+      {
+         result <<= 1;
+      }
+      return result;
+   }
+
+   // Inner classes -------------------------------------------------
+
+   /**
+    * A rotating cache of up to <code>capacity</code> IDs.
+    * <p>
+    * Every ID added takes the next slot of the ring, rotating out the ID that was there. A slot is 32 bytes:
+    * the offset of the ID on the log, its record ID, its hash, its length and whether it's on the index. The
+    * log is written circularly in the same order as the ring, so the oldest bytes in use are always those
+    * of the oldest slot, and it grows if the IDs get longer. The ring, the index and the filter start small
+    * and grow with the number of IDs, up to the capacity.
+    */
+   private static final class Stripe
+   {
+      private static final int SLOT_SIZE = 32;
+
+      private static final int SLOT_OFFSET = 0;
+
+      private static final int SLOT_RECORD_ID = 8;
+
+      private static final int SLOT_HASH = 16;
+
+      private static final int SLOT_LENGTH = 24;
+
+      private static final int SLOT_INDEXED = 28;
+
+      private static final int INITIAL_SLOTS = 1024;
+
+      private static final int INITIAL_BYTES_PER_ID = 32;
+
+      private final int capacity;
+
+      private final int filterRatio;
+
+      private final int filterHashes;
+
+      /** the number of slots allocated, which grows up to capacity */
+      private int allocated;
+
+      private ByteBuffer slots;
+
+      /** slot + 1 for each entry, 0 for empty. Linear probing */
+      private ByteBuffer index;
+
+      private int indexMask;
+
+      private ByteBuffer log;
+
+      private int logCapacity;
+
+      /** the position on the log after the last ID, growing forever. The log position is logHead % logCapacity */
+      private long logHead;
+
+      /**
+       * One counter per byte, replaced only once filled when the stripe grows. The field is also written
+       * back after every change, so a reader without the lock sees the counters updated.
+       */
+      private volatile ByteBuffer filter;
+
+      /** the slot the next ID goes to */
+      private int head;
+
+      /** the number of slots in use, from the oldest up to head */
+      private int count;
+
+      Stripe(final int capacity, final int filterRatio)
+      {
+         this.capacity = Math.max(1, capacity);
+
+         this.filterRatio = filterRatio;
+
+         filterHashes = Math.max(1, Math.round(filterRatio * 0.69f));
+
+         allocate(Math.min(this.capacity, INITIAL_SLOTS));
+
+         logCapacity = allocated * INITIAL_BYTES_PER_ID;
+
+         log = ByteBuffer.allocateDirect(logCapacity);
+      }
+
+      /**
+       * @return false if the ID is definitely not in the stripe
+       */
+      boolean mightContain(final long hash)
+      {
+         ByteBuffer localFilter = filter;
+
+         if (localFilter == null)
+         {
+            return true;
+         }
+
+         int mask = localFilter.capacity() - 1;
+
+         int h1 = (int)hash;
+
+         int h2 = (int)(hash >>> 32) | 1;
+
+         for (int i = 0; i < filterHashes; i++)
+         {
+            if (localFilter.get((h1 + i * h2) & mask) == 0)
+            {
+               return false;
+            }
+         }
+
+         return true;
+      }
+
+      synchronized boolean contains(final byte[] key, final long hash)
+      {
+         return find(key, hash) >= 0;
+      }
+
+      /**
+       * @return the record ID of the ID rotated out to make room, or -1
+       */
+      synchronized long add(final byte[] key, final long hash, final long recordID)
+      {
+         long rotated = -1;
+
+         int existing = find(key, hash);
+
+         if (existing >= 0)
+         {
+            // the older slot stays on the ring until rotated, with its record, but the index points to the new one
+            unindex(index.getInt(existing * 4) - 1, existing);
+         }
+
+         if (count == capacity)
+         {
+            rotated = rotate(head);
+         }
+         else if (head == allocated)
+         {
+            allocate(Math.min(capacity, allocated * 2));
+         }
+
+         int slot = head;
+
+         int offset = slot * SLOT_SIZE;
+
+         appendKey(slot, key);
+
+         slots.putLong(offset + SLOT_RECORD_ID, recordID);
+         slots.putLong(offset + SLOT_HASH, hash);
+         slots.putInt(offset + SLOT_LENGTH, key.length);
+         slots.putInt(offset + SLOT_INDEXED, 1);
+
+         insertIndex(slot, hash);
+
+         updateFilter(hash, 1);
+
+         count++;
+
+         head++;
+
+         if (head == capacity)
+         {
+            head = 0;
+         }
+
+         publishFilter();
+
+         return rotated;
+      }
+
+      /**
+       * @return the record ID of the removed ID, or -1
+       */
+      synchronized long remove(final byte[] key, final long hash)
+      {
+         int position = find(key, hash);
+
+         if (position < 0)
+         {
+            return -1;
+         }
+
+         int slot = index.getInt(position * 4) - 1;
+
+         unindex(slot, position);
+
+         long recordID = slots.getLong(slot * SLOT_SIZE + SLOT_RECORD_ID);
+
+         // it was deleted already, there is nothing to delete when it's rotated
+         slots.putLong(slot * SLOT_SIZE + SLOT_RECORD_ID, -1);
+
+         publishFilter();
+
+         return recordID;
+      }
+
+      // Private ----------------------------------------------------
+
+      /**
+       * Empties the oldest slot.
+       *
+       * @return the record ID of the slot, or -1
+       */
+      private long rotate(final int slot)
+      {
+         int offset = slot * SLOT_SIZE;
+
+         if (slots.getInt(offset + SLOT_INDEXED) != 0)
+         {
+            unindex(slot, findSlot(slot, slots.getLong(offset + SLOT_HASH)));
+         }
+
+         count--;
+
+         return slots.getLong(offset + SLOT_RECORD_ID);
+      }
+
+      /**
+       * @return the position on the index of the key, or -1
+       */
+      private int find(final byte[] key, final long hash)
+      {
+         int position = (int)hash & indexMask;
+
+         for (;;)
+         {
+            int entry = index.getInt(position * 4);
+
+            if (entry == 0)
+            {
+               return -1;
+            }
+
+            int slot = entry - 1;
+
+            if (slots.getLong(slot * SLOT_SIZE + SLOT_HASH) == hash && keyEquals(slot, key))
+            {
+               return position;
+            }
+
+            position = (position + 1) & indexMask;
+         }
+      }
+
+      private int findSlot(final int slot, final long hash)
+      {
+         int position = (int)hash & indexMask;
+
+         while (index.getInt(position * 4) != slot + 1)
+         {
+            position = (position + 1) & indexMask;
+         }
+
+         return position;
+      }
+
+      private boolean keyEquals(final int slot, final byte[] key)
+      {
+         int offset = slot * SLOT_SIZE;
+
+         if (slots.getInt(offset + SLOT_LENGTH) != key.length)
+         {
+            return false;
+         }
+
+         int start = (int)(slots.getLong(offset + SLOT_OFFSET) % logCapacity);
+
+         for (int i = 0; i < key.length; i++)
+         {
+            if (log.get(start + i) != key[i])
+            {
+               return false;
+            }
+         }
+
+         return true;
+      }
+
+      private void insertIndex(final int slot, final long hash)
+      {
+         int position = (int)hash & indexMask;
+
+         while (index.getInt(position * 4) != 0)
+         {
+            position = (position + 1) & indexMask;
+         }
+
+         index.putInt(position * 4, slot + 1);
+      }
+
+      /**
+       * Removes the slot from the index, shifting back the entries that follow so no tombstones are needed.
+       */
+      private void unindex(final int slot, int position)
+      {
+         int offset = slot * SLOT_SIZE;
+
+         slots.putInt(offset + SLOT_INDEXED, 0);
+
+         // the bytes are not needed any longer, and won't be copied if the log grows
+         slots.putInt(offset + SLOT_LENGTH, 0);
+
+         updateFilter(slots.getLong(offset + SLOT_HASH), -1);
+
+         for (;;)
+         {
+            index.putInt(position * 4, 0);
+
+            int next = position;
+
+            for (;;)
+            {
+               next = (next + 1) & indexMask;
+
+               int entry = index.getInt(next * 4);
+
+               if (entry == 0)
+               {
+                  return;
+               }
+
+               int ideal = (int)slots.getLong((entry - 1) * SLOT_SIZE + SLOT_HASH) & indexMask;
+
+               // the entry can fill the gap if its ideal position is not in (position, next]
+               boolean stays = position <= next ? position < ideal && ideal <= next
+                                                : position < ideal || ideal <= next;
+
+               if (!stays)
+               {
+                  index.putInt(position * 4, entry);
+                  position = next;
+                  break;
+               }
+            }
+         }
+      }
+
+      private void publishFilter()
+      {
+         ByteBuffer localFilter = filter;
+
+         filter = localFilter;
+      }
+
+      private void updateFilter(final long hash, final int delta)
+      {
+         if (filter != null)
+         {
+            updateFilter(filter, hash, delta);
+         }
+      }
+
+      private void updateFilter(final ByteBuffer target, final long hash, final int delta)
+      {
+         int mask = target.capacity() - 1;
+
+         int h1 = (int)hash;
+
+         int h2 = (int)(hash >>> 32) | 1;
+
+         for (int i = 0; i < filterHashes; i++)
+         {
+            int position = (h1 + i * h2) & mask;
+
+            int counter = target.get(position) & 0xff;
+
+            // a saturated counter is never decremented, as it doesn't know how many it counts any longer
+            if (counter != 0xff)
+            {
+               target.put(position, (byte)(counter + delta));
+            }
+         }
+      }
+
+      private void appendKey(final int slot, final byte[] key)
+      {
+         long start = logHead;
+
+         int position = (int)(start % logCapacity);
+
+         if (position + key.length > logCapacity)
+         {
+            // an ID is never split, skip to the beginning of the log
+            start += logCapacity - position;
+            position = 0;
+         }
+
+         long tail = count == 0 ? start : slots.getLong(oldest() * SLOT_SIZE + SLOT_OFFSET);
+
+         if (start + key.length - tail > logCapacity)
+         {
+            growLog(key.length);
+
+            start = logHead;
+
+            position = (int)start;
+         }
+
+         for (int i = 0; i < key.length; i++)
+         {
+            log.put(position + i, key[i]);
+         }
+
+         slots.putLong(slot * SLOT_SIZE + SLOT_OFFSET, start);
+
+         logHead = start + key.length;
+      }
+
+      private int oldest()
+      {
+         int oldest = head - count;
+
+         return oldest < 0 ? oldest + capacity : oldest;
+      }
+
+      /**
+       * Copies the IDs in use to a larger log, from the oldest, leaving them at the beginning of the log.
+       */
+      private void growLog(final int needed)
+      {
+         long used = 0;
+
+         for (int i = 0, slot = oldest(); i < count; i++, slot = next(slot))
+         {
+            used += slots.getInt(slot * SLOT_SIZE + SLOT_LENGTH);
+         }
+
+         int newCapacity = (int)Math.min(Integer.MAX_VALUE, Math.max(logCapacity * 2L, (used + needed) * 2));
+
+         ByteBuffer newLog = ByteBuffer.allocateDirect(newCapacity);
+
+         int position = 0;
+
+         for (int i = 0, slot = oldest(); i < count; i++, slot = next(slot))
+         {
+            int offset = slot * SLOT_SIZE;
+
+            int length = slots.getInt(offset + SLOT_LENGTH);
+
+            int start = (int)(slots.getLong(offset + SLOT_OFFSET) % logCapacity);
+
+            for (int j = 0; j < length; j++)
+            {
+               newLog.put(position + j, log.get(start + j));
+            }
+
+            slots.putLong(offset + SLOT_OFFSET, position);
+
+            position += length;
+         }
+
+         log = newLog;
+
+         logCapacity = newCapacity;
+
+         logHead = position;
+      }
+
+      private int next(final int slot)
+      {
+         return slot + 1 == capacity ? 0 : slot + 1;
+      }
+
+      /**
+       * Allocates the ring, the index and the filter for a number of slots, copying the slots in use. This is
+       * only done while the ring hasn't rotated yet, so the slots in use are 0 to count - 1.
+       */
+      private void allocate(final int newAllocated)
+      {
+         ByteBuffer newSlots = ByteBuffer.allocateDirect(newAllocated * SLOT_SIZE);
+
+         for (int i = 0; i < allocated * SLOT_SIZE; i++)
+         {
+            newSlots.put(i, slots.get(i));
+         }
+
+         slots = newSlots;
+
+         allocated = newAllocated;
+
+         int indexSize = nextPowerOfTwo(newAllocated * 2);
+
+         index = ByteBuffer.allocateDirect(indexSize * 4);
+
+         indexMask = indexSize - 1;
+
+         ByteBuffer newFilter = null;
+
+         if (filterRatio > 0)
+         {
+            newFilter = ByteBuffer.allocateDirect(nextPowerOfTwo((int)Math.min(1 << 30, (long)newAllocated * filterRatio)));
+         }
+
+         for (int slot = 0; slot < count; slot++)
+         {
+            if (slots.getInt(slot * SLOT_SIZE + SLOT_INDEXED) != 0)
+            {
+               long hash = slots.getLong(slot * SLOT_SIZE + SLOT_HASH);
+
+               insertIndex(slot, hash);
+
+               if (newFilter != null)
+               {
+                  updateFilter(newFilter, hash, 1);
+               }
+            }
+         }
+
+         // only published once complete, as it's read without the lock
+         filter = newFilter;
+      }
+   }
+
+   private class AddDuplicateIDOperation implements TransactionOperation
+   {
+      final byte[] duplID;
+
+      final long recordID;
+
+      volatile boolean done;
+
+      AddDuplicateIDOperation(final byte[] duplID, final long recordID)
+      {
+         this.duplID = duplID;
+
+         this.recordID = recordID;
+      }
+
+      private void process()
+      {
+         if (!done)
+         {
+            deleteRotated(addToCacheInMemory(duplID, recordID));
+
+            done = true;
+         }
+      }
+
+      public void beforeCommit(final Transaction tx) throws Exception
+      {
+      }
+
+      public void beforePrepare(final Transaction tx) throws Exception
+      {
+      }
+
+      public void beforeRollback(final Transaction tx) throws Exception
+      {
+      }
+
+      public void afterCommit(final Transaction tx)
+      {
+         process();
+      }
+
+      public void afterPrepare(final Transaction tx)
+      {
+      }
+
+      public void afterRollback(final Transaction tx)
+      {
+      }
+
+      public List<MessageReference> getRelatedMessageReferences()
+      {
+         return null;
+      }
+   }
+}
@@ -115,6 +115,10 @@ public class PostOfficeImpl implements PostOffice, NotificationListener, Binding
 
    private final boolean persistIDCache;
 
+   private final boolean idCacheOffHeap;
+
+   private final int idCacheFilterRatio;
+
    private final Map<SimpleString, QueueInfo> queueInfos = new HashMap<SimpleString, QueueInfo>();
 
    private final Object notificationLock = new Object();
@@ -133,6 +137,8 @@ public class PostOfficeImpl implements PostOffice, NotificationListener, Binding
                          final boolean enableWildCardRouting,
                          final int idCacheSize,
                          final boolean persistIDCache,
+                         final boolean idCacheOffHeap,
+                         final int idCacheFilterRatio,
                          final HierarchicalRepository<AddressSettings> addressSettingsRepository)
 
    {
@@ -161,6 +167,10 @@ public class PostOfficeImpl implements PostOffice, NotificationListener, Binding
 
       this.persistIDCache = persistIDCache;
 
+      this.idCacheOffHeap = idCacheOffHeap;
+
+      this.idCacheFilterRatio = idCacheFilterRatio;
+
       this.addressSettingsRepository = addressSettingsRepository;
 
       this.server = server;
@@ -491,9 +501,6 @@ public class PostOfficeImpl implements PostOffice, NotificationListener, Binding
 
    public synchronized Binding removeBinding(final SimpleString uniqueName) throws Exception
    {
-
-      addressSettingsRepository.clearCache();
-
       Binding binding = addressManager.removeBinding(uniqueName);
 
       if (binding == null)
@@ -534,6 +541,8 @@ public class PostOfficeImpl implements PostOffice, NotificationListener, Binding
 
       binding.close();
 
+      addressSettingsRepository.clearCache(binding.getAddress().toString());
+
       return binding;
    }
 
@@ -679,6 +688,12 @@ public class PostOfficeImpl implements PostOffice, NotificationListener, Binding
             {
                HornetQServerLogger.LOGGER.debug("Message " + message + " is not going anywhere as it didn't have a binding on address:" + address);
             }
+
+            if (message.isLargeMessage())
+            {
+               // Nothing will ever reference the message, its file or its share of another file can go
+               ((LargeServerMessage)message).deleteFile();
+            }
          }
       }
       else
@@ -779,7 +794,14 @@ public class PostOfficeImpl implements PostOffice, NotificationListener, Binding
 
       if (cache == null)
       {
-         cache = new DuplicateIDCacheImpl(address, idCacheSize, storageManager, persistIDCache);
+         if (idCacheOffHeap)
+         {
+            cache = new OffHeapDuplicateIDCache(address, idCacheSize, storageManager, persistIDCache, idCacheFilterRatio);
+         }
+         else
+         {
+            cache = new DuplicateIDCacheImpl(address, idCacheSize, storageManager, persistIDCache);
+         }
 
          DuplicateIDCache oldCache = duplicateIDCaches.putIfAbsent(address, cache);
 
@@ -14,8 +14,9 @@ package org.hornetq.core.postoffice.impl;
 
 import java.util.Collection;
 import java.util.HashMap;
-import java.util.List;
+import java.util.HashSet;
 import java.util.Map;
+import java.util.Set;
 
 import org.hornetq.api.core.SimpleString;
 import org.hornetq.core.postoffice.Address;
@@ -48,6 +49,13 @@ public class WildcardAddressManager extends SimpleAddressManager
 
    private final Map<SimpleString, Address> wildCardAddresses = new HashMap<SimpleString, Address>();
 
+   /**
+    * The same addresses by their words, to find the ones to link to a new address
+    */
+   private final AddressTrie addressTrie = new AddressTrie();
+
+   private final AddressTrie wildCardAddressTrie = new AddressTrie();
+
    public WildcardAddressManager(final BindingsFactory bindingsFactory)
    {
       super(bindingsFactory);
@@ -164,6 +172,8 @@ public class WildcardAddressManager extends SimpleAddressManager
       super.clear();
       addresses.clear();
       wildCardAddresses.clear();
+      addressTrie.clear();
+      wildCardAddressTrie.clear();
    }
 
    private Address getAddress(final SimpleString address)
@@ -197,28 +207,21 @@ public class WildcardAddressManager extends SimpleAddressManager
       {
          actualAddress = add;
          addAddress(address, actualAddress);
-      }
-      if (actualAddress.containsWildCard())
-      {
-         for (Address destAdd : addresses.values())
+
+         // an existing address is already linked
+         Set<Address> matching = new HashSet<Address>();
+         if (actualAddress.containsWildCard())
          {
-            if (destAdd.matches(actualAddress))
-            {
-               destAdd.addLinkedAddress(actualAddress);
-               actualAddress.addLinkedAddress(destAdd);
-            }
+            addressTrie.getMatchingAddresses(actualAddress, matching);
          }
-      }
-      else
-      {
-         for (Address destAdd : wildCardAddresses.values())
+         else
          {
-            if (actualAddress.matches(destAdd))
-            {
-               destAdd.addLinkedAddress(actualAddress);
-               actualAddress.addLinkedAddress(destAdd);
-
-            }
+            wildCardAddressTrie.getMatchingWildCardAddresses(actualAddress, matching);
+         }
+         for (Address destAdd : matching)
+         {
+            destAdd.addLinkedAddress(actualAddress);
+            actualAddress.addLinkedAddress(destAdd);
          }
       }
       return actualAddress;
@@ -229,10 +232,12 @@ public class WildcardAddressManager extends SimpleAddressManager
       if (actualAddress.containsWildCard())
       {
          wildCardAddresses.put(address, actualAddress);
+         wildCardAddressTrie.put(actualAddress);
       }
       else
       {
          addresses.put(address, actualAddress);
+         addressTrie.put(actualAddress);
       }
    }
 
@@ -242,7 +247,7 @@ public class WildcardAddressManager extends SimpleAddressManager
       Bindings bindings = super.getBindingsForRoutingAddress(address.getAddress());
       if (bindings == null || bindings.getBindings().size() == 0)
       {
-         List<Address> addresses = address.getLinkedAddresses();
+         Collection<Address> addresses = address.getLinkedAddresses();
          for (Address address1 : addresses)
          {
             address1.removeLinkedAddress(address);
@@ -261,10 +266,12 @@ public class WildcardAddressManager extends SimpleAddressManager
       if (add.containsWildCard())
       {
          wildCardAddresses.remove(add.getAddress());
+         wildCardAddressTrie.remove(add);
       }
       else
       {
          addresses.remove(add.getAddress());
+         addressTrie.remove(add);
       }
    }
 }
@@ -46,6 +46,7 @@ import org.hornetq.core.protocol.core.impl.wireformat.BackupReplicationStartFail
 import org.hornetq.core.protocol.core.impl.wireformat.LiveIsStoppingMessage;
 import org.hornetq.core.protocol.core.impl.wireformat.ReplicationAddMessage;
 import org.hornetq.core.protocol.core.impl.wireformat.ReplicationAddTXMessage;
+import org.hornetq.core.protocol.core.impl.wireformat.ReplicationBatchMessage;
 import org.hornetq.core.protocol.core.impl.wireformat.ReplicationCommitMessage;
 import org.hornetq.core.protocol.core.impl.wireformat.ReplicationCompareDataMessage;
 import org.hornetq.core.protocol.core.impl.wireformat.ReplicationDeleteMessage;
@@ -77,6 +78,16 @@ public class ServerPacketDecoder extends PacketDecoder
    {
       final byte packetType = in.readByte();
 
+      Packet packet = decode(packetType);
+
+      packet.decode(in);
+
+      return packet;
+   }
+
+   @Override
+   public Packet decode(final byte packetType)
+   {
       Packet packet;
 
       switch (packetType)
@@ -182,14 +193,17 @@ public class ServerPacketDecoder extends PacketDecoder
             packet = new LiveIsStoppingMessage();
             break;
          }
+         case PacketImpl.REPLICATION_BATCH:
+         {
+            packet = new ReplicationBatchMessage();
+            break;
+         }
          default:
          {
             packet = super.decode(packetType);
          }
       }
 
-      packet.decode(in);
-
       return packet;
    }
 
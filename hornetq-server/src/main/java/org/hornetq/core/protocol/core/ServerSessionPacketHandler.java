@@ -16,6 +16,7 @@ package org.hornetq.core.protocol.core;
 import static org.hornetq.core.protocol.core.impl.PacketImpl.CREATE_QUEUE;
 import static org.hornetq.core.protocol.core.impl.PacketImpl.DELETE_QUEUE;
 import static org.hornetq.core.protocol.core.impl.PacketImpl.SESS_ACKNOWLEDGE;
+import static org.hornetq.core.protocol.core.impl.PacketImpl.SESS_ACKNOWLEDGE_CREDIT;
 import static org.hornetq.core.protocol.core.impl.PacketImpl.SESS_BINDINGQUERY;
 import static org.hornetq.core.protocol.core.impl.PacketImpl.SESS_CLOSE;
 import static org.hornetq.core.protocol.core.impl.PacketImpl.SESS_COMMIT;
@@ -25,9 +26,11 @@ import static org.hornetq.core.protocol.core.impl.PacketImpl.SESS_EXPIRED;
 import static org.hornetq.core.protocol.core.impl.PacketImpl.SESS_FLOWTOKEN;
 import static org.hornetq.core.protocol.core.impl.PacketImpl.SESS_FORCE_CONSUMER_DELIVERY;
 import static org.hornetq.core.protocol.core.impl.PacketImpl.SESS_INDIVIDUAL_ACKNOWLEDGE;
+import static org.hornetq.core.protocol.core.impl.PacketImpl.SESS_INDIVIDUAL_ACKNOWLEDGE_BATCH;
 import static org.hornetq.core.protocol.core.impl.PacketImpl.SESS_QUEUEQUERY;
 import static org.hornetq.core.protocol.core.impl.PacketImpl.SESS_ROLLBACK;
 import static org.hornetq.core.protocol.core.impl.PacketImpl.SESS_SEND;
+import static org.hornetq.core.protocol.core.impl.PacketImpl.SESS_SEND_BATCH;
 import static org.hornetq.core.protocol.core.impl.PacketImpl.SESS_SEND_CONTINUATION;
 import static org.hornetq.core.protocol.core.impl.PacketImpl.SESS_SEND_LARGE;
 import static org.hornetq.core.protocol.core.impl.PacketImpl.SESS_START;
@@ -46,21 +49,26 @@ import static org.hornetq.core.protocol.core.impl.PacketImpl.SESS_XA_START;
 import static org.hornetq.core.protocol.core.impl.PacketImpl.SESS_XA_SUSPEND;
 
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.transaction.xa.XAResource;
 import javax.transaction.xa.Xid;
 
+import org.hornetq.api.core.HornetQBuffer;
 import org.hornetq.api.core.HornetQException;
 import org.hornetq.api.core.HornetQExceptionType;
 import org.hornetq.api.core.HornetQInternalErrorException;
+import org.hornetq.api.core.Interceptor;
 import org.hornetq.core.exception.HornetQXAException;
 import org.hornetq.core.journal.IOAsyncTask;
 import org.hornetq.core.persistence.StorageManager;
+import org.hornetq.core.protocol.core.impl.ChannelImpl;
 import org.hornetq.core.protocol.core.impl.PacketImpl;
 import org.hornetq.core.protocol.core.impl.wireformat.CreateQueueMessage;
 import org.hornetq.core.protocol.core.impl.wireformat.HornetQExceptionMessage;
 import org.hornetq.core.protocol.core.impl.wireformat.NullResponseMessage;
 import org.hornetq.core.protocol.core.impl.wireformat.RollbackMessage;
+import org.hornetq.core.protocol.core.impl.wireformat.SessionAcknowledgeCreditMessage;
 import org.hornetq.core.protocol.core.impl.wireformat.SessionAcknowledgeMessage;
 import org.hornetq.core.protocol.core.impl.wireformat.SessionAddMetaDataMessage;
 import org.hornetq.core.protocol.core.impl.wireformat.SessionAddMetaDataMessageV2;
@@ -72,10 +80,12 @@ import org.hornetq.core.protocol.core.impl.wireformat.SessionCreateConsumerMessa
 import org.hornetq.core.protocol.core.impl.wireformat.SessionDeleteQueueMessage;
 import org.hornetq.core.protocol.core.impl.wireformat.SessionExpireMessage;
 import org.hornetq.core.protocol.core.impl.wireformat.SessionForceConsumerDelivery;
+import org.hornetq.core.protocol.core.impl.wireformat.SessionIndividualAcknowledgeBatchMessage;
 import org.hornetq.core.protocol.core.impl.wireformat.SessionIndividualAcknowledgeMessage;
 import org.hornetq.core.protocol.core.impl.wireformat.SessionQueueQueryMessage;
 import org.hornetq.core.protocol.core.impl.wireformat.SessionQueueQueryResponseMessage;
 import org.hornetq.core.protocol.core.impl.wireformat.SessionRequestProducerCreditsMessage;
+import org.hornetq.core.protocol.core.impl.wireformat.SessionSendBatchMessage;
 import org.hornetq.core.protocol.core.impl.wireformat.SessionSendContinuationMessage;
 import org.hornetq.core.protocol.core.impl.wireformat.SessionSendLargeMessage;
 import org.hornetq.core.protocol.core.impl.wireformat.SessionSendMessage;
@@ -102,6 +112,7 @@ import org.hornetq.core.server.HornetQMessageBundle;
 import org.hornetq.core.server.QueueQueryResult;
 import org.hornetq.core.server.ServerMessage;
 import org.hornetq.core.server.ServerSession;
+import org.hornetq.core.server.impl.ServerMessageImpl;
 import org.hornetq.spi.core.remoting.Connection;
 
 /**
@@ -120,13 +131,23 @@ public class ServerSessionPacketHandler implements ChannelHandler
 
    private final Channel channel;
 
+   // run on each message of a batch as if it had been sent alone
+   private final List<Interceptor> incomingInterceptors;
+
    private volatile CoreRemotingConnection remotingConnection;
 
    private final boolean direct;
 
+   // the responses waiting for the completion of the operations of their packet
+   private final AtomicInteger pendingResponses = new AtomicInteger();
+
+   // set when a packet without response was confirmed after it was handled, e.g. once its message was synced
+   private volatile boolean deferredConfirmations;
+
    public ServerSessionPacketHandler(final ServerSession session,
                                      final StorageManager storageManager,
-                                     final Channel channel)
+                                     final Channel channel,
+                                     final List<Interceptor> incomingInterceptors)
    {
       this.session = session;
 
@@ -134,6 +155,8 @@ public class ServerSessionPacketHandler implements ChannelHandler
 
       this.channel = channel;
 
+      this.incomingInterceptors = incomingInterceptors;
+
       this.remotingConnection = channel.getConnection();
 
       //TODO think of a better way of doing this
@@ -273,6 +296,19 @@ public class ServerSessionPacketHandler implements ChannelHandler
                   }
                   break;
                }
+               case SESS_ACKNOWLEDGE_CREDIT:
+               {
+                  SessionAcknowledgeCreditMessage message = (SessionAcknowledgeCreditMessage)packet;
+                  requiresResponse = message.isRequiresResponse();
+                  // the credits first, the consumer mustn't lose them if the ack fails
+                  session.receiveConsumerCredits(message.getConsumerID(), message.getCredits());
+                  session.acknowledge(message.getConsumerID(), message.getMessageID());
+                  if (requiresResponse)
+                  {
+                     response = new NullResponseMessage();
+                  }
+                  break;
+               }
                case SESS_EXPIRED:
                {
                   SessionExpireMessage message = (SessionExpireMessage)packet;
@@ -419,6 +455,21 @@ public class ServerSessionPacketHandler implements ChannelHandler
                   }
                   break;
                }
+               case SESS_INDIVIDUAL_ACKNOWLEDGE_BATCH:
+               {
+                  SessionIndividualAcknowledgeBatchMessage message = (SessionIndividualAcknowledgeBatchMessage)packet;
+                  requiresResponse = message.isRequiresResponse();
+                  if (message.getCredits() > 0)
+                  {
+                     session.receiveConsumerCredits(message.getConsumerID(), message.getCredits());
+                  }
+                  session.individualAcknowledge(message.getConsumerID(), message.getMessageIDRanges());
+                  if (requiresResponse)
+                  {
+                     response = new NullResponseMessage();
+                  }
+                  break;
+               }
                case SESS_CONSUMER_CLOSE:
                {
                   requiresResponse = true;
@@ -444,6 +495,20 @@ public class ServerSessionPacketHandler implements ChannelHandler
                   }
                   break;
                }
+               case SESS_SEND_BATCH:
+               {
+                  SessionSendBatchMessage message = (SessionSendBatchMessage)packet;
+                  HornetQBuffer encodedMessages = message.getEncodedMessages();
+                  for (int i = 0; i < message.getMessageCount(); i++)
+                  {
+                     ServerMessageImpl batchedMessage = new ServerMessageImpl();
+                     batchedMessage.decodeShared(encodedMessages);
+                     sendBatched(batchedMessage);
+                  }
+                  // the batch is confirmed as a whole, e.g. bridges limit the messages waiting for confirmation
+                  flush = true;
+                  break;
+               }
                case SESS_SEND_LARGE:
                {
                   SessionSendLargeMessage message = (SessionSendLargeMessage)packet;
@@ -552,27 +617,60 @@ public class ServerSessionPacketHandler implements ChannelHandler
       }
    }
 
+   /**
+    * Sends a message of a batch as if it had been sent alone: the incoming interceptors see it in its own
+    * {@link SessionSendMessage} and a failure is logged without preventing the next messages from being sent.
+    */
+   private void sendBatched(final ServerMessage message)
+   {
+      SessionSendMessage packet = new SessionSendMessage(message, false);
+
+      String interceptorName = ChannelImpl.invokeInterceptors(packet, incomingInterceptors, remotingConnection);
+
+      if (interceptorName != null)
+      {
+         HornetQServerLogger.LOGGER.debug("Interceptor " + interceptorName + " rejected a message of a batch");
+
+         return;
+      }
+
+      try
+      {
+         session.send(message, direct);
+      }
+      catch (Exception e)
+      {
+         HornetQServerLogger.LOGGER.caughtException(e);
+      }
+   }
+
    private void sendResponse(final Packet confirmPacket,
                              final Packet response,
                              final boolean flush,
                              final boolean closeChannel)
    {
-      storageManager.afterCompleteOperations(new IOAsyncTask()
-      {
-         public void onError(final int errorCode, final String errorMessage)
-         {
-            HornetQServerLogger.LOGGER.errorProcessingIOCallback(errorCode, errorMessage);
+      pendingResponses.incrementAndGet();
 
-            HornetQExceptionMessage exceptionMessage = new HornetQExceptionMessage( HornetQExceptionType.createException(errorCode, errorMessage));
+      ResponseTask task = new ResponseTask(confirmPacket, response, flush, closeChannel);
 
-            doConfirmAndResponse(confirmPacket, exceptionMessage, flush, closeChannel);
-         }
+      storageManager.afterCompleteOperations(task);
 
-         public void done()
-         {
-            doConfirmAndResponse(confirmPacket, response, flush, closeChannel);
-         }
-      });
+      task.handled = true;
+   }
+
+   /**
+    * The client may be waiting for the confirmation of sends which didn't complete while they were handled, e.g.
+    * sends with a handler waiting for the journal. Their confirmations are flushed once no more responses are pending,
+    * instead of waiting for the confirmation window to fill.
+    */
+   private void responseDone()
+   {
+      if (pendingResponses.decrementAndGet() == 0 && deferredConfirmations)
+      {
+         deferredConfirmations = false;
+
+         channel.flushConfirmations();
+      }
    }
 
    private void doConfirmAndResponse(final Packet confirmPacket,
@@ -655,4 +753,55 @@ public class ServerSessionPacketHandler implements ChannelHandler
 
       return serverLastReceivedCommandID;
    }
+
+   // Inner classes -------------------------------------------------
+
+   private final class ResponseTask implements IOAsyncTask
+   {
+      private final Packet confirmPacket;
+
+      private final Packet response;
+
+      private final boolean flush;
+
+      private final boolean closeChannel;
+
+      private final Thread handlingThread = Thread.currentThread();
+
+      private volatile boolean handled;
+
+      ResponseTask(final Packet confirmPacket, final Packet response, final boolean flush, final boolean closeChannel)
+      {
+         this.confirmPacket = confirmPacket;
+
+         this.response = response;
+
+         this.flush = flush;
+
+         this.closeChannel = closeChannel;
+      }
+
+      public void onError(final int errorCode, final String errorMessage)
+      {
+         HornetQServerLogger.LOGGER.errorProcessingIOCallback(errorCode, errorMessage);
+
+         HornetQExceptionMessage exceptionMessage = new HornetQExceptionMessage( HornetQExceptionType.createException(errorCode, errorMessage));
+
+         doConfirmAndResponse(confirmPacket, exceptionMessage, flush, closeChannel);
+
+         responseDone();
+      }
+
+      public void done()
+      {
+         if (response == null && confirmPacket != null && (handled || Thread.currentThread() != handlingThread))
+         {
+            deferredConfirmations = true;
+         }
+
+         doConfirmAndResponse(confirmPacket, response, flush, closeChannel);
+
+         responseDone();
+      }
+   }
 }
@@ -127,6 +127,11 @@ class CoreProtocolManager implements ProtocolManager
       sessionHandlers.put(name, handler);
    }
 
+   List<Interceptor> getIncomingInterceptors()
+   {
+      return incomingInterceptors;
+   }
+
    public void removeHandler(final String name)
    {
       sessionHandlers.remove(name);
@@ -12,6 +12,8 @@
  */
 package org.hornetq.core.protocol.core.impl;
 
+import java.nio.channels.FileChannel;
+
 import org.hornetq.api.core.SimpleString;
 import org.hornetq.core.protocol.core.Channel;
 import org.hornetq.core.protocol.core.Packet;
@@ -67,6 +69,25 @@ public final class CoreSessionCallback implements SessionCallback
       return packet.getPacketSize();
    }
 
+   public int sendLargeMessageContinuation(long consumerID,
+                                           FileChannel file,
+                                           long position,
+                                           int bodySize,
+                                           boolean continues,
+                                           Runnable fileRelease)
+   {
+      Packet packet = new SessionReceiveContinuationMessage(consumerID,
+                                                            file,
+                                                            position,
+                                                            bodySize,
+                                                            continues,
+                                                            fileRelease);
+
+      channel.send(packet);
+
+      return packet.getPacketSize();
+   }
+
    public int sendMessage(ServerMessage message, long consumerID, int deliveryCount)
    {
       Packet packet = new SessionReceiveMessage(consumerID, message, deliveryCount);
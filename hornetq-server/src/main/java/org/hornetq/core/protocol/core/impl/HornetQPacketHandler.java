@@ -177,7 +177,8 @@ public class HornetQPacketHandler implements ChannelHandler
 
          ServerSessionPacketHandler handler = new ServerSessionPacketHandler(session,
                                                                              server.getStorageManager(),
-                                                                             channel);
+                                                                             channel,
+                                                                             protocolManager.getIncomingInterceptors());
          channel.setHandler(handler);
 
          // TODO - where is this removed?
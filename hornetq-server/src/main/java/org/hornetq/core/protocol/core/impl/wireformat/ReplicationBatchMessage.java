@@ -0,0 +1,199 @@
+/*
+ * Copyright 2009 Red Hat, Inc.
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package org.hornetq.core.protocol.core.impl.wireformat;
+
+import org.hornetq.api.core.HornetQBuffer;
+import org.hornetq.core.protocol.core.impl.PacketImpl;
+import org.hornetq.spi.core.protocol.RemotingConnection;
+import org.hornetq.utils.DataConstants;
+
+/**
+ * Several replicated operations in one packet, the backup applies them in order and answers with a single
+ * {@link ReplicationResponseMessage}.
+ * <p>
+ * Each operation is encoded as the type of its packet followed by the rest of the packet, without the channel ID.
+ * The encoded operations may be compressed with {@link java.util.zip.Deflater}.
+ */
+public class ReplicationBatchMessage extends PacketImpl
+{
+   // Attributes ----------------------------------------------------
+
+   private int operationCount;
+
+   private boolean compressed;
+
+   // the length of the encoded operations once uncompressed
+   private int operationsLength;
+
+   private HornetQBuffer encodedOperations;
+
+   private int encodedStart;
+
+   private int encodedLength;
+
+   // Constructors --------------------------------------------------
+
+   /**
+    * @param encodedOperations a buffer whose readable bytes are the encoded operations, compressed or not
+    */
+   public ReplicationBatchMessage(final int operationCount,
+                                  final boolean compressed,
+                                  final int operationsLength,
+                                  final HornetQBuffer encodedOperations)
+   {
+      super(REPLICATION_BATCH);
+
+      this.operationCount = operationCount;
+
+      this.compressed = compressed;
+
+      this.operationsLength = operationsLength;
+
+      this.encodedOperations = encodedOperations;
+
+      encodedStart = encodedOperations.readerIndex();
+
+      encodedLength = encodedOperations.readableBytes();
+   }
+
+   public ReplicationBatchMessage()
+   {
+      super(REPLICATION_BATCH);
+   }
+
+   // Public --------------------------------------------------------
+
+   public int getOperationCount()
+   {
+      return operationCount;
+   }
+
+   public boolean isCompressed()
+   {
+      return compressed;
+   }
+
+   /**
+    * @return the length of the encoded operations once uncompressed
+    */
+   public int getOperationsLength()
+   {
+      return operationsLength;
+   }
+
+   /**
+    * @return a buffer whose readable bytes are the encoded operations, compressed if {@link #isCompressed()}
+    */
+   public HornetQBuffer getEncodedOperations()
+   {
+      HornetQBuffer buffer = encodedOperations.duplicate();
+
+      buffer.setIndex(encodedStart, encodedStart + encodedLength);
+
+      return buffer;
+   }
+
+   @Override
+   public HornetQBuffer encode(final RemotingConnection connection)
+   {
+      // the batch is usually bigger than the default initial size, don't make the buffer grow
+      HornetQBuffer buffer = connection.createBuffer(PacketImpl.PACKET_HEADERS_SIZE + 3 * DataConstants.SIZE_INT +
+                                                     DataConstants.SIZE_BOOLEAN +
+                                                     encodedLength);
+
+      buffer.writeInt(0);
+      buffer.writeByte(getType());
+      buffer.writeLong(channelID);
+
+      encodeRest(buffer);
+
+      size = buffer.writerIndex();
+
+      buffer.setInt(0, size - DataConstants.SIZE_INT);
+
+      return buffer;
+   }
+
+   @Override
+   public void encodeRest(final HornetQBuffer buffer)
+   {
+      buffer.writeInt(operationCount);
+      buffer.writeBoolean(compressed);
+      buffer.writeInt(operationsLength);
+      buffer.writeInt(encodedLength);
+      buffer.writeBytes(encodedOperations, encodedStart, encodedLength);
+   }
+
+   @Override
+   public void decodeRest(final HornetQBuffer buffer)
+   {
+      operationCount = buffer.readInt();
+      compressed = buffer.readBoolean();
+      operationsLength = buffer.readInt();
+      encodedLength = buffer.readInt();
+
+      // the operations are decoded from the packet buffer, without copying them
+      encodedOperations = buffer;
+      encodedStart = buffer.readerIndex();
+
+      buffer.readerIndex(encodedStart + encodedLength);
+   }
+
+   @Override
+   public String toString()
+   {
+      return getParentString() + ", operationCount=" +
+             operationCount +
+             ", compressed=" +
+             compressed +
+             ", operationsLength=" +
+             operationsLength +
+             ", encodedLength=" +
+             encodedLength +
+             "]";
+   }
+
+   @Override
+   public int hashCode()
+   {
+      final int prime = 31;
+      int result = super.hashCode();
+      result = prime * result + operationCount;
+      result = prime * result + (compressed ? 1231 : 1237);
+      result = prime * result + operationsLength;
+      result = prime * result + encodedLength;
+      return result;
+   }
+
+   @Override
+   public boolean equals(Object obj)
+   {
+      if (this == obj)
+         return true;
+      if (!super.equals(obj))
+         return false;
+      if (!(obj instanceof ReplicationBatchMessage))
+         return false;
+      ReplicationBatchMessage other = (ReplicationBatchMessage)obj;
+      if (operationCount != other.operationCount)
+         return false;
+      if (compressed != other.compressed)
+         return false;
+      if (operationsLength != other.operationsLength)
+         return false;
+      if (encodedLength != other.encodedLength)
+         return false;
+      return true;
+   }
+}
@@ -12,6 +12,7 @@
  */
 package org.hornetq.core.protocol.stomp;
 
+import java.nio.channels.FileChannel;
 import java.util.Iterator;
 import java.util.Map;
 import java.util.Map.Entry;
@@ -122,6 +123,18 @@ public class StompSession implements SessionCallback
       return 0;
    }
 
+   public int sendLargeMessageContinuation(long consumerID,
+                                           FileChannel file,
+                                           long position,
+                                           int bodySize,
+                                           boolean continues,
+                                           Runnable fileRelease)
+   {
+      fileRelease.run();
+
+      return 0;
+   }
+
    public int sendLargeMessage(ServerMessage msg, long consumerID, long bodySize, int deliveryCount)
    {
       return 0;
@@ -24,7 +24,10 @@ import java.util.Map;
 import java.util.Map.Entry;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.zip.Inflater;
 
+import org.hornetq.api.core.HornetQBuffer;
+import org.hornetq.api.core.HornetQBuffers;
 import org.hornetq.api.core.HornetQException;
 import org.hornetq.api.core.SimpleString;
 import org.hornetq.core.config.Configuration;
@@ -43,6 +46,7 @@ import org.hornetq.core.paging.impl.PagingStoreFactoryNIO;
 import org.hornetq.core.persistence.StorageManager;
 import org.hornetq.core.persistence.impl.journal.JournalStorageManager.JournalContent;
 import org.hornetq.core.persistence.impl.journal.LargeServerMessageInSync;
+import org.hornetq.core.protocol.ServerPacketDecoder;
 import org.hornetq.core.protocol.core.Channel;
 import org.hornetq.core.protocol.core.ChannelHandler;
 import org.hornetq.core.protocol.core.Packet;
@@ -52,6 +56,7 @@ import org.hornetq.core.protocol.core.impl.wireformat.HornetQExceptionMessage;
 import org.hornetq.core.protocol.core.impl.wireformat.NullResponseMessage;
 import org.hornetq.core.protocol.core.impl.wireformat.ReplicationAddMessage;
 import org.hornetq.core.protocol.core.impl.wireformat.ReplicationAddTXMessage;
+import org.hornetq.core.protocol.core.impl.wireformat.ReplicationBatchMessage;
 import org.hornetq.core.protocol.core.impl.wireformat.ReplicationCommitMessage;
 import org.hornetq.core.protocol.core.impl.wireformat.ReplicationCompareDataMessage;
 import org.hornetq.core.protocol.core.impl.wireformat.ReplicationDeleteMessage;
@@ -69,6 +74,7 @@ import org.hornetq.core.protocol.core.impl.wireformat.ReplicationSyncFileMessage
 import org.hornetq.core.server.HornetQComponent;
 import org.hornetq.core.server.HornetQServerLogger;
 import org.hornetq.core.server.HornetQMessageBundle;
+import org.hornetq.core.server.JournalType;
 import org.hornetq.core.server.ServerMessage;
 import org.hornetq.core.server.impl.HornetQServerImpl;
 import org.hornetq.core.server.impl.QuorumManager;
@@ -117,6 +123,9 @@ public final class ReplicationEndpoint implements ChannelHandler, HornetQCompone
 
    private QuorumManager quorumManager;
 
+   // only used by the thread handling the packets
+   private final Inflater inflater = new Inflater();
+
    // Constructors --------------------------------------------------
    public ReplicationEndpoint(final HornetQServerImpl server, IOCriticalErrorListener criticalErrorListener,
                               boolean wantedFailBack)
@@ -160,49 +169,9 @@ public final class ReplicationEndpoint implements ChannelHandler, HornetQCompone
                return;
             }
 
-            if (type == PacketImpl.REPLICATION_APPEND)
-            {
-               handleAppendAddRecord((ReplicationAddMessage) packet);
-            }
-            else if (type == PacketImpl.REPLICATION_APPEND_TX)
-            {
-               handleAppendAddTXRecord((ReplicationAddTXMessage) packet);
-            }
-            else if (type == PacketImpl.REPLICATION_DELETE)
-            {
-               handleAppendDelete((ReplicationDeleteMessage) packet);
-            }
-            else if (type == PacketImpl.REPLICATION_DELETE_TX)
-            {
-               handleAppendDeleteTX((ReplicationDeleteTXMessage) packet);
-            }
-            else if (type == PacketImpl.REPLICATION_PREPARE)
-            {
-               handlePrepare((ReplicationPrepareMessage) packet);
-            }
-            else if (type == PacketImpl.REPLICATION_COMMIT_ROLLBACK)
-            {
-               handleCommitRollback((ReplicationCommitMessage) packet);
-            }
-            else if (type == PacketImpl.REPLICATION_PAGE_WRITE)
-            {
-               handlePageWrite((ReplicationPageWriteMessage) packet);
-            }
-            else if (type == PacketImpl.REPLICATION_PAGE_EVENT)
-            {
-               handlePageEvent((ReplicationPageEventMessage) packet);
-            }
-            else if (type == PacketImpl.REPLICATION_LARGE_MESSAGE_BEGIN)
-            {
-               handleLargeMessageBegin((ReplicationLargeMessageBeginMessage) packet);
-            }
-            else if (type == PacketImpl.REPLICATION_LARGE_MESSAGE_WRITE)
+            if (type == PacketImpl.REPLICATION_BATCH)
             {
-               handleLargeMessageWrite((ReplicationLargeMessageWriteMessage) packet);
-            }
-            else if (type == PacketImpl.REPLICATION_LARGE_MESSAGE_END)
-            {
-               handleLargeMessageEnd((ReplicationLargeMessageEndMessage) packet);
+               handleBatch((ReplicationBatchMessage) packet);
             }
             else if (type == PacketImpl.REPLICATION_COMPARE_DATA)
             {
@@ -225,7 +194,7 @@ public final class ReplicationEndpoint implements ChannelHandler, HornetQCompone
          {
             handleFatalError((BackupReplicationStartFailedMessage)packet);
          }
-         else
+         else if (!handleOperation(packet))
          {
             HornetQServerLogger.LOGGER.invalidPacketForReplication(packet);
          }
@@ -245,6 +214,105 @@ public final class ReplicationEndpoint implements ChannelHandler, HornetQCompone
       channel.send(response);
    }
 
+   /**
+    * Handles the packets of the operations which can be sent in a batch.
+    * @return {@code false} if the packet is not one of them
+    */
+   private boolean handleOperation(final Packet packet) throws Exception
+   {
+      final byte type = packet.getType();
+
+      if (type == PacketImpl.REPLICATION_APPEND)
+      {
+         handleAppendAddRecord((ReplicationAddMessage) packet);
+      }
+      else if (type == PacketImpl.REPLICATION_APPEND_TX)
+      {
+         handleAppendAddTXRecord((ReplicationAddTXMessage) packet);
+      }
+      else if (type == PacketImpl.REPLICATION_DELETE)
+      {
+         handleAppendDelete((ReplicationDeleteMessage) packet);
+      }
+      else if (type == PacketImpl.REPLICATION_DELETE_TX)
+      {
+         handleAppendDeleteTX((ReplicationDeleteTXMessage) packet);
+      }
+      else if (type == PacketImpl.REPLICATION_PREPARE)
+      {
+         handlePrepare((ReplicationPrepareMessage) packet);
+      }
+      else if (type == PacketImpl.REPLICATION_COMMIT_ROLLBACK)
+      {
+         handleCommitRollback((ReplicationCommitMessage) packet);
+      }
+      else if (type == PacketImpl.REPLICATION_PAGE_WRITE)
+      {
+         handlePageWrite((ReplicationPageWriteMessage) packet);
+      }
+      else if (type == PacketImpl.REPLICATION_PAGE_EVENT)
+      {
+         handlePageEvent((ReplicationPageEventMessage) packet);
+      }
+      else if (type == PacketImpl.REPLICATION_LARGE_MESSAGE_BEGIN)
+      {
+         handleLargeMessageBegin((ReplicationLargeMessageBeginMessage) packet);
+      }
+      else if (type == PacketImpl.REPLICATION_LARGE_MESSAGE_WRITE)
+      {
+         handleLargeMessageWrite((ReplicationLargeMessageWriteMessage) packet);
+      }
+      else if (type == PacketImpl.REPLICATION_LARGE_MESSAGE_END)
+      {
+         handleLargeMessageEnd((ReplicationLargeMessageEndMessage) packet);
+      }
+      else
+      {
+         return false;
+      }
+
+      return true;
+   }
+
+   /**
+    * Applies the operations of the batch in order, the live gets a single response for all of them.
+    */
+   private void handleBatch(final ReplicationBatchMessage packet) throws Exception
+   {
+      HornetQBuffer operations = packet.getEncodedOperations();
+
+      if (packet.isCompressed())
+      {
+         byte[] input = new byte[operations.readableBytes()];
+
+         operations.readBytes(input);
+
+         byte[] output = new byte[packet.getOperationsLength()];
+
+         inflater.reset();
+         inflater.setInput(input);
+
+         if (inflater.inflate(output) != output.length || !inflater.finished())
+         {
+            throw new IllegalStateException("Invalid compressed replication batch " + packet);
+         }
+
+         operations = HornetQBuffers.wrappedBuffer(output);
+      }
+
+      for (int i = 0; i < packet.getOperationCount(); i++)
+      {
+         PacketImpl operation = (PacketImpl)ServerPacketDecoder.INSTANCE.decode(operations.readByte());
+
+         operation.decodeRest(operations);
+
+         if (!handleOperation(operation))
+         {
+            throw new IllegalStateException("Invalid operation " + operation + " in replication batch " + packet);
+         }
+      }
+   }
+
    /**
     * @param packet
     */
@@ -291,7 +359,8 @@ public final class ReplicationEndpoint implements ChannelHandler, HornetQCompone
                                                                     config.getJournalBufferSize_NIO(),
                                                                     server.getScheduledPool(),
                                                                     server.getExecutorFactory(),
-                                                                    config.isJournalSyncNonTransactional(), criticalErrorListener),
+                                                                    config.isJournalSyncNonTransactional(), criticalErrorListener,
+                                                                    config.getJournalType() == JournalType.MAPPED),
                                           storage,
                                           server.getAddressSettingsRepository());
 
@@ -21,13 +21,19 @@ import java.util.List;
 import java.util.Queue;
 import java.util.Set;
 import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.Deflater;
 
 import org.hornetq.api.core.HornetQBuffer;
+import org.hornetq.api.core.HornetQBuffers;
 import org.hornetq.api.core.HornetQException;
 import org.hornetq.api.core.HornetQExceptionType;
 import org.hornetq.api.core.SimpleString;
 import org.hornetq.api.core.client.SessionFailureListener;
 import org.hornetq.core.journal.EncodingSupport;
+import org.hornetq.core.journal.JournalBuffer;
 import org.hornetq.core.journal.JournalLoadInformation;
 import org.hornetq.core.journal.SequentialFile;
 import org.hornetq.core.journal.impl.JournalFile;
@@ -44,6 +50,7 @@ import org.hornetq.core.protocol.core.impl.PacketImpl;
 import org.hornetq.core.protocol.core.impl.wireformat.LiveIsStoppingMessage;
 import org.hornetq.core.protocol.core.impl.wireformat.ReplicationAddMessage;
 import org.hornetq.core.protocol.core.impl.wireformat.ReplicationAddTXMessage;
+import org.hornetq.core.protocol.core.impl.wireformat.ReplicationBatchMessage;
 import org.hornetq.core.protocol.core.impl.wireformat.ReplicationCommitMessage;
 import org.hornetq.core.protocol.core.impl.wireformat.ReplicationCompareDataMessage;
 import org.hornetq.core.protocol.core.impl.wireformat.ReplicationDeleteMessage;
@@ -66,6 +73,11 @@ import org.hornetq.utils.ExecutorFactory;
  * use case).
  * <p>
  * Its equivalent in the backup server is {@link ReplicationEndpoint}.
+ * <p>
+ * When batching, the operations (journal records, pages and large messages) are sent in
+ * {@link ReplicationBatchMessage}s. A batch is flushed along with the buffer of the message journal, so the
+ * records written together on the live are sent together to the backup, or when it's full or has waited for the
+ * buffer timeout. Any other packet flushes the batch before being sent, keeping everything in order.
  * @author <mailto:clebert.suconic@jboss.org">Clebert Suconic</a>
  * @see ReplicationEndpoint
  */
@@ -87,8 +99,42 @@ public class ReplicationManager implements HornetQComponent
 
    private final Queue<OperationContext> pendingTokens = new ConcurrentLinkedQueue<OperationContext>();
 
+   // the packets waiting for a response, each one completes the tokens of its operations
+   private final Queue<PendingResponse> pendingResponses = new ConcurrentLinkedQueue<PendingResponse>();
+
    private final ExecutorFactory executorFactory;
 
+   private final ScheduledExecutorService scheduledExecutor;
+
+   private final JournalBuffer journalBuffer;
+
+   // the size a batch is flushed at, 0 when not batching
+   private final int batchSize;
+
+   // in nanoseconds
+   private final long batchTimeout;
+
+   private final Deflater deflater;
+
+   private final Runnable flushBatchTask = new FlushBatchTask();
+
+   // the operations of the batch being filled, guarded by replicationLock
+   private HornetQBuffer batch;
+
+   private int batchOperations;
+
+   // for measuring the replication
+
+   private volatile long roundTripTime = -1;
+
+   private final AtomicLong packetsSent = new AtomicLong(0);
+
+   private final AtomicLong operationsSent = new AtomicLong(0);
+
+   private final AtomicLong bytesBeforeCompression = new AtomicLong(0);
+
+   private final AtomicLong bytesAfterCompression = new AtomicLong(0);
+
    private SessionFailureListener failureListener;
 
    private CoreRemotingConnection remotingConnection;
@@ -101,17 +147,40 @@ public class ReplicationManager implements HornetQComponent
     * @param remotingConnection
     */
    public ReplicationManager(CoreRemotingConnection remotingConnection, final ExecutorFactory executorFactory)
+   {
+      this(remotingConnection, executorFactory, null, null, 0, 0, false);
+   }
+
+   /**
+    * @param scheduledExecutor flushes the batches which waited for {@code batchTimeout}
+    * @param journalBuffer the buffer of the message journal the batches are flushed along with, may be {@code null}
+    * @param batchSize the size of the encoded operations a batch is flushed at, 0 to send one packet per operation
+    * @param batchTimeout the time (in nanoseconds) a batch waits for at most
+    * @param compressed whether the batches are compressed
+    */
+   public ReplicationManager(CoreRemotingConnection remotingConnection,
+                             final ExecutorFactory executorFactory,
+                             final ScheduledExecutorService scheduledExecutor,
+                             final JournalBuffer journalBuffer,
+                             final int batchSize,
+                             final long batchTimeout,
+                             final boolean compressed)
    {
       this.executorFactory = executorFactory;
       this.replicatingChannel = remotingConnection.getChannel(CHANNEL_ID.REPLICATION.id, -1);
       this.remotingConnection = remotingConnection;
+      this.scheduledExecutor = scheduledExecutor;
+      this.journalBuffer = journalBuffer;
+      this.batchSize = batchSize;
+      this.batchTimeout = batchTimeout;
+      deflater = batchSize > 0 && compressed ? new Deflater(Deflater.BEST_SPEED) : null;
    }
 
    public void appendAddRecord(final byte journalID, final long id, final byte recordType, final EncodingSupport record)
    {
       if (enabled)
       {
-         sendReplicatePacket(new ReplicationAddMessage(journalID, false, id, recordType, record));
+         replicateOperation(new ReplicationAddMessage(journalID, false, id, recordType, record));
       }
    }
 
@@ -122,7 +191,7 @@ public class ReplicationManager implements HornetQComponent
    {
       if (enabled)
       {
-         sendReplicatePacket(new ReplicationAddMessage(journalID, true, id, recordType, record));
+         replicateOperation(new ReplicationAddMessage(journalID, true, id, recordType, record));
       }
    }
 
@@ -130,7 +199,7 @@ public class ReplicationManager implements HornetQComponent
    {
       if (enabled)
       {
-         sendReplicatePacket(new ReplicationDeleteMessage(journalID, id));
+         replicateOperation(new ReplicationDeleteMessage(journalID, id));
       }
    }
 
@@ -142,7 +211,7 @@ public class ReplicationManager implements HornetQComponent
    {
       if (enabled)
       {
-         sendReplicatePacket(new ReplicationAddTXMessage(journalID, false, txID, id, recordType, record));
+         replicateOperation(new ReplicationAddTXMessage(journalID, false, txID, id, recordType, record));
       }
    }
 
@@ -154,7 +223,7 @@ public class ReplicationManager implements HornetQComponent
    {
       if (enabled)
       {
-         sendReplicatePacket(new ReplicationAddTXMessage(journalID, true, txID, id, recordType, record));
+         replicateOperation(new ReplicationAddTXMessage(journalID, true, txID, id, recordType, record));
       }
    }
 
@@ -163,7 +232,7 @@ public class ReplicationManager implements HornetQComponent
    {
       if (enabled)
       {
-         sendReplicatePacket(new ReplicationCommitMessage(journalID, false, txID, sync), lineUp);
+         sendReplicatePacket(new ReplicationCommitMessage(journalID, false, txID, sync), lineUp, true);
       }
    }
 
@@ -174,7 +243,7 @@ public class ReplicationManager implements HornetQComponent
    {
       if (enabled)
       {
-         sendReplicatePacket(new ReplicationDeleteTXMessage(journalID, txID, id, record));
+         replicateOperation(new ReplicationDeleteTXMessage(journalID, txID, id, record));
       }
    }
 
@@ -182,7 +251,7 @@ public class ReplicationManager implements HornetQComponent
    {
       if (enabled)
       {
-         sendReplicatePacket(new ReplicationDeleteTXMessage(journalID, txID, id, NullEncoding.instance));
+         replicateOperation(new ReplicationDeleteTXMessage(journalID, txID, id, NullEncoding.instance));
       }
    }
 
@@ -191,7 +260,7 @@ public class ReplicationManager implements HornetQComponent
    {
       if (enabled)
       {
-         sendReplicatePacket(new ReplicationPrepareMessage(journalID, txID, transactionData));
+         replicateOperation(new ReplicationPrepareMessage(journalID, txID, transactionData));
       }
    }
 
@@ -199,7 +268,7 @@ public class ReplicationManager implements HornetQComponent
    {
       if (enabled)
       {
-         sendReplicatePacket(new ReplicationCommitMessage(journalID, true, txID, sync));
+         replicateOperation(new ReplicationCommitMessage(journalID, true, txID, sync));
       }
    }
 
@@ -211,7 +280,7 @@ public class ReplicationManager implements HornetQComponent
    {
       if (enabled)
       {
-         sendReplicatePacket(new ReplicationPageEventMessage(storeName, pageNumber, false));
+         replicateOperation(new ReplicationPageEventMessage(storeName, pageNumber, false));
       }
    }
 
@@ -219,7 +288,7 @@ public class ReplicationManager implements HornetQComponent
    {
       if (enabled)
       {
-         sendReplicatePacket(new ReplicationPageEventMessage(storeName, pageNumber, true));
+         replicateOperation(new ReplicationPageEventMessage(storeName, pageNumber, true));
       }
    }
 
@@ -227,7 +296,7 @@ public class ReplicationManager implements HornetQComponent
    {
       if (enabled)
       {
-         sendReplicatePacket(new ReplicationPageWriteMessage(message, pageNumber));
+         replicateOperation(new ReplicationPageWriteMessage(message, pageNumber));
       }
    }
 
@@ -235,7 +304,7 @@ public class ReplicationManager implements HornetQComponent
    {
       if (enabled)
       {
-         sendReplicatePacket(new ReplicationLargeMessageBeginMessage(messageId));
+         replicateOperation(new ReplicationLargeMessageBeginMessage(messageId));
       }
    }
 
@@ -243,7 +312,7 @@ public class ReplicationManager implements HornetQComponent
    {
       if (enabled)
       {
-         sendReplicatePacket(new ReplicationLargeMessageEndMessage(messageId));
+         replicateOperation(new ReplicationLargeMessageEndMessage(messageId));
       }
    }
 
@@ -251,7 +320,7 @@ public class ReplicationManager implements HornetQComponent
    {
       if (enabled)
       {
-         sendReplicatePacket(new ReplicationLargeMessageWriteMessage(messageId, body));
+         replicateOperation(new ReplicationLargeMessageWriteMessage(messageId, body));
       }
    }
 
@@ -273,6 +342,11 @@ public class ReplicationManager implements HornetQComponent
       failureListener = new ReplicatedSessionFailureListener();
       remotingConnection.addFailureListener(failureListener);
 
+      if (batchSize > 0 && journalBuffer != null)
+      {
+         journalBuffer.setFlushListener(flushBatchTask);
+      }
+
       started = true;
 
       enabled = true;
@@ -285,11 +359,21 @@ public class ReplicationManager implements HornetQComponent
          return;
       }
 
+      if (journalBuffer != null && journalBuffer.getFlushListener() == flushBatchTask)
+      {
+         journalBuffer.setFlushListener(null);
+      }
+
       synchronized (replicationLock)
       {
          enabled = false;
 
       clearReplicationTokens();
+
+         if (deflater != null)
+         {
+            deflater.end();
+         }
       }
       if (replicatingChannel != null)
       {
@@ -316,6 +400,12 @@ public class ReplicationManager implements HornetQComponent
    {
       synchronized (replicationLock)
       {
+         // the operations of the batch are completed along with the others
+         batch = null;
+         batchOperations = 0;
+
+         pendingResponses.clear();
+
          while (!pendingTokens.isEmpty())
          {
             OperationContext ctx = pendingTokens.poll();
@@ -351,9 +441,44 @@ public class ReplicationManager implements HornetQComponent
 
    public void compareJournals(final JournalLoadInformation[] journalInfo) throws HornetQException
    {
+      synchronized (replicationLock)
+      {
+         flushBatch();
+      }
+
       replicatingChannel.sendBlocking(new ReplicationCompareDataMessage(journalInfo));
    }
 
+   /**
+    * Returns the average time (in nanoseconds) between sending a packet to the backup and receiving its response, or
+    * -1 if no response was received yet.
+    */
+   public long getRoundTripTime()
+   {
+      return roundTripTime;
+   }
+
+   /**
+    * Returns the average number of operations sent per packet, which is 1 when not batching.
+    */
+   public double getAverageBatchSize()
+   {
+      long packets = packetsSent.get();
+
+      return packets == 0 ? 0 : (double)operationsSent.get() / packets;
+   }
+
+   /**
+    * Returns the size of the compressed batches relative to their size before compression, or 1 if none was
+    * compressed.
+    */
+   public double getCompressionRatio()
+   {
+      long before = bytesBeforeCompression.get();
+
+      return before == 0 ? 1 : (double)bytesAfterCompression.get() / before;
+   }
+
    // Package protected ---------------------------------------------
 
    // Protected -----------------------------------------------------
@@ -362,10 +487,18 @@ public class ReplicationManager implements HornetQComponent
 
    private void sendReplicatePacket(final Packet packet)
    {
-      sendReplicatePacket(packet, true);
+      sendReplicatePacket(packet, true, false);
    }
 
-   private void sendReplicatePacket(final Packet packet, boolean lineUp)
+   private void replicateOperation(final Packet packet)
+   {
+      sendReplicatePacket(packet, true, true);
+   }
+
+   /**
+    * @param batchable whether the packet may be sent in a batch
+    */
+   private void sendReplicatePacket(final Packet packet, boolean lineUp, final boolean batchable)
    {
       if (!enabled)
          return;
@@ -382,7 +515,17 @@ public class ReplicationManager implements HornetQComponent
          if (enabled)
          {
             pendingTokens.add(repliToken);
-            replicatingChannel.send(packet);
+
+            if (batchable && batchSize > 0)
+            {
+               addToBatch((PacketImpl)packet);
+            }
+            else
+            {
+               flushBatch();
+
+               send(packet, 1);
+            }
          }
          else
          {
@@ -406,14 +549,121 @@ public class ReplicationManager implements HornetQComponent
     */
    private void replicated()
    {
-      OperationContext ctx = pendingTokens.poll();
+      PendingResponse response = pendingResponses.poll();
 
-      if (ctx == null)
+      if (response == null)
       {
          throw new IllegalStateException("Missing replication token on the queue.");
       }
 
-      ctx.replicationDone();
+      long sample = System.nanoTime() - response.sent;
+
+      roundTripTime = roundTripTime < 0 ? sample : roundTripTime + (sample - roundTripTime) / 8;
+
+      for (int i = 0; i < response.operations; i++)
+      {
+         OperationContext ctx = pendingTokens.poll();
+
+         if (ctx == null)
+         {
+            throw new IllegalStateException("Missing replication token on the queue.");
+         }
+
+         ctx.replicationDone();
+      }
+   }
+
+   /**
+    * Has to be called holding the replicationLock.
+    */
+   private void send(final Packet packet, final int operations)
+   {
+      // the response may arrive before send returns
+      pendingResponses.add(new PendingResponse(operations));
+
+      packetsSent.incrementAndGet();
+
+      operationsSent.addAndGet(operations);
+
+      replicatingChannel.send(packet);
+   }
+
+   /**
+    * Has to be called holding the replicationLock.
+    */
+   private void addToBatch(final PacketImpl packet)
+   {
+      if (batch == null)
+      {
+         batch = HornetQBuffers.dynamicBuffer(1024);
+
+         if (scheduledExecutor != null)
+         {
+            // a flush of an empty or newer batch does no harm
+            scheduledExecutor.schedule(flushBatchTask, batchTimeout, TimeUnit.NANOSECONDS);
+         }
+      }
+
+      batch.writeByte(packet.getType());
+
+      packet.encodeRest(batch);
+
+      batchOperations++;
+
+      if (batch.writerIndex() >= batchSize)
+      {
+         flushBatch();
+      }
+   }
+
+   /**
+    * Has to be called holding the replicationLock.
+    */
+   private void flushBatch()
+   {
+      if (batch == null)
+      {
+         return;
+      }
+
+      HornetQBuffer operations = batch;
+
+      int length = operations.writerIndex();
+
+      boolean compressed = false;
+
+      if (deflater != null)
+      {
+         ByteBuffer input = operations.toByteBuffer(0, length);
+
+         // the worst case of zlib, keeping the batch uncompressed if it doesn't get any smaller
+         byte[] output = new byte[length + (length >> 12) + (length >> 14) + (length >> 25) + 13];
+
+         deflater.reset();
+         deflater.setInput(input.array(), input.arrayOffset() + input.position(), length);
+         deflater.finish();
+
+         int compressedLength = deflater.deflate(output);
+
+         if (deflater.finished() && compressedLength < length)
+         {
+            bytesBeforeCompression.addAndGet(length);
+
+            bytesAfterCompression.addAndGet(compressedLength);
+
+            operations = HornetQBuffers.wrappedBuffer(output);
+
+            operations.writerIndex(compressedLength);
+
+            compressed = true;
+         }
+      }
+
+      send(new ReplicationBatchMessage(batchOperations, compressed, length, operations), batchOperations);
+
+      batch = null;
+
+      batchOperations = 0;
    }
 
    // Inner classes -------------------------------------------------
@@ -447,6 +697,35 @@ public class ReplicationManager implements HornetQComponent
       }
    }
 
+   private static final class PendingResponse
+   {
+      private final int operations;
+
+      private final long sent = System.nanoTime();
+
+      private PendingResponse(final int operations)
+      {
+         this.operations = operations;
+      }
+   }
+
+   /**
+    * Flushes the batch, when the journal buffer is flushed or the batch timed out.
+    */
+   private final class FlushBatchTask implements Runnable
+   {
+      public void run()
+      {
+         synchronized (replicationLock)
+         {
+            if (enabled)
+            {
+               flushBatch();
+            }
+         }
+      }
+   }
+
    private class ResponseHandler implements ChannelHandler
    {
      public void handlePacket(final Packet packet)
@@ -15,9 +15,15 @@ package org.hornetq.core.security.impl;
 
 import static org.hornetq.api.core.management.NotificationType.SECURITY_AUTHENTICATION_VIOLATION;
 
+import java.util.EnumMap;
+import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.hornetq.api.core.SimpleString;
 import org.hornetq.api.core.management.ManagementHelper;
@@ -33,11 +39,15 @@ import org.hornetq.core.server.management.NotificationService;
 import org.hornetq.core.settings.HierarchicalRepository;
 import org.hornetq.core.settings.HierarchicalRepositoryChangeListener;
 import org.hornetq.spi.core.security.HornetQSecurityManager;
-import org.hornetq.utils.ConcurrentHashSet;
 import org.hornetq.utils.TypedProperties;
 
 /**
  * The HornetQ SecurityStore implementation
+ * <p>
+ * The granted permissions are cached by user, check type and address for the invalidation interval. A permission
+ * used after half of the interval is validated again in the background with the password of the session using
+ * it, so the permissions in use are refreshed before they expire and don't have to be validated when checked. The
+ * passwords are never kept in the cache. A change of the security settings invalidates the whole cache.
  *
  * @author <a href="mailto:tim.fox@jboss.com">Tim Fox</a>
  * @author <a href="ataylor@redhat.com">Andy Taylor</a>
@@ -60,11 +70,19 @@ public class SecurityStoreImpl implements SecurityStore, HierarchicalRepositoryC
 
    private final HornetQSecurityManager securityManager;
 
-   private final ConcurrentMap<String, ConcurrentHashSet<SimpleString>> cache = new ConcurrentHashMap<String, ConcurrentHashSet<SimpleString>>();
+   private final ConcurrentMap<String, Authorizations> cache = new ConcurrentHashMap<String, Authorizations>();
+
+   // the sessions without a user name
+   private final Authorizations anonymousAuthorizations = new Authorizations();
+
+   // incremented when the cache is invalidated, so a permission validated before isn't cached after
+   private final AtomicInteger cacheVersion = new AtomicInteger(0);
+
+   private final AtomicLong nextPurge = new AtomicLong(0);
 
    private final long invalidationInterval;
 
-   private volatile long lastCheck;
+   private final Executor executor;
 
    private final boolean securityEnabled;
 
@@ -78,6 +96,7 @@ public class SecurityStoreImpl implements SecurityStore, HierarchicalRepositoryC
 
    /**
     * @param notificationService can be <code>null</code>
+    * @param executor validates the cached permissions again in the background
     */
    public SecurityStoreImpl(final HierarchicalRepository<Set<Role>> securityRepository,
                             final HornetQSecurityManager securityManager,
@@ -85,7 +104,8 @@ public class SecurityStoreImpl implements SecurityStore, HierarchicalRepositoryC
                             final boolean securityEnabled,
                             final String managementClusterUser,
                             final String managementClusterPassword,
-                            final NotificationService notificationService)
+                            final NotificationService notificationService,
+                            final Executor executor)
    {
       this.securityRepository = securityRepository;
       this.securityManager = securityManager;
@@ -94,6 +114,7 @@ public class SecurityStoreImpl implements SecurityStore, HierarchicalRepositoryC
       this.managementClusterUser = managementClusterUser;
       this.managementClusterPassword = managementClusterPassword;
       this.notificationService = notificationService;
+      this.executor = executor;
       this.securityRepository.registerListener(this);
    }
 
@@ -156,12 +177,17 @@ public class SecurityStoreImpl implements SecurityStore, HierarchicalRepositoryC
          }
 
          String user = session.getUsername();
-         if (checkCached(address, user, checkType))
+
+         long now = System.currentTimeMillis();
+
+         if (checkCached(address, user, checkType, session, now))
          {
             // OK
             return;
          }
 
+         int version = cacheVersion.get();
+
          String saddress = address.toString();
 
          Set<Role> roles = securityRepository.getMatch(saddress);
@@ -190,14 +216,20 @@ public class SecurityStoreImpl implements SecurityStore, HierarchicalRepositoryC
             throw HornetQMessageBundle.BUNDLE.userNoPermissions(session.getUsername(), checkType, saddress);
          }
          // if we get here we're granted, add to the cache
-         ConcurrentHashSet<SimpleString> set = new ConcurrentHashSet<SimpleString>();
-         ConcurrentHashSet<SimpleString> act = cache.putIfAbsent(user + "." + checkType.name(), set);
-         if (act != null)
+         if (invalidationInterval > 0)
          {
-            set = act;
-         }
-         set.add(address);
+            Map<SimpleString, Authorization> granted = getAuthorizations(user).get(checkType);
+
+            Authorization authorization = new Authorization(now, invalidationInterval);
+
+            granted.put(address, authorization);
 
+            if (cacheVersion.get() != version)
+            {
+               // the cache was invalidated while validating
+               granted.remove(address, authorization);
+            }
+         }
       }
    }
 
@@ -212,36 +244,262 @@ public class SecurityStoreImpl implements SecurityStore, HierarchicalRepositoryC
 
    // Package Private -----------------------------------------------
 
+   /**
+    * @return the number of users having permissions in the cache
+    */
+   int getCachedUsers()
+   {
+      return cache.size();
+   }
+
    // Private -------------------------------------------------------
+
    private void invalidateCache()
    {
+      cacheVersion.incrementAndGet();
+
       cache.clear();
+
+      anonymousAuthorizations.clear();
    }
 
-   private boolean checkCached(final SimpleString dest, final String user, final CheckType checkType)
+   private Authorizations getAuthorizations(final String user)
    {
-      long now = System.currentTimeMillis();
+      if (user == null)
+      {
+         return anonymousAuthorizations;
+      }
 
-      boolean granted = false;
+      Authorizations authorizations = cache.get(user);
 
-      if (now - lastCheck > invalidationInterval)
+      if (authorizations == null)
       {
-         invalidateCache();
+         authorizations = new Authorizations();
 
-         lastCheck = now;
+         Authorizations existing = cache.putIfAbsent(user, authorizations);
+
+         if (existing != null)
+         {
+            authorizations = existing;
+         }
       }
-      else
+
+      return authorizations;
+   }
+
+   private boolean checkCached(final SimpleString dest,
+                               final String user,
+                               final CheckType checkType,
+                               final ServerSession session,
+                               final long now)
+   {
+      if (invalidationInterval <= 0)
+      {
+         return false;
+      }
+
+      long purge = nextPurge.get();
+
+      if (now >= purge && nextPurge.compareAndSet(purge, now + invalidationInterval))
       {
-         ConcurrentHashSet<SimpleString> act = cache.get(user + "." + checkType.name());
-         if (act != null)
+         executor.execute(new Runnable()
          {
-            granted = act.contains(dest);
-         }
+            public void run()
+            {
+               purgeExpired(System.currentTimeMillis());
+            }
+         });
       }
 
-      return granted;
+      Authorizations authorizations = user == null ? anonymousAuthorizations : cache.get(user);
+
+      if (authorizations == null)
+      {
+         return false;
+      }
+
+      ConcurrentMap<SimpleString, Authorization> granted = authorizations.get(checkType);
+
+      Authorization authorization = granted.get(dest);
+
+      if (authorization == null)
+      {
+         return false;
+      }
+
+      if (now >= authorization.expiry)
+      {
+         granted.remove(dest, authorization);
+
+         return false;
+      }
+
+      if (now >= authorization.refreshTime && authorization.refreshing.compareAndSet(false, true))
+      {
+         executor.execute(new Refresh(granted, dest, user, session.getPassword(), checkType, authorization));
+      }
+
+      return true;
+   }
+
+   private void purgeExpired(final long now)
+   {
+      anonymousAuthorizations.purgeExpired(now);
+
+      for (Map.Entry<String, Authorizations> entry : cache.entrySet())
+      {
+         Authorizations authorizations = entry.getValue();
+
+         authorizations.purgeExpired(now);
+
+         if (authorizations.isEmpty())
+         {
+            // a permission cached meanwhile is lost, it's only validated again on its next check
+            cache.remove(entry.getKey(), authorizations);
+         }
+      }
    }
 
    // Inner class ---------------------------------------------------
 
+   /**
+    * The permissions granted to a user, by check type and address.
+    */
+   private static final class Authorizations
+   {
+      private final EnumMap<CheckType, ConcurrentMap<SimpleString, Authorization>> authorizations = new EnumMap<CheckType, ConcurrentMap<SimpleString, Authorization>>(CheckType.class);
+
+      Authorizations()
+      {
+         for (CheckType checkType : CheckType.values())
+         {
+            authorizations.put(checkType, new ConcurrentHashMap<SimpleString, Authorization>());
+         }
+      }
+
+      ConcurrentMap<SimpleString, Authorization> get(final CheckType checkType)
+      {
+         return authorizations.get(checkType);
+      }
+
+      void clear()
+      {
+         for (ConcurrentMap<SimpleString, Authorization> granted : authorizations.values())
+         {
+            granted.clear();
+         }
+      }
+
+      boolean isEmpty()
+      {
+         for (ConcurrentMap<SimpleString, Authorization> granted : authorizations.values())
+         {
+            if (!granted.isEmpty())
+            {
+               return false;
+            }
+         }
+
+         return true;
+      }
+
+      void purgeExpired(final long now)
+      {
+         for (ConcurrentMap<SimpleString, Authorization> granted : authorizations.values())
+         {
+            for (Map.Entry<SimpleString, Authorization> entry : granted.entrySet())
+            {
+               if (now >= entry.getValue().expiry)
+               {
+                  granted.remove(entry.getKey(), entry.getValue());
+               }
+            }
+         }
+      }
+   }
+
+   private static final class Authorization
+   {
+      private final long refreshTime;
+
+      private final long expiry;
+
+      private final AtomicBoolean refreshing = new AtomicBoolean(false);
+
+      Authorization(final long validationTime, final long invalidationInterval)
+      {
+         refreshTime = validationTime + invalidationInterval / 2;
+         expiry = validationTime + invalidationInterval;
+      }
+   }
+
+   /**
+    * Validates a cached permission again with the password of the session which used it, replacing it when it is
+    * still granted and removing it otherwise.
+    */
+   private final class Refresh implements Runnable
+   {
+      private final ConcurrentMap<SimpleString, Authorization> granted;
+
+      private final SimpleString address;
+
+      private final String user;
+
+      private final String password;
+
+      private final CheckType checkType;
+
+      private final Authorization authorization;
+
+      Refresh(final ConcurrentMap<SimpleString, Authorization> granted,
+              final SimpleString address,
+              final String user,
+              final String password,
+              final CheckType checkType,
+              final Authorization authorization)
+      {
+         this.granted = granted;
+         this.address = address;
+         this.user = user;
+         this.password = password;
+         this.checkType = checkType;
+         this.authorization = authorization;
+      }
+
+      public void run()
+      {
+         long now = System.currentTimeMillis();
+
+         int version = cacheVersion.get();
+
+         boolean valid;
+
+         try
+         {
+            Set<Role> roles = securityRepository.getMatch(address.toString());
+
+            valid = securityManager.validateUserAndRole(user, password, roles, checkType);
+         }
+         catch (Exception e)
+         {
+            // the next check will validate it again and report the failure
+            valid = false;
+         }
+
+         if (!valid)
+         {
+            granted.remove(address, authorization);
+         }
+         else
+         {
+            Authorization refreshed = new Authorization(now, invalidationInterval);
+
+            if (granted.replace(address, authorization, refreshed) && cacheVersion.get() != version)
+            {
+               // the cache was invalidated while validating
+               granted.remove(address, refreshed);
+            }
+         }
+      }
+   }
 }
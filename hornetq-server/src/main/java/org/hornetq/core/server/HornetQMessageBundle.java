@@ -349,7 +349,7 @@ public interface HornetQMessageBundle
    @Message(id = 119091, value = "No queue found for {0}", format = Message.Format.MESSAGE_FORMAT)
    IllegalArgumentException noQueueFound(String otherQueueName);
 
-   @Message(id = 119092, value = "Only NIO and AsyncIO are supported journals", format = Message.Format.MESSAGE_FORMAT)
+   @Message(id = 119092, value = "Only NIO, AsyncIO and Mapped are supported journals", format = Message.Format.MESSAGE_FORMAT)
    IllegalArgumentException invalidJournal();
 
    @Message(id = 119093, value = "Invalid journal type {0}", format = Message.Format.MESSAGE_FORMAT)
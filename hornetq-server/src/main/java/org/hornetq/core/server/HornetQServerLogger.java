@@ -260,6 +260,10 @@ public interface HornetQServerLogger extends BasicLogger
             format = Message.Format.MESSAGE_FORMAT)
    void deprecatedConfigurationOption(String deprecatedOption);
 
+   @LogMessage(level = Logger.Level.INFO)
+   @Message(id = 221046, value = "Using memory mapped Journal", format = Message.Format.MESSAGE_FORMAT)
+   void journalUseMapped();
+
    @LogMessage(level = Logger.Level.WARN)
    @Message(id = 222001, value = "HornetQServer is being finalized and has not been stopped. Please remember to stop the server before letting it go out of scope",
          format = Message.Format.MESSAGE_FORMAT)
@@ -1253,4 +1257,9 @@ public interface HornetQServerLogger extends BasicLogger
       value = "Bridge {0} timed out waiting for the completion of {1} messages, we will just shutdown the bridge after 10 seconds wait",
       format = Message.Format.MESSAGE_FORMAT)
    void timedOutWaitingCompletions(String bridgeName, long numberOfMessages);
+
+   @LogMessage(level = Logger.Level.ERROR)
+   @Message(id = 224085, value = "Failed to close the file of a delivered large message",
+      format = Message.Format.MESSAGE_FORMAT)
+   void errorClosingLargeMessageFile(@Cause Exception e);
 }
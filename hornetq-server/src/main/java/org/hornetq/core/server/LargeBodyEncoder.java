@@ -0,0 +1,32 @@
+/*
+ * Copyright 2009 Red Hat, Inc.
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package org.hornetq.core.server;
+
+import java.nio.channels.FileChannel;
+
+import org.hornetq.core.message.BodyEncoder;
+
+/**
+ * A {@link BodyEncoder} reading the body of a {@link LargeServerMessage} from its file.
+ */
+public interface LargeBodyEncoder extends BodyEncoder
+{
+   /**
+    * Returns the channel of the file opened by {@link #open()}, or {@code null} if the file is not read through a
+    * {@link FileChannel}. The body starts at position 0 of the file.
+    * <p>
+    * Reading the channel doesn't move the position {@link #encode(java.nio.ByteBuffer)} reads from.
+    */
+   FileChannel getFileChannel();
+}
@@ -90,6 +90,8 @@ public interface Queue extends Bindable
 
    int getScheduledCount();
 
+   int getScheduledWheelOccupancy();
+
    List<MessageReference> getScheduledMessages();
 
    long getMessagesAdded();
@@ -25,6 +25,11 @@ public interface ScheduledDeliveryHandler
 
    int getScheduledCount();
 
+   /**
+    * Returns the number of non-empty slots of the timing wheel holding the scheduled references.
+    */
+   int getWheelOccupancy();
+
    List<MessageReference> getScheduledReferences();
 
    List<MessageReference> cancel(Filter filter);
@@ -46,6 +46,13 @@ public interface ServerConsumer extends Consumer
 
    void individualAcknowledge(boolean autoCommitAcks, Transaction tx, long messageID) throws Exception;
 
+   /**
+    * Acknowledges the messages whose IDs are in the ranges, in one transaction if the acknowledgements are
+    * committed.
+    * @param messageIDRanges the first and the last ID of each range of consecutive IDs
+    */
+   void individualAcknowledge(boolean autoCommitAcks, Transaction tx, long[] messageIDRanges) throws Exception;
+
    void forceDelivery(long sequence);
 
    void setTransferring(boolean transferring);
@@ -52,6 +52,8 @@ public interface ServerSession
 
    void individualAcknowledge(long consumerID, long messageID) throws Exception;
 
+   void individualAcknowledge(long consumerID, long[] messageIDRanges) throws Exception;
+
    void expire(long consumerID, long messageID) throws Exception;
 
    void rollback(boolean considerLastMessageAsDelivered) throws Exception;
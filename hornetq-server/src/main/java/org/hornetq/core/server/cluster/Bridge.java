@@ -61,4 +61,19 @@ public interface Bridge extends Consumer, HornetQComponent
    void disconnect();
 
    boolean isConnected();
+
+   /**
+    * @return the number of messages forwarded and not yet confirmed by the target
+    */
+   long getMessagesInFlight();
+
+   /**
+    * @return the number of forwarded messages confirmed by the target
+    */
+   long getMessagesConfirmed();
+
+   /**
+    * @return the average time in milliseconds between forwarding a message and its confirmation by the target
+    */
+   double getAverageConfirmationLatency();
 }
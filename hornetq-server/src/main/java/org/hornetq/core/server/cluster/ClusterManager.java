@@ -509,6 +509,8 @@ public class ClusterManager implements HornetQComponent
       serverLocator.setMinLargeMessageSize(config.getMinLargeMessageSize());
       //disable flow control
       serverLocator.setProducerWindowSize(-1);
+      // messages are forwarded in batches of this size when they are sent asynchronously
+      serverLocator.setProducerBatchSize(config.getBatchSize());
 
       // This will be set to 30s unless it's changed from embedded / testing
       // there is no reason to exception the config for this timeout
@@ -523,24 +525,26 @@ public class ClusterManager implements HornetQComponent
 
       clusterLocators.add(serverLocator);
 
-      Bridge bridge = new BridgeImpl(serverLocator,
-                                     config.getReconnectAttempts(),
-                                     config.getRetryInterval(),
-                                     config.getRetryIntervalMultiplier(),
-                                     config.getMaxRetryInterval(),
-                                     nodeManager.getUUID(),
-                                     new SimpleString(config.getName()),
-                                     queue,
-                                     executorFactory.getExecutor(),
-                                     SimpleString.toSimpleString(config.getFilterString()),
-                                     SimpleString.toSimpleString(config.getForwardingAddress()),
-                                     scheduledExecutor,
-                                     transformer,
-                                     config.isUseDuplicateDetection(),
-                                     config.getUser(),
-                                     config.getPassword(),
-                                     !backup,
-                                     server.getStorageManager());
+      BridgeImpl bridge = new BridgeImpl(serverLocator,
+                                         config.getReconnectAttempts(),
+                                         config.getRetryInterval(),
+                                         config.getRetryIntervalMultiplier(),
+                                         config.getMaxRetryInterval(),
+                                         nodeManager.getUUID(),
+                                         new SimpleString(config.getName()),
+                                         queue,
+                                         executorFactory.getExecutor(),
+                                         SimpleString.toSimpleString(config.getFilterString()),
+                                         SimpleString.toSimpleString(config.getForwardingAddress()),
+                                         scheduledExecutor,
+                                         transformer,
+                                         config.isUseDuplicateDetection(),
+                                         config.getUser(),
+                                         config.getPassword(),
+                                         !backup,
+                                         server.getStorageManager());
+
+      bridge.setMaxPendingAcks(config.getMaxPendingAcks());
 
       bridges.put(config.getName(), bridge);
 
@@ -731,6 +735,8 @@ public class ClusterManager implements HornetQComponent
                                                        config.isAllowDirectConnectionsOnly());
       }
 
+      clusterConnection.setBridgeBatching(config.getBatchSize(), config.getMaxPendingAcks());
+
       if (defaultClusterConnection == null)
       {
          defaultClusterConnection = clusterConnection;
@@ -14,13 +14,18 @@
 package org.hornetq.core.server.cluster.impl;
 
 import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.LinkedList;
+import java.util.List;
 import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.Executor;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
+import org.hornetq.api.config.HornetQDefaultConfiguration;
 import org.hornetq.api.core.HornetQException;
 import org.hornetq.api.core.HornetQExceptionType;
 import org.hornetq.api.core.Message;
@@ -47,6 +52,8 @@ import org.hornetq.core.server.cluster.Bridge;
 import org.hornetq.core.server.cluster.Transformer;
 import org.hornetq.core.server.management.Notification;
 import org.hornetq.core.server.management.NotificationService;
+import org.hornetq.core.transaction.Transaction;
+import org.hornetq.core.transaction.impl.TransactionImpl;
 import org.hornetq.spi.core.protocol.RemotingConnection;
 import org.hornetq.utils.FutureLatch;
 import org.hornetq.utils.ReusableLatch;
@@ -98,7 +105,20 @@ public class BridgeImpl implements Bridge, SessionFailureListener, SendAcknowled
 
    private final SimpleString forwardingAddress;
 
-   private final java.util.Queue<MessageReference> refs = new ConcurrentLinkedQueue<MessageReference>();
+   /** The references forwarded and not confirmed yet, each with the time it was forwarded at */
+   private final java.util.Queue<ForwardedReference> refs = new ConcurrentLinkedQueue<ForwardedReference>();
+
+   /** References confirmed by the target, waiting to be acknowledged together when forwarding in batches */
+   private final List<MessageReference> confirmedRefs = new ArrayList<MessageReference>();
+
+   private final AtomicLong confirmedMessages = new AtomicLong();
+
+   private final AtomicLong confirmationTime = new AtomicLong();
+
+   private volatile int maxPendingAcks = HornetQDefaultConfiguration.DEFAULT_BRIDGE_MAX_PENDING_ACKS;
+
+   /** Set when a reference was refused because of maxPendingAcks, so the next confirmation prompts the queue */
+   private volatile boolean blockedOnPendingAcks;
 
    private final Transformer transformer;
 
@@ -137,6 +157,8 @@ public class BridgeImpl implements Bridge, SessionFailureListener, SendAcknowled
 
    private NotificationService notificationService;
 
+   private final StorageManager storageManager;
+
    private boolean stopping = false;
 
    public BridgeImpl(final ServerLocatorInternal serverLocator,
@@ -194,6 +216,8 @@ public class BridgeImpl implements Bridge, SessionFailureListener, SendAcknowled
       this.password = password;
 
       this.activated = activated;
+
+      this.storageManager = storageManager;
    }
 
    public void setNotificationService(final NotificationService notificationService)
@@ -201,6 +225,41 @@ public class BridgeImpl implements Bridge, SessionFailureListener, SendAcknowled
       this.notificationService = notificationService;
    }
 
+   /**
+    * Sets the maximum number of forwarded messages not yet confirmed by the target. Once it is reached, the bridge
+    * refuses references until confirmations come back. -1 means no limit.
+    * <p>
+    * The target confirms a batch of messages as soon as it has handled it, so this is meant for bridges forwarding
+    * in batches. Otherwise the confirmations of non durable messages only come back once the confirmation window is
+    * full.
+    */
+   public void setMaxPendingAcks(final int maxPendingAcks)
+   {
+      this.maxPendingAcks = maxPendingAcks;
+   }
+
+   public long getMessagesInFlight()
+   {
+      return pendingAcks.getCount();
+   }
+
+   public long getMessagesConfirmed()
+   {
+      return confirmedMessages.get();
+   }
+
+   public double getAverageConfirmationLatency()
+   {
+      long confirmed = confirmedMessages.get();
+
+      if (confirmed == 0)
+      {
+         return 0;
+      }
+
+      return confirmationTime.get() / 1000000d / confirmed;
+   }
+
    public synchronized void start() throws Exception
    {
       if (started)
@@ -233,17 +292,17 @@ public class BridgeImpl implements Bridge, SessionFailureListener, SendAcknowled
 
    private void cancelRefs()
    {
-      MessageReference ref;
+      ForwardedReference forwarded;
 
       LinkedList<MessageReference> list = new LinkedList<MessageReference>();
 
-      while ((ref = refs.poll()) != null)
+      while ((forwarded = refs.poll()) != null)
       {
          if (isTrace)
          {
-            HornetQServerLogger.LOGGER.trace("Cancelling reference " + ref + " on bridge " + this);
+            HornetQServerLogger.LOGGER.trace("Cancelling reference " + forwarded.ref + " on bridge " + this);
          }
-         list.addFirst(ref);
+         list.addFirst(forwarded.ref);
       }
 
       if (isTrace && list.isEmpty())
@@ -457,16 +516,37 @@ public class BridgeImpl implements Bridge, SessionFailureListener, SendAcknowled
       {
          try
          {
-            final MessageReference ref = refs.poll();
+            final ForwardedReference forwarded = refs.poll();
 
-            if (ref != null)
+            if (forwarded != null)
             {
+               final MessageReference ref = forwarded.ref;
+
+               confirmationTime.addAndGet(System.nanoTime() - forwarded.forwardTime);
+               confirmedMessages.incrementAndGet();
+
                if (isTrace)
                {
                   HornetQServerLogger.LOGGER.trace(this + " Acking " + ref + " on queue " + ref.getQueue());
                }
-               ref.getQueue().acknowledge(ref);
+
+               if (serverLocator.getProducerBatchSize() > 0)
+               {
+                  addConfirmedRef(ref);
+               }
+               else
+               {
+                  ref.getQueue().acknowledge(ref);
+               }
+
                pendingAcks.countDown();
+
+               if (blockedOnPendingAcks)
+               {
+                  blockedOnPendingAcks = false;
+
+                  queue.deliverAsync();
+               }
             }
          }
          catch (Exception e)
@@ -546,6 +626,17 @@ public class BridgeImpl implements Bridge, SessionFailureListener, SendAcknowled
             return HandleStatus.BUSY;
          }
 
+         if (maxPendingAcks > 0 && pendingAcks.getCount() >= maxPendingAcks)
+         {
+            // set before checking again, so a confirmation coming meanwhile will prompt the queue
+            blockedOnPendingAcks = true;
+
+            if (pendingAcks.getCount() >= maxPendingAcks)
+            {
+               return HandleStatus.BUSY;
+            }
+         }
+
          if (isTrace)
          {
             HornetQServerLogger.LOGGER.trace("Bridge " + this + " is handling reference=" + ref);
@@ -553,7 +644,7 @@ public class BridgeImpl implements Bridge, SessionFailureListener, SendAcknowled
 
          ref.handled();
 
-         refs.add(ref);
+         refs.add(new ForwardedReference(ref, System.nanoTime()));
 
          final ServerMessage message = beforeForward(ref.getMessage());
 
@@ -696,7 +787,7 @@ public class BridgeImpl implements Bridge, SessionFailureListener, SendAcknowled
 
          // We remove this reference as we are returning busy which means the reference will never leave the Queue.
          // because of this we have to remove the reference here
-         refs.remove(ref);
+         removeForwarded(ref);
 
          connectionFailed(e, false);
 
@@ -961,8 +1052,34 @@ public class BridgeImpl implements Bridge, SessionFailureListener, SendAcknowled
                                                                TimeUnit.MILLISECONDS);
    }
 
+   private void removeForwarded(final MessageReference ref)
+   {
+      for (Iterator<ForwardedReference> iter = refs.iterator(); iter.hasNext();)
+      {
+         if (iter.next().ref == ref)
+         {
+            iter.remove();
+
+            return;
+         }
+      }
+   }
+
    // Inner classes -------------------------------------------------
 
+   private static final class ForwardedReference
+   {
+      final MessageReference ref;
+
+      final long forwardTime;
+
+      ForwardedReference(final MessageReference ref, final long forwardTime)
+      {
+         this.ref = ref;
+         this.forwardTime = forwardTime;
+      }
+   }
+
    private class StopRunnable implements Runnable
    {
       public void run()
@@ -1065,6 +1182,67 @@ public class BridgeImpl implements Bridge, SessionFailureListener, SendAcknowled
       }
    }
 
+   /**
+    * The target confirms a batch of messages at once, so the references are acknowledged together in one transaction
+    * on the executor instead of one by one on the remoting thread.
+    */
+   private void addConfirmedRef(final MessageReference ref)
+   {
+      boolean first;
+
+      synchronized (confirmedRefs)
+      {
+         first = confirmedRefs.isEmpty();
+
+         confirmedRefs.add(ref);
+      }
+
+      if (first)
+      {
+         executor.execute(new AcknowledgeRunnable());
+      }
+   }
+
+   private class AcknowledgeRunnable implements Runnable
+   {
+      public void run()
+      {
+         List<MessageReference> confirmed;
+
+         synchronized (confirmedRefs)
+         {
+            confirmed = new ArrayList<MessageReference>(confirmedRefs);
+
+            confirmedRefs.clear();
+         }
+
+         Transaction tx = new TransactionImpl(storageManager);
+
+         try
+         {
+            for (MessageReference ref : confirmed)
+            {
+               ref.getQueue().acknowledge(tx, ref);
+            }
+
+            tx.commit();
+         }
+         catch (Exception e)
+         {
+            HornetQServerLogger.LOGGER.bridgeFailedToAck(e);
+
+            try
+            {
+               tx.rollback();
+            }
+            catch (Exception dontcare)
+            {
+               HornetQServerLogger.LOGGER.debug(dontcare);
+            }
+         }
+      }
+   }
+
    /**
     * just set deliveringLargeMessage to false
     */
@@ -30,6 +30,7 @@ import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 
+import org.hornetq.api.config.HornetQDefaultConfiguration;
 import org.hornetq.api.core.DiscoveryGroupConfiguration;
 import org.hornetq.api.core.SimpleString;
 import org.hornetq.api.core.TransportConfiguration;
@@ -117,6 +118,10 @@ public final class ClusterConnectionImpl implements ClusterConnection, AfterConn
 
    private final int confirmationWindowSize;
 
+   private volatile int bridgeBatchSize = HornetQDefaultConfiguration.DEFAULT_BRIDGE_BATCH_SIZE;
+
+   private volatile int bridgeMaxPendingAcks = HornetQDefaultConfiguration.DEFAULT_BRIDGE_MAX_PENDING_ACKS;
+
    private final Map<String, MessageFlowRecord> records = new ConcurrentHashMap<String, MessageFlowRecord>();
 
    private final ScheduledExecutorService scheduledExecutor;
@@ -760,6 +765,17 @@ public final class ClusterConnectionImpl implements ClusterConnection, AfterConn
       return connector;
    }
 
+   /**
+    * Sets the batching of the bridges created from now on towards the other nodes.
+    *
+    * @see BridgeImpl#setMaxPendingAcks(int)
+    */
+   public void setBridgeBatching(final int batchSize, final int maxPendingAcks)
+   {
+      bridgeBatchSize = batchSize;
+      bridgeMaxPendingAcks = maxPendingAcks;
+   }
+
    // ClusterTopologyListener implementation ------------------------------------------------------------------
 
    public void nodeDown(final long eventUID, final String nodeID)
@@ -960,6 +976,8 @@ public final class ClusterConnectionImpl implements ClusterConnection, AfterConn
       // No producer flow control on the bridges, as we don't want to lock the queues
       targetLocator.setProducerWindowSize(-1);
 
+      targetLocator.setProducerBatchSize(bridgeBatchSize);
+
       targetLocator.setAfterConnectionInternalListener(this);
 
       targetLocator.setNodeID(nodeId);
@@ -1008,6 +1026,8 @@ public final class ClusterConnectionImpl implements ClusterConnection, AfterConn
                                                                    record,
                                                                    record.getConnector());
 
+      bridge.setMaxPendingAcks(bridgeMaxPendingAcks);
+
       targetLocator.setIdentity("(Cluster-connection-bridge::" + bridge.toString() + "::" + this.toString() + ")");
 
       if (HornetQServerLogger.LOGGER.isDebugEnabled())
@@ -0,0 +1,211 @@
+/*
+ * Copyright 2009 Red Hat, Inc.
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package org.hornetq.core.server.impl;
+
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.Map;
+
+import org.hornetq.core.server.MessageReference;
+
+/**
+ * The references delivered by a consumer and not acknowledged yet, in delivery order and indexed by message ID, so
+ * an individual acknowledgement doesn't have to search them.
+ * <p>
+ * Several references to the same message ID are removed in delivery order.
+ */
+final class DeliveringReferences
+{
+   // the oldest reference for each message ID, the others are chained to it
+   private final Map<Long, Node> index = new HashMap<Long, Node>();
+
+   private Node head;
+
+   private Node tail;
+
+   private int size;
+
+   synchronized void add(final MessageReference ref)
+   {
+      Node node = new Node(ref);
+
+      if (tail == null)
+      {
+         head = node;
+      }
+      else
+      {
+         tail.next = node;
+         node.prev = tail;
+      }
+
+      tail = node;
+
+      Node sameID = index.get(node.messageID);
+
+      if (sameID == null)
+      {
+         index.put(node.messageID, node);
+      }
+      else
+      {
+         while (sameID.nextSameID != null)
+         {
+            sameID = sameID.nextSameID;
+         }
+
+         sameID.nextSameID = node;
+      }
+
+      size++;
+   }
+
+   /**
+    * @return the oldest reference, or <code>null</code> if there is none
+    */
+   synchronized MessageReference peek()
+   {
+      return head == null ? null : head.ref;
+   }
+
+   /**
+    * @return the oldest reference, removed, or <code>null</code> if there is none
+    */
+   synchronized MessageReference poll()
+   {
+      if (head == null)
+      {
+         return null;
+      }
+
+      // the oldest of all is the oldest for its message ID
+      Node node = head;
+
+      removeFromIndex(node);
+
+      unlink(node);
+
+      return node.ref;
+   }
+
+   /**
+    * @return the oldest reference to the message, or <code>null</code> if there is none
+    */
+   synchronized MessageReference remove(final long messageID)
+   {
+      Node node = index.get(messageID);
+
+      if (node == null)
+      {
+         return null;
+      }
+
+      removeFromIndex(node);
+
+      unlink(node);
+
+      return node.ref;
+   }
+
+   /**
+    * @return all the references, in delivery order
+    */
+   synchronized LinkedList<MessageReference> removeAll()
+   {
+      LinkedList<MessageReference> refs = new LinkedList<MessageReference>();
+
+      for (Node node = head; node != null; node = node.next)
+      {
+         refs.add(node.ref);
+      }
+
+      index.clear();
+
+      head = null;
+
+      tail = null;
+
+      size = 0;
+
+      return refs;
+   }
+
+   synchronized int size()
+   {
+      return size;
+   }
+
+   synchronized boolean isEmpty()
+   {
+      return size == 0;
+   }
+
+   // Private -------------------------------------------------------
+
+   private void removeFromIndex(final Node node)
+   {
+      if (node.nextSameID == null)
+      {
+         index.remove(node.messageID);
+      }
+      else
+      {
+         index.put(node.messageID, node.nextSameID);
+      }
+   }
+
+   private void unlink(final Node node)
+   {
+      if (node.prev == null)
+      {
+         head = node.next;
+      }
+      else
+      {
+         node.prev.next = node.next;
+      }
+
+      if (node.next == null)
+      {
+         tail = node.prev;
+      }
+      else
+      {
+         node.next.prev = node.prev;
+      }
+
+      size--;
+   }
+
+   // Inner classes -------------------------------------------------
+
+   private static final class Node
+   {
+      private final MessageReference ref;
+
+      private final long messageID;
+
+      private Node prev;
+
+      private Node next;
+
+      private Node nextSameID;
+
+      private Node(final MessageReference ref)
+      {
+         this.ref = ref;
+         messageID = ref.getMessage().getMessageID();
+      }
+   }
+}
@@ -1092,8 +1092,6 @@ public class HornetQServerImpl implements HornetQServer
 
    public void destroyQueue(final SimpleString queueName, final ServerSession session) throws Exception
    {
-      addressSettingsRepository.clearCache();
-
       Binding binding = postOffice.getBinding(queueName);
 
       if (binding == null)
@@ -1135,6 +1133,7 @@ public class HornetQServerImpl implements HornetQServer
          storageManager.deleteQueueBinding(queue.getID());
       }
 
+      addressSettingsRepository.clearCache(binding.getAddress().toString());
    }
 
    public synchronized void registerActivateCallback(final ActivateCallback callback)
@@ -1297,9 +1296,11 @@ public class HornetQServerImpl implements HornetQServer
          scheduledPool,
          executorFactory,
          configuration.isJournalSyncNonTransactional(),
-         shutdownOnCriticalIO),
+         shutdownOnCriticalIO,
+         configuration.getJournalType() == JournalType.MAPPED),
          storageManager,
-         addressSettingsRepository);
+         addressSettingsRepository,
+         configuration.getGlobalPageCacheMaxSize());
    }
 
    /**
@@ -1405,7 +1406,8 @@ public class HornetQServerImpl implements HornetQServer
          configuration.isSecurityEnabled(),
          configuration.getClusterUser(),
          configuration.getClusterPassword(),
-         managementService);
+         managementService,
+         executorFactory.getExecutor());
 
       queueFactory = new QueueFactoryImpl(executorFactory, scheduledPool, addressSettingsRepository, storageManager);
 
@@ -1424,6 +1426,8 @@ public class HornetQServerImpl implements HornetQServer
          configuration.isWildcardRoutingEnabled(),
          configuration.getIDCacheSize(),
          configuration.isPersistIDCache(),
+         configuration.isIDCacheOffHeap(),
+         configuration.getIDCacheFilterRatio(),
          addressSettingsRepository);
 
       // This can't be created until node id is set
@@ -2680,7 +2684,7 @@ public class HornetQServerImpl implements HornetQServer
          ReplicationFailureListener listener = new ReplicationFailureListener();
          rc.addCloseListener(listener);
          rc.addFailureListener(listener);
-         replicationManager = new ReplicationManager(rc, executorFactory);
+         replicationManager = createReplicationManager(rc);
          replicationManager.start();
          Thread t = new Thread(new Runnable()
          {
@@ -2749,6 +2753,27 @@ public class HornetQServerImpl implements HornetQServer
       }
    }
 
+   private ReplicationManager createReplicationManager(final CoreRemotingConnection rc)
+   {
+      if (!configuration.isReplicationBatching())
+      {
+         return new ReplicationManager(rc, executorFactory);
+      }
+
+      // the batches are as big as the journal buffer, and wait at most as long as it does
+      final boolean aio = configuration.getJournalType() == JournalType.ASYNCIO;
+
+      return new ReplicationManager(rc,
+                                    executorFactory,
+                                    scheduledPool,
+                                    storageManager.getMessageJournalBuffer(),
+                                    aio ? configuration.getJournalBufferSize_AIO()
+                                       : configuration.getJournalBufferSize_NIO(),
+                                    aio ? configuration.getJournalBufferTimeout_AIO()
+                                       : configuration.getJournalBufferTimeout_NIO(),
+                                    configuration.isReplicationCompressed());
+   }
+
    /**
     * Whether a remote backup server was in sync with its live server. If it was not in sync, it may
     * not take over the live's functions.
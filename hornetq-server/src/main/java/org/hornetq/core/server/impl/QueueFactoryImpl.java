@@ -108,6 +108,11 @@ public class QueueFactoryImpl implements QueueFactory
                                executorFactory.getExecutor());
       }
 
+      if (addressSettings.isConcurrentDispatch())
+      {
+         ((QueueImpl)queue).setConcurrentDispatch(executorFactory);
+      }
+
       return queue;
    }
 }
@@ -30,6 +30,7 @@ import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 
@@ -58,6 +59,7 @@ import org.hornetq.core.transaction.TransactionOperation;
 import org.hornetq.core.transaction.TransactionPropertyIndexes;
 import org.hornetq.core.transaction.impl.TransactionImpl;
 import org.hornetq.utils.ConcurrentHashSet;
+import org.hornetq.utils.ExecutorFactory;
 import org.hornetq.utils.FutureLatch;
 import org.hornetq.utils.LinkedListIterator;
 import org.hornetq.utils.PriorityLinkedList;
@@ -173,6 +175,26 @@ public class QueueImpl implements Queue
 
    private volatile boolean directDeliver = true;
 
+   // Only set when the queue uses concurrent dispatch. Each consumer then gets its own executor from this factory
+   private volatile ExecutorFactory dispatchExecutorFactory;
+
+   // Copy on write snapshot of the dispatchers, so they can be woken up without locking the queue
+   private volatile ConsumerDispatcher[] dispatchers = new ConsumerDispatcher[0];
+
+   private final AtomicInteger dispatchPos = new AtomicInteger(0);
+
+   // How many dispatchers in a row gave up because their consumer was busy
+   private final AtomicInteger dispatchBusyCount = new AtomicInteger(0);
+
+   // References claimed by a dispatcher but not handled by its consumer yet, counted as delivering
+   private final AtomicInteger claimedCount = new AtomicInteger(0);
+
+   // Threads waiting for the claimed references, no other one is claimed meanwhile
+   private final AtomicInteger claimSuspensions = new AtomicInteger(0);
+
+   // Waited on for the claimed references by the threads not holding the queue lock
+   private final Object claimsLock = new Object();
+
    public String debug()
    {
       StringWriter str = new StringWriter();
@@ -444,6 +466,7 @@ public class QueueImpl implements Queue
       if (checkDirect)
       {
          if (direct && !directDeliver &&
+             dispatchExecutorFactory == null &&
              intermediateMessageReferences.isEmpty() &&
              messageReferences.isEmpty() &&
              !pageIterator.hasNext() &&
@@ -496,6 +519,13 @@ public class QueueImpl implements Queue
 
    public void deliverAsync()
    {
+      if (dispatchExecutorFactory != null)
+      {
+         wakeDispatchers();
+
+         return;
+      }
+
       try
       {
          getExecutor().execute(deliverRunner);
@@ -558,6 +588,18 @@ public class QueueImpl implements Queue
 
       boolean ok = future.await(10000);
 
+      if (ok)
+      {
+         for (ConsumerDispatcher dispatcher : dispatchers)
+         {
+            FutureLatch dispatchFuture = new FutureLatch();
+
+            dispatcher.executor.execute(dispatchFuture);
+
+            ok &= dispatchFuture.await(10000);
+         }
+      }
+
       if (!ok)
       {
          HornetQServerLogger.LOGGER.errorFlushingExecutorsOnQueue();
@@ -580,9 +622,43 @@ public class QueueImpl implements Queue
          consumerWithFilterCount.incrementAndGet();
       }
 
-      consumerList.add(new ConsumerHolder(consumer));
+      consumerList.add(createHolder(consumer));
 
       consumerSet.add(consumer);
+
+      updateDispatchers();
+   }
+
+   /**
+    * Switches this queue to concurrent dispatch.
+    * <p>
+    * Instead of one delivery loop on the queue executor holding the queue lock while handing references to every
+    * consumer, each consumer gets its own dispatcher running on an executor created by the given factory. The queue
+    * lock is only held while a dispatcher claims the next reference for its consumer or gives a rejected one back,
+    * never while the consumer is handling it, so deliveries to different consumers proceed in parallel.
+    * <p>
+    * Priorities and message groups are honoured as with the default delivery, but a reference rejected by a busy
+    * consumer goes back to the head of the queue and may then be delivered to another consumer after references
+    * that were queued behind it.
+    */
+   public synchronized void setConcurrentDispatch(final ExecutorFactory executorFactory)
+   {
+      dispatchExecutorFactory = executorFactory;
+
+      // Direct delivery would bypass the ordering the dispatchers keep per consumer
+      directDeliver = false;
+
+      for (ConsumerHolder holder : consumerList)
+      {
+         holder.dispatcher = new ConsumerDispatcher(holder, executorFactory.getExecutor());
+      }
+
+      updateDispatchers();
+   }
+
+   public boolean isConcurrentDispatch()
+   {
+      return dispatchExecutorFactory != null;
    }
 
    public synchronized void removeConsumer(final Consumer consumer) throws Exception
@@ -598,8 +674,13 @@ public class QueueImpl implements Queue
             if (holder.iter != null)
             {
                holder.iter.close();
+
+               holder.iter = null;
             }
 
+            // A dispatcher already scheduled for it must not claim anything else
+            holder.removed = true;
+
             iter.remove();
 
             break;
@@ -632,6 +713,14 @@ public class QueueImpl implements Queue
       {
          consumerWithFilterCount.decrementAndGet();
       }
+
+      if (dispatchExecutorFactory != null)
+      {
+         updateDispatchers();
+
+         // The other dispatchers may have skipped references of groups owned by the removed consumer
+         resetAllIterators();
+      }
    }
 
    public synchronized void addRedistributor(final long delay)
@@ -692,6 +781,8 @@ public class QueueImpl implements Queue
          {
             pos = consumerList.size() - 1;
          }
+
+         updateDispatchers();
       }
 
       if (redistributorFuture != null)
@@ -755,6 +846,9 @@ public class QueueImpl implements Queue
 
    public LinkedListIterator<MessageReference> iterator()
    {
+      // A claimed reference would be in neither the queue nor the deliveries
+      awaitClaims();
+
       return new SynchronizedIterator(messageReferences.iterator());
    }
 
@@ -859,12 +953,12 @@ public class QueueImpl implements Queue
             // messageReferences will have depaged messages which we need to discount from the counter as they are
             // counted on the pageSubscription as well
             return messageReferences.size() + getScheduledCount() +
-                   deliveringCount.get() +
+                   getDeliveringCount() +
                    pageSubscription.getMessageCount();
          }
          else
          {
-            return messageReferences.size() + getScheduledCount() + deliveringCount.get();
+            return messageReferences.size() + getScheduledCount() + getDeliveringCount();
          }
       }
    }
@@ -874,6 +968,11 @@ public class QueueImpl implements Queue
       return scheduledDeliveryHandler.getScheduledCount();
    }
 
+   public int getScheduledWheelOccupancy()
+   {
+      return scheduledDeliveryHandler.getWheelOccupancy();
+   }
+
    public synchronized List<MessageReference> getScheduledMessages()
    {
       return scheduledDeliveryHandler.getScheduledReferences();
@@ -881,7 +980,7 @@ public class QueueImpl implements Queue
 
    public int getDeliveringCount()
    {
-      return deliveringCount.get();
+      return deliveringCount.get() + claimedCount.get();
    }
 
    public void acknowledge(final MessageReference ref) throws Exception
@@ -1645,7 +1744,19 @@ public class QueueImpl implements Queue
 
          messagesAdded++;
 
-         if (consumerWithFilterCount.get() > 0 || messageReferences.size() == 1)
+         if (dispatchExecutorFactory != null)
+         {
+            if (consumerWithFilterCount.get() > 0)
+            {
+               wakeDispatchers();
+            }
+            else if (messageReferences.size() == 1)
+            {
+               // Any dispatcher can take it, if that one is busy it will pass it on to the next
+               wakeNextDispatcher();
+            }
+         }
+         else if (consumerWithFilterCount.get() > 0 || messageReferences.size() == 1)
          {
             deliver();
          }
@@ -1658,6 +1769,13 @@ public class QueueImpl implements Queue
     */
    private void deliver()
    {
+      if (dispatchExecutorFactory != null)
+      {
+         wakeDispatchers();
+
+         return;
+      }
+
       synchronized (this)
       {
          if (paused || consumerList.isEmpty())
@@ -1939,7 +2057,9 @@ public class QueueImpl implements Queue
                                            executor,
                                            QueueImpl.REDISTRIBUTOR_BATCH_SIZE);
 
-         consumerList.add(new ConsumerHolder(redistributor));
+         consumerList.add(createHolder(redistributor));
+
+         updateDispatchers();
 
          redistributor.start();
 
@@ -2191,6 +2311,349 @@ public class QueueImpl implements Queue
       }
    }
 
+   private ConsumerHolder createHolder(final Consumer consumer)
+   {
+      ConsumerHolder holder = new ConsumerHolder(consumer);
+
+      if (dispatchExecutorFactory != null)
+      {
+         holder.dispatcher = new ConsumerDispatcher(holder, dispatchExecutorFactory.getExecutor());
+      }
+
+      return holder;
+   }
+
+   /**
+    * The caller of this method requires synchronized on the queue.
+    */
+   private void updateDispatchers()
+   {
+      if (dispatchExecutorFactory == null)
+      {
+         return;
+      }
+
+      List<ConsumerDispatcher> newDispatchers = new ArrayList<ConsumerDispatcher>(consumerList.size());
+
+      for (ConsumerHolder holder : consumerList)
+      {
+         if (holder.dispatcher != null)
+         {
+            newDispatchers.add(holder.dispatcher);
+         }
+      }
+
+      dispatchers = newDispatchers.toArray(new ConsumerDispatcher[newDispatchers.size()]);
+
+      dispatchBusyCount.set(0);
+   }
+
+   private void wakeDispatchers()
+   {
+      for (ConsumerDispatcher dispatcher : dispatchers)
+      {
+         dispatcher.wakeUp();
+      }
+   }
+
+   private void wakeNextDispatcher()
+   {
+      ConsumerDispatcher[] current = dispatchers;
+
+      if (current.length > 0)
+      {
+         int next = (dispatchPos.getAndIncrement() & Integer.MAX_VALUE) % current.length;
+
+         current[next].wakeUp();
+      }
+   }
+
+   private void wakeDispatcher(final Consumer consumer)
+   {
+      for (ConsumerDispatcher dispatcher : dispatchers)
+      {
+         if (dispatcher.holder.consumer == consumer)
+         {
+            dispatcher.wakeUp();
+
+            return;
+         }
+      }
+   }
+
+   /**
+    * Delivers to a single consumer until it is busy or there are no more references it can take. Only one of these
+    * runs at a time for a given consumer, but dispatchers of different consumers run concurrently.
+    */
+   private void dispatch(final ConsumerDispatcher dispatcher)
+   {
+      Consumer consumer = dispatcher.holder.consumer;
+
+      int handled = 0;
+
+      long timeout = System.currentTimeMillis() + DELIVERY_TIMEOUT;
+
+      while (true)
+      {
+         if (handled == MAX_DELIVERIES_IN_LOOP || System.currentTimeMillis() > timeout)
+         {
+            // Reschedule ourselves so we don't keep a pooled thread for too long
+            dispatcher.wakeUp();
+
+            return;
+         }
+
+         MessageReference ref = claim(dispatcher.holder);
+
+         if (ref == null)
+         {
+            break;
+         }
+
+         if (checkExpired(ref))
+         {
+            releaseClaim(dispatcher.holder, true);
+
+            handled++;
+
+            continue;
+         }
+
+         if (isTrace)
+         {
+            HornetQServerLogger.LOGGER.trace("Queue " + this.getName() + " is dispatching reference " + ref);
+         }
+
+         HandleStatus status = handle(ref, consumer);
+
+         if (status == HandleStatus.HANDLED)
+         {
+            // now counted as delivering by the consumer
+            releaseClaim(dispatcher.holder, false);
+
+            dispatchBusyCount.set(0);
+
+            handled++;
+
+            continue;
+         }
+
+         unclaim(dispatcher.holder, ref, status);
+
+         // Give the next consumer a chance at it, unless all of them already gave up
+         if (dispatchBusyCount.incrementAndGet() < dispatchers.length)
+         {
+            wakeNextDispatcher();
+         }
+
+         return;
+      }
+
+      if (pageSubscription != null && pageSubscription.isPaging() && messageReferences.size() == 0)
+      {
+         // depage checks the page iterator on the paging executor
+         scheduleDepage(false);
+      }
+   }
+
+   /**
+    * Removes the next reference the consumer can take, skipping the ones not matching its filter or belonging to a
+    * group owned by another consumer.
+    */
+   private synchronized MessageReference claim(final ConsumerHolder holder)
+   {
+      if (paused || claimSuspensions.get() > 0 || holder.removed)
+      {
+         return null;
+      }
+
+      if (holder.iter == null)
+      {
+         holder.iter = messageReferences.iterator();
+      }
+
+      Filter consumerFilter = holder.consumer.getFilter();
+
+      while (holder.iter.hasNext())
+      {
+         MessageReference ref = holder.iter.next();
+
+         if (consumerFilter != null && !consumerFilter.match(ref.getMessage()))
+         {
+            continue;
+         }
+
+         SimpleString groupID = ref.getMessage().getSimpleStringProperty(Message.HDR_GROUP_ID);
+
+         if (groupID != null)
+         {
+            Consumer groupConsumer = groups.get(groupID);
+
+            if (groupConsumer == null)
+            {
+               // Reserved so no other consumer takes the group meanwhile, the group is only kept by the consumer
+               // if it handles the reference
+               groups.put(groupID, holder.consumer);
+
+               holder.claimedGroupID = groupID;
+            }
+            else if (groupConsumer != holder.consumer)
+            {
+               // Left in place, the iterator of the group owner will reach it in order
+               wakeDispatcher(groupConsumer);
+
+               continue;
+            }
+         }
+
+         holder.iter.remove();
+
+         refRemoved(ref);
+
+         claimedCount.incrementAndGet();
+
+         return ref;
+      }
+
+      return null;
+   }
+
+   /**
+    * Ends the claim of a reference taken by the consumer or expired.
+    * @param releaseGroup whether a group reserved by the claim goes back to no consumer
+    */
+   private void releaseClaim(final ConsumerHolder holder, final boolean releaseGroup)
+   {
+      if (holder.claimedGroupID != null)
+      {
+         if (releaseGroup)
+         {
+            synchronized (this)
+            {
+               releaseClaimedGroup(holder);
+            }
+         }
+
+         holder.claimedGroupID = null;
+      }
+
+      if (claimedCount.decrementAndGet() == 0 && claimSuspensions.get() > 0)
+      {
+         claimsDone();
+      }
+   }
+
+   /**
+    * The caller of this method requires synchronized on the queue.
+    */
+   private void releaseClaimedGroup(final ConsumerHolder holder)
+   {
+      if (groups.get(holder.claimedGroupID) == holder.consumer)
+      {
+         groups.remove(holder.claimedGroupID);
+      }
+
+      holder.claimedGroupID = null;
+   }
+
+   /**
+    * Waits for the references claimed by the dispatchers to be handled or given back, so each of them is either in
+    * the queue or delivering.
+    * <p>
+    * The queue lock isn't held while waiting: a caller not holding it waits on {@link #claimsLock}, a caller holding it
+    * waits on the queue, which releases the lock meanwhile so the claims can be given back.
+    */
+   private void awaitClaims()
+   {
+      synchronized (this)
+      {
+         // The references are claimed under the lock, so none is being claimed here
+         if (claimedCount.get() == 0)
+         {
+            return;
+         }
+
+         claimSuspensions.incrementAndGet();
+      }
+
+      try
+      {
+         Object monitor = Thread.holdsLock(this) ? this : claimsLock;
+
+         synchronized (monitor)
+         {
+            // Bounded, in case a consumer handling a claimed reference is waiting on this thread
+            long timeout = System.currentTimeMillis() + DELIVERY_TIMEOUT;
+
+            long remaining = DELIVERY_TIMEOUT;
+
+            while (claimedCount.get() > 0 && remaining > 0)
+            {
+               monitor.wait(remaining);
+
+               remaining = timeout - System.currentTimeMillis();
+            }
+         }
+      }
+      catch (InterruptedException e)
+      {
+         Thread.currentThread().interrupt();
+      }
+      finally
+      {
+         if (claimSuspensions.decrementAndGet() == 0)
+         {
+            wakeDispatchers();
+         }
+      }
+   }
+
+   /**
+    * Wakes up the threads waiting for the claimed references, whichever lock they wait on.
+    */
+   private void claimsDone()
+   {
+      synchronized (claimsLock)
+      {
+         claimsLock.notifyAll();
+      }
+
+      synchronized (this)
+      {
+         notifyAll();
+      }
+   }
+
+   /**
+    * Gives back a reference the consumer didn't take.
+    */
+   private synchronized void unclaim(final ConsumerHolder holder, final MessageReference ref, final HandleStatus status)
+   {
+      internalAddHead(ref);
+
+      // The group isn't pinned to a consumer which didn't take the reference
+      if (holder.claimedGroupID != null)
+      {
+         releaseClaimedGroup(holder);
+      }
+
+      if (claimedCount.decrementAndGet() == 0 && claimSuspensions.get() > 0)
+      {
+         claimsDone();
+      }
+
+      for (ConsumerHolder other : consumerList)
+      {
+         // A consumer not matching the reference doesn't need to see it again
+         if (other.iter != null && (status == HandleStatus.BUSY || other != holder))
+         {
+            other.iter.close();
+
+            other.iter = null;
+         }
+      }
+   }
+
    private boolean checkExpired(final MessageReference reference)
    {
       if (reference.getMessage().isExpired())
@@ -2218,7 +2681,11 @@ public class QueueImpl implements Queue
       }
    }
 
-   private synchronized HandleStatus handle(final MessageReference reference, final Consumer consumer)
+   /*
+    * Callers from the serial delivery already hold the queue lock, the concurrent dispatchers must not hold it while
+    * the consumer is handling the reference
+    */
+   private HandleStatus handle(final MessageReference reference, final Consumer consumer)
    {
       HandleStatus status;
       try
@@ -2341,6 +2808,61 @@ public class QueueImpl implements Queue
       final Consumer consumer;
 
       LinkedListIterator<MessageReference> iter;
+
+      ConsumerDispatcher dispatcher;
+
+      // The group reserved by the reference claimed for this consumer, only used by its dispatcher
+      SimpleString claimedGroupID;
+
+      // Set under the queue lock when the consumer is removed
+      boolean removed;
+   }
+
+   private final class ConsumerDispatcher implements Runnable
+   {
+      final ConsumerHolder holder;
+
+      final Executor executor;
+
+      private final AtomicBoolean scheduled = new AtomicBoolean(false);
+
+      ConsumerDispatcher(final ConsumerHolder holder, final Executor executor)
+      {
+         this.holder = holder;
+
+         this.executor = executor;
+      }
+
+      void wakeUp()
+      {
+         if (scheduled.compareAndSet(false, true))
+         {
+            try
+            {
+               executor.execute(this);
+            }
+            catch (RejectedExecutionException ignored)
+            {
+               // no-op, this could happen on a server shutdown
+               scheduled.set(false);
+            }
+         }
+      }
+
+      public void run()
+      {
+         // Cleared before dispatching, so a wake up arriving meanwhile schedules another pass
+         scheduled.set(false);
+
+         try
+         {
+            dispatch(this);
+         }
+         catch (Exception e)
+         {
+            HornetQServerLogger.LOGGER.errorDelivering(e);
+         }
+      }
    }
 
    private final class RefsOperation implements TransactionOperation
@@ -13,12 +13,14 @@
 package org.hornetq.core.server.impl;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
-import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
 
 import org.hornetq.core.filter.Filter;
@@ -29,6 +31,13 @@ import org.hornetq.core.server.ScheduledDeliveryHandler;
 
 /**
  * Handles scheduling deliveries to a queue at the correct time.
+ * <p>
+ * Scheduled references are kept on a hierarchical timing wheel: four levels of {@value #WHEEL_SIZE} slots,
+ * each level covering {@value #WHEEL_SIZE} times the range of the level below, plus an overflow slot for
+ * anything further away. Time is divided in ticks of {@value #TICK_MILLIS} milliseconds; insertion and
+ * removal are O(1) and a single timer task per handler delivers every reference due in the same tick in
+ * one {@link Queue#addHead(LinkedList)} call per queue. Entries on the upper levels are cascaded down as
+ * the wheel crosses the corresponding block boundaries.
  *
  * @author <a href="mailto:tim.fox@jboss.com">Tim Fox</a>
  * @author <a href="ataylor@redhat.com">Andy Taylor</a>
@@ -39,11 +48,53 @@ public class ScheduledDeliveryHandlerImpl implements ScheduledDeliveryHandler
 {
    private static final boolean trace = HornetQServerLogger.LOGGER.isTraceEnabled();
 
+   public static final long TICK_MILLIS = 10;
+
+   public static final int WHEEL_BITS = 8;
+
+   public static final int WHEEL_SIZE = 1 << WHEEL_BITS;
+
+   private static final int WHEEL_MASK = WHEEL_SIZE - 1;
+
+   private static final int LEVELS = 4;
+
+   /** index of the single overflow slot, used for entries beyond the range of the top level */
+   private static final int OVERFLOW = LEVELS;
+
+   private static final Comparator<Entry> SEQUENCE_COMPARATOR = new Comparator<Entry>()
+   {
+      public int compare(final Entry e1, final Entry e2)
+      {
+         return e1.sequence < e2.sequence ? -1 : e1.sequence == e2.sequence ? 0 : 1;
+      }
+   };
+
    private final ScheduledExecutorService scheduledExecutor;
 
    private final Object lockDelivery = new Object();
 
-   private final LinkedList<MessageReference> scheduledReferences = new LinkedList<MessageReference>();
+   private final Object lockWheel = new Object();
+
+   /** slot heads per level, allocated on first use */
+   private final Entry[][] wheel = new Entry[LEVELS + 1][];
+
+   /** scheduled entries per message id, for O(1) removal */
+   private final Map<Long, Entry> entriesByID = new HashMap<Long, Entry>();
+
+   private final Runnable deliveryRunnable = new ScheduledDeliveryRunnable();
+
+   /** the last tick processed by the wheel */
+   private long currentTick;
+
+   private long sequence;
+
+   private int count;
+
+   private int occupiedSlots;
+
+   private ScheduledFuture<?> future;
+
+   private long futureTick;
 
    public ScheduledDeliveryHandlerImpl(final ScheduledExecutorService scheduledExecutor)
    {
@@ -61,24 +112,29 @@ public class ScheduledDeliveryHandlerImpl implements ScheduledDeliveryHandler
             HornetQServerLogger.LOGGER.trace("Scheduling delivery for " + ref + " to occur at " + deliveryTime);
          }
 
-         ScheduledDeliveryRunnable runnable = new ScheduledDeliveryRunnable(ref.getScheduledDeliveryTime());
-
-         synchronized (scheduledReferences)
+         synchronized (lockWheel)
          {
-            if (tail)
+            if (count == 0)
             {
-               // We do the opposite what the parameter says as the Runnable will always add it to the head
-               scheduledReferences.addFirst(ref);
+               currentTick = System.currentTimeMillis() / TICK_MILLIS;
             }
-            else
+
+            // rounded up so we never deliver before the requested time
+            Entry entry = new Entry(ref, tail, (deliveryTime + TICK_MILLIS - 1) / TICK_MILLIS, sequence++);
+
+            place(entry, currentTick + 1);
+
+            Entry previous = entriesByID.put(ref.getMessage().getMessageID(), entry);
+            entry.sameID = previous;
+
+            count++;
+
+            if (future == null || entry.tick < futureTick)
             {
-               // We do the opposite what the parameter says as the Runnable will always add it to the head
-               scheduledReferences.add(ref);
+               scheduleDelivery(entry.tick);
             }
          }
 
-         scheduleDelivery(runnable, deliveryTime);
-
          return true;
       }
       return false;
@@ -86,115 +142,487 @@ public class ScheduledDeliveryHandlerImpl implements ScheduledDeliveryHandler
 
    public int getScheduledCount()
    {
-      synchronized (scheduledReferences)
+      synchronized (lockWheel)
       {
-         return scheduledReferences.size();
+         return count;
+      }
+   }
+
+   public int getWheelOccupancy()
+   {
+      synchronized (lockWheel)
+      {
+         return occupiedSlots;
       }
    }
 
    public List<MessageReference> getScheduledReferences()
    {
-      List<MessageReference> refs = new ArrayList<MessageReference>();
+      LinkedList<MessageReference> refs = new LinkedList<MessageReference>();
 
-      synchronized (scheduledReferences)
+      synchronized (lockWheel)
       {
-         refs.addAll(scheduledReferences);
+         for (Entry entry : sortedEntries())
+         {
+            // Same order the references would be added to the head of the queue
+            if (entry.tail)
+            {
+               refs.addFirst(entry.ref);
+            }
+            else
+            {
+               refs.addLast(entry.ref);
+            }
+         }
       }
-      return refs;
+      return new ArrayList<MessageReference>(refs);
    }
 
    public List<MessageReference> cancel(final Filter filter)
    {
-      List<MessageReference> refs = new ArrayList<MessageReference>();
+      LinkedList<MessageReference> refs = new LinkedList<MessageReference>();
 
-      synchronized (scheduledReferences)
+      synchronized (lockWheel)
       {
-         Iterator<MessageReference> iter = scheduledReferences.iterator();
-
-         while (iter.hasNext())
+         for (Entry entry : sortedEntries())
          {
-            MessageReference ref = iter.next();
-            if (filter == null || filter.match(ref.getMessage()))
+            if (filter == null || filter.match(entry.ref.getMessage()))
             {
-               iter.remove();
-               refs.add(ref);
+               remove(entry);
+               if (entry.tail)
+               {
+                  refs.addFirst(entry.ref);
+               }
+               else
+               {
+                  refs.addLast(entry.ref);
+               }
             }
          }
       }
-      return refs;
+      return new ArrayList<MessageReference>(refs);
    }
 
    public MessageReference removeReferenceWithID(final long id)
    {
-      synchronized (scheduledReferences)
+      synchronized (lockWheel)
       {
-         Iterator<MessageReference> iter = scheduledReferences.iterator();
-         while (iter.hasNext())
+         Entry entry = entriesByID.get(id);
+
+         if (entry == null)
          {
-            MessageReference ref = iter.next();
-            if (ref.getMessage().getMessageID() == id)
-            {
-               iter.remove();
-               return ref;
-            }
+            return null;
          }
+
+         // remove the oldest entry scheduled for the id
+         while (entry.sameID != null)
+         {
+            entry = entry.sameID;
+         }
+
+         remove(entry);
+
+         return entry.ref;
       }
+   }
 
-      return null;
+   /**
+    * Must be called with lockWheel held.
+    */
+   private List<Entry> sortedEntries()
+   {
+      List<Entry> entries = new ArrayList<Entry>(count);
+      for (Entry entry : entriesByID.values())
+      {
+         for (Entry e = entry; e != null; e = e.sameID)
+         {
+            entries.add(e);
+         }
+      }
+      Collections.sort(entries, SEQUENCE_COMPARATOR);
+      return entries;
    }
 
-   private void scheduleDelivery(final ScheduledDeliveryRunnable runnable, final long deliveryTime)
+   /**
+    * Must be called with lockWheel held.
+    */
+   private void scheduleDelivery(final long tick)
    {
-      long now = System.currentTimeMillis();
+      if (future != null)
+      {
+         future.cancel(false);
+      }
 
-      long delay = deliveryTime - now;
+      long delay = tick * TICK_MILLIS - System.currentTimeMillis();
 
       if (delay < 0)
       {
          delay = 0;
       }
 
-      scheduledExecutor.schedule(runnable, delay, TimeUnit.MILLISECONDS);
+      futureTick = tick;
+      future = scheduledExecutor.schedule(deliveryRunnable, delay, TimeUnit.MILLISECONDS);
    }
 
-   private class ScheduledDeliveryRunnable implements Runnable
+   /**
+    * Links the entry into the slot covering its tick, relative to {@link #currentTick}. Entries due before
+    * {@code minTick} are moved to {@code minTick}. Must be called with lockWheel held.
+    */
+   private void place(final Entry entry, final long minTick)
+   {
+      if (entry.tick < minTick)
+      {
+         entry.tick = minTick;
+      }
+
+      long tick = entry.tick;
+
+      int level;
+      int slot;
+
+      if (tick >>> WHEEL_BITS == currentTick >>> WHEEL_BITS)
+      {
+         level = 0;
+         slot = (int)(tick & WHEEL_MASK);
+      }
+      else if (tick >>> 2 * WHEEL_BITS == currentTick >>> 2 * WHEEL_BITS)
+      {
+         level = 1;
+         slot = (int)(tick >>> WHEEL_BITS & WHEEL_MASK);
+      }
+      else if (tick >>> 3 * WHEEL_BITS == currentTick >>> 3 * WHEEL_BITS)
+      {
+         level = 2;
+         slot = (int)(tick >>> 2 * WHEEL_BITS & WHEEL_MASK);
+      }
+      else if (tick >>> 4 * WHEEL_BITS == currentTick >>> 4 * WHEEL_BITS)
+      {
+         level = 3;
+         slot = (int)(tick >>> 3 * WHEEL_BITS & WHEEL_MASK);
+      }
+      else
+      {
+         level = OVERFLOW;
+         slot = 0;
+      }
+
+      Entry[] slots = wheel[level];
+
+      if (slots == null)
+      {
+         slots = new Entry[level == OVERFLOW ? 1 : WHEEL_SIZE];
+         wheel[level] = slots;
+      }
+
+      entry.level = level;
+      entry.slot = slot;
+
+      Entry head = slots[slot];
+
+      if (head == null)
+      {
+         entry.next = entry;
+         entry.prev = entry;
+         slots[slot] = entry;
+         occupiedSlots++;
+      }
+      else
+      {
+         entry.next = head;
+         entry.prev = head.prev;
+         head.prev.next = entry;
+         head.prev = entry;
+      }
+   }
+
+   /**
+    * Unlinks the entry from its slot. Must be called with lockWheel held.
+    */
+   private void unlink(final Entry entry)
    {
-      private final long scheduledTime;
+      Entry[] slots = wheel[entry.level];
+
+      if (entry.next == entry)
+      {
+         slots[entry.slot] = null;
+         occupiedSlots--;
+      }
+      else
+      {
+         entry.prev.next = entry.next;
+         entry.next.prev = entry.prev;
+         if (slots[entry.slot] == entry)
+         {
+            slots[entry.slot] = entry.next;
+         }
+      }
+
+      entry.next = null;
+      entry.prev = null;
+   }
+
+   /**
+    * Removes the entry from the wheel and from the id index. Must be called with lockWheel held.
+    */
+   private void remove(final Entry entry)
+   {
+      unlink(entry);
+
+      removeFromIndex(entry);
+   }
+
+   /**
+    * Detaches a whole slot, returning its entries in insertion order. Must be called with lockWheel held.
+    */
+   private List<Entry> detach(final int level, final int slot)
+   {
+      Entry[] slots = wheel[level];
+
+      if (slots == null || slots[slot] == null)
+      {
+         return Collections.emptyList();
+      }
+
+      List<Entry> entries = new ArrayList<Entry>();
 
-      public ScheduledDeliveryRunnable(final long scheduledTime)
+      Entry head = slots[slot];
+      Entry entry = head;
+      do
       {
-         this.scheduledTime = scheduledTime;
+         Entry next = entry.next;
+         entry.next = null;
+         entry.prev = null;
+         entries.add(entry);
+         entry = next;
       }
+      while (entry != head);
 
+      slots[slot] = null;
+      occupiedSlots--;
+
+      return entries;
+   }
+
+   /**
+    * Returns the next tick after {@link #currentTick} at which a slot is due or has to be cascaded, or
+    * {@link Long#MAX_VALUE} if the wheel is empty. Must be called with lockWheel held.
+    */
+   private long nextTick()
+   {
+      for (int level = 0; level < LEVELS; level++)
+      {
+         Entry[] slots = wheel[level];
+
+         if (slots != null)
+         {
+            int shift = level * WHEEL_BITS;
+            int current = (int)(currentTick >>> shift & WHEEL_MASK);
+
+            for (int i = current + 1; i < WHEEL_SIZE; i++)
+            {
+               if (slots[i] != null)
+               {
+                  return (currentTick >>> shift + WHEEL_BITS << shift + WHEEL_BITS) | ((long)i << shift);
+               }
+            }
+         }
+      }
+
+      if (wheel[OVERFLOW] != null && wheel[OVERFLOW][0] != null)
+      {
+         return (currentTick >>> LEVELS * WHEEL_BITS) + 1 << LEVELS * WHEEL_BITS;
+      }
+
+      return Long.MAX_VALUE;
+   }
+
+   /**
+    * Moves the wheel to {@code tick}, cascading the upper levels whose block changed and draining the
+    * entries now due into {@code due}. Must be called with lockWheel held.
+    */
+   private void advance(final long tick, final Map<Queue, LinkedList<MessageReference>> due)
+   {
+      long previous = currentTick;
+
+      currentTick = tick;
+
+      if (tick >>> LEVELS * WHEEL_BITS != previous >>> LEVELS * WHEEL_BITS)
+      {
+         cascade(OVERFLOW, 0);
+      }
+
+      for (int level = LEVELS - 1; level > 0; level--)
+      {
+         int shift = level * WHEEL_BITS;
+         if (tick >>> shift != previous >>> shift)
+         {
+            cascade(level, (int)(tick >>> shift & WHEEL_MASK));
+         }
+      }
+
+      List<Entry> entries = detach(0, (int)(tick & WHEEL_MASK));
+
+      if (entries.isEmpty())
+      {
+         return;
+      }
+
+      Collections.sort(entries, SEQUENCE_COMPARATOR);
+
+      HashMap<Queue, LinkedList<MessageReference>> batches = new HashMap<Queue, LinkedList<MessageReference>>();
+
+      for (Entry entry : entries)
+      {
+         MessageReference reference = entry.ref;
+
+         reference.setScheduledDeliveryTime(0);
+
+         LinkedList<MessageReference> batch = batches.get(reference.getQueue());
+
+         if (batch == null)
+         {
+            batch = new LinkedList<MessageReference>();
+            batches.put(reference.getQueue(), batch);
+         }
+
+         // We do the opposite what the parameter says as the batch will always be added to the head
+         if (entry.tail)
+         {
+            batch.addFirst(reference);
+         }
+         else
+         {
+            batch.addLast(reference);
+         }
+      }
+
+      for (Entry entry : entries)
+      {
+         removeFromIndex(entry);
+      }
+
+      // addHead adds the references one by one, so later ticks end up in front, as if delivered separately
+      for (Map.Entry<Queue, LinkedList<MessageReference>> batch : batches.entrySet())
+      {
+         LinkedList<MessageReference> references = due.get(batch.getKey());
+
+         if (references == null)
+         {
+            due.put(batch.getKey(), batch.getValue());
+         }
+         else
+         {
+            references.addAll(batch.getValue());
+         }
+      }
+   }
+
+   /**
+    * Must be called with lockWheel held.
+    */
+   private void removeFromIndex(final Entry entry)
+   {
+      long id = entry.ref.getMessage().getMessageID();
+
+      Entry head = entriesByID.get(id);
+
+      if (head == entry)
+      {
+         if (entry.sameID == null)
+         {
+            entriesByID.remove(id);
+         }
+         else
+         {
+            entriesByID.put(id, entry.sameID);
+         }
+      }
+      else
+      {
+         Entry e = head;
+         while (e.sameID != entry)
+         {
+            e = e.sameID;
+         }
+         e.sameID = entry.sameID;
+      }
+
+      entry.sameID = null;
+
+      count--;
+   }
+
+   /**
+    * Re-places the entries of an upper level slot relative to the new current tick. Must be called with
+    * lockWheel held.
+    */
+   private void cascade(final int level, final int slot)
+   {
+      for (Entry entry : detach(level, slot))
+      {
+         place(entry, currentTick);
+      }
+   }
+
+   private static final class Entry
+   {
+      private final MessageReference ref;
+
+      private final boolean tail;
+
+      private final long sequence;
+
+      private long tick;
+
+      private int level;
+
+      private int slot;
+
+      private Entry next;
+
+      private Entry prev;
+
+      /** older entry scheduled with the same message id */
+      private Entry sameID;
+
+      Entry(final MessageReference ref, final boolean tail, final long tick, final long sequence)
+      {
+         this.ref = ref;
+         this.tail = tail;
+         this.tick = tick;
+         this.sequence = sequence;
+      }
+   }
+
+   private class ScheduledDeliveryRunnable implements Runnable
+   {
       public void run()
       {
          HashMap<Queue, LinkedList<MessageReference>> refs = new HashMap<Queue, LinkedList<MessageReference>>();
 
          synchronized (lockDelivery)
          {
-            synchronized (scheduledReferences)
+            synchronized (lockWheel)
             {
+               future = null;
 
-               Iterator<MessageReference> iter = scheduledReferences.iterator();
-               while (iter.hasNext())
-               {
-                  MessageReference reference = iter.next();
-                  if (reference.getScheduledDeliveryTime() <= this.scheduledTime)
-                  {
-                     iter.remove();
+               long now = System.currentTimeMillis() / TICK_MILLIS;
 
-                     reference.setScheduledDeliveryTime(0);
+               while (count > 0)
+               {
+                  long tick = nextTick();
 
-                     LinkedList<MessageReference> references = refs.get(reference.getQueue());
+                  if (tick > now)
+                  {
+                     break;
+                  }
 
-                     if (references == null)
-                     {
-                        references = new LinkedList<MessageReference>();
-                        refs.put(reference.getQueue(), references);
-                     }
+                  advance(tick, refs);
+               }
 
-                     references.add(reference);
-                  }
+               if (count > 0)
+               {
+                  scheduleDelivery(nextTick());
                }
             }
 
@@ -13,9 +13,9 @@
 
 package org.hornetq.core.server.impl;
 
+import java.nio.channels.FileChannel;
 import java.util.Iterator;
 import java.util.LinkedList;
-import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 
@@ -35,6 +35,7 @@ import org.hornetq.core.postoffice.QueueBinding;
 import org.hornetq.core.server.HandleStatus;
 import org.hornetq.core.server.HornetQServerLogger;
 import org.hornetq.core.server.HornetQMessageBundle;
+import org.hornetq.core.server.LargeBodyEncoder;
 import org.hornetq.core.server.LargeServerMessage;
 import org.hornetq.core.server.MessageReference;
 import org.hornetq.core.server.Queue;
@@ -105,7 +106,7 @@ public class ServerConsumerImpl implements ServerConsumer, ReadyListener
 
    private final StorageManager storageManager;
 
-   private final java.util.Queue<MessageReference> deliveringRefs = new ConcurrentLinkedQueue<MessageReference>();
+   private final DeliveringReferences deliveringRefs = new DeliveringReferences();
 
    private final SessionCallback callback;
 
@@ -469,33 +470,35 @@ public class ServerConsumerImpl implements ServerConsumer, ReadyListener
 
       if (!deliveringRefs.isEmpty())
       {
-         for (MessageReference ref : deliveringRefs)
+         MessageReference lastConsumed = performACK ? deliveringRefs.peek() : null;
+
+         if (lastConsumed != null)
          {
             if (isTrace)
             {
-               HornetQServerLogger.LOGGER.trace("Cancelling reference for messageID = " + ref.getMessage().getMessageID() + ", ref = " + ref);
+               HornetQServerLogger.LOGGER.trace("Cancelling reference for messageID = " + lastConsumed.getMessage().getMessageID() + ", ref = " + lastConsumed);
             }
-            if (performACK)
-            {
-               acknowledge(false, tx, ref.getMessage().getMessageID());
 
-               performACK = false;
-            }
-            else
+            acknowledge(false, tx, lastConsumed.getMessage().getMessageID());
+         }
+
+         for (MessageReference ref : deliveringRefs.removeAll())
+         {
+            if (isTrace)
             {
-               if (!failed)
-               {
-                  // We don't decrement delivery count if the client failed, since there's a possibility that refs
-                  // were actually delivered but we just didn't get any acks for them
-                  // before failure
-                  ref.decrementDeliveryCount();
-               }
+               HornetQServerLogger.LOGGER.trace("Cancelling reference for messageID = " + ref.getMessage().getMessageID() + ", ref = " + ref);
+            }
 
-               refs.add(ref);
+            if (!failed)
+            {
+               // We don't decrement delivery count if the client failed, since there's a possibility that refs
+               // were actually delivered but we just didn't get any acks for them
+               // before failure
+               ref.decrementDeliveryCount();
             }
-         }
 
-         deliveringRefs.clear();
+            refs.add(ref);
+         }
       }
 
       return refs;
@@ -697,34 +700,84 @@ public class ServerConsumerImpl implements ServerConsumer, ReadyListener
       }
    }
 
-   public MessageReference removeReferenceByID(final long messageID) throws Exception
+   public void individualAcknowledge(final boolean autoCommitAcks, Transaction tx, final long[] messageIDRanges) throws Exception
    {
       if (browseOnly)
       {
-         return null;
+         return;
       }
 
-      // Expiries can come in out of sequence with respect to delivery order
-
-      Iterator<MessageReference> iter = deliveringRefs.iterator();
+      // The acks of the batch are done in one transaction, so they are stored together and none is done if one of
+      // the messages isn't found
 
-      MessageReference ref = null;
+      boolean startedTransaction = false;
 
-      while (iter.hasNext())
+      if (tx == null || autoCommitAcks)
       {
-         MessageReference theRef = iter.next();
+         startedTransaction = true;
+         tx = new TransactionImpl(storageManager);
+      }
 
-         if (theRef.getMessage().getMessageID() == messageID)
+      try
+      {
+         for (int i = 0; i < messageIDRanges.length; i += 2)
          {
-            iter.remove();
+            for (long messageID = messageIDRanges[i]; messageID <= messageIDRanges[i + 1]; messageID++)
+            {
+               MessageReference ref = removeReferenceByID(messageID);
 
-            ref = theRef;
+               if (ref == null)
+               {
+                  throw HornetQMessageBundle.BUNDLE.consumerNoReference(id, messageID, messageQueue.getName());
+               }
+
+               ref.getQueue().acknowledge(tx, ref);
+            }
+         }
 
-            break;
+         if (startedTransaction)
+         {
+            tx.commit();
+         }
+      }
+      catch (HornetQException e)
+      {
+         if (startedTransaction)
+         {
+            tx.rollback();
+         }
+         else
+         {
+            tx.markAsRollbackOnly(e);
+         }
+         throw e;
+      }
+      catch (Throwable e)
+      {
+         HornetQServerLogger.LOGGER.errorAckingMessage((Exception) e);
+         HornetQException hqex = new HornetQIllegalStateException(e.getMessage());
+         if (startedTransaction)
+         {
+            tx.rollback();
+         }
+         else
+         {
+            tx.markAsRollbackOnly(hqex);
          }
+         throw hqex;
       }
+   }
 
-      return ref;
+   public MessageReference removeReferenceByID(final long messageID) throws Exception
+   {
+      if (browseOnly)
+      {
+         return null;
+      }
+
+      // Expiries can come in out of sequence with respect to delivery order
+
+      return deliveringRefs.remove(messageID);
    }
 
    public void readyForWriting(final boolean ready)
@@ -835,6 +888,44 @@ public class ServerConsumerImpl implements ServerConsumer, ReadyListener
       }
    };
 
+   /**
+    * Closes the body encoder of a large message once its file isn't used anymore. The deliverer holds a reference
+    * until it's done, each chunk transferred straight from the file holds one until it's written.
+    */
+   private static final class ContextCloser implements Runnable
+   {
+      private final BodyEncoder context;
+
+      private final AtomicInteger references = new AtomicInteger(1);
+
+      ContextCloser(final BodyEncoder context)
+      {
+         this.context = context;
+      }
+
+      Runnable retain()
+      {
+         references.incrementAndGet();
+
+         return this;
+      }
+
+      public void run()
+      {
+         if (references.decrementAndGet() == 0)
+         {
+            try
+            {
+               context.close();
+            }
+            catch (Exception e)
+            {
+               HornetQServerLogger.LOGGER.errorClosingLargeMessageFile(e);
+            }
+         }
+      }
+   }
+
    /** Internal encapsulation of the logic on sending LargeMessages.
     *  This Inner class was created to avoid a bunch of loose properties about the current LargeMessage being sent*/
    private final class LargeMessageDeliverer
@@ -852,6 +943,12 @@ public class ServerConsumerImpl implements ServerConsumer, ReadyListener
 
       private BodyEncoder context;
 
+      /** The file the body is transferred from, null when the body is read through the context */
+      private FileChannel file;
+
+      /** Closes the context once the chunks transferred from the file are written, null when there's no file */
+      private ContextCloser contextCloser;
+
       public LargeMessageDeliverer(final LargeServerMessage message, final MessageReference ref) throws Exception
       {
          largeMessage = message;
@@ -889,6 +986,16 @@ public class ServerConsumerImpl implements ServerConsumer, ReadyListener
 
                context.open();
 
+               if (context instanceof LargeBodyEncoder)
+               {
+                  file = ((LargeBodyEncoder)context).getFileChannel();
+
+                  if (file != null)
+                  {
+                     contextCloser = new ContextCloser(context);
+                  }
+               }
+
                sentInitialPacket = true;
 
                int packetSize = callback.sendLargeMessage(largeMessage,
@@ -934,18 +1041,32 @@ public class ServerConsumerImpl implements ServerConsumer, ReadyListener
 
                localChunkLen = (int)Math.min(sizePendingLargeMessage - positionPendingLargeMessage, minLargeMessageSize);
 
-               HornetQBuffer bodyBuffer = HornetQBuffers.fixedBuffer(localChunkLen);
+               boolean continues = positionPendingLargeMessage + localChunkLen < sizePendingLargeMessage;
+
+               int packetSize;
+
+               if (file != null)
+               {
+                  // The transport can send the chunk straight from the file without copying it
+                  packetSize = callback.sendLargeMessageContinuation(id,
+                                                                     file,
+                                                                     positionPendingLargeMessage,
+                                                                     localChunkLen,
+                                                                     continues,
+                                                                     contextCloser.retain());
+               }
+               else
+               {
+                  HornetQBuffer bodyBuffer = HornetQBuffers.fixedBuffer(localChunkLen);
 
-               context.encode(bodyBuffer, localChunkLen);
+                  context.encode(bodyBuffer, localChunkLen);
 
-               byte[] body = bodyBuffer.toByteBuffer().array();
+                  byte[] body = bodyBuffer.toByteBuffer().array();
 
-               int packetSize = callback.sendLargeMessageContinuation(id,
-                                                                      body,
-                                                                      positionPendingLargeMessage + localChunkLen < sizePendingLargeMessage,
-                                                                      false);
+                  packetSize = callback.sendLargeMessageContinuation(id, body, continues, false);
+               }
 
-               int chunkLen = body.length;
+               int chunkLen = localChunkLen;
 
                if (availableCredits != null)
                {
@@ -992,7 +1113,19 @@ public class ServerConsumerImpl implements ServerConsumer, ReadyListener
                // On that case we just ignore this call
                return;
             }
-            context.close();
+            if (contextCloser != null)
+            {
+               // the chunks still being written may need the file
+               contextCloser.run();
+
+               contextCloser = null;
+            }
+            else
+            {
+               context.close();
+            }
+
+            file = null;
 
             largeMessage.releaseResources();
 
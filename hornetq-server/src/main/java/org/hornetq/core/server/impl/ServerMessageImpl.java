@@ -68,6 +68,8 @@ public class ServerMessageImpl extends MessageImpl implements ServerMessage
     */
    public ServerMessageImpl()
    {
+      // the server mostly routes messages without looking at their properties
+      properties.setLazyDecode(true);
    }
 
    /*
@@ -77,6 +79,8 @@ public class ServerMessageImpl extends MessageImpl implements ServerMessage
    {
       super(initialMessageBufferSize);
 
+      properties.setLazyDecode(true);
+
       this.messageID = messageID;
    }
 
@@ -650,6 +650,33 @@ public class ServerSessionImpl implements ServerSession, FailureListener
 
    }
 
+   public void individualAcknowledge(final long consumerID, final long[] messageIDRanges) throws Exception
+   {
+      ServerConsumer consumer = consumers.get(consumerID);
+
+      if (consumer == null)
+      {
+         throw HornetQMessageBundle.BUNDLE.consumerDoesntExist(consumerID);
+      }
+
+      if (this.xa && tx == null)
+      {
+         throw new HornetQXAException(XAException.XAER_PROTO, "Invalid transaction state");
+      }
+
+      if (tx != null && tx.getState() == State.ROLLEDBACK)
+      {
+         // as for a single message, ack and rollback immediately on a rolled back TX
+         Transaction newTX = newTransaction();
+         consumer.individualAcknowledge(false, newTX, messageIDRanges);
+         newTX.rollback();
+      }
+      else
+      {
+         consumer.individualAcknowledge(autoCommitAcks, tx, messageIDRanges);
+      }
+   }
+
    public void expire(final long consumerID, final long messageID) throws Exception
    {
       MessageReference ref = consumers.get(consumerID).removeReferenceByID(messageID);
@@ -69,5 +69,11 @@ public interface HierarchicalRepository<T>
 
    void clearCache();
 
+   /**
+    * remove the value cached for a match, e.g. when its address is deleted
+    * @param match the match to look for
+    */
+   void clearCache(String match);
+
    int getCacheSize();
 }
@@ -45,6 +45,8 @@ public class AddressSettings implements Mergeable<AddressSettings>, Serializable
 
    public static final int DEFAULT_PAGE_MAX_CACHE = 5;
 
+   public static final long DEFAULT_PAGE_MAX_CACHE_BYTES = -1;
+
    public static final int DEFAULT_MESSAGE_COUNTER_HISTORY_DAY_LIMIT = 0;
 
    public static final long DEFAULT_REDELIVER_DELAY = 0L;
@@ -59,6 +61,8 @@ public class AddressSettings implements Mergeable<AddressSettings>, Serializable
 
    public static final boolean DEFAULT_SEND_TO_DLA_ON_NO_ROUTE = false;
 
+   public static final boolean DEFAULT_CONCURRENT_DISPATCH = false;
+
    private AddressFullMessagePolicy addressFullMessagePolicy = null;
 
    private Long maxSizeBytes = null;
@@ -67,6 +71,8 @@ public class AddressSettings implements Mergeable<AddressSettings>, Serializable
 
    private Integer pageMaxCache = null;
 
+   private Long pageMaxCacheBytes = null;
+
    private Boolean dropMessagesWhenFull = null;
 
    private Integer maxDeliveryAttempts = null;
@@ -91,6 +97,8 @@ public class AddressSettings implements Mergeable<AddressSettings>, Serializable
 
    private Boolean sendToDLAOnNoRoute = null;
 
+   private Boolean concurrentDispatch = null;
+
    public boolean isLastValueQueue()
    {
       return lastValueQueue != null ? lastValueQueue : AddressSettings.DEFAULT_LAST_VALUE_QUEUE;
@@ -132,6 +140,16 @@ public class AddressSettings implements Mergeable<AddressSettings>, Serializable
       this.pageMaxCache = pageMaxCache;
    }
 
+   public long getPageCacheMaxSizeBytes()
+   {
+      return pageMaxCacheBytes != null ? pageMaxCacheBytes : AddressSettings.DEFAULT_PAGE_MAX_CACHE_BYTES;
+   }
+
+   public void setPageCacheMaxSizeBytes(final long pageMaxCacheBytes)
+   {
+      this.pageMaxCacheBytes = pageMaxCacheBytes;
+   }
+
    public long getMaxSizeBytes()
    {
       return maxSizeBytes != null ? maxSizeBytes : AddressSettings.DEFAULT_MAX_SIZE_BYTES;
@@ -233,6 +251,16 @@ public class AddressSettings implements Mergeable<AddressSettings>, Serializable
       sendToDLAOnNoRoute = value;
    }
 
+   public boolean isConcurrentDispatch()
+   {
+      return concurrentDispatch != null ? concurrentDispatch : AddressSettings.DEFAULT_CONCURRENT_DISPATCH;
+   }
+
+   public void setConcurrentDispatch(final boolean concurrentDispatch)
+   {
+      this.concurrentDispatch = concurrentDispatch;
+   }
+
    public long getRedistributionDelay()
    {
       return redistributionDelay != null ? redistributionDelay : AddressSettings.DEFAULT_REDISTRIBUTION_DELAY;
@@ -265,6 +293,10 @@ public class AddressSettings implements Mergeable<AddressSettings>, Serializable
       {
          pageMaxCache = merged.pageMaxCache;
       }
+      if (pageMaxCacheBytes == null)
+      {
+         pageMaxCacheBytes = merged.pageMaxCacheBytes;
+      }
       if (pageSizeBytes == null)
       {
          pageSizeBytes = merged.getPageSizeBytes();
@@ -309,6 +341,10 @@ public class AddressSettings implements Mergeable<AddressSettings>, Serializable
       {
          addressFullMessagePolicy = merged.addressFullMessagePolicy;
       }
+      if (concurrentDispatch == null)
+      {
+         concurrentDispatch = merged.concurrentDispatch;
+      }
    }
 
    /* (non-Javadoc)
@@ -441,11 +477,13 @@ public class AddressSettings implements Mergeable<AddressSettings>, Serializable
                ((messageCounterHistoryDayLimit == null) ? 0 : messageCounterHistoryDayLimit.hashCode());
       result = prime * result + ((pageSizeBytes == null) ? 0 : pageSizeBytes.hashCode());
       result = prime * result + ((pageMaxCache == null) ? 0 : pageMaxCache.hashCode());
+      result = prime * result + ((pageMaxCacheBytes == null) ? 0 : pageMaxCacheBytes.hashCode());
       result = prime * result + ((redeliveryDelay == null) ? 0 : redeliveryDelay.hashCode());
       result = prime * result + ((redeliveryMultiplier == null) ? 0 : redeliveryMultiplier.hashCode());
       result = prime * result + ((maxRedeliveryDelay == null) ? 0 : maxRedeliveryDelay.hashCode());
       result = prime * result + ((redistributionDelay == null) ? 0 : redistributionDelay.hashCode());
       result = prime * result + ((sendToDLAOnNoRoute == null) ? 0 : sendToDLAOnNoRoute.hashCode());
+      result = prime * result + ((concurrentDispatch == null) ? 0 : concurrentDispatch.hashCode());
       return result;
    }
 
@@ -539,6 +577,13 @@ public class AddressSettings implements Mergeable<AddressSettings>, Serializable
       }
       else if (!pageMaxCache.equals(other.pageMaxCache))
          return false;
+      if (pageMaxCacheBytes == null)
+      {
+         if (other.pageMaxCacheBytes != null)
+            return false;
+      }
+      else if (!pageMaxCacheBytes.equals(other.pageMaxCacheBytes))
+         return false;
       if (redeliveryDelay == null)
       {
          if (other.redeliveryDelay != null)
@@ -574,6 +619,13 @@ public class AddressSettings implements Mergeable<AddressSettings>, Serializable
       }
       else if (!sendToDLAOnNoRoute.equals(other.sendToDLAOnNoRoute))
          return false;
+      if (concurrentDispatch == null)
+      {
+         if (other.concurrentDispatch != null)
+            return false;
+      }
+      else if (!concurrentDispatch.equals(other.concurrentDispatch))
+         return false;
       return true;
    }
 
@@ -604,6 +656,8 @@ public class AddressSettings implements Mergeable<AddressSettings>, Serializable
              pageSizeBytes +
              ", pageMaxCache=" +
              pageMaxCache +
+             ", pageMaxCacheBytes=" +
+             pageMaxCacheBytes +
              ", redeliveryDelay=" +
              redeliveryDelay +
              ", redeliveryMultiplier=" +
@@ -614,6 +668,8 @@ public class AddressSettings implements Mergeable<AddressSettings>, Serializable
              redistributionDelay +
              ", sendToDLAOnNoRoute=" +
              sendToDLAOnNoRoute +
+             ", concurrentDispatch=" +
+             concurrentDispatch +
              "]";
    }
 }
@@ -23,6 +23,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.hornetq.core.server.HornetQServerLogger;
 import org.hornetq.core.settings.HierarchicalRepository;
@@ -48,6 +49,11 @@ public class HierarchicalObjectRepository<T> implements HierarchicalRepository<T
     */
    private final Map<String, Match<T>> matches = new HashMap<String, Match<T>>();
 
+   /**
+    * the matches by the words of their patterns
+    */
+   private final MatchTrie<T> trie = new MatchTrie<T>();
+
    /**
     * Certain values cannot be removed after installed.
     * This is because we read a few records from the main config.
@@ -67,6 +73,11 @@ public class HierarchicalObjectRepository<T> implements HierarchicalRepository<T
     */
    private final Map<String, T> cache = new ConcurrentHashMap<String, T>();
 
+   /**
+    * incremented when the cache is invalidated, so a value resolved before isn't cached after
+    */
+   private final AtomicInteger cacheVersion = new AtomicInteger(0);
+
    /**
     * any registered listeners, these get fired on changes to the repository
     */
@@ -87,7 +98,6 @@ public class HierarchicalObjectRepository<T> implements HierarchicalRepository<T
     */
    public void addMatch(final String match, final T value, final boolean immutableMatch)
    {
-      clearCache();
       if (immutableMatch)
       {
          immutables.add(match);
@@ -96,6 +106,8 @@ public class HierarchicalObjectRepository<T> implements HierarchicalRepository<T
       Match<T> match1 = new Match<T>(match);
       match1.setValue(value);
       matches.put(match, match1);
+      trie.put(match1);
+      invalidateCache(match1);
       onChange();
    }
 
@@ -117,14 +129,21 @@ public class HierarchicalObjectRepository<T> implements HierarchicalRepository<T
       {
          return cacheResult;
       }
+      int version = cacheVersion.get();
       T actualMatch;
-      HashMap<String, Match<T>> possibleMatches = getPossibleMatches(match);
+      HashMap<String, Match<T>> possibleMatches = new HashMap<String, Match<T>>();
+      trie.getMatches(match, possibleMatches);
       List<Match<T>> orderedMatches = sort(possibleMatches);
       actualMatch = merge(orderedMatches);
       T value = actualMatch != null ? actualMatch : defaultmatch;
       if (value != null)
       {
          cache.put(match, value);
+         if (cacheVersion.get() != version)
+         {
+            // the repository changed while resolving the value
+            cache.remove(match);
+         }
       }
       return value;
    }
@@ -187,8 +206,12 @@ public class HierarchicalObjectRepository<T> implements HierarchicalRepository<T
       }
       else
       {
-         matches.remove(match);
-         clearCache();
+         Match<T> removed = matches.remove(match);
+         if (removed != null)
+         {
+            trie.remove(match);
+            invalidateCache(removed);
+         }
          onChange();
       }
    }
@@ -216,9 +239,10 @@ public class HierarchicalObjectRepository<T> implements HierarchicalRepository<T
 
    public void clear()
    {
-      clearCache();
       listeners.clear();
       matches.clear();
+      trie.clear();
+      clearCache();
    }
 
    public void clearListeners()
@@ -228,9 +252,31 @@ public class HierarchicalObjectRepository<T> implements HierarchicalRepository<T
 
    public void clearCache()
    {
+      cacheVersion.incrementAndGet();
       cache.clear();
    }
 
+   public void clearCache(final String match)
+   {
+      cacheVersion.incrementAndGet();
+      cache.remove(match);
+   }
+
+   /**
+    * remove the cached values of the addresses matching a changed match, the others are unchanged
+    */
+   private void invalidateCache(final Match<T> changed)
+   {
+      cacheVersion.incrementAndGet();
+      for (String address : cache.keySet())
+      {
+         if (changed.getPattern().matcher(address).matches())
+         {
+            cache.remove(address);
+         }
+      }
+   }
+
    private void onChange()
    {
       for (HierarchicalRepositoryChangeListener listener : listeners)
@@ -246,25 +292,6 @@ public class HierarchicalObjectRepository<T> implements HierarchicalRepository<T
       }
    }
 
-   /**
-    * return any possible matches
-    * @param match
-    * @return
-    */
-   private HashMap<String, Match<T>> getPossibleMatches(final String match)
-   {
-      HashMap<String, Match<T>> possibleMatches = new HashMap<String, Match<T>>();
-
-      for (String key : matches.keySet())
-      {
-         if (matches.get(key).getPattern().matcher(match).matches())
-         {
-            possibleMatches.put(key, matches.get(key));
-         }
-      }
-      return possibleMatches;
-   }
-
    /**
     * Compares to matches to see which one is more specific.
     */
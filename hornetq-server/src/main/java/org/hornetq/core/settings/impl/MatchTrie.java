@@ -0,0 +1,214 @@
+/*
+ * Copyright 2009 Red Hat, Inc.
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package org.hornetq.core.settings.impl;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The matches of a {@link HierarchicalObjectRepository} in a trie of the words of their patterns, to find the
+ * patterns matching an address without evaluating all of them.
+ * <p>
+ * A pattern is put in the trie when each of its words is either {@link Match#WORD_WILDCARD} or a word without
+ * wildcards or regular expression characters, except for its last word which may also be {@link Match#WILDCARD}. The
+ * trie matches the same addresses as the {@link Match#getPattern()} of these patterns: {@link Match#WORD_WILDCARD}
+ * matches a non empty word and the last {@link Match#WILDCARD} matches the non empty rest of the address. The other
+ * patterns, e.g. <code>queues.a*</code> or <code>a.#.c</code>, are matched with their regular expressions.
+ * <p>
+ * The trie is changed by one thread at a time and looked up concurrently.
+ */
+final class MatchTrie<T>
+{
+   private static final String REGEX_CHARACTERS = "\\^$|?+()[]{}";
+
+   private final Node<T> root = new Node<T>();
+
+   private final Map<String, Match<T>> unindexed = new ConcurrentHashMap<String, Match<T>>();
+
+   synchronized void put(final Match<T> match)
+   {
+      String[] words = indexableWords(match.getMatch());
+
+      if (words == null)
+      {
+         unindexed.put(match.getMatch(), match);
+
+         return;
+      }
+
+      Node<T> node = root;
+
+      for (String word : words)
+      {
+         Node<T> child = node.children.get(word);
+
+         if (child == null)
+         {
+            child = new Node<T>();
+
+            node.children.put(word, child);
+         }
+
+         node = child;
+      }
+
+      node.match = match;
+   }
+
+   synchronized void remove(final String match)
+   {
+      String[] words = indexableWords(match);
+
+      if (words == null)
+      {
+         unindexed.remove(match);
+
+         return;
+      }
+
+      remove(root, words, 0);
+   }
+
+   synchronized void clear()
+   {
+      root.children.clear();
+
+      root.match = null;
+
+      unindexed.clear();
+   }
+
+   /**
+    * Adds the matches whose pattern matches the address to the map, by pattern.
+    */
+   void getMatches(final String address, final Map<String, Match<T>> matches)
+   {
+      collect(root, address.split("\\.", -1), 0, matches);
+
+      for (Match<T> match : unindexed.values())
+      {
+         if (match.getPattern().matcher(address).matches())
+         {
+            matches.put(match.getMatch(), match);
+         }
+      }
+   }
+
+   // Private -------------------------------------------------------
+
+   /**
+    * @return the words of the pattern, or <code>null</code> if it can't be put in the trie
+    */
+   private static String[] indexableWords(final String match)
+   {
+      String[] words = match.split("\\.", -1);
+
+      for (int position = 0; position < words.length; position++)
+      {
+         String word = words[position];
+
+         // the trie doesn't descend below a wildcard, which only matches the rest of the address when it is last
+         if (word.equals(Match.WILDCARD) && position == words.length - 1 || word.equals(Match.WORD_WILDCARD))
+         {
+            continue;
+         }
+
+         for (int i = 0; i < word.length(); i++)
+         {
+            char c = word.charAt(i);
+
+            if (c == '*' || c == '#' || REGEX_CHARACTERS.indexOf(c) >= 0)
+            {
+               return null;
+            }
+         }
+      }
+
+      return words;
+   }
+
+   private static <T> void collect(final Node<T> node,
+                                   final String[] words,
+                                   final int position,
+                                   final Map<String, Match<T>> matches)
+   {
+      if (position == words.length)
+      {
+         Match<T> match = node.match;
+
+         if (match != null)
+         {
+            matches.put(match.getMatch(), match);
+         }
+
+         return;
+      }
+
+      // the rest of the address must not be empty
+      Node<T> child = node.children.get(Match.WILDCARD);
+
+      if (child != null && child.match != null && (position < words.length - 1 || words[position].length() > 0))
+      {
+         matches.put(child.match.getMatch(), child.match);
+      }
+
+      if (words[position].length() > 0)
+      {
+         child = node.children.get(Match.WORD_WILDCARD);
+
+         if (child != null)
+         {
+            collect(child, words, position + 1, matches);
+         }
+      }
+
+      child = node.children.get(words[position]);
+
+      if (child != null)
+      {
+         collect(child, words, position + 1, matches);
+      }
+   }
+
+   /**
+    * @return <code>true</code> if the node is empty and was removed from its parent
+    */
+   private static <T> boolean remove(final Node<T> node, final String[] words, final int position)
+   {
+      if (position == words.length)
+      {
+         node.match = null;
+      }
+      else
+      {
+         Node<T> child = node.children.get(words[position]);
+
+         if (child != null && remove(child, words, position + 1))
+         {
+            node.children.remove(words[position]);
+         }
+      }
+
+      return node.match == null && node.children.isEmpty();
+   }
+
+   // Inner classes -------------------------------------------------
+
+   private static final class Node<T>
+   {
+      private final Map<String, Node<T>> children = new ConcurrentHashMap<String, Node<T>>();
+
+      private volatile Match<T> match;
+   }
+}
@@ -13,6 +13,8 @@
 
 package org.hornetq.spi.core.protocol;
 
+import java.nio.channels.FileChannel;
+
 import org.hornetq.api.core.SimpleString;
 import org.hornetq.core.server.ServerMessage;
 import org.hornetq.spi.core.remoting.ReadyListener;
@@ -36,6 +38,17 @@ public interface SessionCallback
 
    int sendLargeMessageContinuation(long consumerID, byte[] body, boolean continues, boolean requiresResponse);
 
+   /**
+    * Sends the {@code bodySize} bytes of the file from {@code position} as a continuation of a large message. The
+    * file may still be read once this method returns, it must stay open until {@code fileRelease} is run.
+    */
+   int sendLargeMessageContinuation(long consumerID,
+                                    FileChannel file,
+                                    long position,
+                                    int bodySize,
+                                    boolean continues,
+                                    Runnable fileRelease);
+
    void closed();
 
    void addReadyListener(ReadyListener listener);
@@ -84,10 +84,15 @@ public class ConfigurationImplTest extends UnitTestCase
       Assert.assertEquals(HornetQDefaultConfiguration.DEFAULT_PAGING_DIR, conf.getPagingDirectory());
       Assert.assertEquals(HornetQDefaultConfiguration.DEFAULT_LARGE_MESSAGES_DIR, conf.getLargeMessagesDirectory());
       Assert.assertEquals(HornetQDefaultConfiguration.DEFAULT_JOURNAL_COMPACT_PERCENTAGE, conf.getJournalCompactPercentage());
+      Assert.assertEquals(HornetQDefaultConfiguration.DEFAULT_JOURNAL_LOAD_THREADS, conf.getJournalLoadThreads());
+      Assert.assertEquals(HornetQDefaultConfiguration.DEFAULT_JOURNAL_COMPACT_MAX_RATE, conf.getJournalCompactMaxRate());
       Assert.assertEquals(JournalConstants.DEFAULT_JOURNAL_BUFFER_TIMEOUT_AIO, conf.getJournalBufferTimeout_AIO());
       Assert.assertEquals(JournalConstants.DEFAULT_JOURNAL_BUFFER_TIMEOUT_NIO, conf.getJournalBufferTimeout_NIO());
       Assert.assertEquals(JournalConstants.DEFAULT_JOURNAL_BUFFER_SIZE_AIO, conf.getJournalBufferSize_AIO());
       Assert.assertEquals(JournalConstants.DEFAULT_JOURNAL_BUFFER_SIZE_NIO, conf.getJournalBufferSize_NIO());
+      Assert.assertEquals(HornetQDefaultConfiguration.DEFAULT_JOURNAL_BUFFER_TIMEOUT_ADAPTIVE, conf.isJournalBufferTimeoutAdaptive());
+      Assert.assertEquals(HornetQDefaultConfiguration.DEFAULT_REPLICATION_BATCHING, conf.isReplicationBatching());
+      Assert.assertEquals(HornetQDefaultConfiguration.DEFAULT_REPLICATION_COMPRESSED, conf.isReplicationCompressed());
       Assert.assertEquals(HornetQDefaultConfiguration.DEFAULT_JOURNAL_LOG_WRITE_RATE, conf.isLogJournalWriteRate());
       Assert.assertEquals(HornetQDefaultConfiguration.DEFAULT_JOURNAL_PERF_BLAST_PAGES, conf.getJournalPerfBlastPages());
       Assert.assertEquals(HornetQDefaultConfiguration.DEFAULT_MESSAGE_COUNTER_ENABLED, conf.isMessageCounterEnabled());
@@ -96,6 +101,9 @@ public class ConfigurationImplTest extends UnitTestCase
       Assert.assertEquals(HornetQDefaultConfiguration.DEFAULT_MESSAGE_COUNTER_SAMPLE_PERIOD, conf.getMessageCounterSamplePeriod());
       Assert.assertEquals(HornetQDefaultConfiguration.DEFAULT_ID_CACHE_SIZE, conf.getIDCacheSize());
       Assert.assertEquals(HornetQDefaultConfiguration.DEFAULT_PERSIST_ID_CACHE, conf.isPersistIDCache());
+      Assert.assertEquals(HornetQDefaultConfiguration.DEFAULT_ID_CACHE_OFF_HEAP, conf.isIDCacheOffHeap());
+      Assert.assertEquals(HornetQDefaultConfiguration.DEFAULT_ID_CACHE_FILTER_RATIO, conf.getIDCacheFilterRatio());
+      Assert.assertEquals(HornetQDefaultConfiguration.DEFAULT_GLOBAL_PAGE_CACHE_MAX_SIZE, conf.getGlobalPageCacheMaxSize());
       Assert.assertEquals(HornetQDefaultConfiguration.DEFAULT_SERVER_DUMP_INTERVAL, conf.getServerDumpInterval());
       Assert.assertEquals(HornetQDefaultConfiguration.DEFAULT_MEMORY_WARNING_THRESHOLD, conf.getMemoryWarningThreshold());
       Assert.assertEquals(HornetQDefaultConfiguration.DEFAULT_MEMORY_MEASURE_INTERVAL, conf.getMemoryMeasureInterval());
@@ -230,6 +238,18 @@ public class ConfigurationImplTest extends UnitTestCase
          conf.setPersistIDCache(b);
          Assert.assertEquals(b, conf.isPersistIDCache());
 
+         b = RandomUtil.randomBoolean();
+         conf.setIDCacheOffHeap(b);
+         Assert.assertEquals(b, conf.isIDCacheOffHeap());
+
+         i = RandomUtil.randomInt();
+         conf.setIDCacheFilterRatio(i);
+         Assert.assertEquals(i, conf.getIDCacheFilterRatio());
+
+         l = RandomUtil.randomLong();
+         conf.setGlobalPageCacheMaxSize(l);
+         Assert.assertEquals(l, conf.getGlobalPageCacheMaxSize());
+
          i = RandomUtil.randomInt();
          conf.setJournalCompactMinFiles(i);
          Assert.assertEquals(i, conf.getJournalCompactMinFiles());
@@ -238,6 +258,14 @@ public class ConfigurationImplTest extends UnitTestCase
          conf.setJournalCompactPercentage(i);
          Assert.assertEquals(i, conf.getJournalCompactPercentage());
 
+         i = RandomUtil.randomInt();
+         conf.setJournalLoadThreads(i);
+         Assert.assertEquals(i, conf.getJournalLoadThreads());
+
+         l = RandomUtil.randomLong();
+         conf.setJournalCompactMaxRate(l);
+         Assert.assertEquals(l, conf.getJournalCompactMaxRate());
+
          i = RandomUtil.randomInt();
          conf.setJournalBufferSize_AIO(i);
          Assert.assertEquals(i, conf.getJournalBufferSize_AIO());
@@ -254,6 +282,18 @@ public class ConfigurationImplTest extends UnitTestCase
          conf.setJournalBufferTimeout_NIO(i);
          Assert.assertEquals(i, conf.getJournalBufferTimeout_NIO());
 
+         b = RandomUtil.randomBoolean();
+         conf.setJournalBufferTimeoutAdaptive(b);
+         Assert.assertEquals(b, conf.isJournalBufferTimeoutAdaptive());
+
+         b = RandomUtil.randomBoolean();
+         conf.setReplicationBatching(b);
+         Assert.assertEquals(b, conf.isReplicationBatching());
+
+         b = RandomUtil.randomBoolean();
+         conf.setReplicationCompressed(b);
+         Assert.assertEquals(b, conf.isReplicationCompressed());
+
          b = RandomUtil.randomBoolean();
          conf.setLogJournalWriteRate(b);
          Assert.assertEquals(b, conf.isLogJournalWriteRate());
@@ -444,6 +484,18 @@ public class ConfigurationImplTest extends UnitTestCase
       conf.setPersistIDCache(b);
       Assert.assertEquals(b, conf.isPersistIDCache());
 
+      b = RandomUtil.randomBoolean();
+      conf.setIDCacheOffHeap(b);
+      Assert.assertEquals(b, conf.isIDCacheOffHeap());
+
+      i = RandomUtil.randomInt();
+      conf.setIDCacheFilterRatio(i);
+      Assert.assertEquals(i, conf.getIDCacheFilterRatio());
+
+      l = RandomUtil.randomLong();
+      conf.setGlobalPageCacheMaxSize(l);
+      Assert.assertEquals(l, conf.getGlobalPageCacheMaxSize());
+
       i = RandomUtil.randomInt();
       conf.setJournalCompactMinFiles(i);
       Assert.assertEquals(i, conf.getJournalCompactMinFiles());
@@ -452,6 +504,14 @@ public class ConfigurationImplTest extends UnitTestCase
       conf.setJournalCompactPercentage(i);
       Assert.assertEquals(i, conf.getJournalCompactPercentage());
 
+      i = RandomUtil.randomInt();
+      conf.setJournalLoadThreads(i);
+      Assert.assertEquals(i, conf.getJournalLoadThreads());
+
+      l = RandomUtil.randomLong();
+      conf.setJournalCompactMaxRate(l);
+      Assert.assertEquals(l, conf.getJournalCompactMaxRate());
+
       i = RandomUtil.randomInt();
       conf.setJournalBufferSize_AIO(i);
       Assert.assertEquals(i, conf.getJournalBufferSize_AIO());
@@ -468,6 +528,18 @@ public class ConfigurationImplTest extends UnitTestCase
       conf.setJournalBufferTimeout_NIO(i);
       Assert.assertEquals(i, conf.getJournalBufferTimeout_NIO());
 
+      b = RandomUtil.randomBoolean();
+      conf.setJournalBufferTimeoutAdaptive(b);
+      Assert.assertEquals(b, conf.isJournalBufferTimeoutAdaptive());
+
+      b = RandomUtil.randomBoolean();
+      conf.setReplicationBatching(b);
+      Assert.assertEquals(b, conf.isReplicationBatching());
+
+      b = RandomUtil.randomBoolean();
+      conf.setReplicationCompressed(b);
+      Assert.assertEquals(b, conf.isReplicationCompressed());
+
       b = RandomUtil.randomBoolean();
       conf.setLogJournalWriteRate(b);
       Assert.assertEquals(b, conf.isLogJournalWriteRate());
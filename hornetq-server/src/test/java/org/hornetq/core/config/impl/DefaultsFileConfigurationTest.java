@@ -85,6 +85,13 @@ public class DefaultsFileConfigurationTest extends ConfigurationImplTest
 
       Assert.assertEquals(HornetQDefaultConfiguration.DEFAULT_PERSIST_ID_CACHE, conf.isPersistIDCache());
 
+      Assert.assertEquals(HornetQDefaultConfiguration.DEFAULT_ID_CACHE_OFF_HEAP, conf.isIDCacheOffHeap());
+
+      Assert.assertEquals(HornetQDefaultConfiguration.DEFAULT_ID_CACHE_FILTER_RATIO, conf.getIDCacheFilterRatio());
+
+      Assert.assertEquals(HornetQDefaultConfiguration.DEFAULT_GLOBAL_PAGE_CACHE_MAX_SIZE,
+                          conf.getGlobalPageCacheMaxSize());
+
       Assert.assertEquals(HornetQDefaultConfiguration.DEFAULT_BINDINGS_DIRECTORY, conf.getBindingsDirectory());
 
       Assert.assertEquals(HornetQDefaultConfiguration.DEFAULT_JOURNAL_DIR, conf.getJournalDirectory());
@@ -102,6 +109,10 @@ public class DefaultsFileConfigurationTest extends ConfigurationImplTest
 
       Assert.assertEquals(HornetQDefaultConfiguration.DEFAULT_JOURNAL_COMPACT_PERCENTAGE, conf.getJournalCompactPercentage());
 
+      Assert.assertEquals(HornetQDefaultConfiguration.DEFAULT_JOURNAL_LOAD_THREADS, conf.getJournalLoadThreads());
+
+      Assert.assertEquals(HornetQDefaultConfiguration.DEFAULT_JOURNAL_COMPACT_MAX_RATE, conf.getJournalCompactMaxRate());
+
       Assert.assertEquals(HornetQDefaultConfiguration.DEFAULT_JOURNAL_MIN_FILES, conf.getJournalMinFiles());
 
       Assert.assertEquals(HornetQDefaultConfiguration.DEFAULT_JOURNAL_MAX_IO_AIO, conf.getJournalMaxIO_AIO());
@@ -116,6 +127,8 @@ public class DefaultsFileConfigurationTest extends ConfigurationImplTest
 
       Assert.assertEquals(JournalConstants.DEFAULT_JOURNAL_BUFFER_SIZE_NIO, conf.getJournalBufferSize_NIO());
 
+      Assert.assertEquals(HornetQDefaultConfiguration.DEFAULT_JOURNAL_BUFFER_TIMEOUT_ADAPTIVE, conf.isJournalBufferTimeoutAdaptive());
+
       Assert.assertEquals(HornetQDefaultConfiguration.DEFAULT_CREATE_BINDINGS_DIR, conf.isCreateBindingsDir());
 
       Assert.assertEquals(HornetQDefaultConfiguration.DEFAULT_CREATE_JOURNAL_DIR, conf.isCreateJournalDir());
@@ -138,6 +151,8 @@ public class DefaultsFileConfigurationTest extends ConfigurationImplTest
       Assert.assertEquals(HornetQDefaultConfiguration.DEFAULT_MESSAGE_EXPIRY_THREAD_PRIORITY,
                           conf.getMessageExpiryThreadPriority());
       Assert.assertEquals("replication cluster name", null, conf.getReplicationClustername());
+      Assert.assertEquals(HornetQDefaultConfiguration.DEFAULT_REPLICATION_BATCHING, conf.isReplicationBatching());
+      Assert.assertEquals(HornetQDefaultConfiguration.DEFAULT_REPLICATION_COMPRESSED, conf.isReplicationCompressed());
    }
 
    // Protected ---------------------------------------------------------------------------------------------
@@ -25,6 +25,7 @@ import org.hornetq.core.config.Configuration;
 import org.hornetq.core.config.DivertConfiguration;
 import org.hornetq.core.security.Role;
 import org.hornetq.core.server.JournalType;
+import org.hornetq.core.settings.impl.AddressSettings;
 
 /**
  * @author <a href="ataylor@redhat.com">Andy Taylor</a>
@@ -62,6 +63,8 @@ public class FileConfigurationTest extends ConfigurationImplTest
       Assert.assertEquals(8, conf.getMessageExpiryThreadPriority());
       Assert.assertEquals(127, conf.getIDCacheSize());
       Assert.assertEquals(true, conf.isPersistIDCache());
+      Assert.assertEquals(true, conf.isIDCacheOffHeap());
+      Assert.assertEquals(5, conf.getIDCacheFilterRatio());
       Assert.assertEquals(true, conf.isBackup());
       Assert.assertEquals(true, conf.isSharedStore());
       Assert.assertEquals(true, conf.isPersistDeliveryCountBeforeDelivery());
@@ -70,11 +73,13 @@ public class FileConfigurationTest extends ConfigurationImplTest
       Assert.assertEquals(false, conf.isCreateBindingsDir());
 
       Assert.assertEquals("max concurrent io", 17, conf.getPageMaxConcurrentIO());
+      Assert.assertEquals(50 * 1024 * 1024, conf.getGlobalPageCacheMaxSize());
       Assert.assertEquals("somedir2", conf.getJournalDirectory());
       Assert.assertEquals(false, conf.isCreateJournalDir());
       Assert.assertEquals(JournalType.NIO, conf.getJournalType());
       Assert.assertEquals(10000, conf.getJournalBufferSize_NIO());
       Assert.assertEquals(1000, conf.getJournalBufferTimeout_NIO());
+      Assert.assertEquals(true, conf.isJournalBufferTimeoutAdaptive());
       Assert.assertEquals(56546, conf.getJournalMaxIO_NIO());
 
       Assert.assertEquals(false, conf.isJournalSyncTransactional());
@@ -83,6 +88,8 @@ public class FileConfigurationTest extends ConfigurationImplTest
       Assert.assertEquals(100, conf.getJournalMinFiles());
       Assert.assertEquals(123, conf.getJournalCompactMinFiles());
       Assert.assertEquals(33, conf.getJournalCompactPercentage());
+      Assert.assertEquals(4, conf.getJournalLoadThreads());
+      Assert.assertEquals(20971520L, conf.getJournalCompactMaxRate());
 
       Assert.assertEquals("largemessagesdir", conf.getLargeMessagesDirectory());
       Assert.assertEquals(95, conf.getMemoryWarningThreshold());
@@ -228,6 +235,8 @@ public class FileConfigurationTest extends ConfigurationImplTest
 
       Assert.assertEquals(2, conf.getClusterConfigurations().size());
       Assert.assertEquals("replication cluster name", "cluster-connection1", conf.getReplicationClustername());
+      Assert.assertEquals(true, conf.isReplicationBatching());
+      Assert.assertEquals(true, conf.isReplicationCompressed());
 
       for (ClusterConnectionConfiguration ccc : conf.getClusterConfigurations())
       {
@@ -278,6 +287,7 @@ public class FileConfigurationTest extends ConfigurationImplTest
       assertEquals(81781728121878l, conf.getAddressesSettings().get("a1").getMaxSizeBytes());
       assertEquals(81738173872337l, conf.getAddressesSettings().get("a1").getPageSizeBytes());
       assertEquals(10, conf.getAddressesSettings().get("a1").getPageCacheMaxSize());
+      assertEquals(1024 * 1024, conf.getAddressesSettings().get("a1").getPageCacheMaxSizeBytes());
       assertEquals(4, conf.getAddressesSettings().get("a1").getMessageCounterHistoryDayLimit());
 
       assertEquals("a2.1", conf.getAddressesSettings().get("a2").getDeadLetterAddress().toString());
@@ -286,6 +296,8 @@ public class FileConfigurationTest extends ConfigurationImplTest
       assertEquals(932489234928324l, conf.getAddressesSettings().get("a2").getMaxSizeBytes());
       assertEquals(7126716262626l, conf.getAddressesSettings().get("a2").getPageSizeBytes());
       assertEquals(20, conf.getAddressesSettings().get("a2").getPageCacheMaxSize());
+      assertEquals(AddressSettings.DEFAULT_PAGE_MAX_CACHE_BYTES,
+                   conf.getAddressesSettings().get("a2").getPageCacheMaxSizeBytes());
       assertEquals(8, conf.getAddressesSettings().get("a2").getMessageCounterHistoryDayLimit());
 
 
@@ -13,6 +13,11 @@
 
 package org.hornetq.core.filter.impl;
 
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
 import junit.framework.Assert;
 
 import org.hornetq.api.core.HornetQException;
@@ -686,8 +691,220 @@ public class FilterTest extends SilentTestCase
       parse.getNextToken();
    }
 
+   public void testSameResultsAsInterpreter() throws Exception
+   {
+      String[] filters = new String[] { "color = 'RED'",
+                                        "color <> 'RED'",
+                                        "color IN ('RED', 'BLUE')",
+                                        "color NOT IN ('RED', 'BLUE')",
+                                        "color LIKE 'R%'",
+                                        "color NOT LIKE 'R_D'",
+                                        "color IS NULL",
+                                        "color IS NOT NULL",
+                                        "weight > 2",
+                                        "weight >= 2.5",
+                                        "weight < 2",
+                                        "weight <= 2.5",
+                                        "weight = 2",
+                                        "weight <> 2",
+                                        "weight BETWEEN 1 AND 3",
+                                        "weight NOT BETWEEN 1 AND 3",
+                                        "weight * 2 + 1 > 5",
+                                        "-weight < -2",
+                                        "weight / 2 = 1",
+                                        "weight - 1 = color",
+                                        "color = 'RED' AND weight > 2",
+                                        "color = 'RED' OR weight > 2",
+                                        "NOT (color = 'RED' AND weight > 2)",
+                                        "NOT color = 'RED' OR NOT weight > 2",
+                                        "flag",
+                                        "flag = TRUE",
+                                        "flag AND color = 'RED'",
+                                        "flag OR weight > 2",
+                                        "HQPriority > 4",
+                                        "HQDurable = 'DURABLE' AND HQPriority BETWEEN 2 AND 6" };
+
+      Object[] colors = new Object[] { null, new SimpleString("RED"), new SimpleString("BLUE"), "RED", 3 };
+
+      Object[] weights = new Object[] { null, 1, 2L, 2.5d, 3.5f, (short)4, (byte)5, new SimpleString("2") };
+
+      Object[] flags = new Object[] { null, true, false, 1 };
+
+      for (String filterString : filters)
+      {
+         Filter compiled = FilterImpl.createFilter(filterString);
+
+         Map<SimpleString, Identifier> identifiers = new HashMap<SimpleString, Identifier>();
+
+         Object interpreted = new FilterParser().parse(new SimpleString(filterString), identifiers);
+
+         for (Object color : colors)
+         {
+            for (Object weight : weights)
+            {
+               for (Object flag : flags)
+               {
+                  message = new ServerMessageImpl(1, 1000);
+                  message.setPriority((byte)(RandomUtil.randomPositiveInt() % 10));
+                  message.setDurable(RandomUtil.randomBoolean());
+                  message.putObjectProperty(new SimpleString("color"), color);
+                  message.putObjectProperty(new SimpleString("weight"), weight);
+                  message.putObjectProperty(new SimpleString("flag"), flag);
+
+                  Assert.assertEquals(filterString + " on " + message,
+                                      interpret(interpreted, identifiers, message),
+                                      compiled.match(message));
+               }
+            }
+         }
+      }
+   }
+
+   public void testConcurrentMatch() throws Exception
+   {
+      final Filter filter = FilterImpl.createFilter("color IN ('RED', 'GREEN') AND weight BETWEEN 1 AND 10");
+
+      final int numberOfThreads = 8;
+
+      final int iterations = 10000;
+
+      final CountDownLatch latch = new CountDownLatch(1);
+
+      final AtomicInteger errors = new AtomicInteger(0);
+
+      Thread[] threads = new Thread[numberOfThreads];
+
+      for (int t = 0; t < numberOfThreads; t++)
+      {
+         final int thread = t;
+
+         threads[t] = new Thread()
+         {
+            @Override
+            public void run()
+            {
+               try
+               {
+                  // half of the threads match, the other half doesn't
+                  ServerMessage message = new ServerMessageImpl(thread, 1000);
+                  message.putStringProperty(new SimpleString("color"), new SimpleString(thread % 2 == 0 ? "RED"
+                                                                                                        : "BLUE"));
+                  message.putIntProperty(new SimpleString("weight"), 5);
+
+                  latch.await();
+
+                  for (int i = 0; i < iterations; i++)
+                  {
+                     if (filter.match(message) != (thread % 2 == 0))
+                     {
+                        errors.incrementAndGet();
+                     }
+                  }
+               }
+               catch (Exception e)
+               {
+                  e.printStackTrace();
+                  errors.incrementAndGet();
+               }
+            }
+         };
+
+         threads[t].start();
+      }
+
+      latch.countDown();
+
+      for (Thread thread : threads)
+      {
+         thread.join();
+      }
+
+      Assert.assertEquals(0, errors.get());
+   }
+
+   public void testEqualityTerm() throws Exception
+   {
+      assertEqualityTerm("region = 'EU'", "region", "EU");
+      assertEqualityTerm("region IN ('EU', 'US')", "region", "EU", "US");
+      assertEqualityTerm("region = 'EU' AND price > 10", "region", "EU");
+      assertEqualityTerm("price > 10 AND (type = 'a' AND region IN ('EU'))", "type", "a");
+      assertEqualityTerm("price > 10 AND region = 'EU'", "region", "EU");
+
+      assertEqualityTerm("region = 'EU' OR price > 10", null);
+      assertEqualityTerm("region NOT IN ('EU', 'US')", null);
+      assertEqualityTerm("NOT region = 'EU'", null);
+      assertEqualityTerm("region <> 'EU'", null);
+      assertEqualityTerm("region LIKE 'EU'", null);
+      assertEqualityTerm("price = 10", null);
+      assertEqualityTerm("HQDurable = 'DURABLE'", null);
+   }
+
    // Private -----------------------------------------------------------------------------------
 
+   private void assertEqualityTerm(final String filterString, final String property, final String... values) throws Exception
+   {
+      FilterImpl filter = (FilterImpl)FilterImpl.createFilter(filterString);
+
+      if (property == null)
+      {
+         Assert.assertNull(filter.getEqualityProperty());
+         Assert.assertNull(filter.getEqualityValues());
+      }
+      else
+      {
+         Assert.assertEquals(new SimpleString(property), filter.getEqualityProperty());
+         Assert.assertEquals(values.length, filter.getEqualityValues().size());
+         for (String value : values)
+         {
+            Assert.assertTrue(filter.getEqualityValues().contains(new SimpleString(value)));
+         }
+      }
+   }
+
+   /**
+    * Evaluates the parsed tree the way the filters were evaluated before being compiled
+    */
+   private static boolean interpret(final Object parsed,
+                                    final Map<SimpleString, Identifier> identifiers,
+                                    final ServerMessage message) throws Exception
+   {
+      try
+      {
+         for (Identifier id : identifiers.values())
+         {
+            Object val = null;
+
+            SimpleString name = id.getName();
+
+            if (name.equals(new SimpleString("HQPriority")))
+            {
+               val = Integer.valueOf(message.getPriority());
+            }
+            else if (name.equals(new SimpleString("HQDurable")))
+            {
+               val = new SimpleString(message.isDurable() ? "DURABLE" : "NON_DURABLE");
+            }
+            else
+            {
+               val = message.getObjectProperty(name);
+            }
+
+            id.setValue(val);
+         }
+
+         if (parsed instanceof Identifier)
+         {
+            return Boolean.TRUE.equals(((Identifier)parsed).getValue());
+         }
+
+         return Boolean.TRUE.equals(((Operator)parsed).apply());
+      }
+      catch (Exception e)
+      {
+         return false;
+      }
+   }
+
    private void doPutStringProperty(final String key, final String value)
    {
       message.putStringProperty(new SimpleString(key), new SimpleString(value));
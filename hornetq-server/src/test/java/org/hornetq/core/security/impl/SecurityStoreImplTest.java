@@ -0,0 +1,286 @@
+/*
+ * Copyright 2009 Red Hat, Inc.
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package org.hornetq.core.security.impl;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executor;
+
+import junit.framework.Assert;
+
+import org.hornetq.api.core.HornetQSecurityException;
+import org.hornetq.api.core.SimpleString;
+import org.hornetq.core.security.CheckType;
+import org.hornetq.core.security.Role;
+import org.hornetq.core.server.ServerSession;
+import org.hornetq.core.settings.HierarchicalRepository;
+import org.hornetq.core.settings.impl.HierarchicalObjectRepository;
+import org.hornetq.spi.core.security.HornetQSecurityManagerImpl;
+import org.hornetq.tests.util.UnitTestCase;
+
+/**
+ * A SecurityStoreImplTest
+ */
+public class SecurityStoreImplTest extends UnitTestCase
+{
+   // Constants -----------------------------------------------------
+
+   private static final SimpleString ADDRESS = new SimpleString("address");
+
+   // Attributes ----------------------------------------------------
+
+   private HierarchicalRepository<Set<Role>> securityRepository;
+
+   private CountingSecurityManager securityManager;
+
+   private QueuedExecutor executor;
+
+   private ServerSession session;
+
+   // Public --------------------------------------------------------
+
+   @Override
+   protected void setUp() throws Exception
+   {
+      super.setUp();
+
+      securityRepository = new HierarchicalObjectRepository<Set<Role>>();
+      securityRepository.addMatch("#", roles(new Role("sender", true, false, false, false, false, false, false)));
+
+      securityManager = new CountingSecurityManager();
+      securityManager.addUser("auser", "pass");
+      securityManager.addRole("auser", "sender");
+
+      executor = new QueuedExecutor();
+
+      session = session("auser", "pass");
+   }
+
+   public void testCachedCheck() throws Exception
+   {
+      SecurityStoreImpl store = createStore(10000);
+
+      store.check(ADDRESS, CheckType.SEND, session);
+      store.check(ADDRESS, CheckType.SEND, session);
+      store.check(ADDRESS, CheckType.SEND, session("auser", "pass"));
+
+      Assert.assertEquals(1, securityManager.validations);
+
+      store.check(new SimpleString("other"), CheckType.SEND, session);
+
+      Assert.assertEquals(2, securityManager.validations);
+
+      assertDenied(store, CheckType.CONSUME);
+      assertDenied(store, CheckType.CONSUME);
+
+      // denials aren't cached
+      Assert.assertEquals(4, securityManager.validations);
+   }
+
+   public void testNotCachedWithoutInvalidationInterval() throws Exception
+   {
+      SecurityStoreImpl store = createStore(0);
+
+      store.check(ADDRESS, CheckType.SEND, session);
+      store.check(ADDRESS, CheckType.SEND, session);
+
+      Assert.assertEquals(2, securityManager.validations);
+
+      securityManager.removeRole("auser", "sender");
+
+      assertDenied(store, CheckType.SEND);
+
+      Assert.assertTrue(executor.tasks.isEmpty());
+   }
+
+   public void testInvalidatedOnChange() throws Exception
+   {
+      SecurityStoreImpl store = createStore(10000);
+
+      store.check(ADDRESS, CheckType.SEND, session);
+
+      securityRepository.addMatch(ADDRESS.toString(), roles(new Role("receiver", false, true, false, false, false, false, false)));
+
+      assertDenied(store, CheckType.SEND);
+   }
+
+   public void testRefreshedInBackground() throws Exception
+   {
+      SecurityStoreImpl store = createStore(2000);
+
+      store.check(ADDRESS, CheckType.SEND, session);
+
+      Thread.sleep(1200);
+
+      // past half of the interval, the check is still granted from the cache and refreshed in the background
+      store.check(ADDRESS, CheckType.SEND, session);
+      store.check(ADDRESS, CheckType.SEND, session);
+
+      Assert.assertEquals(1, securityManager.validations);
+
+      executor.runAll();
+
+      Assert.assertEquals(2, securityManager.validations);
+
+      Thread.sleep(1200);
+
+      // the first validation expired but the refreshed one didn't
+      store.check(ADDRESS, CheckType.SEND, session);
+
+      Assert.assertEquals(2, securityManager.validations);
+
+      // the next refresh finds the permission revoked
+      securityManager.removeRole("auser", "sender");
+
+      executor.runAll();
+
+      Assert.assertEquals(3, securityManager.validations);
+
+      assertDenied(store, CheckType.SEND);
+   }
+
+   public void testExpired() throws Exception
+   {
+      SecurityStoreImpl store = createStore(500);
+
+      store.check(ADDRESS, CheckType.SEND, session);
+
+      Thread.sleep(600);
+
+      securityManager.removeRole("auser", "sender");
+
+      assertDenied(store, CheckType.SEND);
+   }
+
+   public void testEmptyUserRemoved() throws Exception
+   {
+      SecurityStoreImpl store = createStore(500);
+
+      store.check(ADDRESS, CheckType.SEND, session);
+
+      executor.runAll();
+
+      Assert.assertEquals(1, store.getCachedUsers());
+
+      Thread.sleep(600);
+
+      // schedules the purge of the expired permissions
+      assertDenied(store, CheckType.CONSUME);
+
+      executor.runAll();
+
+      Assert.assertEquals(0, store.getCachedUsers());
+   }
+
+   // Private -------------------------------------------------------
+
+   private SecurityStoreImpl createStore(final long invalidationInterval)
+   {
+      return new SecurityStoreImpl(securityRepository,
+                                   securityManager,
+                                   invalidationInterval,
+                                   true,
+                                   "cluster",
+                                   "clusterpass",
+                                   null,
+                                   executor);
+   }
+
+   private void assertDenied(final SecurityStoreImpl store, final CheckType checkType) throws Exception
+   {
+      try
+      {
+         store.check(ADDRESS, checkType, session);
+
+         Assert.fail("expected a security exception");
+      }
+      catch (HornetQSecurityException e)
+      {
+         // expected
+      }
+   }
+
+   private static Set<Role> roles(final Role role)
+   {
+      Set<Role> roles = new HashSet<Role>();
+
+      roles.add(role);
+
+      return roles;
+   }
+
+   private static ServerSession session(final String username, final String password)
+   {
+      return (ServerSession)Proxy.newProxyInstance(ServerSession.class.getClassLoader(),
+                                                   new Class[] { ServerSession.class },
+                                                   new InvocationHandler()
+                                                   {
+                                                      public Object invoke(final Object proxy,
+                                                                           final Method method,
+                                                                           final Object[] args)
+                                                      {
+                                                         if (method.getName().equals("getUsername"))
+                                                         {
+                                                            return username;
+                                                         }
+                                                         if (method.getName().equals("getPassword"))
+                                                         {
+                                                            return password;
+                                                         }
+                                                         throw new UnsupportedOperationException(method.getName());
+                                                      }
+                                                   });
+   }
+
+   // Inner classes -------------------------------------------------
+
+   private static final class CountingSecurityManager extends HornetQSecurityManagerImpl
+   {
+      private int validations;
+
+      @Override
+      public boolean validateUserAndRole(final String user,
+                                         final String password,
+                                         final Set<Role> roles,
+                                         final CheckType checkType)
+      {
+         validations++;
+
+         return super.validateUserAndRole(user, password, roles, checkType);
+      }
+   }
+
+   private static final class QueuedExecutor implements Executor
+   {
+      private final List<Runnable> tasks = new ArrayList<Runnable>();
+
+      public void execute(final Runnable task)
+      {
+         tasks.add(task);
+      }
+
+      void runAll()
+      {
+         while (!tasks.isEmpty())
+         {
+            tasks.remove(0).run();
+         }
+      }
+   }
+}
@@ -0,0 +1,172 @@
+/*
+ * Copyright 2009 Red Hat, Inc.
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package org.hornetq.core.server.impl;
+
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Random;
+
+import junit.framework.Assert;
+
+import org.hornetq.core.server.MessageReference;
+import org.hornetq.tests.util.UnitTestCase;
+
+/**
+ * A DeliveringReferencesTest
+ */
+public class DeliveringReferencesTest extends UnitTestCase
+{
+   public void testPollInDeliveryOrder() throws Exception
+   {
+      DeliveringReferences refs = new DeliveringReferences();
+
+      Assert.assertTrue(refs.isEmpty());
+      Assert.assertNull(refs.peek());
+      Assert.assertNull(refs.poll());
+
+      // the IDs aren't in delivery order, e.g. on redeliveries
+      MessageReference[] delivered = new MessageReference[] { ref(3), ref(1), ref(2) };
+
+      for (MessageReference ref : delivered)
+      {
+         refs.add(ref);
+      }
+
+      Assert.assertEquals(3, refs.size());
+
+      for (MessageReference ref : delivered)
+      {
+         Assert.assertSame(ref, refs.peek());
+         Assert.assertSame(ref, refs.poll());
+      }
+
+      Assert.assertTrue(refs.isEmpty());
+      Assert.assertNull(refs.remove(1));
+   }
+
+   public void testRemoveByID() throws Exception
+   {
+      DeliveringReferences refs = new DeliveringReferences();
+
+      MessageReference[] delivered = new MessageReference[5];
+
+      for (int i = 0; i < delivered.length; i++)
+      {
+         delivered[i] = ref(i);
+         refs.add(delivered[i]);
+      }
+
+      Assert.assertSame(delivered[2], refs.remove(2));
+      Assert.assertNull(refs.remove(2));
+      Assert.assertSame(delivered[0], refs.remove(0));
+      Assert.assertSame(delivered[4], refs.remove(4));
+
+      Assert.assertEquals(2, refs.size());
+
+      refs.add(delivered[4]);
+
+      LinkedList<MessageReference> remaining = refs.removeAll();
+
+      Assert.assertEquals(3, remaining.size());
+      Assert.assertSame(delivered[1], remaining.get(0));
+      Assert.assertSame(delivered[3], remaining.get(1));
+      Assert.assertSame(delivered[4], remaining.get(2));
+
+      Assert.assertTrue(refs.isEmpty());
+      Assert.assertNull(refs.poll());
+      Assert.assertNull(refs.remove(1));
+   }
+
+   public void testSameMessageID() throws Exception
+   {
+      DeliveringReferences refs = new DeliveringReferences();
+
+      MessageReference first = ref(1);
+      MessageReference second = ref(1);
+      MessageReference third = ref(1);
+
+      refs.add(first);
+      refs.add(ref(2));
+      refs.add(second);
+      refs.add(third);
+
+      Assert.assertSame(first, refs.remove(1));
+      Assert.assertSame(second, refs.remove(1));
+
+      Assert.assertEquals(2, refs.size());
+      Assert.assertEquals(2, refs.poll().getMessage().getMessageID());
+      Assert.assertSame(third, refs.poll());
+
+      refs.add(first);
+      refs.add(second);
+
+      Assert.assertSame(first, refs.poll());
+      Assert.assertSame(second, refs.remove(1));
+      Assert.assertTrue(refs.isEmpty());
+   }
+
+   public void testCompareWithList() throws Exception
+   {
+      DeliveringReferences refs = new DeliveringReferences();
+
+      List<MessageReference> reference = new ArrayList<MessageReference>();
+
+      Random random = new Random(1);
+
+      for (int i = 0; i < 20000; i++)
+      {
+         int operation = random.nextInt(10);
+
+         if (operation < 5)
+         {
+            MessageReference ref = ref(random.nextInt(100));
+            refs.add(ref);
+            reference.add(ref);
+         }
+         else if (operation < 8)
+         {
+            long id = random.nextInt(100);
+
+            MessageReference expected = null;
+
+            for (MessageReference ref : reference)
+            {
+               if (ref.getMessage().getMessageID() == id)
+               {
+                  expected = ref;
+                  break;
+               }
+            }
+
+            reference.remove(expected);
+
+            Assert.assertSame(expected, refs.remove(id));
+         }
+         else
+         {
+            Assert.assertSame(reference.isEmpty() ? null : reference.remove(0), refs.poll());
+         }
+
+         Assert.assertEquals(reference.size(), refs.size());
+      }
+
+      Assert.assertEquals(reference, refs.removeAll());
+   }
+
+   private static MessageReference ref(final long messageID)
+   {
+      return new ServerMessageImpl(messageID, 100).createReference(null);
+   }
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright 2009 Red Hat, Inc.
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package org.hornetq.core.settings.impl;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import junit.framework.Assert;
+
+import org.hornetq.tests.util.UnitTestCase;
+
+/**
+ * A MatchTrieTest
+ */
+public class MatchTrieTest extends UnitTestCase
+{
+   public void testSameMatchesAsPatterns() throws Exception
+   {
+      // the repository only accepts a hierarchical wildcard at the end, the trie must not rely on it
+      String[] patterns = new String[] { "#",
+                                        "a.#",
+                                        "*.#",
+                                        "#.b",
+                                        "a.#.c",
+                                        "#.#",
+                                        "#.*",
+                                        "*.#.*",
+                                        "a.*.c",
+                                        "a",
+                                        "a.",
+                                        "" };
+
+      String[] words = new String[] { "a", "b", "c", "", "ab" };
+
+      MatchTrie<String> trie = new MatchTrie<String>();
+
+      for (String pattern : patterns)
+      {
+         trie.put(new Match<String>(pattern));
+      }
+
+      Random random = new Random(1);
+
+      for (int i = 0; i < 5000; i++)
+      {
+         StringBuilder address = new StringBuilder(words[random.nextInt(words.length)]);
+
+         int numberOfWords = random.nextInt(5);
+
+         for (int j = 0; j < numberOfWords; j++)
+         {
+            address.append('.').append(words[random.nextInt(words.length)]);
+         }
+
+         Set<String> expected = new HashSet<String>();
+
+         for (String pattern : patterns)
+         {
+            if (new Match<String>(pattern).getPattern().matcher(address).matches())
+            {
+               expected.add(pattern);
+            }
+         }
+
+         Map<String, Match<String>> matches = new HashMap<String, Match<String>>();
+
+         trie.getMatches(address.toString(), matches);
+
+         Assert.assertEquals(address.toString(), expected, matches.keySet());
+      }
+   }
+}
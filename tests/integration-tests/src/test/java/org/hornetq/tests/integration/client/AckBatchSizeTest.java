@@ -12,8 +12,12 @@
  */
 package org.hornetq.tests.integration.client;
 
+import java.util.concurrent.atomic.AtomicInteger;
+
 import junit.framework.Assert;
 
+import org.hornetq.api.core.HornetQException;
+import org.hornetq.api.core.Interceptor;
 import org.hornetq.api.core.SimpleString;
 import org.hornetq.api.core.client.ClientConsumer;
 import org.hornetq.api.core.client.ClientMessage;
@@ -21,8 +25,11 @@ import org.hornetq.api.core.client.ClientProducer;
 import org.hornetq.api.core.client.ClientSession;
 import org.hornetq.api.core.client.ClientSessionFactory;
 import org.hornetq.api.core.client.ServerLocator;
+import org.hornetq.core.protocol.core.Packet;
+import org.hornetq.core.protocol.core.impl.PacketImpl;
 import org.hornetq.core.server.HornetQServer;
 import org.hornetq.core.server.Queue;
+import org.hornetq.spi.core.protocol.RemotingConnection;
 import org.hornetq.tests.util.ServiceTestBase;
 
 /**
@@ -95,6 +102,112 @@ public class AckBatchSizeTest extends ServiceTestBase
          session.close();
    }
 
+   /*
+   * tests that individual acks are sent in one packet when the ackBatchSize is reached
+   * */
+   public void testIndividualAckBatchSize() throws Exception
+   {
+      HornetQServer server = createServer(false);
+      server.start();
+      final AtomicInteger ackPackets = new AtomicInteger();
+      server.getRemotingService().addIncomingInterceptor(new Interceptor()
+      {
+         public boolean intercept(final Packet packet, final RemotingConnection connection) throws HornetQException
+         {
+            if (packet.getType() == PacketImpl.SESS_INDIVIDUAL_ACKNOWLEDGE ||
+                packet.getType() == PacketImpl.SESS_INDIVIDUAL_ACKNOWLEDGE_BATCH)
+            {
+               ackPackets.incrementAndGet();
+            }
+            return true;
+         }
+      });
+      ServerLocator locator = createInVMNonHALocator();
+      int numMessages = 100;
+      // every tenth message isn't acked
+      int numAcks = numMessages - numMessages / 10;
+      locator.setAckBatchSize(numAcks * getMessageEncodeSize(addressA));
+      // blocking individual acks are sent right away
+      locator.setBlockOnAcknowledge(false);
+      ClientSessionFactory cf = createSessionFactory(locator);
+      ClientSession sendSession = cf.createSession(false, true, true);
+
+      ClientSession session = cf.createSession(false, true, true);
+      session.createQueue(addressA, queueA, false);
+      ClientProducer cp = sendSession.createProducer(addressA);
+      for (int i = 0; i < numMessages; i++)
+      {
+         cp.send(sendSession.createMessage(false));
+      }
+
+      ClientConsumer consumer = session.createConsumer(queueA);
+      session.start();
+      Queue q = (Queue)server.getPostOffice().getBinding(queueA).getBindable();
+      ClientMessage[] messages = new ClientMessage[numMessages];
+      for (int i = 0; i < numMessages; i++)
+      {
+         messages[i] = consumer.receive(5000);
+         Assert.assertNotNull(messages[i]);
+      }
+      for (int i = 0; i < numMessages - 1; i++)
+      {
+         if (i % 10 != 0)
+         {
+            messages[i].individualAcknowledge();
+         }
+      }
+      Assert.assertEquals(numMessages, q.getDeliveringCount());
+      messages[numMessages - 1].individualAcknowledge();
+      long timeout = System.currentTimeMillis() + 5000;
+      while (q.getDeliveringCount() != numMessages - numAcks && System.currentTimeMillis() < timeout)
+      {
+         Thread.sleep(10);
+      }
+      Assert.assertEquals(numMessages - numAcks, q.getDeliveringCount());
+      Assert.assertEquals(1, ackPackets.get());
+
+      consumer.close();
+      Assert.assertEquals(numMessages - numAcks, q.getMessageCount());
+      sendSession.close();
+      session.close();
+   }
+
+   /*
+   * tests that individual acks aren't batched when blocking on acknowledge
+   * */
+   public void testIndividualAckBlocking() throws Exception
+   {
+      HornetQServer server = createServer(false);
+      server.start();
+      ServerLocator locator = createInVMNonHALocator();
+      int numMessages = 10;
+      locator.setAckBatchSize(numMessages * getMessageEncodeSize(addressA));
+      locator.setBlockOnAcknowledge(true);
+      ClientSessionFactory cf = createSessionFactory(locator);
+      ClientSession sendSession = cf.createSession(false, true, true);
+
+      ClientSession session = cf.createSession(false, true, true);
+      session.createQueue(addressA, queueA, false);
+      ClientProducer cp = sendSession.createProducer(addressA);
+      for (int i = 0; i < numMessages; i++)
+      {
+         cp.send(sendSession.createMessage(false));
+      }
+
+      ClientConsumer consumer = session.createConsumer(queueA);
+      session.start();
+      Queue q = (Queue)server.getPostOffice().getBinding(queueA).getBindable();
+      for (int i = 0; i < numMessages; i++)
+      {
+         ClientMessage m = consumer.receive(5000);
+         Assert.assertNotNull(m);
+         m.individualAcknowledge();
+         Assert.assertEquals(numMessages - i - 1, q.getDeliveringCount());
+      }
+      sendSession.close();
+      session.close();
+   }
+
    /*
    * tests that when the ackBatchSize is 0 we ack every message directly
    * */
@@ -227,7 +227,8 @@ public class ConsumerTest extends ServiceTestBase
       {
          public boolean intercept(final Packet packet, final RemotingConnection connection) throws HornetQException
          {
-            if (packet.getType() == PacketImpl.SESS_ACKNOWLEDGE)
+            // the credits of the consumer go with its acks
+            if (packet.getType() == PacketImpl.SESS_ACKNOWLEDGE || packet.getType() == PacketImpl.SESS_ACKNOWLEDGE_CREDIT)
             {
                latch.countDown();
             }
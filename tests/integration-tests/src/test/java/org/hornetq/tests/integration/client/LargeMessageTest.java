@@ -14,6 +14,7 @@
 package org.hornetq.tests.integration.client;
 
 import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
@@ -36,6 +37,7 @@ import org.hornetq.api.core.client.MessageHandler;
 import org.hornetq.api.core.client.ServerLocator;
 import org.hornetq.core.client.impl.ClientConsumerInternal;
 import org.hornetq.core.config.Configuration;
+import org.hornetq.core.config.DivertConfiguration;
 import org.hornetq.core.message.impl.MessageImpl;
 import org.hornetq.core.persistence.impl.journal.JournalStorageManager;
 import org.hornetq.core.persistence.impl.journal.LargeServerMessageImpl;
@@ -429,6 +431,178 @@ public class LargeMessageTest extends LargeMessageTestBase
          validateNoFilesOnLargeDir();
          }
 
+   public void testMoveLargeMessageSharesFile() throws Exception
+   {
+      final int messageSize = (int)(3.5 * HornetQClient.DEFAULT_MIN_LARGE_MESSAGE_SIZE);
+
+      HornetQServer server = createServer(true, isNetty());
+
+      server.start();
+
+      ClientSessionFactory sf = addSessionFactory(createSessionFactory(locator));
+
+      ClientSession session = addClientSession(sf.createSession(false, false, false));
+
+      SimpleString ADDRESS_MOVED = LargeMessageTest.ADDRESS.concat("-moved");
+
+      session.createQueue(LargeMessageTest.ADDRESS, LargeMessageTest.ADDRESS, true);
+      session.createQueue(LargeMessageTest.ADDRESS, LargeMessageTest.ADDRESS.concat("-2"), true);
+      session.createQueue(ADDRESS_MOVED, ADDRESS_MOVED, true);
+
+      ClientProducer producer = session.createProducer(LargeMessageTest.ADDRESS);
+
+      producer.send(createLargeClientMessage(session, messageSize, true));
+
+      session.commit();
+
+      Assert.assertEquals(1, server.locateQueue(LargeMessageTest.ADDRESS).moveReferences(null, ADDRESS_MOVED));
+
+      // The moved message reads the file of the message still on -2
+      validateNoFilesOnLargeDir(1);
+
+      session.close();
+      server.stop();
+
+      server = createServer(true, isNetty());
+
+      server.start();
+
+      sf = addSessionFactory(createSessionFactory(locator));
+
+      session = addClientSession(sf.createSession(false, false, false));
+
+      session.start();
+
+      ClientConsumer consumer = session.createConsumer(ADDRESS_MOVED);
+
+      ClientMessage msg1 = consumer.receive(10000);
+
+      Assert.assertNotNull(msg1);
+
+      for (int i = 0; i < messageSize; i++)
+      {
+         Assert.assertEquals(UnitTestCase.getSamplebyte(i), msg1.getBodyBuffer().readByte());
+      }
+
+      msg1.acknowledge();
+
+      session.commit();
+
+      validateNoFilesOnLargeDir(1);
+
+      consumer = session.createConsumer(LargeMessageTest.ADDRESS.concat("-2"));
+
+      msg1 = consumer.receive(10000);
+
+      Assert.assertNotNull(msg1);
+
+      for (int i = 0; i < messageSize; i++)
+      {
+         Assert.assertEquals(UnitTestCase.getSamplebyte(i), msg1.getBodyBuffer().readByte());
+      }
+
+      msg1.acknowledge();
+
+      session.commit();
+
+      Assert.assertNull(session.createConsumer(LargeMessageTest.ADDRESS).receiveImmediate());
+
+      session.close();
+
+      validateNoFilesOnLargeDir();
+   }
+
+   public void testDivertedCopyOfPagedLargeMessage() throws Exception
+   {
+      final int messageSize = (int)(3.5 * HornetQClient.DEFAULT_MIN_LARGE_MESSAGE_SIZE);
+
+      SimpleString ADDRESS_DIVERTED = LargeMessageTest.ADDRESS.concat("-diverted");
+
+      Configuration config = createDefaultConfig(isNetty());
+
+      ArrayList<DivertConfiguration> divertList = new ArrayList<DivertConfiguration>();
+      divertList.add(new DivertConfiguration("divert",
+                                             null,
+                                             LargeMessageTest.ADDRESS.toString(),
+                                             ADDRESS_DIVERTED.toString(),
+                                             false,
+                                             null,
+                                             null));
+      config.setDivertConfigurations(divertList);
+
+      HornetQServer server = createServer(true, config, 10000, 20000, new HashMap<String, AddressSettings>());
+
+      server.start();
+
+      ClientSessionFactory sf = addSessionFactory(createSessionFactory(locator));
+
+      ClientSession session = addClientSession(sf.createSession(false, false, false));
+
+      session.createQueue(LargeMessageTest.ADDRESS, LargeMessageTest.ADDRESS, true);
+      session.createQueue(ADDRESS_DIVERTED, ADDRESS_DIVERTED, true);
+
+      // The divert makes its copy before the original is paged
+      server.getPagingManager().getPageStore(LargeMessageTest.ADDRESS).startPaging();
+
+      ClientProducer producer = session.createProducer(LargeMessageTest.ADDRESS);
+
+      producer.send(createLargeClientMessage(session, messageSize, true));
+
+      session.commit();
+
+      // The paged original has its own file, the copy kept the shared one
+      validateNoFilesOnLargeDir(2);
+
+      session.close();
+      server.stop();
+
+      server = createServer(true, config, 10000, 20000, new HashMap<String, AddressSettings>());
+
+      server.start();
+
+      sf = addSessionFactory(createSessionFactory(locator));
+
+      session = addClientSession(sf.createSession(false, false, false));
+
+      session.start();
+
+      ClientConsumer consumer = session.createConsumer(ADDRESS_DIVERTED);
+
+      ClientMessage msg1 = consumer.receive(10000);
+
+      Assert.assertNotNull(msg1);
+
+      for (int i = 0; i < messageSize; i++)
+      {
+         Assert.assertEquals(UnitTestCase.getSamplebyte(i), msg1.getBodyBuffer().readByte());
+      }
+
+      msg1.acknowledge();
+
+      session.commit();
+
+      validateNoFilesOnLargeDir(1);
+
+      consumer = session.createConsumer(LargeMessageTest.ADDRESS);
+
+      msg1 = consumer.receive(10000);
+
+      Assert.assertNotNull(msg1);
+
+      for (int i = 0; i < messageSize; i++)
+      {
+         Assert.assertEquals(UnitTestCase.getSamplebyte(i), msg1.getBodyBuffer().readByte());
+      }
+
+      msg1.acknowledge();
+
+      session.commit();
+
+      session.close();
+
+      validateNoFilesOnLargeDir();
+   }
+
    public void testDeliveryCount() throws Exception
    {
       final int messageSize = (int)(3.5 * HornetQClient.DEFAULT_MIN_LARGE_MESSAGE_SIZE);
@@ -2841,7 +3015,7 @@ public class LargeMessageTest extends LargeMessageTestBase
    // The ClientConsumer should be able to also send ServerLargeMessages as that's done by the CoreBridge
    public void testSendServerMessage() throws Exception
    {
-      HornetQServer server = createServer(true);
+      HornetQServer server = createServer(true, isNetty());
 
       server.start();
 
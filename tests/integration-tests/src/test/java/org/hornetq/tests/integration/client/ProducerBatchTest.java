@@ -0,0 +1,299 @@
+/*
+ * Copyright 2009 Red Hat, Inc.
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package org.hornetq.tests.integration.client;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import junit.framework.Assert;
+
+import org.hornetq.api.core.HornetQException;
+import org.hornetq.api.core.Interceptor;
+import org.hornetq.api.core.SimpleString;
+import org.hornetq.api.core.client.ClientConsumer;
+import org.hornetq.api.core.client.ClientMessage;
+import org.hornetq.api.core.client.ClientProducer;
+import org.hornetq.api.core.client.ClientSession;
+import org.hornetq.api.core.client.ClientSessionFactory;
+import org.hornetq.api.core.client.ServerLocator;
+import org.hornetq.core.protocol.core.Packet;
+import org.hornetq.core.protocol.core.impl.PacketImpl;
+import org.hornetq.core.protocol.core.impl.wireformat.SessionSendBatchMessage;
+import org.hornetq.core.protocol.core.impl.wireformat.SessionSendMessage;
+import org.hornetq.core.server.HornetQServer;
+import org.hornetq.spi.core.protocol.RemotingConnection;
+import org.hornetq.tests.util.ServiceTestBase;
+
+/**
+ * A ProducerBatchTest
+ */
+public class ProducerBatchTest extends ServiceTestBase
+{
+   private static final SimpleString QUEUE = new SimpleString("ProducerBatchTestQueue");
+
+   private static final SimpleString COUNT = new SimpleString("count");
+
+   private HornetQServer server;
+
+   private ServerLocator locator;
+
+   private final AtomicInteger batches = new AtomicInteger();
+
+   private final AtomicInteger batchedMessages = new AtomicInteger();
+
+   @Override
+   protected void setUp() throws Exception
+   {
+      super.setUp();
+
+      server = createServer(false);
+
+      server.start();
+
+      server.getRemotingService().addIncomingInterceptor(new Interceptor()
+      {
+         public boolean intercept(final Packet packet, final RemotingConnection connection) throws HornetQException
+         {
+            if (packet.getType() == PacketImpl.SESS_SEND_BATCH)
+            {
+               batches.incrementAndGet();
+               batchedMessages.addAndGet(((SessionSendBatchMessage)packet).getMessageCount());
+            }
+            return true;
+         }
+      });
+
+      locator = createInVMNonHALocator();
+   }
+
+   public void testBatchedSendsKeepTheirOrder() throws Exception
+   {
+      locator.setProducerBatchSize(4 * 1024);
+
+      ClientSession session = createSession(true);
+
+      ClientProducer producer = session.createProducer(QUEUE);
+
+      ClientProducer anonymousProducer = session.createProducer();
+
+      final int numMessages = 1000;
+
+      for (int i = 0; i < numMessages; i++)
+      {
+         ClientMessage message = createCountMessage(session, i, false);
+
+         if (i % 2 == 0)
+         {
+            producer.send(message);
+         }
+         else
+         {
+            anonymousProducer.send(QUEUE, message);
+         }
+      }
+
+      receive(session, 0, numMessages);
+
+      Assert.assertEquals(numMessages, batchedMessages.get());
+      Assert.assertTrue(batches.get() < numMessages / 10);
+   }
+
+   public void testMessageChangedAfterSend() throws Exception
+   {
+      locator.setProducerBatchSize(64 * 1024);
+
+      ClientSession session = createSession(true);
+
+      ClientProducer producer = session.createProducer(QUEUE);
+
+      ClientMessage message = createCountMessage(session, 0, false);
+
+      for (int i = 0; i < 10; i++)
+      {
+         message.putIntProperty(COUNT, i);
+
+         producer.send(message);
+      }
+
+      receive(session, 0, 10);
+   }
+
+   public void testBatchSentAfterDelay() throws Exception
+   {
+      locator.setProducerBatchSize(1024 * 1024);
+      locator.setProducerBatchDelay(10);
+
+      ClientSession session = createSession(true);
+
+      ClientProducer producer = session.createProducer(QUEUE);
+
+      producer.send(createCountMessage(session, 0, false));
+
+      receive(session, 0, 1);
+
+      Assert.assertEquals(1, batches.get());
+   }
+
+   public void testBlockingSendAfterBatchedSends() throws Exception
+   {
+      locator.setProducerBatchSize(1024 * 1024);
+      locator.setProducerBatchDelay(60 * 1000);
+
+      ClientSession session = createSession(true);
+
+      ClientProducer producer = session.createProducer(QUEUE);
+
+      for (int i = 0; i < 10; i++)
+      {
+         producer.send(createCountMessage(session, i, false));
+      }
+
+      // durable sends block, the batch must be sent before
+      producer.send(createCountMessage(session, 10, true));
+
+      Assert.assertEquals(1, batches.get());
+
+      receive(session, 0, 11);
+   }
+
+   public void testCommitSendsBatch() throws Exception
+   {
+      locator.setProducerBatchSize(1024 * 1024);
+      locator.setProducerBatchDelay(60 * 1000);
+
+      ClientSession session = createSession(false);
+
+      ClientProducer producer = session.createProducer(QUEUE);
+
+      for (int i = 0; i < 10; i++)
+      {
+         producer.send(createCountMessage(session, i, false));
+      }
+
+      session.commit();
+
+      Assert.assertEquals(1, batches.get());
+
+      receive(session, 0, 10);
+
+      for (int i = 10; i < 20; i++)
+      {
+         producer.send(createCountMessage(session, i, false));
+      }
+
+      session.rollback();
+
+      Assert.assertEquals(2, batches.get());
+
+      session.start();
+
+      Assert.assertNull(session.createConsumer(QUEUE).receiveImmediate());
+   }
+
+   public void testInterceptorsSeeBatchedMessages() throws Exception
+   {
+      final AtomicInteger sends = new AtomicInteger();
+
+      server.getRemotingService().addIncomingInterceptor(new Interceptor()
+      {
+         public boolean intercept(final Packet packet, final RemotingConnection connection) throws HornetQException
+         {
+            if (packet.getType() == PacketImpl.SESS_SEND)
+            {
+               sends.incrementAndGet();
+
+               // the odd messages are rejected, the others of their batch must still be sent
+               return ((SessionSendMessage)packet).getMessage().getIntProperty(COUNT) % 2 == 0;
+            }
+            return true;
+         }
+      });
+
+      locator.setProducerBatchSize(1024 * 1024);
+      locator.setProducerBatchDelay(60 * 1000);
+
+      ClientSession session = createSession(false);
+
+      ClientProducer producer = session.createProducer(QUEUE);
+
+      for (int i = 0; i < 10; i++)
+      {
+         producer.send(createCountMessage(session, i, false));
+      }
+
+      session.commit();
+
+      Assert.assertEquals(1, batches.get());
+      Assert.assertEquals(10, sends.get());
+
+      ClientConsumer consumer = session.createConsumer(QUEUE);
+
+      session.start();
+
+      for (int i = 0; i < 10; i += 2)
+      {
+         ClientMessage message = consumer.receive(5000);
+
+         Assert.assertNotNull(message);
+         Assert.assertEquals(i, message.getIntProperty(COUNT).intValue());
+
+         message.acknowledge();
+      }
+
+      Assert.assertNull(consumer.receiveImmediate());
+   }
+
+   // Private -------------------------------------------------------
+
+   private ClientSession createSession(final boolean autoCommitSends) throws Exception
+   {
+      ClientSessionFactory factory = createSessionFactory(locator);
+
+      ClientSession session = addClientSession(factory.createSession(false, autoCommitSends, true));
+
+      session.createQueue(QUEUE, QUEUE, null, false);
+
+      return session;
+   }
+
+   private static ClientMessage createCountMessage(final ClientSession session, final int count, final boolean durable)
+   {
+      ClientMessage message = session.createMessage(durable);
+
+      message.putIntProperty(COUNT, count);
+      message.getBodyBuffer().writeBytes(new byte[100]);
+
+      return message;
+   }
+
+   private static void receive(final ClientSession session, final int first, final int numMessages) throws Exception
+   {
+      ClientConsumer consumer = session.createConsumer(QUEUE);
+
+      session.start();
+
+      for (int i = first; i < first + numMessages; i++)
+      {
+         ClientMessage message = consumer.receive(5000);
+
+         Assert.assertNotNull(message);
+         Assert.assertEquals(i, message.getIntProperty(COUNT).intValue());
+
+         message.acknowledge();
+      }
+
+      Assert.assertNull(consumer.receiveImmediate());
+
+      consumer.close();
+   }
+}
@@ -0,0 +1,316 @@
+/*
+ * Copyright 2009 Red Hat, Inc.
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package org.hornetq.tests.integration.client;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import junit.framework.Assert;
+
+import org.hornetq.api.core.HornetQException;
+import org.hornetq.api.core.HornetQIllegalStateException;
+import org.hornetq.api.core.Interceptor;
+import org.hornetq.api.core.Message;
+import org.hornetq.api.core.SimpleString;
+import org.hornetq.api.core.client.ClientConsumer;
+import org.hornetq.api.core.client.ClientMessage;
+import org.hornetq.api.core.client.ClientProducer;
+import org.hornetq.api.core.client.ClientSession;
+import org.hornetq.api.core.client.ClientSessionFactory;
+import org.hornetq.api.core.client.SendAcknowledgementHandler;
+import org.hornetq.api.core.client.ServerLocator;
+import org.hornetq.core.protocol.core.Packet;
+import org.hornetq.core.protocol.core.impl.PacketImpl;
+import org.hornetq.core.server.HornetQServer;
+import org.hornetq.spi.core.protocol.RemotingConnection;
+import org.hornetq.tests.util.ServiceTestBase;
+
+/**
+ * A ProducerSendHandlerTest
+ */
+public class ProducerSendHandlerTest extends ServiceTestBase
+{
+   private static final SimpleString QUEUE = new SimpleString("ProducerSendHandlerTestQueue");
+
+   private static final SimpleString COUNT = new SimpleString("count");
+
+   private HornetQServer server;
+
+   private ServerLocator locator;
+
+   @Override
+   protected void setUp() throws Exception
+   {
+      super.setUp();
+
+      server = createServer(true);
+
+      server.start();
+
+      locator = createInVMNonHALocator();
+
+      locator.setConfirmationWindowSize(1024 * 1024);
+   }
+
+   public void testDurableSendsConfirmedInOrder() throws Exception
+   {
+      sendAndReceive(1000);
+   }
+
+   public void testBatchedSendsConfirmedInOrder() throws Exception
+   {
+      locator.setProducerBatchSize(4 * 1024);
+
+      sendAndReceive(1000);
+   }
+
+   public void testLargeMessageSendConfirmed() throws Exception
+   {
+      locator.setMinLargeMessageSize(1024);
+
+      ClientSession session = createSession();
+
+      ClientProducer producer = session.createProducer(QUEUE);
+
+      ClientMessage message = createCountMessage(session, 0);
+      message.getBodyBuffer().writeBytes(new byte[10 * 1024]);
+
+      CountHandler handler = new CountHandler(1);
+
+      producer.send(message, handler);
+
+      Assert.assertTrue(handler.await());
+
+      session.start();
+
+      ClientMessage received = session.createConsumer(QUEUE).receive(5000);
+
+      Assert.assertNotNull(received);
+      Assert.assertEquals(100 + 10 * 1024, received.getBodySize());
+
+      received.acknowledge();
+   }
+
+   public void testPendingSendsBounded() throws Exception
+   {
+      final int maxPendingSends = 10;
+
+      final CountDownLatch serverLatch = new CountDownLatch(1);
+
+      // holds the sends on the server, so none is confirmed
+      server.getRemotingService().addIncomingInterceptor(new Interceptor()
+      {
+         public boolean intercept(final Packet packet, final RemotingConnection connection) throws HornetQException
+         {
+            if (packet.getType() == PacketImpl.SESS_SEND)
+            {
+               try
+               {
+                  serverLatch.await(10, TimeUnit.SECONDS);
+               }
+               catch (InterruptedException e)
+               {
+               }
+            }
+            return true;
+         }
+      });
+
+      locator.setProducerMaxPendingSends(maxPendingSends);
+
+      final ClientSession session = createSession();
+
+      final ClientProducer producer = session.createProducer(QUEUE);
+
+      final CountHandler handler = new CountHandler(maxPendingSends + 1);
+
+      final CountDownLatch sent = new CountDownLatch(maxPendingSends + 1);
+
+      Thread sender = new Thread()
+      {
+         @Override
+         public void run()
+         {
+            try
+            {
+               for (int i = 0; i <= maxPendingSends; i++)
+               {
+                  producer.send(createCountMessage(session, i), handler);
+
+                  sent.countDown();
+               }
+            }
+            catch (HornetQException e)
+            {
+               e.printStackTrace();
+            }
+         }
+      };
+
+      sender.start();
+
+      Assert.assertFalse(sent.await(500, TimeUnit.MILLISECONDS));
+      Assert.assertEquals(1, sent.getCount());
+
+      serverLatch.countDown();
+
+      Assert.assertTrue(sent.await(5, TimeUnit.SECONDS));
+      Assert.assertTrue(handler.await());
+
+      sender.join();
+   }
+
+   public void testSendWithHandlerNeedsConfirmationWindow() throws Exception
+   {
+      locator.setConfirmationWindowSize(-1);
+
+      ClientSession session = createSession();
+
+      ClientProducer producer = session.createProducer(QUEUE);
+
+      try
+      {
+         producer.send(createCountMessage(session, 0), new CountHandler(1));
+
+         Assert.fail("Should throw an exception");
+      }
+      catch (HornetQIllegalStateException expected)
+      {
+      }
+   }
+
+   public void testFailedSendReleasesPendingSend() throws Exception
+   {
+      locator.setProducerMaxPendingSends(1);
+      locator.setMinLargeMessageSize(1024);
+
+      ClientSession session = createSession();
+
+      ClientProducer producer = session.createProducer(QUEUE);
+
+      // a large message whose header doesn't fit in a packet is refused by the producer
+      ClientMessage tooBig = createCountMessage(session, 0);
+      tooBig.putStringProperty("tooBig", new String(new char[1024]));
+      tooBig.getBodyBuffer().writeBytes(new byte[2 * 1024]);
+
+      try
+      {
+         producer.send(tooBig, new CountHandler(1));
+
+         Assert.fail("Should throw an exception");
+      }
+      catch (HornetQIllegalStateException expected)
+      {
+      }
+
+      // blocks for good if the failed send kept its pending send
+      CountHandler handler = new CountHandler(2);
+
+      producer.send(createCountMessage(session, 1), handler);
+      producer.send(createCountMessage(session, 2), handler);
+
+      Assert.assertTrue(handler.await());
+   }
+
+   // Private -------------------------------------------------------
+
+   private void sendAndReceive(final int numMessages) throws Exception
+   {
+      ClientSession session = createSession();
+
+      ClientProducer producer = session.createProducer(QUEUE);
+
+      CountHandler handler = new CountHandler(numMessages);
+
+      for (int i = 0; i < numMessages; i++)
+      {
+         producer.send(createCountMessage(session, i), handler);
+      }
+
+      Assert.assertTrue(handler.await());
+
+      Assert.assertEquals(numMessages, handler.counts.size());
+
+      for (int i = 0; i < numMessages; i++)
+      {
+         Assert.assertEquals(i, handler.counts.get(i).intValue());
+      }
+
+      ClientConsumer consumer = session.createConsumer(QUEUE);
+
+      session.start();
+
+      for (int i = 0; i < numMessages; i++)
+      {
+         ClientMessage message = consumer.receive(5000);
+
+         Assert.assertNotNull(message);
+         Assert.assertEquals(i, message.getIntProperty(COUNT).intValue());
+
+         message.acknowledge();
+      }
+
+      Assert.assertNull(consumer.receiveImmediate());
+   }
+
+   private ClientSession createSession() throws Exception
+   {
+      ClientSessionFactory factory = createSessionFactory(locator);
+
+      ClientSession session = addClientSession(factory.createSession(false, true, true));
+
+      session.createQueue(QUEUE, QUEUE, null, true);
+
+      return session;
+   }
+
+   private static ClientMessage createCountMessage(final ClientSession session, final int count)
+   {
+      ClientMessage message = session.createMessage(true);
+
+      message.putIntProperty(COUNT, count);
+      message.getBodyBuffer().writeBytes(new byte[100]);
+
+      return message;
+   }
+
+   // Inner classes -------------------------------------------------
+
+   private static final class CountHandler implements SendAcknowledgementHandler
+   {
+      private final List<Integer> counts = Collections.synchronizedList(new ArrayList<Integer>());
+
+      private final CountDownLatch latch;
+
+      CountHandler(final int numMessages)
+      {
+         latch = new CountDownLatch(numMessages);
+      }
+
+      public void sendAcknowledged(final Message message)
+      {
+         counts.add(message.getIntProperty(COUNT));
+
+         latch.countDown();
+      }
+
+      boolean await() throws InterruptedException
+      {
+         return latch.await(5, TimeUnit.SECONDS);
+      }
+   }
+}
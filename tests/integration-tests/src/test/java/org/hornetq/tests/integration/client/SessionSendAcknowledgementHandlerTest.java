@@ -102,12 +102,24 @@ public class SessionSendAcknowledgementHandlerTest extends ServiceTestBase
       testSendAcknowledgements(1024);
    }
 
+   public void testSendAcknowledgementsBatched() throws Exception
+   {
+      testSendAcknowledgements(1024, 1024);
+   }
+
    public void testSendAcknowledgements(int windowSize) throws Exception
+   {
+      testSendAcknowledgements(windowSize, -1);
+   }
+
+   public void testSendAcknowledgements(int windowSize, int producerBatchSize) throws Exception
    {
       ServerLocator locator = createInVMNonHALocator();
 
       locator.setConfirmationWindowSize(windowSize);
 
+      locator.setProducerBatchSize(producerBatchSize);
+
       ClientSessionFactory csf = createSessionFactory(locator);
       ClientSession session = csf.createSession(null, null, false, true, true, false, 1);
 
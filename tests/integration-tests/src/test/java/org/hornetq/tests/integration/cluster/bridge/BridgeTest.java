@@ -42,12 +42,14 @@ import org.hornetq.core.config.CoreQueueConfiguration;
 import org.hornetq.core.postoffice.DuplicateIDCache;
 import org.hornetq.core.postoffice.impl.PostOfficeImpl;
 import org.hornetq.core.protocol.core.Packet;
+import org.hornetq.core.protocol.core.impl.PacketImpl;
 import org.hornetq.core.protocol.core.impl.wireformat.SessionSendContinuationMessage;
 import org.hornetq.core.protocol.core.impl.wireformat.SessionSendMessage;
 import org.hornetq.core.remoting.impl.invm.TransportConstants;
 import org.hornetq.core.server.HornetQServer;
 import org.hornetq.core.server.MessageReference;
 import org.hornetq.core.server.Queue;
+import org.hornetq.core.server.cluster.Bridge;
 import org.hornetq.core.server.cluster.impl.BridgeImpl;
 import org.hornetq.core.transaction.impl.TransactionImpl;
 import org.hornetq.spi.core.protocol.RemotingConnection;
@@ -1739,4 +1741,190 @@ public class BridgeTest extends ServiceTestBase
 
 
    }
+
+   public void testBatchedBridge() throws Exception
+   {
+      Map<String, Object> server0Params = new HashMap<String, Object>();
+      server0 = createClusteredServerWithParams(isNetty(), 0, true, server0Params);
+
+      Map<String, Object> server1Params = new HashMap<String, Object>();
+      addTargetParameters(server1Params);
+      server1 = createClusteredServerWithParams(isNetty(), 1, true, server1Params);
+
+      final String testAddress = "testAddress";
+      final String queueName0 = "queue0";
+      final String forwardAddress = "forwardAddress";
+      final String queueName1 = "queue1";
+
+      TransportConfiguration server0tc = new TransportConfiguration(getConnector(), server0Params);
+
+      TransportConfiguration server1tc = new TransportConfiguration(getConnector(), server1Params);
+
+      HashMap<String, TransportConfiguration> connectors = new HashMap<String, TransportConfiguration>();
+      connectors.put(server1tc.getName(), server1tc);
+      server0.getConfiguration().setConnectorConfigurations(connectors);
+
+      final int numMessages = 500;
+
+      final int maxPendingAcks = 50;
+
+      ArrayList<String> connectorConfig = new ArrayList<String>();
+      connectorConfig.add(server1tc.getName());
+      BridgeConfiguration bridgeConfiguration = new BridgeConfiguration("bridge1",
+         queueName0,
+         forwardAddress,
+         null,
+         null,
+         HornetQClient.DEFAULT_MIN_LARGE_MESSAGE_SIZE,
+         HornetQClient.DEFAULT_CLIENT_FAILURE_CHECK_PERIOD,
+         HornetQClient.DEFAULT_CONNECTION_TTL,
+         1000,
+         HornetQClient.DEFAULT_MAX_RETRY_INTERVAL,
+         1d,
+         -1,
+         true,
+         1024 * 1024,
+         connectorConfig,
+         false,
+         HornetQDefaultConfiguration.DEFAULT_CLUSTER_USER,
+         HornetQDefaultConfiguration.DEFAULT_CLUSTER_PASSWORD);
+
+      bridgeConfiguration.setBatchSize(4 * 1024);
+      bridgeConfiguration.setMaxPendingAcks(maxPendingAcks);
+
+      List<BridgeConfiguration> bridgeConfigs = new ArrayList<BridgeConfiguration>();
+      bridgeConfigs.add(bridgeConfiguration);
+      server0.getConfiguration().setBridgeConfigurations(bridgeConfigs);
+
+      CoreQueueConfiguration queueConfig0 = new CoreQueueConfiguration(testAddress, queueName0, null, true);
+      List<CoreQueueConfiguration> queueConfigs0 = new ArrayList<CoreQueueConfiguration>();
+      queueConfigs0.add(queueConfig0);
+      server0.getConfiguration().setQueueConfigurations(queueConfigs0);
+
+      CoreQueueConfiguration queueConfig1 = new CoreQueueConfiguration(forwardAddress, queueName1, null, true);
+      List<CoreQueueConfiguration> queueConfigs1 = new ArrayList<CoreQueueConfiguration>();
+      queueConfigs1.add(queueConfig1);
+      server1.getConfiguration().setQueueConfigurations(queueConfigs1);
+
+      server1.start();
+
+      final CountDownLatch targetLatch = new CountDownLatch(1);
+
+      final AtomicInteger batches = new AtomicInteger();
+
+      final AtomicInteger singleSends = new AtomicInteger();
+
+      // holds the batches on the target, so none is confirmed
+      server1.getRemotingService().addIncomingInterceptor(new Interceptor()
+      {
+         public boolean intercept(final Packet packet, final RemotingConnection connection) throws HornetQException
+         {
+            if (packet.getType() == PacketImpl.SESS_SEND_BATCH)
+            {
+               batches.incrementAndGet();
+
+               try
+               {
+                  targetLatch.await(10, TimeUnit.SECONDS);
+               }
+               catch (InterruptedException e)
+               {
+               }
+            }
+            else if (packet.getType() == PacketImpl.SESS_SEND)
+            {
+               singleSends.incrementAndGet();
+            }
+            return true;
+         }
+      });
+
+      server0.start();
+
+      locator = addServerLocator(HornetQClient.createServerLocatorWithoutHA(server0tc, server1tc));
+      ClientSessionFactory sf0 = addSessionFactory(locator.createSessionFactory(server0tc));
+
+      ClientSessionFactory sf1 = addSessionFactory(locator.createSessionFactory(server1tc));
+
+      ClientSession session0 = sf0.createSession(false, true, true);
+
+      ClientSession session1 = sf1.createSession(false, true, true);
+
+      ClientProducer producer0 = session0.createProducer(new SimpleString(testAddress));
+
+      final SimpleString propKey = new SimpleString("testkey");
+
+      for (int i = 0; i < numMessages; i++)
+      {
+         ClientMessage message = session0.createMessage(true);
+
+         message.putIntProperty(propKey, i);
+
+         message.getBodyBuffer().writeBytes(new byte[100]);
+
+         producer0.send(message);
+      }
+
+      Bridge bridge = server0.getClusterManager().getBridges().get("bridge1");
+
+      long timeout = System.currentTimeMillis() + 5000;
+
+      while (bridge.getMessagesInFlight() < maxPendingAcks && System.currentTimeMillis() < timeout)
+      {
+         Thread.sleep(10);
+      }
+
+      // the bridge stops forwarding once the window is full
+      Thread.sleep(200);
+
+      Assert.assertEquals(maxPendingAcks, bridge.getMessagesInFlight());
+
+      targetLatch.countDown();
+
+      ClientConsumer consumer1 = session1.createConsumer(queueName1);
+
+      session1.start();
+
+      for (int i = 0; i < numMessages; i++)
+      {
+         ClientMessage message = consumer1.receive(5000);
+
+         Assert.assertNotNull(message);
+
+         Assert.assertEquals(i, message.getObjectProperty(propKey));
+
+         message.acknowledge();
+      }
+
+      Assert.assertNull(consumer1.receiveImmediate());
+
+      Queue queue0 = server0.locateQueue(new SimpleString(queueName0));
+
+      timeout = System.currentTimeMillis() + 5000;
+
+      while (queue0.getMessageCount() != 0 && System.currentTimeMillis() < timeout)
+      {
+         Thread.sleep(10);
+      }
+
+      Assert.assertEquals(0, queue0.getMessageCount());
+      Assert.assertEquals(0, bridge.getMessagesInFlight());
+      Assert.assertEquals(numMessages, bridge.getMessagesConfirmed());
+      Assert.assertTrue(bridge.getAverageConfirmationLatency() > 0);
+
+      Assert.assertTrue(batches.get() < numMessages / 2);
+      Assert.assertEquals(0, singleSends.get());
+
+      session0.close();
+
+      session1.close();
+
+      sf0.close();
+
+      sf1.close();
+
+      closeFields();
+
+      assertEquals(0, loadQueues(server0).size());
+   }
 }
@@ -0,0 +1,89 @@
+/*
+ * Copyright 2009 Red Hat, Inc.
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package org.hornetq.tests.integration.cluster.failover;
+
+import org.hornetq.api.core.client.ClientConsumer;
+import org.hornetq.api.core.client.ClientMessage;
+import org.hornetq.api.core.client.ClientProducer;
+import org.hornetq.api.core.client.ClientSession;
+import org.hornetq.api.core.client.ServerLocator;
+import org.hornetq.core.client.impl.ClientSessionFactoryInternal;
+import org.hornetq.core.replication.ReplicationManager;
+
+/**
+ * Runs the replicated failover tests with the journal operations replicated in compressed batches.
+ */
+public class ReplicatedBatchFailoverTest extends ReplicatedFailoverTest
+{
+
+   @Override
+   protected void createConfigs() throws Exception
+   {
+      super.createConfigs();
+
+      liveConfig.setReplicationBatching(true);
+      liveConfig.setReplicationCompressed(true);
+      backupConfig.setReplicationBatching(true);
+      backupConfig.setReplicationCompressed(true);
+   }
+
+   public void testOperationsReplicatedInBatches() throws Exception
+   {
+      ServerLocator locator = getServerLocator();
+      locator.setReconnectAttempts(-1);
+
+      ClientSessionFactoryInternal sf = createSessionFactoryAndWaitForTopology(locator, 2);
+
+      ClientSession session = createSession(sf, false, false);
+
+      session.createQueue(FailoverTestBase.ADDRESS, FailoverTestBase.ADDRESS, null, true);
+
+      waitForRemoteBackup(sf, 5, true, backupServer.getServer());
+
+      ClientProducer producer = session.createProducer(FailoverTestBase.ADDRESS);
+
+      for (int i = 0; i < 100; i++)
+      {
+         ClientMessage message = session.createMessage(true);
+         setBody(i, message);
+         producer.send(message);
+      }
+
+      session.commit();
+
+      ReplicationManager manager = liveServer.getServer().getReplicationManager();
+
+      assertTrue(manager.getAverageBatchSize() > 1);
+      assertTrue(manager.getCompressionRatio() < 1);
+      assertTrue(manager.getRoundTripTime() >= 0);
+
+      crash(session);
+
+      ClientConsumer consumer = session.createConsumer(FailoverTestBase.ADDRESS);
+
+      session.start();
+
+      for (int i = 0; i < 100; i++)
+      {
+         ClientMessage message = consumer.receive(1000);
+         assertNotNull(message);
+         assertMessageBody(i, message);
+         message.acknowledge();
+      }
+
+      session.commit();
+
+      session.close();
+   }
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright 2009 Red Hat, Inc.
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package org.hornetq.tests.integration.journal;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+
+import junit.framework.Assert;
+
+import org.hornetq.core.journal.SequentialFile;
+import org.hornetq.core.journal.SequentialFileFactory;
+import org.hornetq.core.journal.impl.MappedSequentialFileFactory;
+import org.hornetq.tests.unit.core.journal.impl.SequentialFileFactoryTestBase;
+import org.hornetq.tests.unit.core.journal.impl.fakes.SimpleEncoding;
+
+/**
+ *
+ * A MappedSequentialFileFactoryTest
+ *
+ */
+public class MappedSequentialFileFactoryTest extends SequentialFileFactoryTestBase
+{
+
+   @Override
+   protected void setUp() throws Exception
+   {
+      super.setUp();
+
+      File file = new File(getTestDir());
+
+      deleteDirectory(file);
+
+      file.mkdir();
+   }
+
+   @Override
+   protected SequentialFileFactory createFactory()
+   {
+      return new MappedSequentialFileFactory(getTestDir(), true, null);
+   }
+
+   public void testGrowAndTruncateOnClose() throws Exception
+   {
+      // not buffered, as paging uses it: the records are encoded straight into the mapped file
+      SequentialFileFactory unbuffered = new MappedSequentialFileFactory(getTestDir(), false, null);
+
+      SequentialFile file = unbuffered.createSequentialFile("grow.page", 1);
+
+      file.open();
+
+      final int recordSize = 1000;
+
+      // more than a single mapping increment, so the file has to be remapped while written
+      final int records = 3000;
+
+      for (int i = 0; i < records; i++)
+      {
+         file.write(new SimpleEncoding(recordSize, (byte)i), i % 100 == 0);
+      }
+
+      Assert.assertEquals(records * recordSize, file.size());
+
+      file.close();
+
+      Assert.assertEquals(records * recordSize, new File(getTestDir(), "grow.page").length());
+
+      file.open();
+
+      Assert.assertEquals(records * recordSize, file.size());
+
+      ByteBuffer buffer = unbuffered.newBuffer(records * recordSize);
+
+      file.position(0);
+
+      Assert.assertEquals(records * recordSize, file.read(buffer));
+
+      for (int i = 0; i < records; i++)
+      {
+         Assert.assertEquals((byte)i, buffer.get(i * recordSize));
+         Assert.assertEquals((byte)i, buffer.get((i + 1) * recordSize - 1));
+      }
+
+      // appending after the reopen, as the current page does after a restart
+      file.write(new SimpleEncoding(recordSize, (byte)'x'), true);
+
+      file.close();
+
+      Assert.assertEquals((records + 1) * recordSize, new File(getTestDir(), "grow.page").length());
+   }
+
+}
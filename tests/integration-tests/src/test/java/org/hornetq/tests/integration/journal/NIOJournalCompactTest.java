@@ -1107,6 +1107,67 @@ public class NIOJournalCompactTest extends JournalImplTestBase
 
    }
 
+   public void testDeleteRecordsAddedWhileCompacting() throws Exception
+   {
+
+      setup(2, 60 * 1024, false);
+
+      createJournal();
+
+      startJournal();
+      load();
+
+      for (int i = 0; i < 10; i++)
+      {
+         add(i);
+      }
+
+      journal.forceMoveNextFile();
+
+      startCompact();
+
+      // Unknown to the compactor, these are deleted right away
+      for (int i = 10; i < 20; i++)
+      {
+         add(i);
+      }
+
+      for (int i = 10; i < 15; i++)
+      {
+         delete(i);
+      }
+
+      JournalFile currentFile = journal.getCurrentFile();
+
+      assertEquals(5, currentFile.getNegCount(currentFile));
+
+      // Known to the compactor, these are deleted when its pending commands are replayed
+      for (int i = 0; i < 5; i++)
+      {
+         delete(i);
+      }
+
+      assertEquals(5, currentFile.getNegCount(currentFile));
+
+      finishCompact();
+
+      // Replaying the pending commands doesn't count the deletes already applied again
+      assertEquals(5, currentFile.getNegCount(currentFile));
+
+      for (int i = 15; i < 20; i++)
+      {
+         delete(i);
+      }
+
+      journal.forceMoveNextFile();
+
+      stopJournal();
+      createJournal();
+      startJournal();
+      loadAndCheck();
+
+   }
+
    public void testCompactAddAndUpdateFollowedByADelete5() throws Exception
    {
 
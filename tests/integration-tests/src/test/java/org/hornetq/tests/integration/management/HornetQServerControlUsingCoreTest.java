@@ -465,6 +465,56 @@ public class HornetQServerControlUsingCoreTest extends HornetQServerControlTest
             return (Integer)proxy.retrieveAttributeValue("JournalBufferTimeout");
          }
 
+         public boolean isJournalBufferTimeoutAdaptive()
+         {
+            return (Boolean)proxy.retrieveAttributeValue("journalBufferTimeoutAdaptive");
+         }
+
+         public long getJournalBufferEffectiveTimeout()
+         {
+            return (Long)proxy.retrieveAttributeValue("journalBufferEffectiveTimeout", Long.class);
+         }
+
+         public long getJournalSyncLatency()
+         {
+            return (Long)proxy.retrieveAttributeValue("journalSyncLatency", Long.class);
+         }
+
+         public double getJournalBufferAverageBatchSize()
+         {
+            return (Double)proxy.retrieveAttributeValue("journalBufferAverageBatchSize");
+         }
+
+         public long getJournalBufferFlushesOnTimeout()
+         {
+            return (Long)proxy.retrieveAttributeValue("journalBufferFlushesOnTimeout", Long.class);
+         }
+
+         public long getJournalBufferFlushesOnFullBuffer()
+         {
+            return (Long)proxy.retrieveAttributeValue("journalBufferFlushesOnFullBuffer", Long.class);
+         }
+
+         public long getJournalBufferFlushesOnRequest()
+         {
+            return (Long)proxy.retrieveAttributeValue("journalBufferFlushesOnRequest", Long.class);
+         }
+
+         public long getReplicationRoundTripTime()
+         {
+            return (Long)proxy.retrieveAttributeValue("replicationRoundTripTime", Long.class);
+         }
+
+         public double getReplicationAverageBatchSize()
+         {
+            return (Double)proxy.retrieveAttributeValue("replicationAverageBatchSize");
+         }
+
+         public double getReplicationCompressionRatio()
+         {
+            return (Double)proxy.retrieveAttributeValue("replicationCompressionRatio");
+         }
+
          public int getJournalCompactMinFiles()
          {
             return (Integer)proxy.retrieveAttributeValue("JournalCompactMinFiles");
@@ -121,6 +121,11 @@ public class QueueControlUsingCoreTest extends QueueControlTest
             return (Long)proxy.retrieveAttributeValue("scheduledCount", Long.class);
          }
 
+         public int getScheduledWheelOccupancy()
+         {
+            return (Integer)proxy.retrieveAttributeValue("scheduledWheelOccupancy");
+         }
+
          public boolean isDurable()
          {
             return (Boolean)proxy.retrieveAttributeValue("durable");
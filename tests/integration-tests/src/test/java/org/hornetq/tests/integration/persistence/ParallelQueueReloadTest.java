@@ -0,0 +1,196 @@
+/*
+ * Copyright 2009 Red Hat, Inc.
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package org.hornetq.tests.integration.persistence;
+
+import junit.framework.Assert;
+
+import org.hornetq.api.core.Message;
+import org.hornetq.api.core.SimpleString;
+import org.hornetq.api.core.client.ClientConsumer;
+import org.hornetq.api.core.client.ClientMessage;
+import org.hornetq.api.core.client.ClientProducer;
+import org.hornetq.api.core.client.ClientSession;
+import org.hornetq.api.core.client.ClientSessionFactory;
+import org.hornetq.api.core.client.ServerLocator;
+import org.hornetq.core.config.Configuration;
+import org.hornetq.core.server.HornetQServer;
+import org.hornetq.core.server.MessageReference;
+import org.hornetq.core.server.Queue;
+import org.hornetq.tests.util.ServiceTestBase;
+import org.hornetq.utils.LinkedListIterator;
+
+/**
+ * Reloads messages routed to several queues with more than one journal load thread, so the queues sharing
+ * the messages are rebuilt at the same time.
+ */
+public class ParallelQueueReloadTest extends ServiceTestBase
+{
+
+   // Constants -----------------------------------------------------
+
+   private static final SimpleString ADDRESS = new SimpleString("ADDRESS");
+
+   private static final int NUMBER_OF_QUEUES = 8;
+
+   private static final int NUMBER_OF_MESSAGES = 500;
+
+   // one message in SCHEDULED_EVERY is scheduled in the future
+   private static final int SCHEDULED_EVERY = 10;
+
+   // Attributes ----------------------------------------------------
+
+   private HornetQServer server;
+
+   private ServerLocator locator;
+
+   // Public --------------------------------------------------------
+
+   public void testReloadQueuesSharingMessages() throws Exception
+   {
+      ClientSessionFactory factory = createSessionFactory(locator);
+
+      ClientSession session = factory.createSession(false, true, true);
+
+      for (int i = 0; i < NUMBER_OF_QUEUES; i++)
+      {
+         session.createQueue(ADDRESS, queueName(i), true);
+      }
+
+      ClientProducer producer = session.createProducer(ADDRESS);
+
+      long scheduledTime = System.currentTimeMillis() + 60 * 60 * 1000;
+
+      for (int i = 0; i < NUMBER_OF_MESSAGES; i++)
+      {
+         ClientMessage message = session.createMessage(true);
+
+         message.putIntProperty("i", i);
+
+         if (i % SCHEDULED_EVERY == 0)
+         {
+            message.putLongProperty(Message.HDR_SCHEDULED_DELIVERY_TIME, scheduledTime);
+         }
+
+         producer.send(message);
+      }
+
+      session.close();
+
+      factory.close();
+
+      server.stop();
+
+      server.start();
+
+      int scheduled = NUMBER_OF_MESSAGES / SCHEDULED_EVERY;
+
+      for (int i = 0; i < NUMBER_OF_QUEUES; i++)
+      {
+         Queue queue = server.locateQueue(queueName(i));
+
+         Assert.assertEquals(NUMBER_OF_MESSAGES, queue.getMessageCount());
+
+         Assert.assertEquals(scheduled, queue.getScheduledCount());
+
+         LinkedListIterator<MessageReference> iterator = queue.iterator();
+
+         try
+         {
+            while (iterator.hasNext())
+            {
+               // every queue took its own reference to the shared message
+               Assert.assertEquals(NUMBER_OF_QUEUES, iterator.next().getMessage().getRefCount());
+            }
+         }
+         finally
+         {
+            iterator.close();
+         }
+      }
+
+      factory = createSessionFactory(locator);
+
+      session = factory.createSession(false, true, true);
+
+      session.start();
+
+      for (int i = 0; i < NUMBER_OF_QUEUES; i++)
+      {
+         ClientConsumer consumer = session.createConsumer(queueName(i));
+
+         for (int msg = 0; msg < NUMBER_OF_MESSAGES; msg++)
+         {
+            if (msg % SCHEDULED_EVERY == 0)
+            {
+               continue;
+            }
+
+            ClientMessage message = consumer.receive(5000);
+
+            Assert.assertNotNull(message);
+
+            Assert.assertEquals(msg, message.getIntProperty("i").intValue());
+
+            Assert.assertFalse(message.containsProperty(Message.HDR_SCHEDULED_DELIVERY_TIME));
+
+            message.acknowledge();
+         }
+
+         Assert.assertNull(consumer.receiveImmediate());
+
+         consumer.close();
+      }
+
+      session.close();
+
+      factory.close();
+   }
+
+   // Protected -----------------------------------------------------
+
+   @Override
+   protected void setUp() throws Exception
+   {
+      super.setUp();
+
+      Configuration config = createDefaultConfig();
+
+      config.setJournalLoadThreads(4);
+
+      server = createServer(true, config);
+
+      server.start();
+
+      locator = createInVMNonHALocator();
+
+      locator.setBlockOnDurableSend(true);
+   }
+
+   @Override
+   protected void tearDown() throws Exception
+   {
+      locator.close();
+
+      server.stop();
+
+      super.tearDown();
+   }
+
+   // Private -------------------------------------------------------
+
+   private static SimpleString queueName(final int i)
+   {
+      return ADDRESS.concat("." + i);
+   }
+}
@@ -0,0 +1,144 @@
+/*
+ * Copyright 2009 Red Hat, Inc.
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package org.hornetq.tests.performance.client;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.hornetq.api.core.Message;
+import org.hornetq.api.core.SimpleString;
+import org.hornetq.api.core.client.ClientMessage;
+import org.hornetq.api.core.client.ClientProducer;
+import org.hornetq.api.core.client.ClientSession;
+import org.hornetq.api.core.client.ClientSessionFactory;
+import org.hornetq.api.core.client.SendAcknowledgementHandler;
+import org.hornetq.api.core.client.ServerLocator;
+import org.hornetq.core.server.HornetQServer;
+import org.hornetq.tests.util.ServiceTestBase;
+
+/**
+ * Measures the throughput of durable sends over Netty to a persistent server, blocking on each send or with a
+ * {@link SendAcknowledgementHandler} per send, so many sends wait for the journal at the same time.
+ */
+public class MeasureAsyncDurableSendTest extends ServiceTestBase
+{
+
+   // Constants -----------------------------------------------------
+
+   private static final int MESSAGE_SIZE = 1024;
+
+   private static final int MESSAGES = 10000;
+
+   private static final SimpleString QUEUE = new SimpleString("durableQueue");
+
+   // Attributes ----------------------------------------------------
+
+   private HornetQServer server;
+
+   // Public --------------------------------------------------------
+
+   @Override
+   protected void setUp() throws Exception
+   {
+      super.setUp();
+
+      server = createServer(true, true);
+      server.start();
+   }
+
+   @Override
+   protected void tearDown() throws Exception
+   {
+      server.stop();
+
+      server = null;
+
+      super.tearDown();
+   }
+
+   public void testDurableSendThroughput() throws Exception
+   {
+      // warm up
+      measure(false);
+      measure(true);
+
+      System.out.println(MESSAGE_SIZE + " bytes durable messages, messages per second: blocking = " +
+                         measure(false) +
+                         ", with send handlers = " +
+                         measure(true));
+   }
+
+   // Private -------------------------------------------------------
+
+   private long measure(final boolean withHandler) throws Exception
+   {
+      ServerLocator locator = createNettyNonHALocator();
+      locator.setConfirmationWindowSize(1024 * 1024);
+
+      ClientSessionFactory factory = createSessionFactory(locator);
+
+      ClientSession session = factory.createSession(false, true, true);
+
+      try
+      {
+         session.createQueue(QUEUE, QUEUE, null, true);
+
+         ClientProducer producer = session.createProducer(QUEUE);
+
+         ClientMessage message = session.createMessage(true);
+         message.getBodyBuffer().writeBytes(new byte[MESSAGE_SIZE]);
+
+         final CountDownLatch confirmed = new CountDownLatch(MESSAGES);
+
+         SendAcknowledgementHandler handler = new SendAcknowledgementHandler()
+         {
+            public void sendAcknowledged(final Message message)
+            {
+               confirmed.countDown();
+            }
+         };
+
+         long start = System.nanoTime();
+
+         for (int i = 0; i < MESSAGES; i++)
+         {
+            if (withHandler)
+            {
+               producer.send(message, handler);
+            }
+            else
+            {
+               producer.send(message);
+            }
+         }
+
+         if (withHandler)
+         {
+            confirmed.await(60, TimeUnit.SECONDS);
+         }
+
+         long elapsed = System.nanoTime() - start;
+
+         session.deleteQueue(QUEUE);
+
+         return MESSAGES * 1000000000L / elapsed;
+      }
+      finally
+      {
+         session.close();
+
+         locator.close();
+      }
+   }
+}
@@ -0,0 +1,212 @@
+/*
+ * Copyright 2009 Red Hat, Inc.
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package org.hornetq.tests.performance.client;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.hornetq.api.config.HornetQDefaultConfiguration;
+import org.hornetq.api.core.SimpleString;
+import org.hornetq.api.core.TransportConfiguration;
+import org.hornetq.api.core.client.ClientMessage;
+import org.hornetq.api.core.client.ClientProducer;
+import org.hornetq.api.core.client.ClientSession;
+import org.hornetq.api.core.client.ClientSessionFactory;
+import org.hornetq.api.core.client.HornetQClient;
+import org.hornetq.api.core.client.ServerLocator;
+import org.hornetq.core.config.BridgeConfiguration;
+import org.hornetq.core.remoting.impl.netty.TransportConstants;
+import org.hornetq.core.server.HornetQServer;
+import org.hornetq.core.server.Queue;
+import org.hornetq.core.server.cluster.Bridge;
+import org.hornetq.tests.util.ServiceTestBase;
+
+/**
+ * Measures the throughput of a core bridge over Netty forwarding each message in its own packet or in batches,
+ * and the average time for a forwarded message to be confirmed by the target.
+ *
+ * The throughput counts the messages until they are all acknowledged on the source queue.
+ */
+public class MeasureBridgeTest extends ServiceTestBase
+{
+
+   // Constants -----------------------------------------------------
+
+   private static final int MESSAGES = 50000;
+
+   private static final int MESSAGE_SIZE = 100;
+
+   private static final int BATCH_SIZE = 64 * 1024;
+
+   private static final int MAX_PENDING_ACKS = 5000;
+
+   private static final String SOURCE_QUEUE = "sourceQueue";
+
+   private static final String TARGET_QUEUE = "targetQueue";
+
+   // Attributes ----------------------------------------------------
+
+   private HornetQServer server0;
+
+   private HornetQServer server1;
+
+   private TransportConfiguration server0tc;
+
+   private TransportConfiguration server1tc;
+
+   // Public --------------------------------------------------------
+
+   @Override
+   protected void setUp() throws Exception
+   {
+      super.setUp();
+
+      Map<String, Object> server0Params = new HashMap<String, Object>();
+      server0 = createClusteredServerWithParams(true, 0, false, server0Params);
+
+      Map<String, Object> server1Params = new HashMap<String, Object>();
+      server1Params.put("port", TransportConstants.DEFAULT_PORT + 1);
+      server1 = createClusteredServerWithParams(true, 1, false, server1Params);
+
+      server0tc = new TransportConfiguration(NETTY_CONNECTOR_FACTORY, server0Params);
+      server1tc = new TransportConfiguration(NETTY_CONNECTOR_FACTORY, server1Params);
+
+      Map<String, TransportConfiguration> connectors = new HashMap<String, TransportConfiguration>();
+      connectors.put(server1tc.getName(), server1tc);
+      server0.getConfiguration().setConnectorConfigurations(connectors);
+
+      server1.start();
+      server0.start();
+   }
+
+   @Override
+   protected void tearDown() throws Exception
+   {
+      server0.stop();
+      server1.stop();
+
+      server0 = null;
+      server1 = null;
+
+      super.tearDown();
+   }
+
+   public void testBridgeThroughput() throws Exception
+   {
+      // warm up
+      measure(-1, -1);
+      measure(BATCH_SIZE, MAX_PENDING_ACKS);
+
+      for (int batchSize : new int[] { -1, BATCH_SIZE })
+      {
+         int maxPendingAcks = batchSize > 0 ? MAX_PENDING_ACKS : -1;
+
+         System.out.println("batch size " + batchSize + ", max pending acks " + maxPendingAcks + ": " +
+                            measure(batchSize, maxPendingAcks));
+      }
+   }
+
+   // Private -------------------------------------------------------
+
+   private String measure(final int batchSize, final int maxPendingAcks) throws Exception
+   {
+      ServerLocator locator = HornetQClient.createServerLocatorWithoutHA(server0tc, server1tc);
+
+      ClientSessionFactory sf0 = locator.createSessionFactory(server0tc);
+
+      ClientSessionFactory sf1 = locator.createSessionFactory(server1tc);
+
+      ClientSession session0 = sf0.createSession(false, true, true);
+
+      ClientSession session1 = sf1.createSession(false, true, true);
+
+      try
+      {
+         session0.createQueue(SOURCE_QUEUE, SOURCE_QUEUE, null, false);
+
+         session1.createQueue(TARGET_QUEUE, TARGET_QUEUE, null, false);
+
+         ClientProducer producer = session0.createProducer(SOURCE_QUEUE);
+
+         ClientMessage message = session0.createMessage(false);
+         message.getBodyBuffer().writeBytes(new byte[MESSAGE_SIZE]);
+
+         for (int i = 0; i < MESSAGES; i++)
+         {
+            producer.send(message);
+         }
+
+         ArrayList<String> connectors = new ArrayList<String>();
+         connectors.add(server1tc.getName());
+
+         BridgeConfiguration config = new BridgeConfiguration("bridge",
+                                                              SOURCE_QUEUE,
+                                                              TARGET_QUEUE,
+                                                              null,
+                                                              null,
+                                                              HornetQClient.DEFAULT_MIN_LARGE_MESSAGE_SIZE,
+                                                              HornetQClient.DEFAULT_CLIENT_FAILURE_CHECK_PERIOD,
+                                                              HornetQClient.DEFAULT_CONNECTION_TTL,
+                                                              1000,
+                                                              HornetQClient.DEFAULT_MAX_RETRY_INTERVAL,
+                                                              1d,
+                                                              -1,
+                                                              true,
+                                                              1024 * 1024,
+                                                              connectors,
+                                                              false,
+                                                              HornetQDefaultConfiguration.DEFAULT_CLUSTER_USER,
+                                                              HornetQDefaultConfiguration.DEFAULT_CLUSTER_PASSWORD);
+
+         config.setBatchSize(batchSize);
+         config.setMaxPendingAcks(maxPendingAcks);
+
+         Queue sourceQueue = server0.locateQueue(new SimpleString(SOURCE_QUEUE));
+
+         long start = System.nanoTime();
+
+         server0.deployBridge(config);
+
+         while (sourceQueue.getMessageCount() != 0)
+         {
+            Thread.sleep(1);
+         }
+
+         long elapsed = System.nanoTime() - start;
+
+         Bridge bridge = server0.getClusterManager().getBridges().get("bridge");
+
+         String result = "messages per second = " + MESSAGES * 1000000000L / elapsed +
+                         ", average confirmation latency (ms) = " +
+                         bridge.getAverageConfirmationLatency();
+
+         server0.destroyBridge("bridge");
+
+         session0.deleteQueue(SOURCE_QUEUE);
+
+         session1.deleteQueue(TARGET_QUEUE);
+
+         return result;
+      }
+      finally
+      {
+         session0.close();
+
+         session1.close();
+
+         locator.close();
+      }
+   }
+}
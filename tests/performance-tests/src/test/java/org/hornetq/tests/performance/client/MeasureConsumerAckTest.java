@@ -0,0 +1,176 @@
+/*
+ * Copyright 2009 Red Hat, Inc.
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package org.hornetq.tests.performance.client;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.hornetq.api.core.HornetQException;
+import org.hornetq.api.core.Interceptor;
+import org.hornetq.api.core.SimpleString;
+import org.hornetq.api.core.client.ClientConsumer;
+import org.hornetq.api.core.client.ClientMessage;
+import org.hornetq.api.core.client.ClientProducer;
+import org.hornetq.api.core.client.ClientSession;
+import org.hornetq.api.core.client.ClientSessionFactory;
+import org.hornetq.api.core.client.ServerLocator;
+import org.hornetq.core.protocol.core.Packet;
+import org.hornetq.core.protocol.core.impl.PacketImpl;
+import org.hornetq.core.server.HornetQServer;
+import org.hornetq.core.server.Queue;
+import org.hornetq.spi.core.protocol.RemotingConnection;
+import org.hornetq.tests.util.ServiceTestBase;
+
+/**
+ * Measures the throughput of a consumer over Netty acknowledging each message individually, with the
+ * acknowledgements sent one by one or in batches, and the number of ack and credit packets it sends per message.
+ *
+ * The throughput counts the messages until they are all acknowledged on the server.
+ */
+public class MeasureConsumerAckTest extends ServiceTestBase
+{
+
+   // Constants -----------------------------------------------------
+
+   private static final int MESSAGES = 100000;
+
+   private static final int MESSAGE_SIZE = 100;
+
+   private static final int ACK_BATCH_SIZE = 64 * 1024;
+
+   private static final SimpleString QUEUE = new SimpleString("consumerQueue");
+
+   // Attributes ----------------------------------------------------
+
+   private HornetQServer server;
+
+   private final AtomicInteger consumerPackets = new AtomicInteger();
+
+   // Public --------------------------------------------------------
+
+   @Override
+   protected void setUp() throws Exception
+   {
+      super.setUp();
+
+      server = createServer(false, true);
+      server.start();
+
+      server.getRemotingService().addIncomingInterceptor(new Interceptor()
+      {
+         public boolean intercept(final Packet packet, final RemotingConnection connection) throws HornetQException
+         {
+            switch (packet.getType())
+            {
+               case PacketImpl.SESS_INDIVIDUAL_ACKNOWLEDGE:
+               case PacketImpl.SESS_INDIVIDUAL_ACKNOWLEDGE_BATCH:
+               case PacketImpl.SESS_FLOWTOKEN:
+                  consumerPackets.incrementAndGet();
+            }
+            return true;
+         }
+      });
+   }
+
+   @Override
+   protected void tearDown() throws Exception
+   {
+      server.stop();
+
+      server = null;
+
+      super.tearDown();
+   }
+
+   public void testIndividualAckThroughput() throws Exception
+   {
+      // warm up
+      measure(0);
+      measure(ACK_BATCH_SIZE);
+
+      for (int ackBatchSize : new int[] { 0, ACK_BATCH_SIZE })
+      {
+         consumerPackets.set(0);
+
+         long rate = measure(ackBatchSize);
+
+         System.out.println("ack batch size " + ackBatchSize +
+                            ": messages per second = " +
+                            rate +
+                            ", ack and credit packets per 1000 messages = " +
+                            consumerPackets.get() *
+                            1000L /
+                            MESSAGES);
+      }
+   }
+
+   // Private -------------------------------------------------------
+
+   private long measure(final int ackBatchSize) throws Exception
+   {
+      ServerLocator locator = createNettyNonHALocator();
+      locator.setAckBatchSize(ackBatchSize);
+      locator.setConsumerWindowSize(64 * 1024);
+
+      ClientSessionFactory factory = createSessionFactory(locator);
+
+      ClientSession session = factory.createSession(false, true, true);
+
+      try
+      {
+         session.createQueue(QUEUE, QUEUE, null, false);
+
+         ClientProducer producer = session.createProducer(QUEUE);
+
+         ClientMessage message = session.createMessage(false);
+         message.getBodyBuffer().writeBytes(new byte[MESSAGE_SIZE]);
+
+         for (int i = 0; i < MESSAGES; i++)
+         {
+            producer.send(message);
+         }
+
+         Queue queue = server.locateQueue(QUEUE);
+
+         ClientConsumer consumer = session.createConsumer(QUEUE);
+
+         long start = System.nanoTime();
+
+         session.start();
+
+         for (int i = 0; i < MESSAGES; i++)
+         {
+            consumer.receive(5000).individualAcknowledge();
+         }
+
+         consumer.close();
+
+         while (queue.getMessageCount() != 0)
+         {
+            Thread.sleep(1);
+         }
+
+         long elapsed = System.nanoTime() - start;
+
+         session.deleteQueue(QUEUE);
+
+         return MESSAGES * 1000000000L / elapsed;
+      }
+      finally
+      {
+         session.close();
+
+         locator.close();
+      }
+   }
+}
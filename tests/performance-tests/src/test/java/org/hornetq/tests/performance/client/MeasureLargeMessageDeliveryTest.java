@@ -0,0 +1,178 @@
+/*
+ * Copyright 2009 Red Hat, Inc.
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package org.hornetq.tests.performance.client;
+
+import java.io.OutputStream;
+
+import org.hornetq.api.core.SimpleString;
+import org.hornetq.api.core.client.ClientConsumer;
+import org.hornetq.api.core.client.ClientMessage;
+import org.hornetq.api.core.client.ClientProducer;
+import org.hornetq.api.core.client.ClientSession;
+import org.hornetq.api.core.client.ClientSessionFactory;
+import org.hornetq.api.core.client.ServerLocator;
+import org.hornetq.core.server.HornetQServer;
+import org.hornetq.tests.util.ServiceTestBase;
+
+/**
+ * Measures how fast a large message is delivered over Netty to several consumers, with its chunks transferred
+ * straight from the file to the socket or copied into the packets.
+ * <p>
+ * The chunks are copied when the session has a confirmation window, as the packets have to be kept for resending.
+ */
+public class MeasureLargeMessageDeliveryTest extends ServiceTestBase
+{
+
+   // Constants -----------------------------------------------------
+
+   private static final long MESSAGE_SIZE = 100L * 1024 * 1024;
+
+   private static final int CONSUMERS = 4;
+
+   private static final SimpleString ADDRESS = new SimpleString("largeMessageDeliveryAddress");
+
+   // Attributes ----------------------------------------------------
+
+   private HornetQServer server;
+
+   // Public --------------------------------------------------------
+
+   @Override
+   protected void setUp() throws Exception
+   {
+      super.setUp();
+
+      clearData();
+
+      server = createServer(true, true);
+      server.start();
+   }
+
+   @Override
+   protected void tearDown() throws Exception
+   {
+      server.stop();
+
+      server = null;
+
+      super.tearDown();
+   }
+
+   public void testLargeMessageDelivery() throws Exception
+   {
+      // warm up
+      measure(false);
+      measure(true);
+
+      System.out.println(CONSUMERS + " consumers of a " +
+                         MESSAGE_SIZE /
+                         (1024 * 1024) +
+                         " MiB message, MiB delivered per second: copied = " +
+                         measure(true) +
+                         ", transferred = " +
+                         measure(false));
+   }
+
+   // Private -------------------------------------------------------
+
+   private long measure(final boolean copy) throws Exception
+   {
+      ServerLocator locator = createNettyNonHALocator();
+
+      if (copy)
+      {
+         locator.setConfirmationWindowSize(1024 * 1024);
+      }
+
+      ClientSessionFactory factory = createSessionFactory(locator);
+
+      ClientSession session = factory.createSession(false, true, true);
+
+      try
+      {
+         for (int i = 0; i < CONSUMERS; i++)
+         {
+            session.createQueue(ADDRESS, ADDRESS.concat("." + i), null, true);
+         }
+
+         ClientProducer producer = session.createProducer(ADDRESS);
+
+         ClientMessage message = session.createMessage(true);
+         message.setBodyInputStream(createFakeLargeStream(MESSAGE_SIZE));
+
+         producer.send(message);
+
+         ClientConsumer[] consumers = new ClientConsumer[CONSUMERS];
+
+         for (int i = 0; i < CONSUMERS; i++)
+         {
+            consumers[i] = session.createConsumer(ADDRESS.concat("." + i));
+         }
+
+         long start = System.nanoTime();
+
+         session.start();
+
+         ClientMessage[] received = new ClientMessage[CONSUMERS];
+
+         for (int i = 0; i < CONSUMERS; i++)
+         {
+            received[i] = consumers[i].receive(60000);
+
+            assertNotNull(received[i]);
+
+            received[i].setOutputStream(new NullOutputStream());
+         }
+
+         for (int i = 0; i < CONSUMERS; i++)
+         {
+            assertTrue(received[i].waitOutputStreamCompletion(60000));
+
+            received[i].acknowledge();
+         }
+
+         long elapsed = System.nanoTime() - start;
+
+         for (int i = 0; i < CONSUMERS; i++)
+         {
+            consumers[i].close();
+
+            session.deleteQueue(ADDRESS.concat("." + i));
+         }
+
+         return CONSUMERS * MESSAGE_SIZE / (1024 * 1024) * 1000000000L / elapsed;
+      }
+      finally
+      {
+         session.close();
+
+         locator.close();
+      }
+   }
+
+   // Inner classes -------------------------------------------------
+
+   private static final class NullOutputStream extends OutputStream
+   {
+      @Override
+      public void write(final int b)
+      {
+      }
+
+      @Override
+      public void write(final byte[] b, final int off, final int len)
+      {
+      }
+   }
+}
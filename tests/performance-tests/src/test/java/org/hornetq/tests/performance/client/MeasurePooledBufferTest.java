@@ -0,0 +1,139 @@
+/*
+ * Copyright 2009 Red Hat, Inc.
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package org.hornetq.tests.performance.client;
+
+import org.hornetq.api.core.SimpleString;
+import org.hornetq.api.core.client.ClientConsumer;
+import org.hornetq.api.core.client.ClientMessage;
+import org.hornetq.api.core.client.ClientProducer;
+import org.hornetq.api.core.client.ClientSession;
+import org.hornetq.api.core.client.ClientSessionFactory;
+import org.hornetq.api.core.client.ServerLocator;
+import org.hornetq.core.remoting.impl.netty.ChannelBufferPool;
+import org.hornetq.core.server.HornetQServer;
+import org.hornetq.tests.util.ServiceTestBase;
+
+/**
+ * Measures the throughput of messages sent and received over Netty, and how many direct buffers the
+ * {@link ChannelBufferPool} allocates to encode the packets once it is warm.
+ */
+public class MeasurePooledBufferTest extends ServiceTestBase
+{
+
+   // Constants -----------------------------------------------------
+
+   private static final int MESSAGES = 100000;
+
+   private static final int MESSAGE_SIZE = 1024;
+
+   private static final SimpleString QUEUE = new SimpleString("pooledBufferQueue");
+
+   // Attributes ----------------------------------------------------
+
+   private HornetQServer server;
+
+   // Public --------------------------------------------------------
+
+   @Override
+   protected void setUp() throws Exception
+   {
+      super.setUp();
+
+      server = createServer(false, true);
+      server.start();
+   }
+
+   @Override
+   protected void tearDown() throws Exception
+   {
+      server.stop();
+
+      server = null;
+
+      super.tearDown();
+   }
+
+   public void testPooledBufferAllocations() throws Exception
+   {
+      ChannelBufferPool pool = ChannelBufferPool.getInstance();
+
+      // warm up
+      measure();
+
+      long acquisitions = pool.getAcquisitions();
+      long allocations = pool.getAllocations();
+      long allocatedBytes = pool.getAllocatedBytes();
+
+      long rate = measure();
+
+      System.out.println("messages per second = " + rate +
+                         ", buffers acquired = " +
+                         (pool.getAcquisitions() - acquisitions) +
+                         ", direct buffers allocated = " +
+                         (pool.getAllocations() - allocations) +
+                         ", bytes allocated = " +
+                         (pool.getAllocatedBytes() - allocatedBytes));
+   }
+
+   // Private -------------------------------------------------------
+
+   private long measure() throws Exception
+   {
+      ServerLocator locator = createNettyNonHALocator();
+
+      ClientSessionFactory factory = createSessionFactory(locator);
+
+      ClientSession session = factory.createSession(false, true, true);
+
+      try
+      {
+         session.createQueue(QUEUE, QUEUE, null, false);
+
+         ClientProducer producer = session.createProducer(QUEUE);
+
+         ClientConsumer consumer = session.createConsumer(QUEUE);
+
+         session.start();
+
+         ClientMessage message = session.createMessage(false);
+         message.getBodyBuffer().writeBytes(new byte[MESSAGE_SIZE]);
+
+         long start = System.nanoTime();
+
+         for (int i = 0; i < MESSAGES; i++)
+         {
+            producer.send(message);
+         }
+
+         for (int i = 0; i < MESSAGES; i++)
+         {
+            consumer.receive(5000).acknowledge();
+         }
+
+         long elapsed = System.nanoTime() - start;
+
+         consumer.close();
+
+         session.deleteQueue(QUEUE);
+
+         return MESSAGES * 1000000000L / elapsed;
+      }
+      finally
+      {
+         session.close();
+
+         locator.close();
+      }
+   }
+}
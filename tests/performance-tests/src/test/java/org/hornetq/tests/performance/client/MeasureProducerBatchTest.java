@@ -0,0 +1,133 @@
+/*
+ * Copyright 2009 Red Hat, Inc.
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package org.hornetq.tests.performance.client;
+
+import org.hornetq.api.core.SimpleString;
+import org.hornetq.api.core.client.ClientMessage;
+import org.hornetq.api.core.client.ClientProducer;
+import org.hornetq.api.core.client.ClientSession;
+import org.hornetq.api.core.client.ClientSessionFactory;
+import org.hornetq.api.core.client.ServerLocator;
+import org.hornetq.core.server.HornetQServer;
+import org.hornetq.core.server.Queue;
+import org.hornetq.tests.util.ServiceTestBase;
+
+/**
+ * Measures the throughput of a non blocking producer over Netty, sending each message on its own or in batches of
+ * messages, against the size of the messages.
+ *
+ * The throughput counts the messages until they are all in the queue on the server.
+ */
+public class MeasureProducerBatchTest extends ServiceTestBase
+{
+
+   // Constants -----------------------------------------------------
+
+   private static final int[] MESSAGE_SIZES = new int[] { 100, 1024 };
+
+   private static final int MESSAGES = 100000;
+
+   private static final int BATCH_SIZE = 64 * 1024;
+
+   private static final SimpleString QUEUE = new SimpleString("producerQueue");
+
+   // Attributes ----------------------------------------------------
+
+   private HornetQServer server;
+
+   // Public --------------------------------------------------------
+
+   @Override
+   protected void setUp() throws Exception
+   {
+      super.setUp();
+
+      server = createServer(false, true);
+      server.start();
+   }
+
+   @Override
+   protected void tearDown() throws Exception
+   {
+      server.stop();
+
+      server = null;
+
+      super.tearDown();
+   }
+
+   public void testProducerThroughput() throws Exception
+   {
+      for (int messageSize : MESSAGE_SIZES)
+      {
+         // warm up
+         measure(messageSize, -1);
+         measure(messageSize, BATCH_SIZE);
+
+         System.out.println(messageSize + " bytes messages, messages per second: one per packet = " +
+                            measure(messageSize, -1) +
+                            ", batched = " +
+                            measure(messageSize, BATCH_SIZE));
+      }
+   }
+
+   // Private -------------------------------------------------------
+
+   private long measure(final int messageSize, final int batchSize) throws Exception
+   {
+      ServerLocator locator = createNettyNonHALocator();
+      locator.setProducerBatchSize(batchSize);
+      locator.setProducerWindowSize(-1);
+
+      ClientSessionFactory factory = createSessionFactory(locator);
+
+      ClientSession session = factory.createSession(false, true, true);
+
+      try
+      {
+         session.createQueue(QUEUE, QUEUE, null, false);
+
+         ClientProducer producer = session.createProducer(QUEUE);
+
+         ClientMessage message = session.createMessage(false);
+         message.getBodyBuffer().writeBytes(new byte[messageSize]);
+
+         Queue queue = server.locateQueue(QUEUE);
+
+         long start = System.nanoTime();
+
+         for (int i = 0; i < MESSAGES; i++)
+         {
+            producer.send(message);
+         }
+
+         while (queue.getMessageCount() != MESSAGES)
+         {
+            Thread.sleep(1);
+         }
+
+         long elapsed = System.nanoTime() - start;
+
+         session.deleteQueue(QUEUE);
+
+         return MESSAGES * 1000000000L / elapsed;
+      }
+      finally
+      {
+         session.close();
+
+         locator.close();
+      }
+   }
+}
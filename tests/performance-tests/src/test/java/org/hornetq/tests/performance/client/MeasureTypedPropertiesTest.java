@@ -0,0 +1,89 @@
+/*
+ * Copyright 2009 Red Hat, Inc.
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package org.hornetq.tests.performance.client;
+
+import junit.framework.TestCase;
+
+import org.hornetq.api.core.HornetQBuffer;
+import org.hornetq.api.core.HornetQBuffers;
+import org.hornetq.api.core.Message;
+import org.hornetq.api.core.SimpleString;
+import org.hornetq.utils.TypedProperties;
+
+/**
+ * Measures how fast the properties of a message are decoded, looked up for routing and encoded again, with the
+ * properties decoded eagerly or lazily.
+ */
+public class MeasureTypedPropertiesTest extends TestCase
+{
+
+   // Constants -----------------------------------------------------
+
+   private static final int ITERATIONS = 2000000;
+
+   private static final int PROPERTIES = 10;
+
+   // Public --------------------------------------------------------
+
+   public void testDecodeLookupEncode() throws Exception
+   {
+      TypedProperties props = new TypedProperties();
+
+      props.putBytesProperty(Message.HDR_DUPLICATE_DETECTION_ID, new byte[16]);
+
+      for (int i = 0; i < PROPERTIES - 1; i++)
+      {
+         props.putSimpleStringProperty(new SimpleString("property" + i), new SimpleString("value" + i));
+      }
+
+      HornetQBuffer encoded = HornetQBuffers.fixedBuffer(props.getEncodeSize());
+      props.encode(encoded);
+
+      // warm up
+      measure(encoded, false);
+      measure(encoded, true);
+
+      System.out.println(PROPERTIES + " properties, decode + lookup + encode per second: eager = " +
+                         measure(encoded, false) +
+                         ", lazy = " +
+                         measure(encoded, true));
+   }
+
+   // Private -------------------------------------------------------
+
+   private long measure(final HornetQBuffer encoded, final boolean lazy)
+   {
+      HornetQBuffer output = HornetQBuffers.fixedBuffer(encoded.writerIndex());
+
+      long start = System.nanoTime();
+
+      for (int i = 0; i < ITERATIONS; i++)
+      {
+         TypedProperties props = new TypedProperties();
+         props.setLazyDecode(lazy);
+
+         encoded.readerIndex(0);
+         props.decode(encoded);
+
+         assertNotNull(props.getProperty(Message.HDR_DUPLICATE_DETECTION_ID));
+
+         output.clear();
+         props.encode(output);
+      }
+
+      long elapsed = System.nanoTime() - start;
+
+      return ITERATIONS * 1000000000L / elapsed;
+   }
+}
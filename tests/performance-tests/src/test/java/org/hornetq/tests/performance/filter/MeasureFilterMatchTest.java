@@ -0,0 +1,212 @@
+/*
+ * Copyright 2009 Red Hat, Inc.
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package org.hornetq.tests.performance.filter;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.hornetq.api.core.SimpleString;
+import org.hornetq.core.filter.Filter;
+import org.hornetq.core.filter.impl.FilterImpl;
+import org.hornetq.core.filter.impl.FilterParser;
+import org.hornetq.core.filter.impl.Identifier;
+import org.hornetq.core.filter.impl.Operator;
+import org.hornetq.core.server.ServerMessage;
+import org.hornetq.core.server.impl.ServerMessageImpl;
+import org.hornetq.tests.util.UnitTestCase;
+
+/**
+ * Compares the throughput of the compiled filters with the interpretation of the parsed {@link Operator}s, which
+ * is how the filters were evaluated before, for an increasing number of threads routing through the same
+ * filters, as on a busy address with many filtered subscriptions.
+ */
+public class MeasureFilterMatchTest extends UnitTestCase
+{
+
+   // Constants -----------------------------------------------------
+
+   private static final int NUMBER_OF_FILTERS = 500;
+
+   private static final int MESSAGES_PER_THREAD = 2000;
+
+   private static final int[] THREADS = new int[] { 1, 2, 4, 8 };
+
+   // Public --------------------------------------------------------
+
+   public void testMatchThroughput() throws Exception
+   {
+      String[] filterStrings = new String[NUMBER_OF_FILTERS];
+
+      for (int i = 0; i < NUMBER_OF_FILTERS; i++)
+      {
+         switch (i % 4)
+         {
+            case 0:
+               filterStrings[i] = "region = 'region" + i + "'";
+               break;
+            case 1:
+               filterStrings[i] = "region IN ('region" + i + "', 'region" + (i + 1) + "', 'EU')";
+               break;
+            case 2:
+               filterStrings[i] = "priority > " + (i % 10) + " AND region LIKE 'EU%'";
+               break;
+            default:
+               filterStrings[i] = "amount BETWEEN " + i + " AND " + (i * 2) + " OR customer = 'c" + i + "'";
+         }
+      }
+
+      Matcher[] compiled = new Matcher[NUMBER_OF_FILTERS];
+
+      Matcher[] interpreted = new Matcher[NUMBER_OF_FILTERS];
+
+      for (int i = 0; i < NUMBER_OF_FILTERS; i++)
+      {
+         compiled[i] = new CompiledMatcher(filterStrings[i]);
+         interpreted[i] = new InterpretedMatcher(filterStrings[i]);
+      }
+
+      for (int threads : THREADS)
+      {
+         // warm up
+         measure(interpreted, threads);
+         measure(compiled, threads);
+
+         System.out.println(threads + " thread(s), " +
+                            NUMBER_OF_FILTERS +
+                            " filters, matches per second: interpreted = " +
+                            measure(interpreted, threads) +
+                            ", compiled = " +
+                            measure(compiled, threads));
+      }
+   }
+
+   // Private -------------------------------------------------------
+
+   private long measure(final Matcher[] filters, final int numberOfThreads) throws Exception
+   {
+      final CountDownLatch latch = new CountDownLatch(1);
+
+      final AtomicLong matched = new AtomicLong(0);
+
+      Thread[] threads = new Thread[numberOfThreads];
+
+      for (int t = 0; t < numberOfThreads; t++)
+      {
+         final int thread = t;
+
+         threads[t] = new Thread()
+         {
+            @Override
+            public void run()
+            {
+               ServerMessage message = new ServerMessageImpl(thread, 1000);
+               message.putStringProperty(new SimpleString("region"), new SimpleString("EU-" + thread));
+               message.putIntProperty(new SimpleString("priority"), thread + 5);
+               message.putLongProperty(new SimpleString("amount"), thread * 100);
+               message.putStringProperty(new SimpleString("customer"), new SimpleString("c" + thread));
+
+               try
+               {
+                  latch.await();
+
+                  long count = 0;
+
+                  for (int i = 0; i < MESSAGES_PER_THREAD; i++)
+                  {
+                     for (Matcher filter : filters)
+                     {
+                        if (filter.match(message))
+                        {
+                           count++;
+                        }
+                     }
+                  }
+
+                  matched.addAndGet(count);
+               }
+               catch (Exception e)
+               {
+                  e.printStackTrace();
+               }
+            }
+         };
+
+         threads[t].start();
+      }
+
+      long start = System.nanoTime();
+
+      latch.countDown();
+
+      for (Thread thread : threads)
+      {
+         thread.join();
+      }
+
+      long elapsed = System.nanoTime() - start;
+
+      assertTrue(matched.get() > 0);
+
+      return (long)numberOfThreads * MESSAGES_PER_THREAD * filters.length * 1000000000L / elapsed;
+   }
+
+   // Inner classes -------------------------------------------------
+
+   private interface Matcher
+   {
+      boolean match(ServerMessage message) throws Exception;
+   }
+
+   private static final class CompiledMatcher implements Matcher
+   {
+      private final Filter filter;
+
+      CompiledMatcher(final String filterString) throws Exception
+      {
+         filter = FilterImpl.createFilter(filterString);
+      }
+
+      public boolean match(final ServerMessage message)
+      {
+         return filter.match(message);
+      }
+   }
+
+   /**
+    * Sets the identifiers and applies the operators under a lock, as the filters used to.
+    */
+   private static final class InterpretedMatcher implements Matcher
+   {
+      private final Map<SimpleString, Identifier> identifiers = new HashMap<SimpleString, Identifier>();
+
+      private final Operator operator;
+
+      InterpretedMatcher(final String filterString) throws Exception
+      {
+         operator = (Operator)new FilterParser().parse(new SimpleString(filterString), identifiers);
+      }
+
+      public synchronized boolean match(final ServerMessage message) throws Exception
+      {
+         for (Identifier id : identifiers.values())
+         {
+            id.setValue(message.getObjectProperty(id.getName()));
+         }
+
+         return Boolean.TRUE.equals(operator.apply());
+      }
+   }
+}
@@ -0,0 +1,181 @@
+/*
+ * Copyright 2009 Red Hat, Inc.
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package org.hornetq.tests.performance.journal;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.hornetq.core.journal.PreparedTransactionInfo;
+import org.hornetq.core.journal.RecordInfo;
+import org.hornetq.core.journal.impl.JournalImpl;
+import org.hornetq.core.journal.impl.NIOSequentialFileFactory;
+import org.hornetq.tests.unit.core.journal.impl.fakes.SimpleEncoding;
+import org.hornetq.tests.util.UnitTestCase;
+
+/**
+ * Measures the latency of the appends while the journal is being compacted, compared with the same load
+ * without compacting.
+ *
+ * The journal is filled with records and three out of four are deleted, leaving plenty of data files for
+ * the compactor. A producer thread then keeps adding and deleting records while the compaction runs, with
+ * and without a compactMaxRate.
+ */
+public class JournalCompactLatencyTest extends UnitTestCase
+{
+
+   // Constants -----------------------------------------------------
+
+   private static final int FILE_SIZE = 1024 * 1024;
+
+   private static final int RECORDS = 200000;
+
+   private static final int RECORD_SIZE = 200;
+
+   private static final long BASELINE_MILLIS = 2000;
+
+   private static final int MAX_SAMPLES = 2000000;
+
+   // Public --------------------------------------------------------
+
+   public void testAppendLatencyUnderCompaction() throws Exception
+   {
+      measure("no compaction             ", false, -1);
+      measure("compacting, no rate limit ", true, -1);
+      measure("compacting, 20 MiB/s      ", true, 20 * 1024 * 1024);
+   }
+
+   // Private -------------------------------------------------------
+
+   private void measure(final String name, final boolean compact, final long maxRate) throws Exception
+   {
+      deleteDirectory(new File(getTestDir()));
+      new File(getTestDir()).mkdirs();
+
+      NIOSequentialFileFactory factory = new NIOSequentialFileFactory(getTestDir(), true);
+
+      final JournalImpl journal = new JournalImpl(FILE_SIZE, 2, 0, 0, factory, "hq", "hq", 1);
+      journal.setAutoReclaim(false);
+      journal.setCompactMaxRate(maxRate);
+      journal.start();
+      journal.load(new ArrayList<RecordInfo>(), new ArrayList<PreparedTransactionInfo>(), null);
+
+      try
+      {
+         SimpleEncoding encoding = new SimpleEncoding(RECORD_SIZE, (byte)'a');
+
+         for (long id = 0; id < RECORDS; id++)
+         {
+            journal.appendAddRecord(id, (byte)1, encoding, false);
+         }
+
+         for (long id = 0; id < RECORDS; id++)
+         {
+            if (id % 4 != 0)
+            {
+               journal.appendDeleteRecord(id, false);
+            }
+         }
+
+         journal.forceMoveNextFile();
+
+         int dataFiles = journal.getDataFilesCount();
+
+         final AtomicBoolean running = new AtomicBoolean(true);
+
+         final long[] samples = new long[MAX_SAMPLES];
+
+         final int[] count = new int[1];
+
+         Thread producer = new Thread()
+         {
+            @Override
+            public void run()
+            {
+               SimpleEncoding encoding = new SimpleEncoding(RECORD_SIZE, (byte)'b');
+               long id = RECORDS;
+               try
+               {
+                  while (running.get() && count[0] < MAX_SAMPLES)
+                  {
+                     long start = System.nanoTime();
+                     journal.appendAddRecord(id, (byte)1, encoding, false);
+                     journal.appendDeleteRecord(id, false);
+                     samples[count[0]++] = System.nanoTime() - start;
+                     id++;
+                  }
+               }
+               catch (Exception e)
+               {
+                  e.printStackTrace();
+               }
+            }
+         };
+
+         producer.start();
+
+         long start = System.currentTimeMillis();
+
+         if (compact)
+         {
+            journal.testCompact();
+         }
+         else
+         {
+            Thread.sleep(BASELINE_MILLIS);
+         }
+
+         long elapsed = System.currentTimeMillis() - start;
+
+         running.set(false);
+         producer.join();
+
+         report(name, dataFiles, elapsed, Arrays.copyOf(samples, count[0]));
+      }
+      finally
+      {
+         journal.stop();
+      }
+   }
+
+   private void report(final String name, final int dataFiles, final long elapsed, final long[] samples)
+   {
+      Arrays.sort(samples);
+
+      System.out.println(name + ": " +
+                         dataFiles +
+                         " data files, " +
+                         elapsed +
+                         " ms, " +
+                         samples.length +
+                         " appends, latency (us) p50 = " +
+                         percentile(samples, 0.5) +
+                         ", p99 = " +
+                         percentile(samples, 0.99) +
+                         ", p99.9 = " +
+                         percentile(samples, 0.999) +
+                         ", max = " +
+                         (samples.length == 0 ? 0 : samples[samples.length - 1] / 1000));
+   }
+
+   private long percentile(final long[] sorted, final double percentile)
+   {
+      if (sorted.length == 0)
+      {
+         return 0;
+      }
+      return sorted[(int)Math.min(sorted.length - 1, sorted.length * percentile)] / 1000;
+   }
+}
@@ -0,0 +1,134 @@
+/*
+ * Copyright 2009 Red Hat, Inc.
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package org.hornetq.tests.performance.journal;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.hornetq.tests.util.UnitTestCase;
+import org.hornetq.utils.ConcurrentLongHashMap;
+
+/**
+ * Measures the heap used by the journal record index: a boxed {@link ConcurrentHashMap} compared with the
+ * {@link ConcurrentLongHashMap} used by the journal.
+ *
+ * Every entry points to the same value, so only the cost of the index itself is measured. Sizes that would not fit
+ * on the heap are skipped; run with a larger -Xmx to get the 50M figures.
+ */
+public class MeasureRecordIndexFootprintTest extends UnitTestCase
+{
+
+   // Constants -----------------------------------------------------
+
+   private static final int[] SIZES = new int[] { 1000000, 10000000, 50000000 };
+
+   /** rough upper bounds per entry, used to skip the sizes that won't fit in the heap */
+   private static final long ESTIMATE_BOXED = 100;
+
+   private static final long ESTIMATE_PRIMITIVE = 40;
+
+   private static final Object VALUE = new Object();
+
+   // Public --------------------------------------------------------
+
+   public void testFootprint() throws Exception
+   {
+      for (int size : SIZES)
+      {
+         measureBoxed(size);
+         measurePrimitive(size);
+      }
+   }
+
+   // Private -------------------------------------------------------
+
+   private void measureBoxed(final int size)
+   {
+      if (!fits(size, ESTIMATE_BOXED))
+      {
+         System.out.println("ConcurrentHashMap<Long, ?>     " + size + " records: skipped, not enough heap");
+         return;
+      }
+
+      long before = usedMemory();
+      long start = System.currentTimeMillis();
+
+      ConcurrentHashMap<Long, Object> map = new ConcurrentHashMap<Long, Object>();
+      for (long i = 0; i < size; i++)
+      {
+         map.put(i, VALUE);
+      }
+
+      long time = System.currentTimeMillis() - start;
+      long used = usedMemory() - before;
+
+      report("ConcurrentHashMap<Long, ?>    ", size, used, time);
+
+      assertEquals(size, map.size());
+   }
+
+   private void measurePrimitive(final int size)
+   {
+      if (!fits(size, ESTIMATE_PRIMITIVE))
+      {
+         System.out.println("ConcurrentLongHashMap<?>       " + size + " records: skipped, not enough heap");
+         return;
+      }
+
+      long before = usedMemory();
+      long start = System.currentTimeMillis();
+
+      ConcurrentLongHashMap<Object> map = new ConcurrentLongHashMap<Object>();
+      for (long i = 0; i < size; i++)
+      {
+         map.put(i, VALUE);
+      }
+
+      long time = System.currentTimeMillis() - start;
+      long used = usedMemory() - before;
+
+      report("ConcurrentLongHashMap<?>      ", size, used, time);
+
+      assertEquals(size, map.size());
+   }
+
+   private void report(final String name, final int size, final long used, final long time)
+   {
+      System.out.println(name + " " +
+                         size +
+                         " records: " +
+                         used /
+                         (1024 * 1024) +
+                         " MiB, " +
+                         used /
+                         size +
+                         " bytes/record, filled in " +
+                         time +
+                         " ms");
+   }
+
+   private boolean fits(final int size, final long bytesPerRecord)
+   {
+      forceGC();
+      Runtime runtime = Runtime.getRuntime();
+      long available = runtime.maxMemory() - (runtime.totalMemory() - runtime.freeMemory());
+      return size * bytesPerRecord < available * 0.8;
+   }
+
+   private long usedMemory()
+   {
+      forceGC();
+      Runtime runtime = Runtime.getRuntime();
+      return runtime.totalMemory() - runtime.freeMemory();
+   }
+}
@@ -0,0 +1,179 @@
+/*
+ * Copyright 2009 Red Hat, Inc.
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package org.hornetq.tests.performance.postoffice;
+
+import org.hornetq.api.core.SimpleString;
+import org.hornetq.core.filter.Filter;
+import org.hornetq.core.filter.impl.FilterImpl;
+import org.hornetq.core.postoffice.Binding;
+import org.hornetq.core.postoffice.BindingType;
+import org.hornetq.core.postoffice.impl.BindingsImpl;
+import org.hornetq.core.server.Bindable;
+import org.hornetq.core.server.RoutingContext;
+import org.hornetq.core.server.ServerMessage;
+import org.hornetq.core.server.impl.RoutingContextImpl;
+import org.hornetq.core.server.impl.ServerMessageImpl;
+import org.hornetq.tests.util.UnitTestCase;
+
+/**
+ * Measures the latency of routing a message to a topic against the number of filtered subscriptions.
+ *
+ * Each subscription selects one of the regions. The same selectors are also written so they can't be indexed
+ * (<code>NOT (region &lt;&gt; 'x')</code> instead of <code>region = 'x'</code>), which routes with a linear scan of
+ * the subscriptions evaluating every filter.
+ */
+public class MeasureBindingsRouteTest extends UnitTestCase
+{
+
+   // Constants -----------------------------------------------------
+
+   private static final int[] SUBSCRIPTIONS = new int[] { 100, 1000, 10000 };
+
+   private static final int REGIONS = 1000;
+
+   private static final long ROUTES = 2000;
+
+   private static final SimpleString REGION = new SimpleString("region");
+
+   // Public --------------------------------------------------------
+
+   public void testRouteLatency() throws Exception
+   {
+      for (int subscriptions : SUBSCRIPTIONS)
+      {
+         // warm up
+         measure(subscriptions, false);
+         measure(subscriptions, true);
+
+         System.out.println(subscriptions + " subscriptions, route latency (ns): linear scan = " +
+                            measure(subscriptions, false) +
+                            ", indexed = " +
+                            measure(subscriptions, true));
+      }
+   }
+
+   // Private -------------------------------------------------------
+
+   private long measure(final int subscriptions, final boolean indexed) throws Exception
+   {
+      BindingsImpl bindings = new BindingsImpl(new SimpleString("topic"), null, null);
+
+      for (int i = 0; i < subscriptions; i++)
+      {
+         String region = "region" + i % REGIONS;
+
+         String filter = indexed ? "region = '" + region + "'" : "NOT (region <> '" + region + "')";
+
+         bindings.addBinding(new SubscriptionBinding(new SimpleString("subscription" + i),
+                                                     FilterImpl.createFilter(filter)));
+      }
+
+      ServerMessage[] messages = new ServerMessage[REGIONS];
+
+      for (int i = 0; i < REGIONS; i++)
+      {
+         messages[i] = new ServerMessageImpl(i, 100);
+         messages[i].putStringProperty(REGION, new SimpleString("region" + i));
+      }
+
+      RoutingContext context = new RoutingContextImpl(null);
+
+      long start = System.nanoTime();
+
+      for (int i = 0; i < ROUTES; i++)
+      {
+         bindings.route(messages[i % REGIONS], context);
+      }
+
+      return (System.nanoTime() - start) / ROUTES;
+   }
+
+   // Inner classes -------------------------------------------------
+
+   private static final class SubscriptionBinding implements Binding
+   {
+      private final SimpleString name;
+
+      private final Filter filter;
+
+      SubscriptionBinding(final SimpleString name, final Filter filter)
+      {
+         this.name = name;
+         this.filter = filter;
+      }
+
+      public SimpleString getAddress()
+      {
+         return null;
+      }
+
+      public Bindable getBindable()
+      {
+         return null;
+      }
+
+      public BindingType getType()
+      {
+         return BindingType.LOCAL_QUEUE;
+      }
+
+      public SimpleString getUniqueName()
+      {
+         return name;
+      }
+
+      public SimpleString getRoutingName()
+      {
+         return name;
+      }
+
+      public SimpleString getClusterName()
+      {
+         return name;
+      }
+
+      public Filter getFilter()
+      {
+         return filter;
+      }
+
+      public boolean isHighAcceptPriority(final ServerMessage message)
+      {
+         return true;
+      }
+
+      public boolean isExclusive()
+      {
+         return false;
+      }
+
+      public long getID()
+      {
+         return name.hashCode();
+      }
+
+      public int getDistance()
+      {
+         return 0;
+      }
+
+      public void route(final ServerMessage message, final RoutingContext context)
+      {
+      }
+
+      public void close()
+      {
+      }
+   }
+}
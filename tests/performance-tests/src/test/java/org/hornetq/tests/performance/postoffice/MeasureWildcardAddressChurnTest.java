@@ -0,0 +1,188 @@
+/*
+ * Copyright 2009 Red Hat, Inc.
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package org.hornetq.tests.performance.postoffice;
+
+import org.hornetq.api.core.SimpleString;
+import org.hornetq.core.filter.Filter;
+import org.hornetq.core.postoffice.Binding;
+import org.hornetq.core.postoffice.BindingType;
+import org.hornetq.core.postoffice.Bindings;
+import org.hornetq.core.postoffice.BindingsFactory;
+import org.hornetq.core.postoffice.impl.BindingsImpl;
+import org.hornetq.core.postoffice.impl.WildcardAddressManager;
+import org.hornetq.core.server.Bindable;
+import org.hornetq.core.server.RoutingContext;
+import org.hornetq.core.server.ServerMessage;
+import org.hornetq.tests.util.UnitTestCase;
+
+/**
+ * Measures the {@link WildcardAddressManager} against the number of topic addresses, MQTT style
+ * (<code>sensors.site.device.temperature</code>): the subscription and unsubscription of wildcard subscribers, and
+ * the first route to addresses that have no bindings yet.
+ */
+public class MeasureWildcardAddressChurnTest extends UnitTestCase
+{
+
+   // Constants -----------------------------------------------------
+
+   private static final int[] ADDRESSES = new int[] { 10000, 100000 };
+
+   private static final int SITES = 1000;
+
+   private static final int CHURN = 1000;
+
+   private static final int NEW_ADDRESSES = 10000;
+
+   // Public --------------------------------------------------------
+
+   public void testChurn() throws Exception
+   {
+      for (int addresses : ADDRESSES)
+      {
+         WildcardAddressManager manager = new WildcardAddressManager(new BindingsFactory()
+         {
+            public Bindings createBindings(final SimpleString address) throws Exception
+            {
+               return new BindingsImpl(address, null, null);
+            }
+         });
+
+         for (int i = 0; i < addresses; i++)
+         {
+            manager.addBinding(new TopicBinding(new SimpleString("queue" + i), address(i % SITES, i)));
+         }
+
+         // a subscriber of each site
+         for (int i = 0; i < SITES; i++)
+         {
+            manager.addBinding(new TopicBinding(new SimpleString("site" + i), new SimpleString("sensors.site" + i +
+                                                                                              ".#")));
+         }
+
+         long start = System.nanoTime();
+
+         for (int i = 0; i < CHURN; i++)
+         {
+            SimpleString name = new SimpleString("subscriber" + i);
+
+            manager.addBinding(new TopicBinding(name, new SimpleString("sensors.site" + i % SITES + ".*.temperature")));
+
+            manager.removeBinding(name);
+         }
+
+         long churn = (System.nanoTime() - start) / CHURN / 1000;
+
+         start = System.nanoTime();
+
+         for (int i = 0; i < NEW_ADDRESSES; i++)
+         {
+            manager.getBindingsForRoutingAddress(address(i % SITES, addresses + i));
+         }
+
+         long route = (System.nanoTime() - start) / NEW_ADDRESSES / 1000;
+
+         System.out.println(addresses + " addresses, " +
+                            SITES +
+                            " wildcard subscriptions: subscribe and unsubscribe (us) = " +
+                            churn +
+                            ", first route to an address (us) = " +
+                            route);
+      }
+   }
+
+   // Private -------------------------------------------------------
+
+   private static SimpleString address(final int site, final int device)
+   {
+      return new SimpleString("sensors.site" + site + ".device" + device + ".temperature");
+   }
+
+   // Inner classes -------------------------------------------------
+
+   private static final class TopicBinding implements Binding
+   {
+      private final SimpleString name;
+
+      private final SimpleString address;
+
+      TopicBinding(final SimpleString name, final SimpleString address)
+      {
+         this.name = name;
+         this.address = address;
+      }
+
+      public SimpleString getAddress()
+      {
+         return address;
+      }
+
+      public Bindable getBindable()
+      {
+         return null;
+      }
+
+      public BindingType getType()
+      {
+         return BindingType.LOCAL_QUEUE;
+      }
+
+      public SimpleString getUniqueName()
+      {
+         return name;
+      }
+
+      public SimpleString getRoutingName()
+      {
+         return name;
+      }
+
+      public SimpleString getClusterName()
+      {
+         return name;
+      }
+
+      public Filter getFilter()
+      {
+         return null;
+      }
+
+      public boolean isHighAcceptPriority(final ServerMessage message)
+      {
+         return true;
+      }
+
+      public boolean isExclusive()
+      {
+         return false;
+      }
+
+      public long getID()
+      {
+         return name.hashCode();
+      }
+
+      public int getDistance()
+      {
+         return 0;
+      }
+
+      public void route(final ServerMessage message, final RoutingContext context)
+      {
+      }
+
+      public void close()
+      {
+      }
+   }
+}
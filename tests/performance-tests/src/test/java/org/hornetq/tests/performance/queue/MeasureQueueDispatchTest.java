@@ -0,0 +1,213 @@
+/*
+ * Copyright 2009 Red Hat, Inc.
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package org.hornetq.tests.performance.queue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.hornetq.api.core.SimpleString;
+import org.hornetq.core.filter.Filter;
+import org.hornetq.core.server.Consumer;
+import org.hornetq.core.server.HandleStatus;
+import org.hornetq.core.server.MessageReference;
+import org.hornetq.core.server.impl.QueueImpl;
+import org.hornetq.tests.util.UnitTestCase;
+import org.hornetq.utils.OrderedExecutorFactory;
+
+/**
+ * Compares the throughput of the default queue delivery with the concurrent dispatch, for an increasing number of
+ * consumers.
+ *
+ * Each consumer spends a little CPU on every reference it handles, standing in for the encoding and write done by a
+ * real consumer.
+ */
+public class MeasureQueueDispatchTest extends UnitTestCase
+{
+
+   // Constants -----------------------------------------------------
+
+   private static final int NUMBER_OF_MESSAGES = 200000;
+
+   private static final int PRODUCERS = 4;
+
+   private static final int WORK_PER_MESSAGE = 5000;
+
+   private static final SimpleString ADDRESS = new SimpleString("address1");
+
+   // Attributes ----------------------------------------------------
+
+   private ScheduledExecutorService scheduledExecutor;
+
+   private ExecutorService executor;
+
+   private ExecutorService threadPool;
+
+   // Public --------------------------------------------------------
+
+   @Override
+   protected void setUp() throws Exception
+   {
+      super.setUp();
+      scheduledExecutor = Executors.newSingleThreadScheduledExecutor();
+      executor = Executors.newSingleThreadExecutor();
+      threadPool = Executors.newCachedThreadPool();
+   }
+
+   @Override
+   protected void tearDown() throws Exception
+   {
+      scheduledExecutor.shutdownNow();
+      executor.shutdownNow();
+      threadPool.shutdownNow();
+      super.tearDown();
+   }
+
+   public void testDispatchThroughput() throws Exception
+   {
+      int[] consumerCounts = new int[] { 1, 8, 32, 128 };
+
+      // warm up
+      measure(false, 8);
+      measure(true, 8);
+
+      for (int consumers : consumerCounts)
+      {
+         long serial = measure(false, consumers);
+         long concurrent = measure(true, consumers);
+
+         System.out.println(consumers + " consumers: serial delivery " +
+                            serial +
+                            " msgs/s, concurrent dispatch " +
+                            concurrent +
+                            " msgs/s");
+      }
+   }
+
+   // Private -------------------------------------------------------
+
+   private long measure(final boolean concurrentDispatch, final int numberOfConsumers) throws Exception
+   {
+      final QueueImpl queue = new QueueImpl(1,
+                                            ADDRESS,
+                                            new SimpleString("queue-" + concurrentDispatch + "-" + numberOfConsumers),
+                                            null,
+                                            false,
+                                            false,
+                                            scheduledExecutor,
+                                            null,
+                                            null,
+                                            null,
+                                            new OrderedExecutorFactory(threadPool).getExecutor());
+
+      if (concurrentDispatch)
+      {
+         queue.setConcurrentDispatch(new OrderedExecutorFactory(threadPool));
+      }
+
+      final CountDownLatch latchDone = new CountDownLatch(NUMBER_OF_MESSAGES);
+
+      for (int i = 0; i < numberOfConsumers; i++)
+      {
+         queue.addConsumer(new WorkingConsumer(latchDone));
+      }
+
+      final MessageReference[] refs = new MessageReference[NUMBER_OF_MESSAGES];
+
+      for (int i = 0; i < NUMBER_OF_MESSAGES; i++)
+      {
+         refs[i] = generateReference(queue, i);
+      }
+
+      Thread[] producers = new Thread[PRODUCERS];
+
+      long start = System.currentTimeMillis();
+
+      for (int p = 0; p < PRODUCERS; p++)
+      {
+         final int offset = p;
+
+         producers[p] = new Thread()
+         {
+            @Override
+            public void run()
+            {
+               for (int i = offset; i < NUMBER_OF_MESSAGES; i += PRODUCERS)
+               {
+                  queue.addTail(refs[i], true);
+               }
+            }
+         };
+
+         producers[p].start();
+      }
+
+      for (Thread producer : producers)
+      {
+         producer.join();
+      }
+
+      assertTrue("Not all messages were delivered", latchDone.await(60, TimeUnit.SECONDS));
+
+      long time = System.currentTimeMillis() - start;
+
+      queue.close();
+
+      return NUMBER_OF_MESSAGES * 1000L / Math.max(1, time);
+   }
+
+   // Inner classes -------------------------------------------------
+
+   private static final class WorkingConsumer implements Consumer
+   {
+      private final CountDownLatch latchDone;
+
+      long work;
+
+      WorkingConsumer(final CountDownLatch latchDone)
+      {
+         this.latchDone = latchDone;
+      }
+
+      public synchronized HandleStatus handle(final MessageReference reference) throws Exception
+      {
+         long value = reference.getMessage().getMessageID();
+
+         for (int i = 0; i < WORK_PER_MESSAGE; i++)
+         {
+            value = value * 31 + i;
+         }
+
+         work += value;
+
+         reference.getQueue().referenceHandled();
+
+         latchDone.countDown();
+
+         return HandleStatus.HANDLED;
+      }
+
+      public Filter getFilter()
+      {
+         return null;
+      }
+
+      public String debug()
+      {
+         return toString();
+      }
+   }
+}
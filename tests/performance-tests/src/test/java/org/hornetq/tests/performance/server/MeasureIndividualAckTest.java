@@ -0,0 +1,153 @@
+/*
+ * Copyright 2009 Red Hat, Inc.
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package org.hornetq.tests.performance.server;
+
+import org.hornetq.api.core.SimpleString;
+import org.hornetq.api.core.client.ClientConsumer;
+import org.hornetq.api.core.client.ClientMessage;
+import org.hornetq.api.core.client.ClientProducer;
+import org.hornetq.api.core.client.ClientSession;
+import org.hornetq.api.core.client.ClientSessionFactory;
+import org.hornetq.api.core.client.ServerLocator;
+import org.hornetq.core.server.HornetQServer;
+import org.hornetq.core.server.Queue;
+import org.hornetq.tests.util.ServiceTestBase;
+
+/**
+ * Measures the throughput of individual acknowledgements against the number of messages delivered to the consumer
+ * and not acknowledged yet.
+ *
+ * The messages are acknowledged newest first, so each acknowledgement is for the reference the furthest from the
+ * oldest one the server holds for the consumer.
+ */
+public class MeasureIndividualAckTest extends ServiceTestBase
+{
+
+   // Constants -----------------------------------------------------
+
+   private static final int[] UNACKED_MESSAGES = new int[] { 1000, 10000, 100000 };
+
+   private static final SimpleString QUEUE = new SimpleString("ackQueue");
+
+   // Attributes ----------------------------------------------------
+
+   private HornetQServer server;
+
+   private ServerLocator locator;
+
+   // Public --------------------------------------------------------
+
+   @Override
+   protected void setUp() throws Exception
+   {
+      super.setUp();
+
+      server = createServer(false);
+      server.start();
+
+      locator = createInVMNonHALocator();
+      locator.setConsumerWindowSize(-1);
+      locator.setBlockOnAcknowledge(false);
+   }
+
+   @Override
+   protected void tearDown() throws Exception
+   {
+      locator.close();
+
+      server.stop();
+
+      locator = null;
+
+      server = null;
+
+      super.tearDown();
+   }
+
+   public void testIndividualAckThroughput() throws Exception
+   {
+      ClientSessionFactory factory = createSessionFactory(locator);
+
+      ClientSession session = factory.createSession(false, true, true);
+
+      try
+      {
+         session.createQueue(QUEUE, QUEUE, null, false);
+
+         session.start();
+
+         // warm up
+         measure(session, UNACKED_MESSAGES[0]);
+
+         for (int unacked : UNACKED_MESSAGES)
+         {
+            System.out.println(unacked + " unacknowledged messages, acknowledgements per second = " +
+                               measure(session, unacked));
+         }
+      }
+      finally
+      {
+         session.close();
+
+         factory.close();
+      }
+   }
+
+   // Private -------------------------------------------------------
+
+   private long measure(final ClientSession session, final int numberOfMessages) throws Exception
+   {
+      ClientProducer producer = session.createProducer(QUEUE);
+
+      for (int i = 0; i < numberOfMessages; i++)
+      {
+         ClientMessage message = session.createMessage(false);
+         message.getBodyBuffer().writeInt(i);
+         producer.send(message);
+      }
+
+      producer.close();
+
+      ClientConsumer consumer = session.createConsumer(QUEUE);
+
+      ClientMessage[] received = new ClientMessage[numberOfMessages];
+
+      for (int i = 0; i < numberOfMessages; i++)
+      {
+         received[i] = consumer.receive(5000);
+
+         assertNotNull(received[i]);
+      }
+
+      Queue queue = server.locateQueue(QUEUE);
+
+      long start = System.nanoTime();
+
+      for (int i = numberOfMessages - 1; i >= 0; i--)
+      {
+         received[i].individualAcknowledge();
+      }
+
+      while (queue.getMessageCount() != 0)
+      {
+         Thread.sleep(1);
+      }
+
+      long elapsed = System.nanoTime() - start;
+
+      consumer.close();
+
+      return numberOfMessages * 1000000000L / elapsed;
+   }
+}
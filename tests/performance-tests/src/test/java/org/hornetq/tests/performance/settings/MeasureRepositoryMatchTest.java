@@ -0,0 +1,90 @@
+/*
+ * Copyright 2009 Red Hat, Inc.
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package org.hornetq.tests.performance.settings;
+
+import org.hornetq.core.settings.HierarchicalRepository;
+import org.hornetq.core.settings.impl.AddressSettings;
+import org.hornetq.core.settings.impl.HierarchicalObjectRepository;
+import org.hornetq.tests.util.UnitTestCase;
+
+/**
+ * Measures the resolution of the address settings with 10k patterns, for addresses that aren't cached yet, and the
+ * cost of a settings change on the resolution of the addresses already cached.
+ */
+public class MeasureRepositoryMatchTest extends UnitTestCase
+{
+
+   // Constants -----------------------------------------------------
+
+   private static final int PATTERNS = 10000;
+
+   private static final int ADDRESSES = 20000;
+
+   // Public --------------------------------------------------------
+
+   public void testMatchThroughput() throws Exception
+   {
+      for (int run = 0; run < 3; run++)
+      {
+         HierarchicalRepository<AddressSettings> repository = new HierarchicalObjectRepository<AddressSettings>();
+
+         repository.setDefault(new AddressSettings());
+
+         repository.addMatch("#", new AddressSettings());
+
+         for (int i = 0; i < PATTERNS / 4; i++)
+         {
+            repository.addMatch("queues.app" + i + ".#", new AddressSettings());
+            repository.addMatch("queues.app" + i + ".*.eu", new AddressSettings());
+            repository.addMatch("queues.app" + i + ".orders.*", new AddressSettings());
+            repository.addMatch("queues.app" + i + ".orders.us", new AddressSettings());
+         }
+
+         String[] addresses = new String[ADDRESSES];
+
+         for (int i = 0; i < ADDRESSES; i++)
+         {
+            addresses[i] = "queues.app" + i % (PATTERNS / 4) + (i % 2 == 0 ? ".orders." : ".payments.") + "temp" + i;
+         }
+
+         long start = System.nanoTime();
+
+         for (String address : addresses)
+         {
+            repository.getMatch(address);
+         }
+
+         long lookups = ADDRESSES * 1000000000L / (System.nanoTime() - start);
+
+         start = System.nanoTime();
+
+         // a change of the settings of one application
+         repository.addMatch("queues.app1.payments.#", new AddressSettings());
+
+         for (String address : addresses)
+         {
+            repository.getMatch(address);
+         }
+
+         long change = (System.nanoTime() - start) / 1000;
+
+         System.out.println(PATTERNS + " patterns, uncached lookups per second = " +
+                            lookups +
+                            ", change and lookup of " +
+                            ADDRESSES +
+                            " cached addresses (us) = " +
+                            change);
+      }
+   }
+}
@@ -45,6 +45,7 @@ public class AddressSettingsDeployerTest extends UnitTestCase
                                + "      <redelivery-delay-multiplier>2</redelivery-delay-multiplier>\n"
                                + "      <max-redelivery-delay>12000</max-redelivery-delay>\n"
                                + "      <send-to-dla-on-no-route>true</send-to-dla-on-no-route>\n"
+                               + "      <concurrent-dispatch>true</concurrent-dispatch>\n"
                                + "   </address-setting>";
 
    private AddressSettingsDeployer addressSettingsDeployer;
@@ -79,6 +80,7 @@ public class AddressSettingsDeployerTest extends UnitTestCase
       Assert.assertEquals(2.0, as.getRedeliveryMultiplier());
       Assert.assertEquals(12000, as.getMaxRedeliveryDelay());
       Assert.assertTrue(as.isSendToDLAOnNoRoute());
+      Assert.assertTrue(as.isConcurrentDispatch());
 
    }
 
@@ -110,6 +112,7 @@ public class AddressSettingsDeployerTest extends UnitTestCase
       Assert.assertTrue(as.isLastValueQueue());
       Assert.assertEquals(38383, as.getRedistributionDelay());
       Assert.assertTrue(as.isSendToDLAOnNoRoute());
+      Assert.assertTrue(as.isConcurrentDispatch());
    }
 
    public void testUndeploy() throws Exception
@@ -133,6 +133,57 @@ public abstract class JournalImplTestUnit extends JournalImplTestBase
       stopJournal();
    }
 
+   public void testParallelLoad() throws Exception
+   {
+      setup(10, 10 * 1024, true);
+      createJournal();
+      startJournal();
+      load();
+
+      // enough records to spread over many files, with transactions crossing file boundaries
+      for (long i = 1; i <= 300; i++)
+      {
+         add(i);
+      }
+      addTx(1000, 1001, 1002, 1003);
+      update(1, 2, 3, 4, 5);
+      updateTx(1000, 10, 11);
+      delete(100, 101, 102, 103);
+      deleteTx(1000, 200, 201);
+      addTx(2000, 2001, 2002);
+      commit(1000);
+      prepare(2000, new SimpleEncoding(10, (byte)0));
+      addTx(3000, 3001, 3002);
+      rollback(3000);
+
+      stopJournal(false);
+      createJournal();
+      startJournal();
+      loadAndCheck();
+
+      int dataFiles = journal.getDataFilesCount();
+      int idMapSize = journal.getIDMapSize();
+
+      Assert.assertTrue(dataFiles > 10);
+
+      stopJournal(false);
+      createJournal();
+      ((JournalImpl)journal).setLoadThreads(4);
+      startJournal();
+      loadAndCheck();
+
+      Assert.assertEquals(dataFiles, journal.getDataFilesCount());
+      Assert.assertEquals(idMapSize, journal.getIDMapSize());
+
+      // the journal is still usable after a parallel load
+      add(5000);
+      stopJournal(false);
+      createJournal();
+      startJournal();
+      loadAndCheck();
+      stopJournal();
+   }
+
    public void testParams() throws Exception
    {
       try
@@ -15,7 +15,10 @@ package org.hornetq.tests.unit.core.journal.impl;
 
 import java.nio.ByteBuffer;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import junit.framework.Assert;
@@ -136,6 +139,55 @@ public class TimedBufferTest extends UnitTestCase
 
    }
 
+   public void testFullBufferFlushedOutsideLock()
+   {
+      final TimedBuffer timedBuffer = new TimedBuffer(100, TimedBufferTest.ONE_SECOND, false);
+
+      final ArrayList<Boolean> lockHeld = new ArrayList<Boolean>();
+
+      class TestObserver implements TimedBufferObserver
+      {
+         public void flushBuffer(final ByteBuffer buffer, final boolean sync, final List<IOAsyncTask> callbacks)
+         {
+            lockHeld.add(Thread.holdsLock(timedBuffer));
+         }
+
+         public ByteBuffer newBuffer(final int minSize, final int maxSize)
+         {
+            return ByteBuffer.allocate(maxSize);
+         }
+
+         public int getRemainingBytes()
+         {
+            return 1024 * 1024;
+         }
+      }
+
+      timedBuffer.start();
+
+      try
+      {
+         timedBuffer.setObserver(new TestObserver());
+
+         for (int i = 0; i < 10; i++)
+         {
+            Assert.assertTrue(timedBuffer.checkSize(10));
+            timedBuffer.addBytes(HornetQBuffers.wrappedBuffer(new byte[10]), false, dummyCallback);
+         }
+
+         // the buffer is full, it's flushed before the record is accepted
+         Assert.assertTrue(timedBuffer.checkSize(10));
+
+         Assert.assertEquals(Arrays.asList(Boolean.FALSE), lockHeld);
+
+         Assert.assertEquals(1, timedBuffer.getFlushesOnFullBuffer());
+      }
+      finally
+      {
+         timedBuffer.stop();
+      }
+   }
+
    public void testTimingAndFlush() throws Exception
    {
       final ArrayList<ByteBuffer> buffers = new ArrayList<ByteBuffer>();
@@ -223,12 +275,291 @@ public class TimedBufferTest extends UnitTestCase
 
    }
 
+   public void testAddWhileFlushing() throws Exception
+   {
+      final ArrayList<ByteBuffer> buffers = new ArrayList<ByteBuffer>();
+      final CountDownLatch flushing = new CountDownLatch(1);
+      final CountDownLatch releaseFlush = new CountDownLatch(1);
+      class TestObserver implements TimedBufferObserver
+      {
+         public void flushBuffer(final ByteBuffer buffer, final boolean sync, final List<IOAsyncTask> callbacks)
+         {
+            synchronized (buffers)
+            {
+               buffers.add(buffer);
+            }
+
+            // the first flush is stuck as if waiting for a sync
+            flushing.countDown();
+            try
+            {
+               releaseFlush.await();
+            }
+            catch (InterruptedException e)
+            {
+            }
+         }
+
+         public ByteBuffer newBuffer(final int minSize, final int maxSize)
+         {
+            return ByteBuffer.allocate(maxSize);
+         }
+
+         public int getRemainingBytes()
+         {
+            return 1024 * 1024;
+         }
+      }
+
+      final TimedBuffer timedBuffer = new TimedBuffer(100, TimedBufferTest.ONE_SECOND / 1000, false);
+
+      timedBuffer.start();
+
+      try
+      {
+         timedBuffer.setObserver(new TestObserver());
+
+         timedBuffer.checkSize(10);
+         timedBuffer.addBytes(HornetQBuffers.wrappedBuffer(sampleBytes(0, 10)), true, dummyCallback);
+
+         Assert.assertTrue(flushing.await(10, TimeUnit.SECONDS));
+
+         // records keep being added while the flush is being written
+         Thread producer = new Thread()
+         {
+            @Override
+            public void run()
+            {
+               for (int i = 1; i < 5; i++)
+               {
+                  timedBuffer.checkSize(10);
+                  timedBuffer.addBytes(HornetQBuffers.wrappedBuffer(sampleBytes(i * 10, 10)), false, dummyCallback);
+               }
+            }
+         };
+
+         producer.start();
+         producer.join(10000);
+
+         Assert.assertFalse(producer.isAlive());
+
+         synchronized (buffers)
+         {
+            Assert.assertEquals(1, buffers.size());
+         }
+
+         releaseFlush.countDown();
+
+         timedBuffer.flush();
+
+         Assert.assertEquals(2, buffers.size());
+
+         ByteBuffer flushedBuffer = buffers.get(0);
+         flushedBuffer.rewind();
+         Assert.assertEquals(10, flushedBuffer.limit());
+         for (int i = 0; i < 10; i++)
+         {
+            Assert.assertEquals(UnitTestCase.getSamplebyte(i), flushedBuffer.get());
+         }
+
+         flushedBuffer = buffers.get(1);
+         flushedBuffer.rewind();
+         Assert.assertEquals(40, flushedBuffer.limit());
+         for (int i = 10; i < 50; i++)
+         {
+            Assert.assertEquals(UnitTestCase.getSamplebyte(i), flushedBuffer.get());
+         }
+
+         Assert.assertEquals(2, timedBuffer.getFlushes());
+         Assert.assertEquals(5, timedBuffer.getRecordsFlushed());
+         Assert.assertEquals(1, timedBuffer.getFlushesOnTimeout());
+         Assert.assertEquals(1, timedBuffer.getFlushesOnRequest());
+      }
+      finally
+      {
+         releaseFlush.countDown();
+
+         timedBuffer.stop();
+      }
+   }
+
+   public void testAdaptiveTimeout() throws Exception
+   {
+      final long syncMillis = 20;
+
+      class TestObserver implements TimedBufferObserver
+      {
+         public void flushBuffer(final ByteBuffer buffer, final boolean sync, final List<IOAsyncTask> callbacks)
+         {
+            if (sync)
+            {
+               try
+               {
+                  Thread.sleep(syncMillis);
+               }
+               catch (InterruptedException e)
+               {
+               }
+            }
+
+            for (IOAsyncTask callback : callbacks)
+            {
+               callback.done();
+            }
+         }
+
+         public ByteBuffer newBuffer(final int minSize, final int maxSize)
+         {
+            return ByteBuffer.allocate(maxSize);
+         }
+
+         public int getRemainingBytes()
+         {
+            return Integer.MAX_VALUE;
+         }
+      }
+
+      final int timeout = TimedBufferTest.ONE_SECOND / 5;
+
+      TimedBuffer timedBuffer = new TimedBuffer(100 * 1024, timeout, false);
+
+      timedBuffer.start();
+
+      try
+      {
+         timedBuffer.setObserver(new TestObserver());
+
+         Assert.assertEquals(timeout, timedBuffer.getEffectiveTimeout());
+
+         timedBuffer.setAdaptive(true);
+
+         Assert.assertEquals(timeout, timedBuffer.getEffectiveTimeout());
+
+         // records requiring a sync arriving much faster than the syncs are done: batched on the sync latency
+         long end = System.currentTimeMillis() + 1000;
+         while (System.currentTimeMillis() < end)
+         {
+            timedBuffer.checkSize(10);
+            timedBuffer.addBytes(HornetQBuffers.wrappedBuffer(sampleBytes(0, 10)), true, dummyCallback);
+            Thread.sleep(1);
+         }
+
+         long syncNanos = TimeUnit.MILLISECONDS.toNanos(syncMillis);
+
+         Assert.assertTrue(timedBuffer.getSyncLatency() >= syncNanos);
+         Assert.assertTrue(timedBuffer.getEffectiveTimeout() >= syncNanos);
+         Assert.assertTrue(timedBuffer.getEffectiveTimeout() < timeout);
+         Assert.assertTrue(timedBuffer.getRecordsFlushed() > 2 * timedBuffer.getFlushes());
+
+         // and much slower: flushed right away
+         for (int i = 0; i < 10; i++)
+         {
+            timedBuffer.checkSize(10);
+            timedBuffer.addBytes(HornetQBuffers.wrappedBuffer(sampleBytes(0, 10)), true, dummyCallback);
+            Thread.sleep(syncMillis * 4);
+         }
+
+         Assert.assertEquals(0, timedBuffer.getEffectiveTimeout());
+
+         timedBuffer.setAdaptive(false);
+
+         Assert.assertEquals(timeout, timedBuffer.getEffectiveTimeout());
+      }
+      finally
+      {
+         timedBuffer.stop();
+      }
+   }
+
+   public void testFlushListener()
+   {
+      final AtomicInteger flushTimes = new AtomicInteger(0);
+      final AtomicInteger listenerTimes = new AtomicInteger(0);
+      final List<Integer> listenerTimesOnFlush = new ArrayList<Integer>();
+
+      class TestObserver implements TimedBufferObserver
+      {
+         public void flushBuffer(final ByteBuffer buffer, final boolean sync, final List<IOAsyncTask> callbacks)
+         {
+            // the listener runs before the records reach the observer
+            listenerTimesOnFlush.add(listenerTimes.get());
+            flushTimes.incrementAndGet();
+         }
+
+         public ByteBuffer newBuffer(final int minSize, final int maxSize)
+         {
+            return ByteBuffer.allocate(maxSize);
+         }
+
+         public int getRemainingBytes()
+         {
+            return 1024 * 1024;
+         }
+      }
+
+      TimedBuffer timedBuffer = new TimedBuffer(100, TimedBufferTest.ONE_SECOND, false);
+
+      timedBuffer.start();
+
+      try
+      {
+         timedBuffer.setObserver(new TestObserver());
+
+         timedBuffer.setFlushListener(new Runnable()
+         {
+            public void run()
+            {
+               listenerTimes.incrementAndGet();
+            }
+         });
+
+         timedBuffer.checkSize(10);
+         timedBuffer.addBytes(HornetQBuffers.wrappedBuffer(sampleBytes(0, 10)), false, dummyCallback);
+
+         timedBuffer.flush();
+
+         Assert.assertEquals(1, flushTimes.get());
+         Assert.assertEquals(1, listenerTimes.get());
+
+         // nothing to flush, nothing to listen to
+         timedBuffer.flush();
+
+         Assert.assertEquals(1, listenerTimes.get());
+
+         timedBuffer.setFlushListener(null);
+
+         timedBuffer.checkSize(10);
+         timedBuffer.addBytes(HornetQBuffers.wrappedBuffer(sampleBytes(0, 10)), false, dummyCallback);
+
+         timedBuffer.flush();
+
+         Assert.assertEquals(2, flushTimes.get());
+         Assert.assertEquals(1, listenerTimes.get());
+
+         Assert.assertEquals(Arrays.asList(1, 1), listenerTimesOnFlush);
+      }
+      finally
+      {
+         timedBuffer.stop();
+      }
+   }
+
    // Package protected ---------------------------------------------
 
    // Protected -----------------------------------------------------
 
    // Private -------------------------------------------------------
 
+   private static byte[] sampleBytes(final int start, final int length)
+   {
+      byte[] bytes = new byte[length];
+      for (int j = 0; j < length; j++)
+      {
+         bytes[j] = UnitTestCase.getSamplebyte(start + j);
+      }
+      return bytes;
+   }
+
    // Inner classes -------------------------------------------------
 
 }
@@ -27,6 +27,7 @@ import org.hornetq.api.core.HornetQExceptionType;
 import org.hornetq.core.asyncio.BufferCallback;
 import org.hornetq.core.journal.EncodingSupport;
 import org.hornetq.core.journal.IOAsyncTask;
+import org.hornetq.core.journal.JournalBuffer;
 import org.hornetq.core.journal.SequentialFile;
 import org.hornetq.core.journal.SequentialFileFactory;
 import org.hornetq.core.journal.impl.TimedBuffer;
@@ -746,6 +747,11 @@ public class FakeSequentialFileFactory implements SequentialFileFactory
    {
    }
 
+   public JournalBuffer getJournalBuffer()
+   {
+      return null;
+   }
+
    /* (non-Javadoc)
     * @see org.hornetq.core.journal.SequentialFileFactory#onIOError(java.lang.Exception, java.lang.String, org.hornetq.core.journal.SequentialFile)
     */
@@ -39,6 +39,7 @@ import org.hornetq.api.core.HornetQBuffers;
 import org.hornetq.api.core.SimpleString;
 import org.hornetq.core.journal.IOAsyncTask;
 import org.hornetq.core.journal.Journal;
+import org.hornetq.core.journal.JournalBuffer;
 import org.hornetq.core.journal.JournalLoadInformation;
 import org.hornetq.core.journal.SequentialFile;
 import org.hornetq.core.journal.SequentialFileFactory;
@@ -49,7 +50,10 @@ import org.hornetq.core.paging.PagedMessage;
 import org.hornetq.core.paging.PagingManager;
 import org.hornetq.core.paging.PagingStore;
 import org.hornetq.core.paging.PagingStoreFactory;
+import org.hornetq.core.paging.cursor.PageCache;
+import org.hornetq.core.paging.cursor.PageCursorProvider;
 import org.hornetq.core.paging.cursor.PagePosition;
+import org.hornetq.core.paging.cursor.impl.PagePositionImpl;
 import org.hornetq.core.paging.impl.Page;
 import org.hornetq.core.paging.impl.PageTransactionInfoImpl;
 import org.hornetq.core.paging.impl.PagingStoreImpl;
@@ -408,6 +412,155 @@ public class PagingStoreImplTest extends UnitTestCase
 
    }
 
+   public void testPageCacheEvictionAndReadAhead() throws Exception
+   {
+      SequentialFileFactory factory = new FakeSequentialFileFactory();
+      SimpleString destination = new SimpleString("test");
+
+      PagingStoreFactory storeFactory = new FakeStoreFactory(factory);
+
+      AddressSettings addressSettings = new AddressSettings();
+      addressSettings.setAddressFullMessagePolicy(AddressFullMessagePolicy.PAGE);
+      addressSettings.setPageCacheMaxSize(-1);
+      PagingStoreImpl store =
+               new PagingStoreImpl(PagingStoreImplTest.destinationTestName, null, 100, createMockManager(),
+                                   createStorageManagerMock(), factory, storeFactory,
+                                   PagingStoreImplTest.destinationTestName, addressSettings,
+                                   getExecutorFactory().getExecutor(), true);
+
+      store.start();
+
+      store.startPaging();
+
+      for (int i = 0; i < 10; i++)
+      {
+         if (i > 0 && i % 2 == 0)
+         {
+            store.forceAnotherPage();
+         }
+
+         ServerMessage msg = createMessage(i, store, destination, createRandomBuffer(i + 1l, 10));
+
+         final RoutingContextImpl ctx = new RoutingContextImpl(null);
+         Assert.assertTrue(store.page(msg, ctx.getTransaction(), ctx.getContextListing(store.getStoreName()), lock));
+      }
+
+      store.sync();
+
+      Assert.assertEquals(5, store.getNumberOfPages());
+
+      PageCursorProvider provider = store.getCursorProvider();
+
+      // the pages written are still cached, the last one is being written
+      Assert.assertEquals(5, provider.getCacheSize());
+
+      // every page but the most recently used and the live one are evicted
+      provider.setCacheMaxSizeBytes(1);
+
+      Assert.assertEquals(2, provider.getCacheSize());
+      Assert.assertEquals(3, provider.getCacheEvictions());
+
+      Assert.assertTrue(provider.getCacheMemorySize() > 0);
+
+      // read from the file, evicting the other page
+      PageCache cache = provider.getPageCache(1);
+
+      Assert.assertEquals(2, cache.getNumberOfMessages());
+      Assert.assertEquals(0, cache.getMessage(0).getMessage().getMessageID());
+      Assert.assertEquals(1, provider.getCacheMisses());
+      Assert.assertEquals(4, provider.getCacheEvictions());
+      Assert.assertEquals(2, provider.getCacheSize());
+
+      long pageSize = provider.getCacheMemorySize();
+
+      Assert.assertTrue(pageSize > 0);
+
+      Assert.assertSame(cache, provider.getPageCache(1));
+      Assert.assertEquals(1, provider.getCacheHits());
+
+      provider.setCacheMaxSizeBytes(pageSize * 2);
+
+      // not past the threshold yet
+      provider.readAhead(new PagePositionImpl(1, 0), cache);
+      provider.flushExecutors();
+
+      Assert.assertEquals(2, provider.getCacheSize());
+
+      provider.readAhead(new PagePositionImpl(1, 1), cache);
+      provider.flushExecutors();
+
+      Assert.assertEquals(3, provider.getCacheSize());
+      Assert.assertEquals(2, provider.getCacheMisses());
+      Assert.assertEquals(2 * pageSize, provider.getCacheMemorySize());
+
+      // already read
+      Assert.assertNotNull(provider.getPageCache(2));
+      Assert.assertEquals(2, provider.getCacheHits());
+
+      // the cache is full, nothing is read ahead
+      provider.readAhead(new PagePositionImpl(2, 1), provider.getPageCache(2));
+      provider.flushExecutors();
+
+      Assert.assertEquals(3, provider.getCacheSize());
+      Assert.assertEquals(2, provider.getCacheMisses());
+
+      store.stop();
+   }
+
+   public void testPageCacheReleasedOnStop() throws Exception
+   {
+      SequentialFileFactory factory = new FakeSequentialFileFactory();
+      SimpleString destination = new SimpleString("test");
+
+      PagingStoreFactory storeFactory = new FakeStoreFactory(factory);
+
+      AddressSettings addressSettings = new AddressSettings();
+      addressSettings.setAddressFullMessagePolicy(AddressFullMessagePolicy.PAGE);
+      addressSettings.setPageCacheMaxSize(-1);
+
+      PagingManager pagingManager = createMockManager();
+
+      PagingStoreImpl store =
+               new PagingStoreImpl(PagingStoreImplTest.destinationTestName, null, 100, pagingManager,
+                                   createStorageManagerMock(), factory, storeFactory,
+                                   PagingStoreImplTest.destinationTestName, addressSettings,
+                                   getExecutorFactory().getExecutor(), true);
+
+      store.start();
+
+      store.startPaging();
+
+      for (int i = 0; i < 10; i++)
+      {
+         if (i > 0 && i % 2 == 0)
+         {
+            store.forceAnotherPage();
+         }
+
+         ServerMessage msg = createMessage(i, store, destination, createRandomBuffer(i + 1l, 10));
+
+         final RoutingContextImpl ctx = new RoutingContextImpl(null);
+         Assert.assertTrue(store.page(msg, ctx.getTransaction(), ctx.getContextListing(store.getStoreName()), lock));
+      }
+
+      store.sync();
+
+      PageCursorProvider provider = store.getCursorProvider();
+
+      // counts the pages no longer written
+      provider.setCacheMaxSizeBytes(-1);
+
+      Assert.assertEquals(5, provider.getCacheSize());
+      Assert.assertTrue(provider.getCacheMemorySize() > 0);
+      Assert.assertEquals(provider.getCacheMemorySize(), pagingManager.getPageCacheSize());
+
+      store.stop();
+
+      Assert.assertEquals(0, provider.getCacheSize());
+      Assert.assertEquals(0, provider.getCacheMemorySize());
+      Assert.assertEquals(0, pagingManager.getPageCacheSize());
+   }
+
    public void testConcurrentDepage() throws Exception
    {
       SequentialFileFactory factory = new FakeSequentialFileFactory(1, false);
@@ -1303,6 +1456,12 @@ public class PagingStoreImplTest extends UnitTestCase
          return null;
       }
 
+      @Override
+      public JournalBuffer getMessageJournalBuffer()
+      {
+         return null;
+      }
+
       @Override
       public OperationContext newSingleThreadContext()
       {
@@ -273,4 +273,32 @@ public class AddressImplTest extends UnitTestCase
       Assert.assertFalse(a1.matches(w));
    }
 
+
+   public void testAnyWordsMatchesNoWord()
+   {
+      SimpleString s1 = new SimpleString("a.b");
+      SimpleString s2 = new SimpleString("b");
+      SimpleString s3 = new SimpleString("a.#.b");
+      SimpleString s4 = new SimpleString("#.b");
+      Address a1 = new AddressImpl(s1);
+      Address a2 = new AddressImpl(s2);
+      Address w1 = new AddressImpl(s3);
+      Address w2 = new AddressImpl(s4);
+      Assert.assertTrue(a1.matches(w1));
+      Assert.assertFalse(a2.matches(w1));
+      Assert.assertTrue(a1.matches(w2));
+      Assert.assertTrue(a2.matches(w2));
+   }
+
+   public void testAnyWordsBacktracks()
+   {
+      SimpleString s1 = new SimpleString("a.b.c.d.c");
+      SimpleString s2 = new SimpleString("a.b.c.d");
+      SimpleString s3 = new SimpleString("a.#.c");
+      Address a1 = new AddressImpl(s1);
+      Address a2 = new AddressImpl(s2);
+      Address w = new AddressImpl(s3);
+      Assert.assertTrue(a1.matches(w));
+      Assert.assertFalse(a2.matches(w));
+   }
 }
@@ -26,6 +26,7 @@ import org.hornetq.api.core.HornetQException;
 import org.hornetq.api.core.HornetQPropertyConversionException;
 import org.hornetq.api.core.SimpleString;
 import org.hornetq.core.filter.Filter;
+import org.hornetq.core.filter.impl.FilterImpl;
 import org.hornetq.core.message.BodyEncoder;
 import org.hornetq.core.paging.PagingStore;
 import org.hornetq.core.postoffice.Binding;
@@ -83,6 +84,116 @@ public class BindingsImplTest extends UnitTestCase
       }
    }
 
+   public void testRouteWithFilterIndex() throws Exception
+   {
+      final BindingsImpl bind = new BindingsImpl(null, null, null);
+
+      String[] filters = new String[] { "region = 'EU'",
+                                        "region IN ('EU', 'US')",
+                                        "region = 'US' AND price > 10",
+                                        "type = 'a'",
+                                        "region = 'EU' OR price > 10",
+                                        "region LIKE 'E%'",
+                                        null };
+
+      FilterBinding[] bindings = new FilterBinding[filters.length];
+
+      for (int i = 0; i < filters.length; i++)
+      {
+         bindings[i] = new FilterBinding(new SimpleString("q" + i), FilterImpl.createFilter(filters[i]));
+         bind.addBinding(bindings[i]);
+      }
+
+      assertRouted(bind, bindings, message("EU", 5, null), 0, 1, 4, 5, 6);
+      assertRouted(bind, bindings, message("US", 5, null), 1, 6);
+      assertRouted(bind, bindings, message("US", 50, "a"), 1, 2, 3, 4, 6);
+      assertRouted(bind, bindings, message(null, 5, "a"), 3, 6);
+      assertRouted(bind, bindings, message(null, 50, null), 4, 6);
+
+      // a property of another type doesn't match the strings
+      ServerMessage message = message(null, 5, null);
+      message.putIntProperty(new SimpleString("region"), 1);
+      assertRouted(bind, bindings, message, 6);
+
+      // the index follows the bindings
+      bind.removeBinding(bindings[0]);
+      bindings[0] = new FilterBinding(new SimpleString("q0"), FilterImpl.createFilter("region = 'US'"));
+      bind.addBinding(bindings[0]);
+
+      assertRouted(bind, bindings, message("US", 5, null), 0, 1, 6);
+      assertRouted(bind, bindings, message("EU", 5, null), 1, 4, 5, 6);
+   }
+
+   public void testRouteWithFilterIndexSeveralBindings() throws Exception
+   {
+      final BindingsImpl bind = new BindingsImpl(null, null, null);
+
+      FilterBinding eu = new FilterBinding(new SimpleString("q"), FilterImpl.createFilter("region = 'EU'"));
+      FilterBinding us = new FilterBinding(new SimpleString("q"), FilterImpl.createFilter("region = 'US'"));
+
+      bind.addBinding(eu);
+      bind.addBinding(us);
+
+      FilterBinding[] bindings = new FilterBinding[] { eu, us };
+
+      assertRouted(bind, bindings, message("EU", 5, null), 0);
+      assertRouted(bind, bindings, message("US", 5, null), 1);
+      assertRouted(bind, bindings, message("ASIA", 5, null));
+
+      // not indexed any longer as the filters are on different properties
+      FilterBinding other = new FilterBinding(new SimpleString("q"), FilterImpl.createFilter("type = 'a'"));
+      bind.addBinding(other);
+
+      bindings = new FilterBinding[] { eu, us, other };
+
+      assertRouted(bind, bindings, message("EU", 5, null), 0);
+      assertRouted(bind, bindings, message("ASIA", 5, "a"), 2);
+   }
+
+   private static ServerMessage message(final String region, final int price, final String type)
+   {
+      ServerMessage message = new ServerMessageImpl(1, 100);
+
+      if (region != null)
+      {
+         message.putStringProperty(new SimpleString("region"), new SimpleString(region));
+      }
+
+      message.putIntProperty(new SimpleString("price"), price);
+
+      if (type != null)
+      {
+         message.putStringProperty(new SimpleString("type"), new SimpleString(type));
+      }
+
+      return message;
+   }
+
+   private void assertRouted(final BindingsImpl bind,
+                             final FilterBinding[] bindings,
+                             final ServerMessage message,
+                             final int... expected) throws Exception
+   {
+      for (FilterBinding binding : bindings)
+      {
+         binding.routed = 0;
+      }
+
+      bind.route(message, new RoutingContextImpl(new FakeTransaction()));
+
+      int[] routed = new int[bindings.length];
+
+      for (int e : expected)
+      {
+         routed[e] = 1;
+      }
+
+      for (int i = 0; i < bindings.length; i++)
+      {
+         assertEquals("binding " + i, routed[i], bindings[i].routed);
+      }
+   }
+
    private void internalTest(final boolean route) throws Exception
    {
       final FakeBinding fake = new FakeBinding(new SimpleString("a"));
@@ -1123,6 +1234,37 @@ public class BindingsImplTest extends UnitTestCase
 
    }
 
+   class FilterBinding extends FakeBinding
+   {
+      private final Filter filter;
+
+      int routed;
+
+      FilterBinding(final SimpleString name, final Filter filter)
+      {
+         super(name);
+         this.filter = filter;
+      }
+
+      @Override
+      public Filter getFilter()
+      {
+         return filter;
+      }
+
+      @Override
+      public boolean isHighAcceptPriority(final ServerMessage message)
+      {
+         return true;
+      }
+
+      @Override
+      public void route(final ServerMessage message, final RoutingContext context) throws Exception
+      {
+         routed++;
+      }
+   }
+
    // Package protected ---------------------------------------------
 
    // Protected -----------------------------------------------------
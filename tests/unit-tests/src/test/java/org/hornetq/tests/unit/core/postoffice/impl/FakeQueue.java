@@ -415,6 +415,12 @@ public class FakeQueue implements Queue
       return 0;
    }
 
+   public int getScheduledWheelOccupancy()
+   {
+      // no-op
+      return 0;
+   }
+
    /* (non-Javadoc)
     * @see org.hornetq.core.server.Queue#getScheduledMessages()
     */
@@ -0,0 +1,412 @@
+/*
+ * Copyright 2009 Red Hat, Inc.
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package org.hornetq.tests.unit.core.postoffice.impl;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import junit.framework.Assert;
+
+import org.hornetq.api.core.SimpleString;
+import org.hornetq.core.persistence.impl.nullpm.NullStorageManager;
+import org.hornetq.core.postoffice.DuplicateIDCache;
+import org.hornetq.core.postoffice.impl.OffHeapDuplicateIDCache;
+import org.hornetq.core.transaction.Transaction;
+import org.hornetq.core.transaction.impl.TransactionImpl;
+import org.hornetq.tests.util.UnitTestCase;
+import org.hornetq.utils.Pair;
+
+/**
+ * A OffHeapDuplicateIDCacheTest
+ */
+public class OffHeapDuplicateIDCacheTest extends UnitTestCase
+{
+   // Attributes ----------------------------------------------------
+
+   private final SimpleString address = new SimpleString("address");
+
+   private RecordingStorageManager storageManager;
+
+   // Public --------------------------------------------------------
+
+   @Override
+   protected void setUp() throws Exception
+   {
+      super.setUp();
+
+      storageManager = new RecordingStorageManager();
+   }
+
+   public void testAddContainsAndDelete() throws Exception
+   {
+      DuplicateIDCache cache = new OffHeapDuplicateIDCache(address, 100, storageManager, true, 8);
+
+      byte[] id = "id".getBytes();
+
+      Assert.assertFalse(cache.contains(id));
+
+      cache.addToCache(id, null);
+
+      Assert.assertTrue(cache.contains(id));
+      Assert.assertTrue(cache.contains("id".getBytes()));
+      Assert.assertFalse(cache.contains("i".getBytes()));
+      Assert.assertFalse(cache.contains("idd".getBytes()));
+
+      Assert.assertEquals(1, storageManager.stored.size());
+
+      cache.deleteFromCache(id);
+
+      Assert.assertFalse(cache.contains(id));
+      Assert.assertEquals(storageManager.stored, storageManager.deleted);
+
+      // deleting it again doesn't touch the storage
+      cache.deleteFromCache(id);
+
+      Assert.assertEquals(1, storageManager.deleted.size());
+   }
+
+   public void testRotation() throws Exception
+   {
+      final int size = 10;
+
+      DuplicateIDCache cache = new OffHeapDuplicateIDCache(address, size, storageManager, true, 8);
+
+      for (int i = 0; i < size; i++)
+      {
+         cache.addToCache(id(i), null);
+      }
+
+      for (int i = 0; i < size; i++)
+      {
+         Assert.assertTrue(cache.contains(id(i)));
+      }
+
+      Assert.assertTrue(storageManager.deleted.isEmpty());
+
+      for (int i = size; i < size * 3; i++)
+      {
+         cache.addToCache(id(i), null);
+
+         Assert.assertFalse(cache.contains(id(i - size)));
+         Assert.assertTrue(cache.contains(id(i - size + 1)));
+         Assert.assertTrue(cache.contains(id(i)));
+
+         // the oldest record is deleted as it's rotated out
+         Assert.assertEquals(storageManager.stored.subList(0, i - size + 1), storageManager.deleted);
+      }
+   }
+
+   public void testRotationAfterDelete() throws Exception
+   {
+      final int size = 5;
+
+      DuplicateIDCache cache = new OffHeapDuplicateIDCache(address, size, storageManager, true, 8);
+
+      for (int i = 0; i < size; i++)
+      {
+         cache.addToCache(id(i), null);
+      }
+
+      cache.deleteFromCache(id(0));
+
+      Assert.assertEquals(1, storageManager.deleted.size());
+
+      // the slot of the deleted ID is rotated without deleting its record again
+      cache.addToCache(id(size), null);
+
+      Assert.assertEquals(1, storageManager.deleted.size());
+
+      for (int i = 1; i <= size; i++)
+      {
+         Assert.assertTrue(cache.contains(id(i)));
+      }
+   }
+
+   public void testAddSameIDTwice() throws Exception
+   {
+      final int size = 5;
+
+      DuplicateIDCache cache = new OffHeapDuplicateIDCache(address, size, storageManager, true, 8);
+
+      cache.addToCache(id(0), null);
+      cache.addToCache(id(0), null);
+
+      for (int i = 1; i < size; i++)
+      {
+         cache.addToCache(id(i), null);
+      }
+
+      // the first slot is rotated, the ID is still on the second one
+      Assert.assertTrue(cache.contains(id(0)));
+      Assert.assertEquals(1, storageManager.deleted.size());
+      Assert.assertEquals(storageManager.stored.get(0), storageManager.deleted.get(0));
+
+      cache.addToCache(id(size), null);
+
+      Assert.assertFalse(cache.contains(id(0)));
+      Assert.assertEquals(storageManager.stored.subList(0, 2), storageManager.deleted);
+   }
+
+   public void testTransactional() throws Exception
+   {
+      DuplicateIDCache cache = new OffHeapDuplicateIDCache(address, 10, storageManager, true, 8);
+
+      Transaction tx = new TransactionImpl(storageManager);
+
+      cache.addToCache(id(0), tx);
+
+      Assert.assertFalse(cache.contains(id(0)));
+
+      tx.commit();
+
+      Assert.assertTrue(cache.contains(id(0)));
+
+      tx = new TransactionImpl(storageManager);
+
+      cache.addToCache(id(1), tx);
+
+      tx.rollback();
+
+      Assert.assertFalse(cache.contains(id(1)));
+   }
+
+   public void testLoadMoreThanSize() throws Exception
+   {
+      final int size = 10;
+
+      DuplicateIDCache cache = new OffHeapDuplicateIDCache(address, size, storageManager, true, 8);
+
+      List<Pair<byte[], Long>> ids = new ArrayList<Pair<byte[], Long>>();
+
+      for (int i = 0; i < size * 2; i++)
+      {
+         ids.add(new Pair<byte[], Long>(id(i), (long)i));
+      }
+
+      cache.load(ids);
+
+      for (int i = 0; i < size; i++)
+      {
+         Assert.assertTrue(cache.contains(id(i)));
+      }
+
+      for (int i = size; i < size * 2; i++)
+      {
+         Assert.assertFalse(cache.contains(id(i)));
+         Assert.assertTrue(storageManager.deletedTransactional.contains((long)i));
+      }
+
+      Assert.assertEquals(size, storageManager.deletedTransactional.size());
+   }
+
+   public void testCompareWithReference() throws Exception
+   {
+      compareWithReference(8);
+   }
+
+   public void testCompareWithReferenceNoFilter() throws Exception
+   {
+      compareWithReference(0);
+   }
+
+   public void testLargeCache() throws Exception
+   {
+      final int size = 200000;
+
+      final int numberOfThreads = 8;
+
+      final int idsPerThread = size / 2 / numberOfThreads;
+
+      final DuplicateIDCache cache = new OffHeapDuplicateIDCache(address, size, storageManager, false, 8);
+
+      final CountDownLatch latch = new CountDownLatch(1);
+
+      final AtomicInteger errors = new AtomicInteger(0);
+
+      Thread[] threads = new Thread[numberOfThreads];
+
+      for (int t = 0; t < numberOfThreads; t++)
+      {
+         final int thread = t;
+
+         threads[t] = new Thread()
+         {
+            @Override
+            public void run()
+            {
+               try
+               {
+                  latch.await();
+
+                  for (int i = 0; i < idsPerThread; i++)
+                  {
+                     byte[] id = longID(thread, i);
+
+                     cache.addToCache(id, null);
+
+                     if (!cache.contains(id))
+                     {
+                        errors.incrementAndGet();
+                     }
+                  }
+               }
+               catch (Exception e)
+               {
+                  e.printStackTrace();
+                  errors.incrementAndGet();
+               }
+            }
+         };
+
+         threads[t].start();
+      }
+
+      latch.countDown();
+
+      for (Thread thread : threads)
+      {
+         thread.join();
+      }
+
+      Assert.assertEquals(0, errors.get());
+
+      for (int t = 0; t < numberOfThreads; t++)
+      {
+         for (int i = 0; i < idsPerThread; i++)
+         {
+            Assert.assertTrue(cache.contains(longID(t, i)));
+            Assert.assertFalse(cache.contains(longID(t + numberOfThreads, i)));
+         }
+      }
+   }
+
+   // Private -------------------------------------------------------
+
+   /**
+    * Random IDs of random length on a small cache, checked after every operation against a plain ring of
+    * the same size, which a single stripe must behave exactly like.
+    */
+   private void compareWithReference(final int filterRatio) throws Exception
+   {
+      final int size = 100;
+
+      DuplicateIDCache cache = new OffHeapDuplicateIDCache(address, size, storageManager, false, filterRatio);
+
+      String[] ring = new String[size];
+
+      int head = 0;
+
+      Map<String, Integer> reference = new HashMap<String, Integer>();
+
+      Random random = new Random(1);
+
+      for (int i = 0; i < 20000; i++)
+      {
+         // a small space of IDs so many are repeated, and lengths growing over time so the log has to grow
+         byte[] id = new byte[random.nextInt(1 + i / 100)];
+
+         for (int j = 0; j < id.length; j++)
+         {
+            id[j] = (byte)random.nextInt(3);
+         }
+
+         String key = new String(id, "ISO-8859-1");
+
+         Assert.assertEquals(reference.containsKey(key), cache.contains(id));
+
+         if (random.nextInt(10) == 0)
+         {
+            cache.deleteFromCache(id);
+
+            reference.remove(key);
+         }
+         else
+         {
+            cache.addToCache(id, null);
+
+            String rotated = ring[head];
+
+            if (rotated != null && Integer.valueOf(head).equals(reference.get(rotated)))
+            {
+               reference.remove(rotated);
+            }
+
+            ring[head] = key;
+
+            reference.put(key, head);
+
+            head = (head + 1) % size;
+         }
+
+         Assert.assertTrue(reference.containsKey(key) == cache.contains(id));
+      }
+   }
+
+   private static byte[] id(final int i)
+   {
+      return ("id" + i).getBytes();
+   }
+
+   private static byte[] longID(final int thread, final int i)
+   {
+      byte[] id = new byte[8 + (i % 40)];
+
+      for (int j = 0; j < id.length; j++)
+      {
+         id[j] = (byte)(thread * 31 + i * 7 + j);
+      }
+
+      id[0] = (byte)thread;
+      id[1] = (byte)(i >>> 24);
+      id[2] = (byte)(i >>> 16);
+      id[3] = (byte)(i >>> 8);
+      id[4] = (byte)i;
+
+      return id;
+   }
+
+   // Inner classes -------------------------------------------------
+
+   private static final class RecordingStorageManager extends NullStorageManager
+   {
+      final List<Long> stored = new ArrayList<Long>();
+
+      final List<Long> deleted = new ArrayList<Long>();
+
+      final List<Long> deletedTransactional = new ArrayList<Long>();
+
+      @Override
+      public synchronized void storeDuplicateID(final SimpleString address, final byte[] duplID, final long recordID)
+      {
+         stored.add(recordID);
+      }
+
+      @Override
+      public synchronized void deleteDuplicateID(final long recordID)
+      {
+         deleted.add(recordID);
+      }
+
+      @Override
+      public synchronized void deleteDuplicateIDTransactional(final long txID, final long recordID)
+      {
+         deletedTransactional.add(recordID);
+      }
+   }
+}
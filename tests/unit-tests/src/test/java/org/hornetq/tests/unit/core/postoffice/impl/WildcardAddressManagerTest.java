@@ -0,0 +1,290 @@
+/*
+ * Copyright 2009 Red Hat, Inc.
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package org.hornetq.tests.unit.core.postoffice.impl;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import junit.framework.Assert;
+
+import org.hornetq.api.core.SimpleString;
+import org.hornetq.core.filter.Filter;
+import org.hornetq.core.postoffice.Binding;
+import org.hornetq.core.postoffice.BindingType;
+import org.hornetq.core.postoffice.Bindings;
+import org.hornetq.core.postoffice.BindingsFactory;
+import org.hornetq.core.postoffice.impl.AddressImpl;
+import org.hornetq.core.postoffice.impl.BindingsImpl;
+import org.hornetq.core.postoffice.impl.WildcardAddressManager;
+import org.hornetq.core.server.Bindable;
+import org.hornetq.core.server.RoutingContext;
+import org.hornetq.core.server.ServerMessage;
+import org.hornetq.tests.util.UnitTestCase;
+
+/**
+ * A WildcardAddressManagerTest
+ */
+public class WildcardAddressManagerTest extends UnitTestCase
+{
+   private static final String[] WORDS = new String[] { "a", "b", "c" };
+
+   private static final String[] WILDCARD_WORDS = new String[] { "a", "b", "c", "*", "#" };
+
+   private WildcardAddressManager manager;
+
+   private final List<FakeBinding> added = new ArrayList<FakeBinding>();
+
+   @Override
+   protected void setUp() throws Exception
+   {
+      super.setUp();
+
+      manager = new WildcardAddressManager(new BindingsFactory()
+      {
+         public Bindings createBindings(final SimpleString address) throws Exception
+         {
+            return new BindingsImpl(address, null, null);
+         }
+      });
+   }
+
+   public void testLinkedBindings() throws Exception
+   {
+      manager.addBinding(new FakeBinding("q1", "a.b.c"));
+      manager.addBinding(new FakeBinding("w1", "a.#"));
+      manager.addBinding(new FakeBinding("w2", "a.*.c"));
+      manager.addBinding(new FakeBinding("w3", "#.d"));
+
+      assertBindings("a.b.c", "q1", "w1", "w2");
+      assertBindings("a", "w1");
+      assertBindings("a.x.c", "w1", "w2");
+      assertBindings("a.b.d", "w1", "w3");
+      assertBindings("d", "w3");
+      assertBindings("b.c");
+
+      manager.removeBinding(new SimpleString("w1"));
+
+      assertBindings("a.b.c", "q1", "w2");
+      assertBindings("a.b.d", "w3");
+
+      manager.addBinding(new FakeBinding("w4", "*.b.#"));
+
+      assertBindings("a.b.c", "q1", "w2", "w4");
+      assertBindings("a.b.d", "w3", "w4");
+   }
+
+   public void testSameBindingsAsMatches() throws Exception
+   {
+      Random random = new Random(1);
+
+      List<String> wildcards = new ArrayList<String>();
+
+      for (int i = 0; i < 200; i++)
+      {
+         String name = "binding" + i;
+
+         if (random.nextBoolean())
+         {
+            String wildcard = randomAddress(random, WILDCARD_WORDS);
+
+            if (!new AddressImpl(new SimpleString(wildcard)).containsWildCard() || wildcards.contains(wildcard))
+            {
+               continue;
+            }
+
+            wildcards.add(wildcard);
+
+            manager.addBinding(new FakeBinding(name, wildcard));
+         }
+         else
+         {
+            manager.addBinding(new FakeBinding(name, randomAddress(random, WORDS)));
+         }
+
+         if (random.nextInt(4) == 0 && !wildcards.isEmpty())
+         {
+            String wildcard = wildcards.remove(random.nextInt(wildcards.size()));
+
+            manager.removeBinding(bindingName(wildcard));
+         }
+
+         String address = randomAddress(random, WORDS);
+
+         Bindings bindings = manager.getBindingsForRoutingAddress(new SimpleString(address));
+
+         Set<String> wildcardBindings = new HashSet<String>();
+
+         if (bindings != null)
+         {
+            for (Binding binding : bindings.getBindings())
+            {
+               if (new AddressImpl(binding.getAddress()).containsWildCard())
+               {
+                  wildcardBindings.add(binding.getAddress().toString());
+               }
+            }
+         }
+
+         Set<String> expected = new HashSet<String>();
+
+         for (String wildcard : wildcards)
+         {
+            if (new AddressImpl(new SimpleString(address)).matches(new AddressImpl(new SimpleString(wildcard))))
+            {
+               expected.add(wildcard);
+            }
+         }
+
+         Assert.assertEquals(address, expected, wildcardBindings);
+      }
+   }
+
+   // Private -------------------------------------------------------
+
+   private SimpleString bindingName(final String address)
+   {
+      for (FakeBinding binding : added)
+      {
+         if (binding.address.toString().equals(address))
+         {
+            added.remove(binding);
+
+            return binding.name;
+         }
+      }
+
+      return null;
+   }
+
+   private static String randomAddress(final Random random, final String[] words)
+   {
+      StringBuilder address = new StringBuilder(words[random.nextInt(words.length)]);
+
+      int numberOfWords = random.nextInt(4);
+
+      for (int i = 0; i < numberOfWords; i++)
+      {
+         address.append('.').append(words[random.nextInt(words.length)]);
+      }
+
+      return address.toString();
+   }
+
+   private void assertBindings(final String address, final String... names) throws Exception
+   {
+      Bindings bindings = manager.getBindingsForRoutingAddress(new SimpleString(address));
+
+      Set<String> actual = new HashSet<String>();
+
+      if (bindings != null)
+      {
+         for (Binding binding : bindings.getBindings())
+         {
+            actual.add(binding.getUniqueName().toString());
+         }
+      }
+
+      Set<String> expected = new HashSet<String>();
+
+      for (String name : names)
+      {
+         expected.add(name);
+      }
+
+      Assert.assertEquals(address, expected, actual);
+   }
+
+   // Inner classes -------------------------------------------------
+
+   private final class FakeBinding implements Binding
+   {
+      private final SimpleString name;
+
+      private final SimpleString address;
+
+      FakeBinding(final String name, final String address)
+      {
+         this.name = new SimpleString(name);
+         this.address = new SimpleString(address);
+
+         added.add(this);
+      }
+
+      public SimpleString getAddress()
+      {
+         return address;
+      }
+
+      public Bindable getBindable()
+      {
+         return null;
+      }
+
+      public BindingType getType()
+      {
+         return BindingType.LOCAL_QUEUE;
+      }
+
+      public SimpleString getUniqueName()
+      {
+         return name;
+      }
+
+      public SimpleString getRoutingName()
+      {
+         return name;
+      }
+
+      public SimpleString getClusterName()
+      {
+         return name;
+      }
+
+      public Filter getFilter()
+      {
+         return null;
+      }
+
+      public boolean isHighAcceptPriority(final ServerMessage message)
+      {
+         return true;
+      }
+
+      public boolean isExclusive()
+      {
+         return false;
+      }
+
+      public long getID()
+      {
+         return name.hashCode();
+      }
+
+      public int getDistance()
+      {
+         return 0;
+      }
+
+      public void route(final ServerMessage message, final RoutingContext context)
+      {
+      }
+
+      public void close()
+      {
+      }
+   }
+}
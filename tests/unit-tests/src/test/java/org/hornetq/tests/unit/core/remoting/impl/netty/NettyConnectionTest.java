@@ -12,18 +12,22 @@
  */
 package org.hornetq.tests.unit.core.remoting.impl.netty;
 
+import java.io.File;
+import java.io.RandomAccessFile;
 import java.net.SocketAddress;
 import java.nio.ByteBuffer;
 import java.util.Collections;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import junit.framework.Assert;
 
 import org.hornetq.api.core.HornetQBuffer;
 import org.hornetq.api.core.HornetQBuffers;
 import org.hornetq.api.core.HornetQException;
+import org.hornetq.core.remoting.impl.netty.ChannelBufferPool;
 import org.hornetq.core.remoting.impl.netty.NettyConnection;
 import org.hornetq.core.server.HornetQComponent;
 import org.hornetq.spi.core.protocol.ProtocolType;
@@ -36,6 +40,8 @@ import org.jboss.netty.channel.ChannelConfig;
 import org.jboss.netty.channel.ChannelFactory;
 import org.jboss.netty.channel.ChannelFuture;
 import org.jboss.netty.channel.ChannelPipeline;
+import org.jboss.netty.channel.Channels;
+import org.jboss.netty.channel.DefaultChannelFuture;
 
 /**
  *
@@ -82,17 +88,157 @@ public class NettyConnectionTest extends UnitTestCase
 
    }
 
+   public void testCreateBufferGrows() throws Exception
+   {
+      Channel channel = new SimpleChannel(RandomUtil.randomInt());
+      NettyConnection conn = new NettyConnection(emptyMap, channel, new MyListener(), false, false);
+
+      byte[] bytes = RandomUtil.randomBytes(3 * ChannelBufferPool.MAX_POOLED_SIZE);
+
+      HornetQBuffer buff = conn.createBuffer(16);
+
+      for (int i = 0; i < bytes.length; i += 100)
+      {
+         buff.writeBytes(bytes, i, Math.min(100, bytes.length - i));
+      }
+
+      Assert.assertEquals(bytes.length, buff.readableBytes());
+
+      byte[] read = new byte[bytes.length];
+      buff.readBytes(read);
+
+      UnitTestCase.assertEqualsByteArrays(bytes, read);
+   }
+
+   public void testWriteReleasesPooledBuffers() throws Exception
+   {
+      SimpleChannel channel = new SimpleChannel(RandomUtil.randomInt());
+      NettyConnection conn = new NettyConnection(emptyMap, channel, new MyListener(), false, false);
+
+      writePackets(conn, false);
+
+      long allocations = ChannelBufferPool.getInstance().getAllocations();
+
+      writePackets(conn, false);
+
+      Assert.assertEquals(allocations, ChannelBufferPool.getInstance().getAllocations());
+   }
+
+   public void testBatchedWriteReleasesPooledBuffers() throws Exception
+   {
+      SimpleChannel channel = new SimpleChannel(RandomUtil.randomInt());
+      NettyConnection conn = new NettyConnection(emptyMap, channel, new MyListener(), true, false);
+
+      writePackets(conn, true);
+
+      long allocations = ChannelBufferPool.getInstance().getAllocations();
+
+      writePackets(conn, true);
+
+      Assert.assertEquals(allocations, ChannelBufferPool.getInstance().getAllocations());
+      Assert.assertTrue(channel.getWritten().size() < 2000);
+   }
+
+   public void testTransferFileDoesNotWaitForTheWrites() throws Exception
+   {
+      SimpleChannel channel = new SimpleChannel(RandomUtil.randomInt());
+      channel.pipeline = Channels.pipeline();
+      channel.completeWrites = false;
+      NettyConnection conn = new NettyConnection(emptyMap, channel, new MyListener(), false, false);
+
+      Assert.assertTrue(conn.isFileTransferSupported());
+
+      File file = File.createTempFile("transfer", ".dat");
+      file.deleteOnExit();
+      RandomAccessFile raf = new RandomAccessFile(file, "rw");
+
+      try
+      {
+         raf.write(new byte[100]);
+
+         final AtomicBoolean written = new AtomicBoolean(false);
+
+         conn.transferFile(conn.createBuffer(16), raf.getChannel(), 0, 100, conn.createBuffer(16), new Runnable()
+         {
+            public void run()
+            {
+               written.set(true);
+            }
+         });
+
+         // the header, the region and the trailer are queued, not written yet
+         Assert.assertEquals(3, channel.getWritten().size());
+         Assert.assertFalse(written.get());
+
+         // the connection can still be written to
+         conn.write(HornetQBuffers.wrappedBuffer(ByteBuffer.allocate(128)));
+         Assert.assertEquals(4, channel.getWritten().size());
+
+         channel.completeWrites();
+
+         // the file isn't needed anymore once the trailer is written
+         Assert.assertTrue(written.get());
+      }
+      finally
+      {
+         raf.close();
+         file.delete();
+      }
+   }
+
+   private void writePackets(final NettyConnection conn, final boolean batched)
+   {
+      for (int i = 0; i < 1000; i++)
+      {
+         HornetQBuffer buff = conn.createBuffer(1500);
+         buff.writeBytes(new byte[100 + i]);
+         conn.write(buff, false, batched);
+      }
+
+      conn.checkFlushBatchBuffer();
+   }
+
    private final class SimpleChannel implements Channel
    {
       private final int id;
 
       private final List<Object> written = new LinkedList<Object>();
 
+      private final List<DefaultChannelFuture> pendingWrites = new LinkedList<DefaultChannelFuture>();
+
+      private ChannelPipeline pipeline;
+
+      private boolean completeWrites = true;
+
       private SimpleChannel(final int id)
       {
          this.id = id;
       }
 
+      public void completeWrites()
+      {
+         for (DefaultChannelFuture future : pendingWrites)
+         {
+            future.setSuccess();
+         }
+
+         pendingWrites.clear();
+      }
+
+      private ChannelFuture written()
+      {
+         if (completeWrites)
+         {
+            return Channels.succeededFuture(this);
+         }
+
+         DefaultChannelFuture future = new DefaultChannelFuture(this, false);
+
+         pendingWrites.add(future);
+
+         return future;
+      }
+
       public List<Object> getWritten()
       {
          return written;
@@ -106,13 +252,13 @@ public class NettyConnectionTest extends UnitTestCase
       public ChannelFuture write(final Object arg0, final SocketAddress arg1)
       {
          written.add(arg0);
-         return null;
+         return written();
       }
 
       public ChannelFuture write(final Object arg0)
       {
          written.add(arg0);
-         return null;
+         return written();
       }
 
       public ChannelFuture unbind()
@@ -162,7 +308,7 @@ public class NettyConnectionTest extends UnitTestCase
 
       public ChannelPipeline getPipeline()
       {
-         return null;
+         return pipeline;
       }
 
       public Channel getParent()
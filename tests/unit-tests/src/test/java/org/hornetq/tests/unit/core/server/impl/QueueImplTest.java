@@ -18,12 +18,15 @@ import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 import junit.framework.Assert;
 
+import org.hornetq.api.core.Message;
 import org.hornetq.api.core.SimpleString;
 import org.hornetq.core.filter.Filter;
 import org.hornetq.core.filter.impl.FilterImpl;
@@ -36,7 +39,9 @@ import org.hornetq.tests.unit.core.server.impl.fakes.FakeConsumer;
 import org.hornetq.tests.unit.core.server.impl.fakes.FakeFilter;
 import org.hornetq.tests.unit.core.server.impl.fakes.FakePostOffice;
 import org.hornetq.tests.util.UnitTestCase;
+import org.hornetq.utils.ExecutorFactory;
 import org.hornetq.utils.FutureLatch;
+import org.hornetq.utils.OrderedExecutorFactory;
 
 /**
  * A QueueTest
@@ -51,12 +56,15 @@ public class QueueImplTest extends UnitTestCase
 
    private ExecutorService executor;
 
+   private ExecutorService dispatchExecutor;
+
    @Override
    protected void setUp() throws Exception
    {
       super.setUp();
       scheduledExecutor = Executors.newSingleThreadScheduledExecutor();
       executor = Executors.newSingleThreadExecutor();
+      dispatchExecutor = Executors.newFixedThreadPool(4);
    }
 
    @Override
@@ -64,6 +72,7 @@ public class QueueImplTest extends UnitTestCase
    {
       scheduledExecutor.shutdownNow();
       executor.shutdownNow();
+      dispatchExecutor.shutdownNow();
       super.tearDown();
    }
 
@@ -1463,6 +1472,398 @@ public class QueueImplTest extends UnitTestCase
 
    }
 
+   public void testConcurrentDispatchRoundRobin() throws Exception
+   {
+      QueueImpl queue = createConcurrentDispatchQueue();
+
+      FakeConsumer[] consumers = new FakeConsumer[3];
+
+      for (int i = 0; i < consumers.length; i++)
+      {
+         consumers[i] = new FakeConsumer();
+
+         queue.addConsumer(consumers[i]);
+      }
+
+      final int numMessages = 300;
+
+      List<MessageReference> refs = new ArrayList<MessageReference>();
+
+      for (int i = 0; i < numMessages; i++)
+      {
+         MessageReference ref = generateReference(queue, i);
+
+         refs.add(ref);
+
+         queue.addTail(ref, true);
+      }
+
+      queue.deliverNow();
+
+      int received = 0;
+
+      for (FakeConsumer consumer : consumers)
+      {
+         List<MessageReference> receivedRefs = consumer.getReferences();
+
+         received += receivedRefs.size();
+
+         // Each consumer sees the references in the order they were added
+         for (int i = 1; i < receivedRefs.size(); i++)
+         {
+            Assert.assertTrue(refs.indexOf(receivedRefs.get(i - 1)) < refs.indexOf(receivedRefs.get(i)));
+         }
+      }
+
+      Assert.assertEquals(numMessages, received);
+      Assert.assertEquals(numMessages, queue.getDeliveringCount());
+   }
+
+   public void testConcurrentDispatchWithPriorities() throws Exception
+   {
+      QueueImpl queue = createConcurrentDispatchQueue();
+
+      final int numMessages = 10;
+
+      List<MessageReference> refs = new ArrayList<MessageReference>();
+
+      for (int i = 0; i < numMessages; i++)
+      {
+         MessageReference ref = generateReference(queue, i);
+
+         ref.getMessage().setPriority((byte)i);
+
+         refs.add(ref);
+
+         queue.addTail(ref);
+      }
+
+      queue.deliverNow();
+
+      FakeConsumer consumer = new FakeConsumer();
+
+      queue.addConsumer(consumer);
+
+      queue.deliverNow();
+
+      List<MessageReference> receivedRefs = consumer.getReferences();
+
+      // Should be in reverse order
+
+      Assert.assertEquals(refs.size(), receivedRefs.size());
+
+      for (int i = 0; i < numMessages; i++)
+      {
+         Assert.assertEquals(refs.get(i), receivedRefs.get(9 - i));
+      }
+   }
+
+   public void testConcurrentDispatchWithGroups() throws Exception
+   {
+      QueueImpl queue = createConcurrentDispatchQueue();
+
+      FakeConsumer cons1 = new FakeConsumer();
+
+      FakeConsumer cons2 = new FakeConsumer();
+
+      queue.addConsumer(cons1);
+
+      queue.addConsumer(cons2);
+
+      final int numMessages = 100;
+
+      SimpleString[] groups = new SimpleString[] { new SimpleString("group1"), new SimpleString("group2") };
+
+      List<MessageReference> refs = new ArrayList<MessageReference>();
+
+      for (int i = 0; i < numMessages; i++)
+      {
+         MessageReference ref = generateReference(queue, i);
+
+         ref.getMessage().putStringProperty(Message.HDR_GROUP_ID, groups[i % groups.length]);
+
+         refs.add(ref);
+
+         queue.addTail(ref);
+      }
+
+      queue.deliverNow();
+
+      Assert.assertEquals(numMessages, cons1.getReferences().size() + cons2.getReferences().size());
+
+      for (SimpleString group : groups)
+      {
+         List<MessageReference> groupRefs = new ArrayList<MessageReference>();
+
+         int consumersReceiving = 0;
+
+         for (FakeConsumer consumer : new FakeConsumer[] { cons1, cons2 })
+         {
+            boolean received = false;
+
+            for (MessageReference ref : consumer.getReferences())
+            {
+               if (group.equals(ref.getMessage().getSimpleStringProperty(Message.HDR_GROUP_ID)))
+               {
+                  groupRefs.add(ref);
+
+                  received = true;
+               }
+            }
+
+            if (received)
+            {
+               consumersReceiving++;
+            }
+         }
+
+         // The whole group went to a single consumer, in order
+         Assert.assertEquals(1, consumersReceiving);
+         Assert.assertEquals(numMessages / groups.length, groupRefs.size());
+
+         for (int i = 1; i < groupRefs.size(); i++)
+         {
+            Assert.assertTrue(refs.indexOf(groupRefs.get(i - 1)) < refs.indexOf(groupRefs.get(i)));
+         }
+      }
+   }
+
+   public void testConcurrentDispatchBusyConsumer() throws Exception
+   {
+      QueueImpl queue = createConcurrentDispatchQueue();
+
+      FakeConsumer consumer = new FakeConsumer();
+
+      consumer.setStatusImmediate(HandleStatus.BUSY);
+
+      queue.addConsumer(consumer);
+
+      final int numMessages = 10;
+
+      List<MessageReference> refs = new ArrayList<MessageReference>();
+
+      for (int i = 0; i < numMessages; i++)
+      {
+         MessageReference ref = generateReference(queue, i);
+
+         refs.add(ref);
+
+         queue.addTail(ref);
+      }
+
+      queue.deliverNow();
+
+      Assert.assertEquals(10, queue.getMessageCount());
+      Assert.assertEquals(0, queue.getDeliveringCount());
+      Assert.assertTrue(consumer.getReferences().isEmpty());
+
+      consumer.setStatusImmediate(HandleStatus.HANDLED);
+
+      queue.deliverNow();
+
+      assertRefListsIdenticalRefs(refs, consumer.getReferences());
+      Assert.assertEquals(10, queue.getMessageCount());
+      Assert.assertEquals(10, queue.getDeliveringCount());
+   }
+
+   public void testConcurrentDispatchGroupNotKeptByBusyConsumer() throws Exception
+   {
+      QueueImpl queue = createConcurrentDispatchQueue();
+
+      FakeConsumer busy = new FakeConsumer();
+
+      busy.setStatusImmediate(HandleStatus.BUSY);
+
+      FakeConsumer consumer = new FakeConsumer();
+
+      queue.addConsumer(busy);
+
+      queue.addConsumer(consumer);
+
+      final int numMessages = 10;
+
+      List<MessageReference> refs = new ArrayList<MessageReference>();
+
+      for (int i = 0; i < numMessages; i++)
+      {
+         MessageReference ref = generateReference(queue, i);
+
+         ref.getMessage().putStringProperty(Message.HDR_GROUP_ID, new SimpleString("group1"));
+
+         refs.add(ref);
+
+         queue.addTail(ref);
+      }
+
+      queue.deliverNow();
+
+      assertRefListsIdenticalRefs(refs, consumer.getReferences());
+      Assert.assertTrue(busy.getReferences().isEmpty());
+   }
+
+   public void testConcurrentDispatchCountsClaimedReference() throws Exception
+   {
+      QueueImpl queue = createConcurrentDispatchQueue();
+
+      final CountDownLatch handling = new CountDownLatch(1);
+
+      final CountDownLatch release = new CountDownLatch(1);
+
+      FakeConsumer consumer = new FakeConsumer()
+      {
+         @Override
+         public HandleStatus handle(final MessageReference reference)
+         {
+            handling.countDown();
+
+            try
+            {
+               release.await(10, TimeUnit.SECONDS);
+            }
+            catch (InterruptedException e)
+            {
+            }
+
+            return super.handle(reference);
+         }
+      };
+
+      queue.addConsumer(consumer);
+
+      final int numMessages = 10;
+
+      for (int i = 0; i < numMessages; i++)
+      {
+         queue.addTail(generateReference(queue, i));
+      }
+
+      queue.deliverAsync();
+
+      Assert.assertTrue(handling.await(10, TimeUnit.SECONDS));
+
+      // The reference being handled is neither in the queue nor delivering yet
+      Assert.assertEquals(numMessages, queue.getMessageCount());
+      Assert.assertEquals(1, queue.getDeliveringCount());
+
+      release.countDown();
+
+      queue.deliverNow();
+
+      Assert.assertEquals(numMessages, consumer.getReferences().size());
+      Assert.assertEquals(numMessages, queue.getMessageCount());
+      Assert.assertEquals(numMessages, queue.getDeliveringCount());
+   }
+
+   public void testConcurrentDispatchConsumerRemovedWhileDispatchQueued() throws Exception
+   {
+      final List<Runnable> pending = new ArrayList<Runnable>();
+
+      final Executor manualExecutor = new Executor()
+      {
+         public void execute(final Runnable command)
+         {
+            pending.add(command);
+         }
+      };
+
+      QueueImpl queue = new QueueImpl(1,
+                                      QueueImplTest.address1,
+                                      QueueImplTest.queue1,
+                                      null,
+                                      false,
+                                      true,
+                                      scheduledExecutor,
+                                      null,
+                                      null,
+                                      null,
+                                      executor);
+
+      queue.setConcurrentDispatch(new ExecutorFactory()
+      {
+         public Executor getExecutor()
+         {
+            return manualExecutor;
+         }
+      });
+
+      FakeConsumer removed = new FakeConsumer();
+
+      queue.addConsumer(removed);
+
+      final int numMessages = 5;
+
+      for (int i = 0; i < numMessages; i++)
+      {
+         queue.addTail(generateReference(queue, i));
+      }
+
+      // the references reach the queue on its executor
+      awaitExecution();
+
+      queue.deliverAsync();
+
+      runAll(pending);
+
+      Assert.assertEquals(numMessages, removed.getReferences().size());
+
+      FakeConsumer consumer = new FakeConsumer();
+
+      queue.addConsumer(consumer);
+
+      List<MessageReference> refs = new ArrayList<MessageReference>();
+
+      for (int i = numMessages; i < 2 * numMessages; i++)
+      {
+         MessageReference ref = generateReference(queue, i);
+
+         ref.getMessage().putStringProperty(Message.HDR_GROUP_ID, new SimpleString("group1"));
+
+         refs.add(ref);
+
+         queue.addTail(ref);
+      }
+
+      awaitExecution();
+
+      // both dispatchers are now queued, the one of the removed consumer first
+      queue.deliverAsync();
+
+      queue.removeConsumer(removed);
+
+      runAll(pending);
+
+      Assert.assertEquals(numMessages, removed.getReferences().size());
+      assertRefListsIdenticalRefs(refs, consumer.getReferences());
+      Assert.assertEquals(2 * numMessages, queue.getDeliveringCount());
+   }
+
+   private static void runAll(final List<Runnable> pending)
+   {
+      while (!pending.isEmpty())
+      {
+         pending.remove(0).run();
+      }
+   }
+
+   private QueueImpl createConcurrentDispatchQueue()
+   {
+      QueueImpl queue = new QueueImpl(1,
+                                      QueueImplTest.address1,
+                                      QueueImplTest.queue1,
+                                      null,
+                                      false,
+                                      true,
+                                      scheduledExecutor,
+                                      null,
+                                      null,
+                                      null,
+                                      executor);
+
+      queue.setConcurrentDispatch(new OrderedExecutorFactory(dispatchExecutor));
+
+      return queue;
+   }
+
    class AddtoQueueRunner implements Runnable
    {
       QueueImpl queue;
@@ -0,0 +1,214 @@
+/*
+ * Copyright 2009 Red Hat, Inc.
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package org.hornetq.tests.unit.core.server.impl;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import junit.framework.Assert;
+
+import org.hornetq.api.core.SimpleString;
+import org.hornetq.core.server.MessageReference;
+import org.hornetq.core.server.impl.QueueImpl;
+import org.hornetq.core.server.impl.ScheduledDeliveryHandlerImpl;
+import org.hornetq.tests.unit.core.server.impl.fakes.FakeConsumer;
+import org.hornetq.tests.util.UnitTestCase;
+
+/**
+ * Tests for the timing wheel used by {@link ScheduledDeliveryHandlerImpl}.
+ */
+public class ScheduledDeliveryHandlerTest extends UnitTestCase
+{
+   private ScheduledExecutorService scheduledExecutor;
+
+   private ExecutorService executor;
+
+   @Override
+   protected void setUp() throws Exception
+   {
+      super.setUp();
+      scheduledExecutor = Executors.newSingleThreadScheduledExecutor();
+      executor = Executors.newSingleThreadExecutor();
+   }
+
+   @Override
+   protected void tearDown() throws Exception
+   {
+      scheduledExecutor.shutdownNow();
+      executor.shutdownNow();
+      super.tearDown();
+   }
+
+   public void testNoExecutor() throws Exception
+   {
+      ScheduledDeliveryHandlerImpl handler = new ScheduledDeliveryHandlerImpl(null);
+
+      MessageReference ref = generateReference(createQueue(), 1);
+      ref.setScheduledDeliveryTime(System.currentTimeMillis() + 1000);
+
+      Assert.assertFalse(handler.checkAndSchedule(ref, true));
+      Assert.assertEquals(0, handler.getScheduledCount());
+   }
+
+   public void testSameTickDeliveredTogether() throws Exception
+   {
+      QueueImpl queue = createQueue();
+
+      FakeConsumer consumer = new FakeConsumer();
+      queue.addConsumer(consumer);
+
+      long deliveryTime = System.currentTimeMillis() + 500;
+
+      List<MessageReference> refs = new ArrayList<MessageReference>();
+
+      for (int i = 0; i < 10; i++)
+      {
+         MessageReference ref = generateReference(queue, i);
+         ref.setScheduledDeliveryTime(deliveryTime);
+         queue.addTail(ref);
+         refs.add(ref);
+      }
+
+      Assert.assertEquals(10, queue.getScheduledCount());
+      Assert.assertEquals(1, queue.getScheduledWheelOccupancy());
+
+      for (MessageReference ref : refs)
+      {
+         Assert.assertSame(ref, consumer.waitForNextReference(5000));
+      }
+
+      Assert.assertTrue(System.currentTimeMillis() >= deliveryTime);
+      Assert.assertEquals(0, queue.getScheduledCount());
+      Assert.assertEquals(0, queue.getScheduledWheelOccupancy());
+
+      for (MessageReference ref : refs)
+      {
+         Assert.assertEquals(0, ref.getScheduledDeliveryTime());
+      }
+   }
+
+   public void testOrderAcrossTicks() throws Exception
+   {
+      QueueImpl queue = createQueue();
+
+      long now = System.currentTimeMillis();
+
+      MessageReference ref1 = generateReference(queue, 1);
+      ref1.setScheduledDeliveryTime(now + 300);
+      queue.addTail(ref1);
+
+      MessageReference ref2 = generateReference(queue, 2);
+      ref2.setScheduledDeliveryTime(now + 100);
+      queue.addTail(ref2);
+
+      MessageReference ref3 = generateReference(queue, 3);
+      ref3.setScheduledDeliveryTime(now + 200);
+      queue.addTail(ref3);
+
+      Thread.sleep(500);
+
+      FakeConsumer consumer = new FakeConsumer();
+      queue.addConsumer(consumer);
+      queue.deliverNow();
+
+      // scheduled references are added back to the head, the last one due ends up first
+      List<MessageReference> expected = new ArrayList<MessageReference>();
+      expected.add(ref1);
+      expected.add(ref3);
+      expected.add(ref2);
+
+      assertRefListsIdenticalRefs(expected, consumer.getReferences());
+   }
+
+   public void testFarFutureAndRemove() throws Exception
+   {
+      QueueImpl queue = createQueue();
+
+      long now = System.currentTimeMillis();
+
+      long[] delays = new long[] { TimeUnit.SECONDS.toMillis(1),
+                                  TimeUnit.MINUTES.toMillis(5),
+                                  TimeUnit.HOURS.toMillis(3),
+                                  TimeUnit.DAYS.toMillis(30),
+                                  TimeUnit.DAYS.toMillis(3000) };
+
+      for (int i = 0; i < delays.length; i++)
+      {
+         MessageReference ref = generateReference(queue, i);
+         ref.setScheduledDeliveryTime(now + delays[i]);
+         queue.addTail(ref);
+      }
+
+      Assert.assertEquals(delays.length, queue.getScheduledCount());
+      Assert.assertEquals(delays.length, queue.getScheduledWheelOccupancy());
+
+      for (int i = delays.length - 1; i >= 0; i--)
+      {
+         MessageReference ref = queue.removeReferenceWithID(i);
+         Assert.assertNotNull(ref);
+         Assert.assertEquals(i, ref.getMessage().getMessageID());
+         Assert.assertEquals(i, queue.getScheduledCount());
+         Assert.assertEquals(i, queue.getScheduledWheelOccupancy());
+      }
+
+      Assert.assertNull(queue.removeReferenceWithID(0));
+   }
+
+   public void testCancel() throws Exception
+   {
+      ScheduledDeliveryHandlerImpl handler = new ScheduledDeliveryHandlerImpl(scheduledExecutor);
+
+      QueueImpl queue = createQueue();
+
+      long now = System.currentTimeMillis();
+
+      List<MessageReference> refs = new ArrayList<MessageReference>();
+
+      for (int i = 0; i < 100; i++)
+      {
+         MessageReference ref = generateReference(queue, i);
+         ref.setScheduledDeliveryTime(now + 60000 + i * 1000);
+         Assert.assertTrue(handler.checkAndSchedule(ref, false));
+         refs.add(ref);
+      }
+
+      Assert.assertEquals(100, handler.getScheduledCount());
+      Assert.assertEquals(refs, handler.getScheduledReferences());
+
+      Assert.assertEquals(refs, handler.cancel(null));
+
+      Assert.assertEquals(0, handler.getScheduledCount());
+      Assert.assertEquals(0, handler.getWheelOccupancy());
+      Assert.assertTrue(handler.getScheduledReferences().isEmpty());
+   }
+
+   private QueueImpl createQueue()
+   {
+      return new QueueImpl(1,
+                           new SimpleString("address1"),
+                           new SimpleString("queue1"),
+                           null,
+                           false,
+                           true,
+                           scheduledExecutor,
+                           null,
+                           null,
+                           null,
+                           executor);
+   }
+}
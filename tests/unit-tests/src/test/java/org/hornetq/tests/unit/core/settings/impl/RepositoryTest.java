@@ -15,6 +15,8 @@ package org.hornetq.tests.unit.core.settings.impl;
 
 import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
 
 import junit.framework.Assert;
 
@@ -22,6 +24,7 @@ import org.hornetq.core.security.Role;
 import org.hornetq.core.settings.HierarchicalRepository;
 import org.hornetq.core.settings.Mergeable;
 import org.hornetq.core.settings.impl.HierarchicalObjectRepository;
+import org.hornetq.core.settings.impl.Match;
 import org.hornetq.tests.util.UnitTestCase;
 
 /**
@@ -126,6 +129,112 @@ public class RepositoryTest extends UnitTestCase
       Assert.assertEquals("#", val);
    }
 
+   public void testSameMatchesAsPatterns()
+   {
+      String[] patterns = new String[] { "#",
+                                        "a",
+                                        "a.#",
+                                        "a.*",
+                                        "*.b",
+                                        "*.*",
+                                        "a.*.c",
+                                        "a..c",
+                                        "a.",
+                                        "",
+                                        "*.#",
+                                        "a.b*",
+                                        "a*",
+                                        "a#",
+                                        "*a.b",
+                                        "a.(b|c)",
+                                        "a.b+" };
+
+      String[] words = new String[] { "a", "b", "c", "", "ab", "bb", "b|c", "abc" };
+
+      HierarchicalRepository<String> repository = new HierarchicalObjectRepository<String>();
+
+      for (String pattern : patterns)
+      {
+         repository.addMatch(pattern, pattern);
+      }
+
+      Random random = new Random(1);
+
+      for (int i = 0; i < 5000; i++)
+      {
+         StringBuilder address = new StringBuilder(words[random.nextInt(words.length)]);
+
+         int numberOfWords = random.nextInt(4);
+
+         for (int j = 0; j < numberOfWords; j++)
+         {
+            address.append('.').append(words[random.nextInt(words.length)]);
+         }
+
+         // the most specific pattern matching the address, as sorted by the repository
+         List<String> matching = new ArrayList<String>();
+
+         for (String pattern : patterns)
+         {
+            if (new Match<String>(pattern).getPattern().matcher(address).matches())
+            {
+               matching.add(pattern);
+            }
+         }
+
+         String match = repository.getMatch(address.toString());
+
+         if (matching.isEmpty())
+         {
+            Assert.assertNull(address.toString(), match);
+         }
+         else
+         {
+            Assert.assertTrue(address + " matched " + match, matching.contains(match));
+
+            for (String pattern : matching)
+            {
+               HierarchicalRepository<String> single = new HierarchicalObjectRepository<String>();
+               single.addMatch(pattern, pattern);
+               single.addMatch(match, match);
+               Assert.assertEquals(address.toString(), match, single.getMatch(address.toString()));
+            }
+         }
+      }
+   }
+
+   public void testChangeInvalidatesMatchingAddresses()
+   {
+      HierarchicalRepository<String> repository = new HierarchicalObjectRepository<String>();
+      repository.addMatch("#", "#");
+      repository.addMatch("a.*", "a.*");
+
+      Assert.assertEquals("a.*", repository.getMatch("a.b"));
+      Assert.assertEquals("a.*", repository.getMatch("a.c"));
+      Assert.assertEquals("#", repository.getMatch("b.c"));
+      Assert.assertEquals(3, repository.getCacheSize());
+
+      repository.addMatch("a.b", "a.b");
+
+      Assert.assertEquals(2, repository.getCacheSize());
+      Assert.assertEquals("a.b", repository.getMatch("a.b"));
+      Assert.assertEquals("a.*", repository.getMatch("a.c"));
+
+      repository.removeMatch("a.*");
+
+      Assert.assertEquals(1, repository.getCacheSize());
+      Assert.assertEquals("a.b", repository.getMatch("a.b"));
+      Assert.assertEquals("#", repository.getMatch("a.c"));
+
+      repository.removeMatch("a.b");
+
+      Assert.assertEquals("#", repository.getMatch("a.b"));
+
+      repository.clearCache("a.b");
+
+      Assert.assertEquals(2, repository.getCacheSize());
+   }
+
    public void testRepositoryMerge()
    {
       HierarchicalRepository<DummyMergeable> repository = new HierarchicalObjectRepository<DummyMergeable>();
@@ -159,13 +268,19 @@ public class RepositoryTest extends UnitTestCase
    public void testIllegalMatches()
    {
       HierarchicalRepository<String> repository = new HierarchicalObjectRepository<String>();
-      try
+      // the hierarchical wildcard is only allowed at the end of a match
+      for (String match : new String[] { "hjhjhjhjh.#.hhh", "#.b", "a.#.c", "#.#", "#.*" })
       {
-         repository.addMatch("hjhjhjhjh.#.hhh", "test");
-      }
-      catch (IllegalArgumentException e)
-      {
-         // pass
+         try
+         {
+            repository.addMatch(match, "test");
+
+            Assert.fail(match + " should be rejected");
+         }
+         catch (IllegalArgumentException e)
+         {
+            // pass
+         }
       }
       try
       {
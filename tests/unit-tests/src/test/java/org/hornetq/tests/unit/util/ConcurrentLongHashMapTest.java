@@ -0,0 +1,211 @@
+/*
+ * Copyright 2009 Red Hat, Inc.
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package org.hornetq.tests.unit.util;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import junit.framework.Assert;
+
+import org.hornetq.tests.util.RandomUtil;
+import org.hornetq.tests.util.UnitTestCase;
+import org.hornetq.utils.ConcurrentLongHashMap;
+import org.hornetq.utils.ConcurrentLongHashSet;
+
+/**
+ * A ConcurrentLongHashMapTest
+ */
+public class ConcurrentLongHashMapTest extends UnitTestCase
+{
+
+   public void testPutGetRemove()
+   {
+      ConcurrentLongHashMap<String> map = new ConcurrentLongHashMap<String>(4, 2);
+
+      Assert.assertTrue(map.isEmpty());
+      Assert.assertNull(map.get(0));
+
+      Assert.assertNull(map.put(0, "zero"));
+      Assert.assertNull(map.put(-1, "minus one"));
+      Assert.assertNull(map.put(Long.MAX_VALUE, "max"));
+
+      Assert.assertEquals(3, map.size());
+      Assert.assertEquals("zero", map.get(0));
+      Assert.assertEquals("minus one", map.get(-1));
+      Assert.assertEquals("max", map.get(Long.MAX_VALUE));
+
+      Assert.assertEquals("zero", map.put(0, "ZERO"));
+      Assert.assertEquals("ZERO", map.putIfAbsent(0, "other"));
+      Assert.assertEquals("ZERO", map.get(0));
+      Assert.assertNull(map.putIfAbsent(1, "one"));
+
+      Assert.assertEquals("ZERO", map.remove(0));
+      Assert.assertNull(map.remove(0));
+      Assert.assertFalse(map.containsKey(0));
+      Assert.assertTrue(map.containsKey(1));
+      Assert.assertEquals(3, map.size());
+
+      map.clear();
+      Assert.assertTrue(map.isEmpty());
+      Assert.assertEquals(0, map.keys().length);
+   }
+
+   public void testNullValue()
+   {
+      ConcurrentLongHashMap<String> map = new ConcurrentLongHashMap<String>();
+      try
+      {
+         map.put(1, null);
+         Assert.fail("null values must be rejected");
+      }
+      catch (NullPointerException expected)
+      {
+      }
+   }
+
+   public void testAgainstHashMap()
+   {
+      ConcurrentLongHashMap<Long> map = new ConcurrentLongHashMap<Long>();
+      Map<Long, Long> expected = new HashMap<Long, Long>();
+
+      for (int i = 0; i < 100000; i++)
+      {
+         // a small key space so we get plenty of collisions, replacements and removals
+         long key = RandomUtil.randomPositiveInt() % 5000;
+         if (RandomUtil.randomBoolean())
+         {
+            Assert.assertEquals(expected.put(key, (long)i), map.put(key, (long)i));
+         }
+         else
+         {
+            Assert.assertEquals(expected.remove(key), map.remove(key));
+         }
+      }
+
+      Assert.assertEquals(expected.size(), map.size());
+
+      for (Map.Entry<Long, Long> entry : expected.entrySet())
+      {
+         Assert.assertEquals(entry.getValue(), map.get(entry.getKey()));
+      }
+
+      long[] keys = map.keys();
+      Arrays.sort(keys);
+      Assert.assertEquals(expected.size(), keys.length);
+      for (long key : keys)
+      {
+         Assert.assertTrue(expected.containsKey(key));
+      }
+
+      Assert.assertEquals(expected.size(), map.values().size());
+
+      ConcurrentLongHashMap<Long> copy = new ConcurrentLongHashMap<Long>();
+      copy.putAll(map);
+      Assert.assertEquals(expected.size(), copy.size());
+      for (Map.Entry<Long, Long> entry : expected.entrySet())
+      {
+         Assert.assertEquals(entry.getValue(), copy.get(entry.getKey()));
+      }
+   }
+
+   public void testSet()
+   {
+      ConcurrentLongHashSet set = new ConcurrentLongHashSet();
+
+      Assert.assertTrue(set.add(10));
+      Assert.assertFalse(set.add(10));
+      set.addAll(new long[] { 1, 2, 3 });
+
+      Assert.assertEquals(4, set.size());
+      Assert.assertTrue(set.contains(2));
+      Assert.assertTrue(set.remove(2));
+      Assert.assertFalse(set.contains(2));
+      Assert.assertFalse(set.remove(2));
+
+      long[] values = set.toArray();
+      Arrays.sort(values);
+      Assert.assertTrue(Arrays.equals(new long[] { 1, 3, 10 }, values));
+   }
+
+   public void testConcurrentUpdates() throws Exception
+   {
+      final ConcurrentLongHashMap<Long> map = new ConcurrentLongHashMap<Long>();
+
+      final int THREADS = 10;
+      final int RECORDS = 10000;
+
+      final CountDownLatch start = new CountDownLatch(1);
+      final AtomicInteger errors = new AtomicInteger(0);
+
+      Thread[] threads = new Thread[THREADS];
+
+      for (int i = 0; i < THREADS; i++)
+      {
+         final long base = i * RECORDS;
+         threads[i] = new Thread()
+         {
+            @Override
+            public void run()
+            {
+               try
+               {
+                  start.await();
+                  for (long id = base; id < base + RECORDS; id++)
+                  {
+                     map.put(id, id);
+                  }
+                  for (long id = base; id < base + RECORDS; id += 2)
+                  {
+                     if (map.remove(id) != id)
+                     {
+                        errors.incrementAndGet();
+                     }
+                  }
+               }
+               catch (Throwable e)
+               {
+                  e.printStackTrace();
+                  errors.incrementAndGet();
+               }
+            }
+         };
+         threads[i].start();
+      }
+
+      start.countDown();
+
+      for (Thread thread : threads)
+      {
+         thread.join();
+      }
+
+      Assert.assertEquals(0, errors.get());
+      Assert.assertEquals(THREADS * RECORDS / 2, map.size());
+
+      for (long id = 0; id < THREADS * RECORDS; id++)
+      {
+         if (id % 2 == 0)
+         {
+            Assert.assertNull(map.get(id));
+         }
+         else
+         {
+            Assert.assertEquals(Long.valueOf(id), map.get(id));
+         }
+      }
+   }
+}
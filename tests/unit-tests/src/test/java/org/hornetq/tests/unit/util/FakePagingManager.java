@@ -2,6 +2,7 @@ package org.hornetq.tests.unit.util;
 
 import java.util.Collection;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.hornetq.api.core.SimpleString;
 import org.hornetq.core.paging.PageTransactionInfo;
@@ -13,6 +14,8 @@ import org.hornetq.core.server.ServerMessage;
 public final class FakePagingManager implements PagingManager
 {
 
+   private final AtomicLong pageCacheSize = new AtomicLong(0);
+
    public void activate()
    {
    }
@@ -90,6 +93,16 @@ public final class FakePagingManager implements PagingManager
    {
    }
 
+   public void addPageCacheSize(final long delta)
+   {
+      pageCacheSize.addAndGet(delta);
+   }
+
+   public long getPageCacheSize()
+   {
+      return pageCacheSize.get();
+   }
+
    public void removeTransaction(final long transactionID)
    {
 